@@ -0,0 +1,47 @@
+package me.oldboy.market.jmh;
+
+import me.oldboy.market.cache_bd.AuditDB;
+import me.oldboy.market.entity.Audit;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер добавления записей в AuditDB, уже хранящий 1К, 100К и 1М записей.
+ * <p>
+ * Аудит только растет, поэтому замер идет пакетами: каждая итерация добавляет {@value #BATCH} записей
+ * в заново заполненный "кэш" (режим SingleShotTime), результат - время пакета.
+ * <p>
+ * Запуск: gradlew jmh -PjmhInclude=AuditDBBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = AuditDBBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = AuditDBBenchmark.BATCH)
+public class AuditDBBenchmark {
+    static final int BATCH = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private AuditDB auditDB;
+    private Random random;
+    private int number;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        auditDB = new AuditDB();
+        random = CatalogData.random();
+        for (number = 0; number < rows; number++) {
+            auditDB.add(CatalogData.audit(number, random));
+        }
+    }
+
+    @Benchmark
+    public Long add() {
+        Audit audit = CatalogData.audit(number++, random);
+        return auditDB.add(audit);
+    }
+}
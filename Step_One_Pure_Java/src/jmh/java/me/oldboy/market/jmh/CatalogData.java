@@ -0,0 +1,76 @@
+package me.oldboy.market.jmh;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.ProductDelta;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.util.Random;
+
+/**
+ * Тестовые данные замеров JMH: каталог из 20 категорий и 500 брэндов (как в замерах из src/test/.../benchmark),
+ * товары и записи аудита. Генератор с фиксированным зерном - при одинаковом числе строк данные совпадают
+ * от запуска к запуску, поэтому результаты можно сравнивать с сохраненными эталонами.
+ */
+final class CatalogData {
+    static final Category[] CATEGORIES = new Category[20];
+    static final Brand[] BRANDS = new Brand[500];
+
+    static {
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            CATEGORIES[i] = Category.builder().id(i + 1).name("Категория " + i).build();
+        }
+        for (int i = 0; i < BRANDS.length; i++) {
+            BRANDS[i] = Brand.builder().id(i + 1).name("Брэнд " + i).build();
+        }
+    }
+
+    private CatalogData() {
+    }
+
+    static Random random() {
+        return new Random(42);
+    }
+
+    static Product product(int number, Random random) {
+        return Product.builder()
+                .name("Товар " + number)
+                .price(random.nextInt(1_000_000) / 100.0)
+                .category(CATEGORIES[random.nextInt(CATEGORIES.length)])
+                .brand(BRANDS[random.nextInt(BRANDS.length)])
+                .description("Описание товара " + number)
+                .stockQuantity(random.nextInt(50))
+                .creationTimestamp(1_700_000_000_000L + number)
+                .lastModifiedTimestamp(1_700_000_000_000L + number)
+                .build();
+    }
+
+    /**
+     * @param rows число товаров
+     * @return "кэш" товаров с товарами, ID которых 1..rows
+     */
+    static ProductDB products(int rows) {
+        Random random = random();
+        ProductDB productDB = new ProductDB();
+        for (int i = 0; i < rows; i++) {
+            productDB.add(product(i, random));
+        }
+        return productDB;
+    }
+
+    static Audit audit(int number, Random random) {
+        return Audit.builder()
+                .timestamp(1_700_000_000_000L + number)
+                .userEmail("user" + random.nextInt(1_000) + "@market.me")
+                .action(Action.UPDATE_PRODUCT)
+                .isSuccess(Status.SUCCESS)
+                .productId((long) random.nextInt(1_000_000) + 1)
+                .productDelta(new ProductDelta(ProductDelta.PRICE, null, random.nextInt(1_000_000) / 100.0,
+                        null, null, null, 0))
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package me.oldboy.market.jmh;
+
+import me.oldboy.market.cache_bd.AuditDB;
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.cache_bd.loaders.ProductBDLoader;
+import me.oldboy.market.entity.Audit;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Замер сохранения и загрузки данных на 1К, 100К и 1М строк (одна операция - сохранение и чтение обратно):
+ * <p>
+ * - товары: колоночный снимок ProductBDLoader записывается и загружается в новый ProductDB;
+ * - аудит: записи добавляются в AuditDB с подключенным хранилищем сегментов (как делает AuditDBLoader),
+ * текущий сегмент сохраняется, затем новый AuditDB подключает тот же каталог и читает все записи.
+ * <p>
+ * Файлы пишутся во временный каталог, db_files приложения не затрагивается.
+ * <p>
+ * Запуск: gradlew jmh -PjmhInclude=LoaderRoundTripBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LoaderRoundTripBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private ProductDB productDB;
+    private Audit[] audits;
+    private Path directory;
+    private Path auditDirectory;
+
+    @Setup(Level.Trial)
+    public void fill() throws IOException {
+        productDB = CatalogData.products(rows);
+        Random random = CatalogData.random();
+        audits = new Audit[rows];
+        for (int i = 0; i < rows; i++) {
+            audits[i] = CatalogData.audit(i, random);
+        }
+        directory = Files.createTempDirectory("market-jmh");
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanAuditDirectory() {
+        delete(auditDirectory);
+        auditDirectory = directory.resolve("audit");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        delete(directory);
+    }
+
+    @Benchmark
+    public int productSnapshotRoundTrip() {
+        Path snapshotFile = directory.resolve("product.col");
+        ProductBDLoader.writeToExternalFile(productDB, snapshotFile);
+        ProductDB loaded = new ProductDB();
+        ProductBDLoader.readFromExternalFile(loaded, snapshotFile);
+        return loaded.getProductsList().size();
+    }
+
+    @Benchmark
+    public int auditSegmentsRoundTrip() {
+        AuditDB written = new AuditDB();
+        written.attachStorage(auditDirectory);
+        for (Audit audit : audits) {
+            written.add(audit);
+        }
+        written.flush();
+
+        AuditDB loaded = new AuditDB();
+        loaded.attachStorage(auditDirectory);
+        int[] count = {0};
+        loaded.forEach(audit -> count[0]++);
+        return count[0];
+    }
+
+    private static void delete(Path path) {
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
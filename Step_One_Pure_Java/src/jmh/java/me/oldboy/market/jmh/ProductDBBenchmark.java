@@ -0,0 +1,74 @@
+package me.oldboy.market.jmh;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Category;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер операций записи и выборки по категории ProductDB на 1К, 100К и 1М товаров.
+ * <p>
+ * Добавление замеряется вместе с удалением добавленного товара - так размер таблицы не растет
+ * от итерации к итерации. Обновление меняет цену существующих товаров по кругу.
+ * <p>
+ * Запуск: gradlew jmh -PjmhInclude=ProductDBBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductDBBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private ProductDB productDB;
+    private Random random;
+    private Product[] updates;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        productDB = CatalogData.products(rows);
+        random = CatalogData.random();
+        /* Заготовки обновлений: ID по всей таблице, категория и брэнд - как у товара */
+        updates = new Product[1024];
+        for (int i = 0; i < updates.length; i++) {
+            Product product = productDB.findProductById(1L + random.nextInt(rows)).get();
+            updates[i] = Product.builder()
+                    .id(product.getId())
+                    .name(product.getName())
+                    .category(product.getCategory())
+                    .brand(product.getBrand())
+                    .description(product.getDescription())
+                    .stockQuantity(product.getStockQuantity())
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public boolean addThenDelete() {
+        Product product = CatalogData.product(rows, random);
+        productDB.add(product);
+        return productDB.delete(product);
+    }
+
+    @Benchmark
+    public Product update() {
+        Product product = updates[next++ & updates.length - 1];
+        product.setPrice(next % 100_000 / 100.0);
+        productDB.update(product);
+        return product;
+    }
+
+    @Benchmark
+    public List<Product> findProductByCategory() {
+        Category category = CatalogData.CATEGORIES[next++ % CatalogData.CATEGORIES.length];
+        return productDB.findProductByCategory(category);
+    }
+}
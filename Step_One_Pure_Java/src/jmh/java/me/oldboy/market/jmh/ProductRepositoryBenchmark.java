@@ -0,0 +1,54 @@
+package me.oldboy.market.jmh;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер поиска товара по брэнду и названию через ProductRepository на 1К, 100К и 1М товаров.
+ * Половина запросов находит товар, половина - нет (название одного товара, брэнд другого).
+ * <p>
+ * Запуск: gradlew jmh -PjmhInclude=ProductRepositoryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductRepositoryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private ProductRepository productRepository;
+    private Product[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        ProductDB productDB = CatalogData.products(rows);
+        productRepository = new ProductRepository(productDB);
+        Random random = CatalogData.random();
+        queries = new Product[1024];
+        for (int i = 0; i < queries.length; i++) {
+            Product product = productDB.findProductById(1L + random.nextInt(rows)).get();
+            /* Брэнд берется у товара из таблицы: поиск по брэнду без товаров - ошибка, а не промах */
+            Product other = productDB.findProductById(1L + random.nextInt(rows)).get();
+            queries[i] = i % 2 == 0 ? product : Product.builder()
+                    .name(product.getName())
+                    .brand(other.getBrand())
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public Optional<Product> findByBrandAndName() {
+        Product query = queries[next++ & queries.length - 1];
+        return productRepository.findByBrandAndName(query.getBrand(), query.getName());
+    }
+}
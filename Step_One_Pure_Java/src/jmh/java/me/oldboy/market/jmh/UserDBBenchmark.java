@@ -0,0 +1,47 @@
+package me.oldboy.market.jmh;
+
+import me.oldboy.market.cache_bd.UserDB;
+import me.oldboy.market.entity.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер поиска пользователя по email на 1К, 100К и 1М пользователей.
+ * <p>
+ * Запуск: gradlew jmh -PjmhInclude=UserDBBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UserDBBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private UserDB userDB;
+    private String[] emails;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        userDB = new UserDB();
+        for (int i = 0; i < rows; i++) {
+            userDB.add(User.builder().email("user" + i + "@market.me").password("pass" + i).build());
+        }
+        Random random = CatalogData.random();
+        emails = new String[1024];
+        for (int i = 0; i < emails.length; i++) {
+            emails[i] = "user" + random.nextInt(rows) + "@market.me";
+        }
+    }
+
+    @Benchmark
+    public Optional<User> findUserByEmail() {
+        return userDB.findUserByEmail(emails[next++ & emails.length - 1]);
+    }
+}
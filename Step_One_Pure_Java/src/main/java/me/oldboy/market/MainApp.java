@@ -1,14 +1,17 @@
 package me.oldboy.market;
 
 import me.oldboy.market.cache_bd.loaders.AuditDBLoader;
-import me.oldboy.market.cache_bd.loaders.ProductBDLoader;
 import me.oldboy.market.config_context.ContextApp;
 import me.oldboy.market.menu.MainMenu;
+import me.oldboy.market.server.ConsoleServer;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.Scanner;
 
 /**
- * Основной запускаемый класс (точка входя в приложение)
+ * Основной запускаемый класс (точка входя в приложение).
+ * С -Dserver.port=7070 - режим сервера: меню доступно по TCP сразу нескольким пользователям ({@link ConsoleServer}).
  */
 public class MainApp {
     public static void main(String[] args) {
@@ -20,13 +23,59 @@ public class MainApp {
         String inputEncoding = "Cp1251".equalsIgnoreCase(consoleEncoding) ? "windows-1251" : "UTF-8";
         Scanner scanner = new Scanner(System.in, inputEncoding);
 
-        MainMenu mainMenu = new MainMenu(mainContext);
-        mainMenu.startMainMenu(scanner);
+        Integer serverPort = Integer.getInteger("server.port");
+        if (serverPort == null) {
+            MainMenu mainMenu = new MainMenu(mainContext);
+            mainMenu.startMainMenu(scanner);
+        } else {
+            serve(mainContext, serverPort, scanner);
+        }
 
-        /* Сохраняем данные в файлы */
-        AuditDBLoader.writeToExternalFile(mainContext.getAuditDB());
-        ProductBDLoader.writeToExternalFile(mainContext.getProductDB());
+        /*
+        Сохраняем данные в файлы: дописываем очередь аудита и сохраняем текущий сегмент,
+        товары - дописав журнал и сделав контрольную точку (даже если аудит сохранить не удалось)
+        */
+        try {
+            mainContext.getAuditWriter().close();
+            AuditDBLoader.writeToExternalFile(mainContext.getAuditDB());
+        } finally {
+            mainContext.getProductJournal().close();
+        }
 
         System.out.println("\n*** Программа завершена ***");
     }
+
+    /**
+     * Режим сервера: каждое подключение - свое главное меню над общим контекстом, работает до ввода stop
+     * (или конца ввода) в консоли сервера. Кодировка протокола - -Dserver.encoding (UTF-8),
+     * -Dserver.virtualThreads=false - сеансы в обычных потоках.
+     *
+     * @param mainContext общий для всех сеансов контекст приложения
+     * @param port        порт сервера
+     * @param scanner     ввод консоли сервера
+     */
+    private static void serve(ContextApp mainContext, int port, Scanner scanner) {
+        Charset charset = Charset.forName(System.getProperty("server.encoding", "UTF-8"));
+        boolean virtualThreads = Boolean.parseBoolean(System.getProperty("server.virtualThreads", "true"));
+        ConsoleServer server = new ConsoleServer(port, charset, virtualThreads,
+                session -> new MainMenu(mainContext).startMainMenu(session));
+        try {
+            server.start();
+        } catch (IOException e) {
+            System.out.println("Не удалось открыть порт " + port + ": " + e.getMessage());
+            return;
+        }
+        System.out.println("Сервер слушает порт " + server.getPort() +
+                (server.isVirtualThreads() ? " (сеансы - виртуальные потоки)" : " (сеансы - обычные потоки)") +
+                ", для остановки введите stop");
+        while (scanner.hasNextLine()) {
+            String command = scanner.nextLine().trim();
+            if (command.equalsIgnoreCase("stop")) {
+                break;
+            }
+            System.out.println("Сеансов открыто: " + server.activeSessions() +
+                    ", принято подключений: " + server.acceptedSessions());
+        }
+        server.close();
+    }
 }
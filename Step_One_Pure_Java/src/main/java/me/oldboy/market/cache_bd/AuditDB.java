@@ -1,29 +1,163 @@
 package me.oldboy.market.cache_bd;
 
-import lombok.Getter;
+import me.oldboy.market.cache_bd.audit.AuditRollups;
+import me.oldboy.market.cache_bd.audit.AuditSegment;
+import me.oldboy.market.cache_bd.audit.AuditSegmentStore;
+import me.oldboy.market.cache_bd.audit.AuditWriter;
+import me.oldboy.market.cache_bd.audit.SegmentHeader;
+import me.oldboy.market.cache_bd.index.IndexSet;
+import me.oldboy.market.cache_bd.index.NonUniqueIndex;
 import me.oldboy.market.entity.Audit;
-import me.oldboy.market.exceptions.BrandDBException;
+import me.oldboy.market.exceptions.AuditDBException;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 /**
- * Класс имитирующий "кэш" таблицы БД содержащей записи аудита
+ * Класс имитирующий "кэш" таблицы БД содержащей записи аудита.
+ * <p>
+ * Записи только добавляются и хранятся сегментами фиксированного размера ({@link AuditSegment}):
+ * ID записи однозначно задает номер сегмента и смещение в нем, поэтому поиск по ID - O(1).
+ * Заполненный сегмент "запечатывается"; если подключено файловое хранилище ({@link #attachStorage}),
+ * он сбрасывается на диск и вытесняется из кучи, а при чтении подгружается обратно в небольшой кэш.
+ * Старые сегменты удаляются целиком - по числу хранимых сегментов или по времени.
+ * Загрузку аудита можно отложить до первого обращения к записям ({@link #loadOnFirstAccess}).
+ * <p>
+ * Индекс по email пользователя ({@link IndexSet}) хранит не ID записей, а номера сегментов,
+ * в которых у пользователя есть записи - поиск по email читает только эти сегменты.
+ * <p>
+ * Каждая добавленная запись учитывается в сводках по минутам и часам ({@link AuditRollups}) - аналитика
+ * аудита читает только их. Сводки сохраняются в хранилище вместе с текущим сегментом ({@link #flush}),
+ * при подключении хранилища досчитываются записи, добавленные после их сохранения.
+ * <p>
+ * В приложении записи добавляет фоновый поток {@link AuditWriter} - пачками ({@link #addAll}).
  */
 public class AuditDB {
+    /**
+     * Число записей в сегменте
+     */
+    public static final int SEGMENT_SIZE = 4096;
+    /**
+     * Сколько вытесненных сегментов держать в куче после чтения с диска
+     */
+    private static final int CACHED_SEGMENTS = 2;
 
-    @Getter
-    private List<Audit> auditLogList = new ArrayList<>();
+    private final int segmentSize;
+    private final IndexSet<Audit, Long> indexes;
+    private final NonUniqueIndex<Audit, String, Long> byUserEmail;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /* Запечатанные сегменты по номерам; сами записи - в resident (без хранилища) или на диске */
+    private final NavigableMap<Long, SegmentHeader> sealed = new TreeMap<>();
+    private final Map<Long, AuditSegment> resident = new HashMap<>();
+    private final Map<Long, AuditSegment> loaded = new LinkedHashMap<>(CACHED_SEGMENTS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, AuditSegment> eldest) {
+            return size() > CACHED_SEGMENTS;
+        }
+    };
+
+    private AuditSegment active;
+    private AuditSegmentStore store;
+    private AuditRollups rollups = new AuditRollups();
+    private int retainedSegments = Integer.MAX_VALUE;
+    private int size;
+    /* Загрузка, отложенная до первого обращения к записям (см. loadOnFirstAccess) */
+    private final Object loadMonitor = new Object();
+    private volatile Consumer<AuditDB> pendingLoader;
+    private boolean loading;
+    /* Ошибка отложенной загрузки: аудит не загружен, обращения к нему завершаются этой ошибкой */
+    private RuntimeException loadFailure;
 
     private static AuditDB INSTANCE;
 
-    public static AuditDB getINSTANCE() {
+    public static synchronized AuditDB getINSTANCE() {
         if (INSTANCE == null) {
             INSTANCE = new AuditDB();
         }
         return INSTANCE;
     }
 
+    public AuditDB() {
+        this(SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize число записей в сегменте
+     */
+    public AuditDB(int segmentSize) {
+        this.segmentSize = segmentSize;
+        this.active = new AuditSegment(0, segmentSize);
+        this.indexes = new IndexSet<>(audit -> (audit.getId() - 1) / segmentSize);
+        this.byUserEmail = indexes.nonUnique("userEmail", Audit::getUserEmail);
+    }
+
+    /**
+     * Откладывает загрузку аудита (подключение хранилища и т.п.) до первого обращения к записям:
+     * загрузчик выполняется один раз в потоке, первым обратившемся к аудиту, остальные потоки его дожидаются.
+     * Если загрузчик завершился ошибкой, она выбрасывается первому обратившемуся, а всем следующим -
+     * {@link AuditDBException} с ней в качестве причины: пустой "кэш" не выдается за загруженный
+     * и не перезаписывает аудит на диске.
+     *
+     * @param loader загрузчик, получает этот "кэш"
+     */
+    public void loadOnFirstAccess(Consumer<AuditDB> loader) {
+        synchronized (loadMonitor) {
+            loadFailure = null;
+            pendingLoader = loader;
+        }
+    }
+
+    /**
+     * @return true - если отложенная загрузка назначена и еще не выполнялась
+     */
+    public boolean isLoadPending() {
+        return pendingLoader != null;
+    }
+
+    /**
+     * Подключает файловое хранилище сегментов и загружает из него каталог сегментов и текущий сегмент.
+     * Записи запечатанных сегментов в память не читаются, индекс по email строится по словарям сегментов.
+     *
+     * @param directory каталог с файлами сегментов
+     */
+    public void attachStorage(Path directory) {
+        lock.writeLock().lock();
+        try {
+            if (size != 0) {
+                throw new AuditDBException("Storage can be attached only to an empty audit DB");
+            }
+            AuditSegmentStore segmentStore = new AuditSegmentStore(directory);
+            List<SegmentHeader> headers = segmentStore.sealedHeaders();
+            for (SegmentHeader header : headers) {
+                checkCapacity(header.getCapacity());
+                sealed.put(header.getNumber(), header);
+                size += header.getCount();
+                long firstId = header.getNumber() * segmentSize + 1;
+                for (String email : segmentStore.readEmails(header)) {
+                    indexes.add(Audit.builder().id(firstId).userEmail(email).build());
+                }
+            }
+            long nextNumber = sealed.isEmpty() ? 0 : sealed.lastKey() + 1;
+            AuditSegment saved = segmentStore.readActive();
+            /* Сохраненный текущий сегмент мог быть позже запечатан - тогда он уже есть в каталоге */
+            if (saved != null && saved.number() >= nextNumber) {
+                checkCapacity(saved.capacity());
+                active = saved;
+                size += saved.count();
+                saved.forEach(indexes::add);
+            } else {
+                active = new AuditSegment(nextNumber, segmentSize);
+            }
+            attachRollups(segmentStore, headers);
+            store = segmentStore;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     /**
      * Метод добавляющий новые записи о действиях пользователей в аудит "кэш"
      *
@@ -31,19 +165,372 @@ public class AuditDB {
      * @return ID сохраненной аудит записи
      */
     public Long add(Audit auditLog) {
-        long index = 1;
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            return append(auditLog);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет пачку записей под одной блокировкой (используется фоновой записью аудита)
+     *
+     * @param auditLogs записи о действиях пользователей в порядке добавления
+     */
+    public void addAll(Collection<Audit> auditLogs) {
+        if (auditLogs.isEmpty()) {
+            return;
+        }
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            for (Audit auditLog : auditLogs) {
+                append(auditLog);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-        if (auditLogList.size() != 0) {
-            index = index + auditLogList
-                    .stream()
-                    .map(a -> a.getId())
-                    .max((a, b) -> a > b ? 1 : -1)
-                    .orElseThrow(() -> new BrandDBException("Element not found"));
+    /**
+     * @return сводки аудита по минутам и часам (запросы аналитики не читают сами записи)
+     */
+    public AuditRollups rollups() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return rollups;
+        } finally {
+            lock.readLock().unlock();
         }
+    }
 
-        auditLog.setId(index);
-        auditLogList.add(auditLog);
+    /**
+     * @param id ID записи аудита
+     * @return Optional с найденной записью или empty, если ее нет (в т.ч. удалена по сроку хранения)
+     */
+    public Optional<Audit> findById(Long id) {
+        if (id == null || id < 1) {
+            return Optional.empty();
+        }
+        ensureLoaded();
+        long number = (id - 1) / segmentSize;
+        lock.readLock().lock();
+        try {
+            if (number == active.number()) {
+                return Optional.ofNullable(active.get(id));
+            }
+            SegmentHeader header = sealed.get(number);
+            return header == null ? Optional.empty() : Optional.ofNullable(segment(header).get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return все хранимые записи в порядке добавления
+     */
+    public List<Audit> findAll() {
+        List<Audit> result = new ArrayList<>();
+        forEach(result::add);
+        return result;
+    }
 
+    /**
+     * Перебирает все хранимые записи в порядке добавления, подгружая с диска по одному сегменту
+     */
+    public void forEach(Consumer<Audit> action) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            for (SegmentHeader header : sealed.values()) {
+                segment(header).forEach(action);
+            }
+            active.forEach(action);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет записи по временной метке, сегменты вне диапазона пропускаются без загрузки с диска
+     *
+     * @param from начало диапазона (Unix timestamp в миллисекундах, включительно)
+     * @param to   конец диапазона (включительно)
+     * @return записи в порядке добавления
+     */
+    public List<Audit> findByTimestampBetween(long from, long to) {
+        ensureLoaded();
+        List<Audit> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (SegmentHeader header : sealed.values()) {
+                if (header.overlaps(from, to)) {
+                    segment(header).forEachBetween(from, to, result::add);
+                }
+            }
+            active.forEachBetween(from, to, result::add);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Ищет записи пользователя по индексу email, читаются только сегменты с записями пользователя
+     *
+     * @param email email пользователя
+     * @return записи пользователя в порядке добавления
+     */
+    public List<Audit> findByUserEmail(String email) {
+        ensureLoaded();
+        List<Audit> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long number : new TreeSet<>(byUserEmail.find(email))) {
+                if (number == active.number()) {
+                    active.forEachWithEmail(email, result::add);
+                } else {
+                    SegmentHeader header = sealed.get(number);
+                    if (header != null) {
+                        segment(header).forEachWithEmail(email, result::add);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Задает, сколько запечатанных сегментов хранить, более старые удаляются целиком
+     *
+     * @param retainedSegments число хранимых запечатанных сегментов
+     */
+    public void setRetainedSegments(int retainedSegments) {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            this.retainedSegments = retainedSegments;
+            applyRetention();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет запечатанные сегменты, все записи которых старше заданного момента
+     *
+     * @param timestamp граница (Unix timestamp в миллисекундах)
+     * @return число удаленных записей
+     */
+    public int dropSegmentsOlderThan(long timestamp) {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            int dropped = 0;
+            for (SegmentHeader header : new ArrayList<>(sealed.values())) {
+                if (header.getMaxTimestamp() < timestamp) {
+                    dropped += drop(header.getNumber());
+                }
+            }
+            return dropped;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сохраняет текущий (незапечатанный) сегмент и сводки в хранилище, запечатанные сегменты уже на диске
+     */
+    public void flush() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            if (store != null) {
+                store.writeActive(active);
+                store.writeRollups(rollups);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return число хранимых записей
+     */
+    public int size() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return число сегментов, записи которых сейчас находятся в куче (включая текущий)
+     */
+    public int residentSegments() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            synchronized (loaded) {
+                return resident.size() + loaded.size() + 1;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Очищает "кэш" и отключает файловое хранилище (файлы на диске не удаляются), отложенная загрузка
+     * (и ее ошибка) отменяется
+     */
+    public void clear() {
+        synchronized (loadMonitor) {
+            loadFailure = null;
+            pendingLoader = null;
+        }
+        lock.writeLock().lock();
+        try {
+            sealed.clear();
+            resident.clear();
+            synchronized (loaded) {
+                loaded.clear();
+            }
+            active = new AuditSegment(0, segmentSize);
+            indexes.clear();
+            rollups = new AuditRollups();
+            store = null;
+            retainedSegments = Integer.MAX_VALUE;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет отложенную загрузку, если она назначена. Обращения к аудиту из самого загрузчика ее не ждут.
+     * Загрузка считается выполненной только после успешного завершения загрузчика.
+     *
+     * @throws AuditDBException если загрузчик завершился ошибкой при одном из прошлых обращений
+     */
+    private void ensureLoaded() {
+        if (pendingLoader == null) {
+            return;
+        }
+        synchronized (loadMonitor) {
+            Consumer<AuditDB> loader = pendingLoader;
+            if (loader == null || loading) {
+                return;
+            }
+            if (loadFailure != null) {
+                throw new AuditDBException("Audit was not loaded", loadFailure);
+            }
+            loading = true;
+            try {
+                loader.accept(this);
+                pendingLoader = null;
+            } catch (RuntimeException e) {
+                loadFailure = e;
+                throw e;
+            } finally {
+                loading = false;
+            }
+        }
+    }
+
+    /**
+     * Загружает сохраненные сводки и досчитывает записи после последней учтенной в них. Если сводок нет
+     * (хранилище прежней версии) или файл поврежден, они один раз строятся по всем сегментам.
+     * Поврежденный сегмент в сводки не попадает, но и не мешает подключению хранилища: его ошибка
+     * проявится при чтении его записей.
+     */
+    private void attachRollups(AuditSegmentStore segmentStore, List<SegmentHeader> headers) {
+        AuditRollups saved = segmentStore.readRollups(AuditRollups.MINUTE_RETENTION);
+        rollups = saved == null ? new AuditRollups() : saved;
+        long covered = rollups.lastId();
+        Consumer<Audit> catchUp = audit -> {
+            if (audit.getId() > covered) {
+                rollups.record(audit);
+            }
+        };
+        for (SegmentHeader header : headers) {
+            if (header.getNumber() * segmentSize + header.getCount() > covered) {
+                try {
+                    segmentStore.readSealed(header).forEach(catchUp);
+                } catch (AuditDBException e) {
+                    /* Пропускаем поврежденный сегмент */
+                }
+            }
+        }
+        active.forEach(catchUp);
+    }
+
+    /* Вызывается под блокировкой записи */
+    private long append(Audit auditLog) {
+        long index = active.firstId() + active.count();
+        auditLog.setId(index);
+        active.append(auditLog);
+        indexes.add(auditLog);
+        rollups.record(auditLog);
+        size++;
+        if (active.isFull()) {
+            seal();
+        }
         return index;
     }
-}
\ No newline at end of file
+
+    private void seal() {
+        SegmentHeader header = SegmentHeader.of(active);
+        if (store != null) {
+            store.writeSealed(active);
+        } else {
+            resident.put(active.number(), active);
+        }
+        sealed.put(header.getNumber(), header);
+        active = new AuditSegment(active.number() + 1, segmentSize);
+        applyRetention();
+    }
+
+    private void applyRetention() {
+        while (sealed.size() > retainedSegments) {
+            drop(sealed.firstKey());
+        }
+    }
+
+    private int drop(long number) {
+        SegmentHeader header = sealed.remove(number);
+        resident.remove(number);
+        byUserEmail.removeValue(number);
+        synchronized (loaded) {
+            loaded.remove(number);
+        }
+        if (store != null) {
+            store.deleteSealed(number);
+        }
+        size -= header.getCount();
+        return header.getCount();
+    }
+
+    private AuditSegment segment(SegmentHeader header) {
+        AuditSegment segment = resident.get(header.getNumber());
+        if (segment != null) {
+            return segment;
+        }
+        synchronized (loaded) {
+            return loaded.computeIfAbsent(header.getNumber(), number -> store.readSealed(header));
+        }
+    }
+
+    private void checkCapacity(int capacity) {
+        if (capacity != segmentSize) {
+            throw new AuditDBException("Audit segment size " + capacity + " doesn't match " + segmentSize);
+        }
+    }
+}
@@ -1,23 +1,29 @@
 package me.oldboy.market.cache_bd;
 
-import lombok.Getter;
+import me.oldboy.market.cache_bd.index.IndexSet;
+import me.oldboy.market.cache_bd.index.UniqueIndex;
 import me.oldboy.market.entity.prod_species.Brand;
 import me.oldboy.market.exceptions.BrandDBException;
 
 import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * Класс имитирующий "кэш" таблицы БД содержащей данные о доступных брэндах
+ * Класс имитирующий "кэш" таблицы БД содержащей данные о доступных брэндах.
+ * Доступ - под блокировкой чтения/записи: с таблицей одновременно работают сеансы сервера (см. server).
  */
 public class BrandDB {
-    @Getter
-    private List<Brand> brandList = new ArrayList<>();
-    @Getter
-    private Map<Integer, Brand> indexBrand = new HashMap<>();
+    private final List<Brand> brandList = new ArrayList<>();
+    private final Map<Integer, Brand> indexBrand = new HashMap<>();
+
+    private final IndexSet<Brand, Integer> indexes = new IndexSet<>(Brand::getId);
+    private final UniqueIndex<Brand, String, Integer> byName = indexes.unique("name", Brand::getName);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     private static BrandDB INSTANCE;
 
-    public static BrandDB getINSTANCE() {
+    public static synchronized BrandDB getINSTANCE() {
         if (INSTANCE == null) {
             INSTANCE = new BrandDB();
         }
@@ -31,20 +37,27 @@ public class BrandDB {
      * @return уникальный ID идентификатор добавленного в БД брэнда
      */
     public Integer add(Brand brand) {
-        Integer index = 1;
+        lock.writeLock().lock();
+        try {
+            indexes.check(brand);
+            Integer index = 1;
 
-        if (brandList.size() != 0) {
-            index = index + brandList.stream()
-                    .map(b -> b.getId())
-                    .max((a, b) -> a > b ? 1 : -1)
-                    .orElseThrow(() -> new BrandDBException("Element not found"));
-        }
+            if (brandList.size() != 0) {
+                index = index + brandList.stream()
+                        .map(b -> b.getId())
+                        .max((a, b) -> a > b ? 1 : -1)
+                        .orElseThrow(() -> new BrandDBException("Element not found"));
+            }
 
-        brand.setId(index);
-        brandList.add(brand);
-        indexBrand.put(index, brand);
+            brand.setId(index);
+            brandList.add(brand);
+            indexBrand.put(index, brand);
+            indexes.add(brand);
 
-        return index;
+            return index;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -54,6 +67,52 @@ public class BrandDB {
      * @return Optional, содержащий Brand, если искомый брэнд найден, иначе пустой Optional.
      */
     public Optional<Brand> getById(Integer id) {
-        return Optional.ofNullable(indexBrand.get(id));
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(indexBrand.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод извлекает брэнд по уникальному названию, поиск идет по индексу
+     *
+     * @param name название
+     * @return Optional, содержащий Brand, если найден, иначе пустой Optional.
+     */
+    public Optional<Brand> findByName(String name) {
+        lock.readLock().lock();
+        try {
+            return byName.find(name).map(indexBrand::get);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return неизменяемая копия списка всех брэндов
+     */
+    public List<Brand> findAll() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(brandList);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод очищает "кэш" вместе с индексами (применяется в тестах и при перезагрузке данных)
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            brandList.clear();
+            indexBrand.clear();
+            indexes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 }
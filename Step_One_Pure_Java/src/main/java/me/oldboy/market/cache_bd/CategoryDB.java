@@ -1,23 +1,29 @@
 package me.oldboy.market.cache_bd;
 
-import lombok.Getter;
+import me.oldboy.market.cache_bd.index.IndexSet;
+import me.oldboy.market.cache_bd.index.UniqueIndex;
 import me.oldboy.market.entity.prod_species.Category;
 import me.oldboy.market.exceptions.CategoryDBException;
 
 import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * Класс имитирующий "кэш" таблицы БД содержащей данные о доступных товарных категориях
+ * Класс имитирующий "кэш" таблицы БД содержащей данные о доступных товарных категориях.
+ * Доступ - под блокировкой чтения/записи: с таблицей одновременно работают сеансы сервера (см. server).
  */
 public class CategoryDB {
-    @Getter
-    private List<Category> categoryList = new ArrayList<>();
-    @Getter
-    private Map<Integer, Category> indexCategory = new HashMap<>();
+    private final List<Category> categoryList = new ArrayList<>();
+    private final Map<Integer, Category> indexCategory = new HashMap<>();
+
+    private final IndexSet<Category, Integer> indexes = new IndexSet<>(Category::getId);
+    private final UniqueIndex<Category, String, Integer> byName = indexes.unique("name", Category::getName);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     private static CategoryDB INSTANCE;
 
-    public static CategoryDB getINSTANCE() {
+    public static synchronized CategoryDB getINSTANCE() {
         if (INSTANCE == null) {
             INSTANCE = new CategoryDB();
         }
@@ -31,20 +37,27 @@ public class CategoryDB {
      * @return уникальный идентификатор ID категории добавленной в "кэш" БД
      */
     public Integer add(Category category) {
-        Integer index = 1;
+        lock.writeLock().lock();
+        try {
+            indexes.check(category);
+            Integer index = 1;
 
-        if (categoryList.size() != 0) {
-            index = index + categoryList.stream()
-                    .map(c -> c.getId())
-                    .max((c, d) -> c > d ? 1 : -1)
-                    .orElseThrow(() -> new CategoryDBException("Element not found"));
-        }
+            if (categoryList.size() != 0) {
+                index = index + categoryList.stream()
+                        .map(c -> c.getId())
+                        .max((c, d) -> c > d ? 1 : -1)
+                        .orElseThrow(() -> new CategoryDBException("Element not found"));
+            }
 
-        category.setId(index);
-        categoryList.add(category);
-        indexCategory.put(index, category);
+            category.setId(index);
+            categoryList.add(category);
+            indexCategory.put(index, category);
+            indexes.add(category);
 
-        return index;
+            return index;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -54,6 +67,52 @@ public class CategoryDB {
      * @return Optional, содержащий Category объект, если категория найдена, иначе пустой Optional.
      */
     public Optional<Category> findById(Integer id) {
-        return Optional.ofNullable(indexCategory.get(id));
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(indexCategory.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод извлекает категорию по уникальному названию, поиск идет по индексу
+     *
+     * @param name название
+     * @return Optional, содержащий Category, если найден, иначе пустой Optional.
+     */
+    public Optional<Category> findByName(String name) {
+        lock.readLock().lock();
+        try {
+            return byName.find(name).map(indexCategory::get);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return неизменяемая копия списка всех категорий
+     */
+    public List<Category> findAll() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(categoryList);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод очищает "кэш" вместе с индексами (применяется в тестах и при перезагрузке данных)
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            categoryList.clear();
+            indexCategory.clear();
+            indexes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
-}
\ No newline at end of file
+}
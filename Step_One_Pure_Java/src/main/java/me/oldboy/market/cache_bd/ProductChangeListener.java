@@ -0,0 +1,34 @@
+package me.oldboy.market.cache_bd;
+
+import me.oldboy.market.entity.Product;
+
+/**
+ * Слушатель изменений "кэша" товаров {@link ProductDB}.
+ * <p>
+ * Методы вызываются синхронно, под блокировкой "полосы" изменяемого товара, поэтому изменения
+ * одного товара приходят строго по порядку, а изменения разных товаров - из разных потоков
+ * одновременно. Реализация должна быть потокобезопасной и быстрой.
+ */
+public interface ProductChangeListener {
+    /**
+     * Товар добавлен в "кэш" (в т.ч. при загрузке ранее сохраненных данных)
+     *
+     * @param product добавленный товар с присвоенным ID
+     */
+    void onAdd(Product product);
+
+    /**
+     * Товар обновлен
+     *
+     * @param before копия товара до изменения
+     * @param after  товар после изменения
+     */
+    void onUpdate(Product before, Product after);
+
+    /**
+     * Товар удален из "кэша"
+     *
+     * @param product удаленный товар
+     */
+    void onDelete(Product product);
+}
@@ -1,69 +1,321 @@
 package me.oldboy.market.cache_bd;
 
-import lombok.Getter;
+import me.oldboy.market.cache_bd.index.IndexSet;
+import me.oldboy.market.cache_bd.index.NonUniqueIndex;
+import me.oldboy.market.cache_bd.index.SortedIndex;
+import me.oldboy.market.cache_bd.offheap.ProductRecordStore;
+import me.oldboy.market.cache_bd.offheap.ProductSlabStore;
+import me.oldboy.market.cache_bd.offheap.ReadPins;
+import me.oldboy.market.cache_bd.primitive.KeyDictionary;
+import me.oldboy.market.cache_bd.primitive.PersistentArray;
+import me.oldboy.market.cache_bd.primitive.PersistentBitmap;
+import me.oldboy.market.cache_bd.query.ProductQuery;
+import me.oldboy.market.cache_bd.query.ProductSort;
+import me.oldboy.market.cache_bd.query.QueryPlan;
+import me.oldboy.market.cache_bd.query.QueryResult;
+import me.oldboy.market.cache_bd.stats.CatalogStatistics;
+import me.oldboy.market.cache_bd.text.ProductTextIndex;
+import me.oldboy.market.cache_bd.tiered.TierCounters;
+import me.oldboy.market.cache_bd.tiered.TieredProductStore;
 import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.ProductCursor;
+import me.oldboy.market.entity.ProductPage;
 import me.oldboy.market.entity.prod_species.Brand;
 import me.oldboy.market.entity.prod_species.Category;
 import me.oldboy.market.exceptions.ProductDBException;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
- * Класс имитирует "кэш" таблицы БД содержащей данные о доступных товарах
+ * Класс имитирует "кэш" таблицы БД содержащей данные о доступных товарах.
+ * <p>
+ * Таблица версионирована (MVCC): ее содержимое - неизменяемая {@link Version}, которую писатели
+ * не меняют, а заменяют новой, атомарно публикуя ее. Читатель берет текущую версию ({@link #snapshot()})
+ * и работает с согласованным срезом таблицы без каких-либо блокировок, сколько бы записей ни прошло за это время.
+ * Товар в версии тоже не меняется: {@link #update} кладет в новую версию измененную копию товара.
+ * <p>
+ * Данные разбиты на независимые "полосы" (stripes) по ID товара. Писатели одной полосы выстраиваются
+ * в очередь на ее блокировке, писатели разных полос готовят изменения параллельно. Внутри полосы товары лежат
+ * в неизменяемом массиве {@link PersistentArray}, категории и брэнды - в битовых картах {@link PersistentBitmap}:
+ * изменение копирует только путь к измененному элементу, остальное у версий общее.
+ * ID выдаются атомарным счетчиком, который при загрузке данных "подтягивается" к максимальному ID.
+ * <p>
+ * Поиск по названию и по паре (брэнд, название) идет через вторичные индексы {@link IndexSet},
+ * которые хранят ID товаров и поддерживаются при каждом изменении под блокировкой полосы товара.
+ * Упорядоченные индексы по цене (в том числе внутри категории) и по остатку дают выборки диапазонов
+ * и постраничный обход без просмотра всей таблицы. Вторичные индексы общие для всех версий, поэтому
+ * каждый найденный по ним ID читается из версии читателя и перепроверяется условиями запроса.
+ * <p>
+ * Поиск по набору условий - {@link #query(ProductQuery)}: планировщик выбирает самый избирательный путь
+ * доступа из перечисленных индексов, битовые карты категории и брэнда пересекает, а если индекс
+ * не подходит - просматривает таблицу параллельно. На нем же построены методы findProductByXxx.
+ * Так же поддерживается полнотекстовый индекс по названию и описанию ({@link ProductTextIndex}).
+ * <p>
+ * Сводки по категориям, брэндам и всему каталогу ({@link CatalogStatistics}) подписаны на изменения таблицы
+ * и обновляются вместе с ней, поэтому {@link #statistics()} отдает их без просмотра товаров.
+ * <p>
+ * Для каталогов в миллионы товаров таблица может хранить товары вне кучи ({@link ProductSlabStore}):
+ * полосы тогда держат не объекты товаров, а handle записей, товар собирается при каждом чтении.
+ * Запись, которой нет в новой версии, освобождается, когда ее не читает ни одно чтение в процессе
+ * ({@link ReadPins}) и после нее опубликовано не меньше {@value #SNAPSHOT_RETENTION} версий: столько версий
+ * назад можно читать и через ранее взятую {@link #snapshot()}, чтение более старой версии бросает исключение.
+ * Синглтон включает этот режим системным свойством products.offHeap=true.
+ * <p>
+ * Так же записи товаров могут лежать в файле на диске, а в куче - только часто читаемые товары
+ * ({@link TieredProductStore}, свойство products.tiered=true): размер каталога тогда ограничен диском, а не -Xmx.
+ * Оба режима - реализации {@link ProductRecordStore}, полосы и версии таблицы с ними работают одинаково.
  */
 public class ProductDB {
-    @Getter
-    private List<Product> productsList = new ArrayList<>();
-    @Getter
-    private Map<Long, Product> productByIdIndex = new HashMap<>();
-    @Getter
-    private Map<Category, List<Product>> categoryIndex = new HashMap<>();
-    @Getter
-    private Map<Brand, List<Product>> brandIndex = new HashMap<>();
+    /**
+     * Количество "полос" - степень двойки, чтобы номер полосы вычислялся маской
+     */
+    private static final int STRIPES = 16;
+    private static final int STRIPE_BITS = Integer.numberOfTrailingZeros(STRIPES);
+    /**
+     * Упорядоченный индекс выбирается, только если по оценке дает не больше 1/INDEX_SCAN_SHARE таблицы:
+     * иначе параллельный просмотр дешевле обращений к товарам по ID
+     */
+    private static final int INDEX_SCAN_SHARE = 8;
+    /**
+     * Размер части таблицы, которую fork-join просмотр не делит дальше
+     */
+    private static final int SCAN_CHUNK = 8192;
+    /**
+     * Сколько версий назад версия остается читаемой при хранении товаров вне кучи
+     */
+    private static final long SNAPSHOT_RETENTION = 1 << 16;
+
+    private final AtomicLong idSequence = new AtomicLong();
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicReference<Version> current;
+    private final KeyDictionary<Category> categoryCodes = new KeyDictionary<>();
+    private final KeyDictionary<Brand> brandCodes = new KeyDictionary<>();
+    private final List<ProductChangeListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * Записи товаров вне объектов кучи, null - товары хранятся в куче объектами
+     */
+    private final ProductRecordStore records;
+    private final ReadPins pins;
 
-    private static ProductDB INSTANCE;
+    private final IndexSet<Product, Long> indexes = new IndexSet<>(Product::getId);
+    private final NonUniqueIndex<Product, String, Long> byName = indexes.nonUnique("name", Product::getName);
+    private final NonUniqueIndex<Product, List<Object>, Long> byBrandAndName =
+            indexes.nonUnique("brandAndName", product -> IndexSet.key(product.getBrand(), product.getName()));
+    private final SortedIndex<Product, Double, Long> byPrice = indexes.sorted("price", Product::getPrice);
+    private final SortedIndex<Product, Double, Long> byCategoryAndPrice =
+            indexes.sorted("categoryAndPrice", Product::getCategory, Product::getPrice);
+    private final SortedIndex<Product, Integer, Long> byStock = indexes.sorted("stock", Product::getStockQuantity);
+    private final ProductTextIndex textIndex = new ProductTextIndex();
+    private final CatalogStatistics statistics = new CatalogStatistics(
+            () -> bounds(byPrice.first(), byPrice.last()),
+            category -> bounds(byCategoryAndPrice.first(category), byCategoryAndPrice.last(category)),
+            this::brandPriceBounds);
 
-    public static ProductDB getINSTANCE() {
-        if (INSTANCE == null) {
-            INSTANCE = new ProductDB();
+    public ProductDB() {
+        this(false);
+    }
+
+    /**
+     * @param offHeap true - хранить товары вне кучи в {@link ProductSlabStore}
+     */
+    public ProductDB(boolean offHeap) {
+        this(offHeap ? ProductSlabStore::new : null);
+    }
+
+    /**
+     * @param records хранилище записей товаров ({@link ProductSlabStore}, {@link TieredProductStore}),
+     *                null - хранить товары в куче объектами
+     */
+    public ProductDB(ProductRecordStore.Factory records) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(i);
+        }
+        this.records = records == null ? null : records.create(categoryCodes::keyOf, brandCodes::keyOf);
+        pins = records == null ? null : new ReadPins();
+        current = new AtomicReference<>(new Version(0, emptyStripes()));
+        listeners.add(statistics);
+    }
+
+    /* Ленивая и безопасная публикация singleton-а (класс-холдер инициализируется JVM один раз) */
+    private static class Holder {
+        private static final ProductDB INSTANCE = new ProductDB(recordsFromSystemProperties());
+    }
+
+    /**
+     * @return хранилище записей по системным свойствам products.tiered и products.offHeap, null - куча
+     */
+    private static ProductRecordStore.Factory recordsFromSystemProperties() {
+        if (Boolean.getBoolean("products.tiered")) {
+            return TieredProductStore.fromSystemProperties();
         }
-        return INSTANCE;
+        return Boolean.getBoolean("products.offHeap") ? ProductSlabStore::new : null;
+    }
+
+    public static ProductDB getINSTANCE() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Подписывает слушателя на изменения товаров (журнал, вторичные индексы и т.п.)
+     *
+     * @param listener слушатель изменений
+     */
+    public void addChangeListener(ProductChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener ранее подписанный слушатель изменений
+     */
+    public void removeChangeListener(ProductChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return true - товары хранятся вне кучи (в прямых буферах или в файле)
+     */
+    public boolean isOffHeap() {
+        return records != null;
+    }
+
+    /**
+     * @return байты вне кучи, выделенные под записи товаров и их строки (0 - товары в куче)
+     */
+    public long offHeapBytes() {
+        return records == null ? 0 : records.reservedBytes();
+    }
+
+    /**
+     * @return счетчики ярусного хранения (попадания, промахи, вытеснения), пусто - товары хранятся не ярусами
+     */
+    public Optional<TierCounters> tierCounters() {
+        return records instanceof TieredProductStore
+                ? Optional.of(((TieredProductStore) records).counters())
+                : Optional.empty();
+    }
+
+    /**
+     * @return сводки по каталогу, которые поддерживаются при каждом изменении товаров
+     */
+    public CatalogStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * Метод возвращает текущую версию "кэша" - согласованный срез всех товаров, который не меняется
+     * при последующих изменениях таблицы. Чтение версии не требует блокировок.
+     *
+     * @return последняя опубликованная версия
+     */
+    public Version snapshot() {
+        return current.get();
     }
 
     /**
-     * Метод добавляет новый товар в "кэш" таблицы хранящей сведения о товарах
+     * Метод добавляет новый товар в "кэш" таблицы хранящей сведения о товарах.
+     * После добавления товар принадлежит таблице - изменять его следует только через {@link #update}.
      *
      * @param product новый добавляемый товар
      * @return ID добавленного товара в "кэш" БД товаров
      */
     public Long add(Product product) {
-        Long index = 1L;
-
-        if (productsList.size() != 0) {
-            index = index + productsList.stream()
-                    .map(p -> p.getId())
-                    .max((a, b) -> a > b ? 1 : -1)
-                    .orElseThrow(() -> new ProductDBException("Element not found"));
-        }
-
+        Long index = idSequence.incrementAndGet();
         product.setId(index);
-        productsList.add(product);
-        productByIdIndex.put(index, product);
+        Stripe stripe = stripeFor(index);
+        stripe.lock.lock();
+        try {
+            stripe.publish(stripe.link(stripe.state(), product));
+            listeners.forEach(listener -> listener.onAdd(product));
+        } finally {
+            stripe.unlock();
+        }
+        return index;
+    }
 
-        List<Product> catProdList = categoryIndex.get(product.getCategory());
-        if (catProdList == null) {
-            catProdList = new ArrayList<>();
+    /**
+     * Метод добавляет пачку новых товаров (например, при импорте). Диапазон ID резервируется у счетчика
+     * разом, товары раскладываются по полосам, и каждая полоса блокируется и публикуется один раз на пачку:
+     * вторичные индексы тоже пополняются пачкой. Товары одной полосы появляются в версии таблицы
+     * одновременно, товары разных полос - по мере публикации своих полос.
+     *
+     * @param products новые товары (их ID, если были, заменяются)
+     * @return ID добавленных товаров в порядке товаров в списке
+     */
+    public List<Long> addAll(List<Product> products) {
+        if (products.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long first = idSequence.getAndAdd(products.size()) + 1;
+        List<Long> ids = new ArrayList<>(products.size());
+        List<List<Product>> batches = new ArrayList<>(STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            batches.add(new ArrayList<>(products.size() / STRIPES + 1));
+        }
+        for (int i = 0; i < products.size(); i++) {
+            Long index = first + i;
+            Product product = products.get(i);
+            product.setId(index);
+            ids.add(index);
+            batches.get(stripeFor(index).number).add(product);
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            List<Product> batch = batches.get(i);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            Stripe stripe = stripes[i];
+            stripe.lock.lock();
+            try {
+                stripe.publish(stripe.linkAll(stripe.state(), batch));
+                for (Product product : batch) {
+                    listeners.forEach(listener -> listener.onAdd(product));
+                }
+            } finally {
+                stripe.unlock();
+            }
         }
-        catProdList.add(product);
-        categoryIndex.put(product.getCategory(), catProdList);
+        return ids;
+    }
 
-        List<Product> catBrandList = brandIndex.get(product.getBrand());
-        if (catBrandList == null) {
-            catBrandList = new ArrayList<>();
+    /**
+     * Метод возвращает в "кэш" ранее сохраненный товар (например, при чтении из файла)
+     * не меняя его ID, счетчик ID при этом сдвигается на максимальный загруженный.
+     * Если товар с таким ID уже есть в "кэше" - он замещается (в одной версии).
+     *
+     * @param product ранее сохраненный товар с уже присвоенным ID
+     * @return ID загруженного товара
+     */
+    public Long restore(Product product) {
+        if (product.getId() == null) {
+            return add(product);
         }
-        catBrandList.add(product);
-        brandIndex.put(product.getBrand(), catBrandList);
+        Long index = product.getId();
+        idSequence.accumulateAndGet(index, Math::max);
 
+        Stripe stripe = stripeFor(index);
+        stripe.lock.lock();
+        try {
+            StripeState state = stripe.state();
+            Product replaced = load(state.element(index));
+            if (replaced != null) {
+                state = stripe.unlink(state, replaced);
+            }
+            stripe.publish(stripe.link(state, product));
+            if (replaced != null) {
+                listeners.forEach(listener -> listener.onDelete(replaced));
+            }
+            listeners.forEach(listener -> listener.onAdd(product));
+        } finally {
+            stripe.unlock();
+        }
         return index;
     }
 
@@ -74,58 +326,65 @@ public class ProductDB {
      * @return true - если удаление прошло успешно, false - в случае неудачного удаления
      */
     public boolean delete(Product product) {
-        boolean idDelete = false;
-        if (productsList.remove(product)) {
-            idDelete = true;
-        }
-        if (productByIdIndex.remove(product.getId()) != null) {
-            idDelete = true;
-        }
-        {
-            Category existCategory = product.getCategory();
-
-            categoryIndex.computeIfPresent(existCategory, (category, productList) -> {
-                productList.removeIf(p -> p.equals(product));
-                return productList;
-            });
-
-            if (categoryIndex.get(existCategory).contains(product)) {
-                idDelete = false;
-            }
-        }
-        {
-            Brand existBrand = product.getBrand();
-
-            brandIndex.computeIfPresent(existBrand, (brand, productList) -> {
-                productList.removeIf(p -> p.equals(product));
-                return productList;
-            });
-
-            if (brandIndex.get(existBrand).contains(product)) {
-                idDelete = false;
+        Stripe stripe = stripeFor(product.getId());
+        stripe.lock.lock();
+        try {
+            StripeState state = stripe.state();
+            Product removed = load(state.element(product.getId()));
+            if (removed == null) {
+                return false;
             }
+            stripe.publish(stripe.unlink(state, removed));
+            listeners.forEach(listener -> listener.onDelete(removed));
+            return true;
+        } finally {
+            stripe.unlock();
         }
-        return idDelete;
     }
 
     /**
-     * Метод обновляет товар в "кэше таблицы" товаров
+     * Метод обновляет товар в "кэше таблицы" товаров: в новую версию кладется измененная копия товара,
+     * прежний объект товара остается неизменным у тех, кто его уже прочитал.
      *
      * @param updateProduct товар для обновления
      */
     public void update(Product updateProduct) {
-        Product oldProduct = productByIdIndex.get(updateProduct.getId());
+        Stripe stripe = stripeFor(updateProduct.getId());
+        stripe.lock.lock();
+        try {
+            StripeState state = stripe.state();
+            Object oldElement = state.element(updateProduct.getId());
+            Product oldProduct = load(oldElement);
+            if (oldProduct == null) {
+                throw new ProductDBException("Product with ID - " + updateProduct.getId() + " not found");
+            }
 
-        if (!oldProduct.getBrand().equals(updateProduct.getBrand()) ||
-                !oldProduct.getCategory().equals(updateProduct.getCategory())) {
-            throw new ProductDBException("Unable to update category or brand, please create a new product.");
-        }
+            if (!oldProduct.getBrand().equals(updateProduct.getBrand()) ||
+                    !oldProduct.getCategory().equals(updateProduct.getCategory())) {
+                throw new ProductDBException("Unable to update category or brand, please create a new product.");
+            }
+
+            Product newProduct = Product.builder()
+                    .id(oldProduct.getId())
+                    .name(updateProduct.getName())
+                    .price(updateProduct.getPrice())
+                    .category(oldProduct.getCategory())
+                    .brand(oldProduct.getBrand())
+                    .description(updateProduct.getDescription())
+                    .stockQuantity(updateProduct.getStockQuantity())
+                    .creationTimestamp(oldProduct.getCreationTimestamp())
+                    .lastModifiedTimestamp(updateProduct.getLastModifiedTimestamp())
+                    .build();
+            indexes.update(oldProduct, newProduct);
+            textIndex.update(oldProduct, newProduct);
+            stripe.retire(oldElement);
+            stripe.publish(state.replace(localIndex(newProduct.getId()), element(newProduct,
+                    categoryCodes.find(newProduct.getCategory()), brandCodes.find(newProduct.getBrand()))));
 
-        oldProduct.setName(updateProduct.getName());
-        oldProduct.setDescription(updateProduct.getDescription());
-        oldProduct.setPrice(updateProduct.getPrice());
-        oldProduct.setStockQuantity(updateProduct.getStockQuantity());
-        oldProduct.setLastModifiedTimestamp(updateProduct.getLastModifiedTimestamp());
+            listeners.forEach(listener -> listener.onUpdate(oldProduct, newProduct));
+        } finally {
+            stripe.unlock();
+        }
     }
 
     /**
@@ -135,32 +394,949 @@ public class ProductDB {
      * @return Optional, содержащий Product, если продукт найден, иначе пустой Optional.
      */
     public Optional<Product> findProductById(Long id) {
-        return Optional.ofNullable(productByIdIndex.get(id));
+        return snapshot().findProductById(id);
     }
 
     /**
      * Метод ищет все товары по их категории
      *
      * @param category категория товаров которые нужно найти
-     * @return возвращает список Product объектов искомой категории.
+     * @return возвращает список (копию) Product объектов искомой категории, упорядоченный по ID.
      */
     public List<Product> findProductByCategory(Category category) {
-        if (categoryIndex.get(category) == null) {
-            throw new ProductDBException(category.getName() + " category not found");
-        }
-        return categoryIndex.get(category);
+        return snapshot().findProductByCategory(category);
     }
 
     /**
      * Метод ищет все товары по их брэнду
      *
      * @param brand брэнд товаров которые нужно найти
-     * @return возвращает список Product объектов соответствующих искомому брэнду.
+     * @return возвращает список (копию) Product объектов соответствующих искомому брэнду, упорядоченный по ID.
      */
     public List<Product> findProductByBrand(Brand brand) {
-        if (brandIndex.get(brand) == null) {
+        return snapshot().findProductByBrand(brand);
+    }
+
+    /**
+     * Метод ищет товар по ID среди товаров заданной категории
+     *
+     * @param category категория товара
+     * @param id       ID товара
+     * @return Optional, содержащий Product, если товар найден и относится к категории, иначе пустой Optional.
+     * @throws ProductDBException если товаров такой категории нет
+     */
+    public Optional<Product> findProductByCategoryAndId(Category category, Long id) {
+        Version version = snapshot();
+        checkCategory(version, category);
+        return first(version, ProductQuery.builder().category(category).id(id).build());
+    }
+
+    /**
+     * Метод ищет товар по ID среди товаров заданного брэнда
+     *
+     * @param brand брэнд товара
+     * @param id    ID товара
+     * @return Optional, содержащий Product, если товар найден и относится к брэнду, иначе пустой Optional.
+     * @throws ProductDBException если товаров такого брэнда нет
+     */
+    public Optional<Product> findProductByBrandAndId(Brand brand, Long id) {
+        Version version = snapshot();
+        checkBrand(version, brand);
+        return first(version, ProductQuery.builder().brand(brand).id(id).build());
+    }
+
+    /**
+     * Метод ищет товар по брэнду и названию (по индексу), из нескольких одноименных выбирается товар с меньшим ID
+     *
+     * @param brand брэнд товара
+     * @param name  название товара
+     * @return Optional, содержащий Product, если товар найден, иначе пустой Optional.
+     * @throws ProductDBException если товаров такого брэнда нет
+     */
+    public Optional<Product> findProductByBrandAndName(Brand brand, String name) {
+        Version version = snapshot();
+        checkBrand(version, brand);
+        return first(version, ProductQuery.builder().brand(brand).name(name).limit(1).build());
+    }
+
+    /**
+     * Метод ищет все товары с заданным названием (по индексу)
+     *
+     * @param name название товара
+     * @return список (копия) найденных товаров, упорядоченный по ID, пустой если таких нет
+     */
+    public List<Product> findProductsByName(String name) {
+        return query(ProductQuery.builder().name(name).build()).getProducts();
+    }
+
+    /**
+     * Метод ищет товары по словам из названия и описания (по полнотекстовому индексу)
+     *
+     * @param query текст запроса, регистр и окончания слов не важны
+     * @param limit максимальное число результатов
+     * @return найденные товары, от наиболее к наименее релевантному
+     */
+    public List<Product> searchByText(String query, int limit) {
+        Version version = snapshot();
+        List<Product> found = new ArrayList<>();
+        for (Long id : textIndex.search(query, limit)) {
+            version.findProductById(id).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    /**
+     * Метод ищет товары с ценой в заданном диапазоне (по индексу), постранично
+     *
+     * @param minPrice минимальная цена включительно
+     * @param maxPrice максимальная цена включительно
+     * @param after    позиция конца предыдущей страницы, null - первая страница
+     * @param limit    размер страницы
+     * @return товары по возрастанию цены (при равной цене - по ID) и позиция следующей страницы
+     */
+    public ProductPage findProductsByPriceRange(double minPrice, double maxPrice, ProductCursor after, int limit) {
+        SortedIndex.Entry<Double, Long> start = after == null ? null : new SortedIndex.Entry<>(after.getKey(), after.getProductId());
+        return page(snapshot(), byPrice, byPrice.range(minPrice, maxPrice, start, limit + 1), limit,
+                product -> product.getPrice() >= minPrice && product.getPrice() <= maxPrice);
+    }
+
+    /**
+     * Метод ищет самые дешевые товары категории (по индексу цен внутри категории)
+     *
+     * @param category категория товаров
+     * @param limit    сколько товаров вернуть
+     * @return товары категории по возрастанию цены, пустой список если товаров категории нет
+     */
+    public List<Product> findCheapestProductsByCategory(Category category, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        return query(ProductQuery.builder().category(category).sort(ProductSort.PRICE_ASC).limit(limit).build())
+                .getProducts();
+    }
+
+    /**
+     * Метод ищет товары, остаток которых меньше порога (по индексу), постранично
+     *
+     * @param threshold порог остатка (не включая)
+     * @param after     позиция конца предыдущей страницы, null - первая страница
+     * @param limit     размер страницы
+     * @return товары по возрастанию остатка (при равном остатке - по ID) и позиция следующей страницы
+     */
+    public ProductPage findLowStockProducts(int threshold, ProductCursor after, int limit) {
+        if (threshold == Integer.MIN_VALUE) {
+            return new ProductPage(Collections.emptyList(), null);
+        }
+        SortedIndex.Entry<Integer, Long> start = after == null ? null
+                : new SortedIndex.Entry<>((int) after.getKey(), after.getProductId());
+        return page(snapshot(), byStock, byStock.range(null, threshold - 1, start, limit + 1), limit,
+                product -> product.getStockQuantity() < threshold);
+    }
+
+    /**
+     * Метод выполняет запрос к текущей версии товаров, см. {@link Version#query(ProductQuery)}
+     *
+     * @param query условия, порядок и ограничение числа товаров
+     * @return найденные товары и план выполнения (explain)
+     */
+    public QueryResult query(ProductQuery query) {
+        return snapshot().query(query);
+    }
+
+    /**
+     * Метод возвращает все товары "кэша"
+     *
+     * @return список (копия) всех товаров, упорядоченный по ID
+     */
+    public List<Product> getProductsList() {
+        return snapshot().getProductsList();
+    }
+
+    /**
+     * @return количество товаров в "кэше"
+     */
+    public int size() {
+        return snapshot().size();
+    }
+
+    /**
+     * Метод очищает "кэш" и сбрасывает счетчик ID (применяется в тестах и при перезагрузке данных)
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            if (records == null) {
+                /* Записи вне кучи хранят коды, поэтому словари кодов нужны, пока их читают прежние версии */
+                categoryCodes.clear();
+                brandCodes.clear();
+            }
+            indexes.clear();
+            textIndex.clear();
+            statistics.clear();
+            idSequence.set(0);
+            Version cleared = current.get();
+            Version empty = new Version(cleared.number + 1, emptyStripes());
+            current.set(empty);
+            if (records != null) {
+                for (StripeState state : cleared.stripes) {
+                    state.products.forEach(element -> records.retire((Long) element, empty.number));
+                }
+                reclaim();
+            }
+        } finally {
+            for (Stripe stripe : stripes) {
+                stripe.unlock();
+            }
+        }
+    }
+
+    private static StripeState[] emptyStripes() {
+        StripeState[] empty = new StripeState[STRIPES];
+        Arrays.fill(empty, StripeState.EMPTY);
+        return empty;
+    }
+
+    /**
+     * Превращает записи упорядоченного индекса в страницу товаров. Индекс общий для всех версий,
+     * поэтому товар берется из версии читателя и перепроверяется ключом записи и условием выборки.
+     *
+     * @param version версия, из которой читаются товары
+     * @param index   индекс, из которого взяты записи
+     * @param entries записи индекса, на одну больше размера страницы - если есть следующая страница
+     * @param limit   размер страницы
+     * @param matches условие выборки
+     * @return страница, позиция следующей страницы - ключ и ID последней записи этой страницы
+     */
+    private <K extends Comparable<? super K>> ProductPage page(Version version, SortedIndex<Product, K, Long> index,
+                                                               List<SortedIndex.Entry<K, Long>> entries,
+                                                               int limit, Predicate<Product> matches) {
+        List<Product> found = new ArrayList<>(Math.min(entries.size(), Math.max(limit, 0)));
+        pin(version);
+        try {
+            for (int i = 0; i < entries.size() && i < limit; i++) {
+                SortedIndex.Entry<K, Long> entry = entries.get(i);
+                version.findProductById(entry.getValue())
+                        .filter(product -> index.holds(entry, product))
+                        .filter(matches)
+                        .ifPresent(found::add);
+            }
+        } finally {
+            unpin();
+        }
+        ProductCursor next = null;
+        if (limit > 0 && entries.size() > limit) {
+            SortedIndex.Entry<K, Long> last = entries.get(limit - 1);
+            next = new ProductCursor(((Number) last.getKey()).doubleValue(), last.getValue());
+        }
+        return new ProductPage(found, next);
+    }
+
+    /**
+     * @return первый товар ответа на запрос
+     */
+    private Optional<Product> first(Version version, ProductQuery query) {
+        return version.query(query).getProducts().stream().findFirst();
+    }
+
+    private static double[] bounds(Double min, Double max) {
+        return min == null || max == null ? null : new double[]{min, max};
+    }
+
+    /**
+     * Границы цен брэнда: упорядоченного индекса по брэнду нет (его поддержка удорожила бы каждую запись),
+     * поэтому товары брэнда просматриваются по битовым картам. Нужно это, только когда из брэнда уходит
+     * его самая низкая или самая высокая цена.
+     */
+    private double[] brandPriceBounds(Brand brand) {
+        int code = brandCodes.find(brand);
+        if (code == KeyDictionary.NO_CODE) {
+            return null;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        Version version = snapshot();
+        pin(version);
+        try {
+            for (StripeState state : version.stripes) {
+                PersistentBitmap bitmap = state.byBrand.get(code);
+                for (long local = bitmap == null ? -1 : bitmap.next(0); local >= 0; local = bitmap.next(local + 1)) {
+                    double price = price(state.products.get(local));
+                    min = Math.min(min, price);
+                    max = Math.max(max, price);
+                }
+            }
+        } finally {
+            unpin();
+        }
+        return min > max ? null : new double[]{min, max};
+    }
+
+    private void checkCategory(Version version, Category category) {
+        if (!contains(version, state -> state.byCategory, categoryCodes.find(category))) {
+            throw new ProductDBException(category.getName() + " category not found");
+        }
+    }
+
+    private void checkBrand(Version version, Brand brand) {
+        if (!contains(version, state -> state.byBrand, brandCodes.find(brand))) {
             throw new ProductDBException(brand.getName() + " brand not found");
         }
-        return brandIndex.get(brand);
     }
-}
\ No newline at end of file
+
+    /**
+     * @return true - если хотя бы одна полоса версии знает этот код ключа (даже если его товары уже удалены)
+     */
+    private static boolean contains(Version version, Function<StripeState, PersistentArray<PersistentBitmap>> index,
+                                    int code) {
+        if (code == KeyDictionary.NO_CODE) {
+            return false;
+        }
+        for (StripeState state : version.stripes) {
+            if (index.apply(state).get(code) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Stripe stripeFor(Long id) {
+        return stripes[(int) (id & (STRIPES - 1))];
+    }
+
+    /**
+     * @return элемент полосы для товара: сам товар или handle его записи вне кучи
+     */
+    private Object element(Product product, int categoryCode, int brandCode) {
+        return records == null ? product : (Object) records.write(product, categoryCode, brandCode);
+    }
+
+    /**
+     * @param element элемент полосы или null
+     * @return товар элемента (вне кучи - собранный из записи) или null
+     */
+    private Product load(Object element) {
+        if (records == null || element == null) {
+            return (Product) element;
+        }
+        Product product = records.read((Long) element);
+        if (product == null) {
+            throw new ProductDBException("Snapshot is too old: its product records were already reused");
+        }
+        return product;
+    }
+
+    private double price(Object element) {
+        return records == null ? ((Product) element).getPrice() : records.price((Long) element);
+    }
+
+    /**
+     * Закрепляет версию на время чтения ее записей вне кучи (парный вызов - {@link #unpin()})
+     */
+    private void pin(Version version) {
+        if (pins != null) {
+            pins.pin(version.number);
+        }
+    }
+
+    private void unpin() {
+        if (pins != null) {
+            pins.unpin();
+        }
+    }
+
+    /**
+     * Освобождает записи, которые не читает ни одно текущее чтение и которых нет в последних
+     * {@value #SNAPSHOT_RETENTION} версиях
+     */
+    private void reclaim() {
+        records.reclaim(pins.oldest(current.get().number) - SNAPSHOT_RETENTION);
+    }
+
+    /**
+     * @return номер товара внутри полосы
+     */
+    private static long localIndex(Long id) {
+        return id >>> STRIPE_BITS;
+    }
+
+    /**
+     * Выполняет запрос на версии: см. {@link Version#query(ProductQuery)}
+     */
+    private QueryResult query(Version version, ProductQuery query) {
+        AccessPath path = plan(version, query);
+        int limit = query.getLimit();
+        Matches matches = new Matches(query, path.ordered && limit > 0 ? limit : Integer.MAX_VALUE);
+        pin(version);
+        try {
+            scan(version, query, path, matches);
+        } finally {
+            unpin();
+        }
+
+        List<Product> found = matches.found;
+        if (!path.ordered) {
+            found.sort(query.sortOrDefault().comparator());
+        }
+        if (limit > 0 && found.size() > limit) {
+            found = new ArrayList<>(found.subList(0, limit));
+        }
+        Map<ProductQuery.Condition, String> conditions = query.conditions();
+        List<String> filters = new ArrayList<>();
+        List<String> covered = new ArrayList<>();
+        conditions.forEach((condition, text) -> (path.covers.contains(condition) ? covered : filters).add(text));
+        QueryPlan plan = new QueryPlan(path.access, String.join(" AND ", covered), path.estimate, filters,
+                query.sortOrDefault(), path.ordered, limit, matches.examined, found.size());
+        return new QueryResult(found, plan);
+    }
+
+    /**
+     * Отбирает кандидатов выбранным путем доступа
+     */
+    private void scan(Version version, ProductQuery query, AccessPath path, Matches matches) {
+        switch (path.access) {
+            case ID_LOOKUP:
+                matches.offer(version.findProductById(query.getId()).orElse(null));
+                break;
+            case NAME_INDEX:
+                byName.find(query.getName()).forEach(id -> matches.offer(version.findProductById(id).orElse(null)));
+                break;
+            case BRAND_NAME_INDEX:
+                byBrandAndName.find(IndexSet.key(query.getBrand(), query.getName()))
+                        .forEach(id -> matches.offer(version.findProductById(id).orElse(null)));
+                break;
+            case POSTINGS_BITMAP:
+                scanPostings(version, query, matches);
+                break;
+            case PRICE_INDEX:
+                scanIndex(version, byPrice, null, query.getMinPrice(), query.getMaxPrice(), matches);
+                break;
+            case CATEGORY_PRICE_INDEX:
+                scanIndex(version, byCategoryAndPrice, query.getCategory(), query.getMinPrice(), query.getMaxPrice(), matches);
+                break;
+            case STOCK_INDEX:
+                scanIndex(version, byStock, null, query.isInStock() ? 1 : null, null, matches);
+                break;
+            default:
+                scanInParallel(version, matches);
+        }
+    }
+
+    /**
+     * Выбирает путь доступа для запроса: из применимых - с наименьшей оценкой числа кандидатов
+     */
+    private AccessPath plan(Version version, ProductQuery query) {
+        long total = version.size();
+        AccessPath best = new AccessPath(QueryPlan.Access.PARALLEL_SCAN, total, false);
+        if (query.getId() != null) {
+            return new AccessPath(QueryPlan.Access.ID_LOOKUP, 1, false, ProductQuery.Condition.ID);
+        }
+        Category category = query.getCategory();
+        Brand brand = query.getBrand();
+        if (query.getName() != null && brand != null) {
+            int rows = byBrandAndName.find(IndexSet.key(brand, query.getName())).size();
+            best = new AccessPath(QueryPlan.Access.BRAND_NAME_INDEX, rows, false,
+                    ProductQuery.Condition.BRAND, ProductQuery.Condition.NAME);
+        } else if (query.getName() != null) {
+            int rows = byName.find(query.getName()).size();
+            best = new AccessPath(QueryPlan.Access.NAME_INDEX, rows, false, ProductQuery.Condition.NAME);
+        }
+        long categoryRows = category == null ? total
+                : count(version, state -> state.byCategory, categoryCodes.find(category));
+        long brandRows = brand == null ? total : count(version, state -> state.byBrand, brandCodes.find(brand));
+        if ((category != null || brand != null) && Math.min(categoryRows, brandRows) < best.estimate) {
+            best = new AccessPath(QueryPlan.Access.POSTINGS_BITMAP, Math.min(categoryRows, brandRows), false,
+                    ProductQuery.Condition.CATEGORY, ProductQuery.Condition.BRAND);
+        }
+
+        /* Упорядоченные индексы: сначала диапазон цен и наличие, затем - чтение в порядке сортировки до limit */
+        int cap = (int) Math.min(best.estimate, Math.max(total / INDEX_SCAN_SHARE, 64));
+        boolean byPriceOrder = query.sortOrDefault() == ProductSort.PRICE_ASC;
+        QueryPlan.Access priceAccess = category != null ? QueryPlan.Access.CATEGORY_PRICE_INDEX : QueryPlan.Access.PRICE_INDEX;
+        if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+            int rows = category != null
+                    ? byCategoryAndPrice.count(category, query.getMinPrice(), query.getMaxPrice(), cap)
+                    : byPrice.count(query.getMinPrice(), query.getMaxPrice(), cap);
+            if (rows < cap) {
+                best = new AccessPath(priceAccess, rows, byPriceOrder,
+                        ProductQuery.Condition.PRICE, ProductQuery.Condition.CATEGORY);
+                cap = rows;
+            }
+        }
+        if (query.isInStock()) {
+            int rows = byStock.count(1, null, cap);
+            if (rows < cap) {
+                best = new AccessPath(QueryPlan.Access.STOCK_INDEX, rows, query.sortOrDefault() == ProductSort.STOCK_ASC,
+                        ProductQuery.Condition.IN_STOCK);
+            }
+        }
+        int limit = query.getLimit();
+        if (limit > 0 && !best.ordered && best.estimate > 0) {
+            /* Подходящие товары встречаются в индексе с частотой ~ best.estimate / groupRows */
+            if (byPriceOrder) {
+                long groupRows = category != null ? categoryRows : total;
+                long estimate = Math.min(groupRows, (long) Math.ceil((double) limit * groupRows / best.estimate));
+                if (estimate < best.estimate) {
+                    best = new AccessPath(priceAccess, estimate, true,
+                            ProductQuery.Condition.PRICE, ProductQuery.Condition.CATEGORY);
+                }
+            } else if (query.sortOrDefault() == ProductSort.STOCK_ASC) {
+                long estimate = Math.min(total, (long) Math.ceil((double) limit * total / best.estimate));
+                if (estimate < best.estimate) {
+                    best = new AccessPath(QueryPlan.Access.STOCK_INDEX, estimate, true, ProductQuery.Condition.IN_STOCK);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return число товаров версии с этим кодом ключа во всех полосах
+     */
+    private static long count(Version version, Function<StripeState, PersistentArray<PersistentBitmap>> index, int code) {
+        if (code == KeyDictionary.NO_CODE) {
+            return 0;
+        }
+        long count = 0;
+        for (StripeState state : version.stripes) {
+            PersistentBitmap bitmap = index.apply(state).get(code);
+            count += bitmap == null ? 0 : bitmap.cardinality();
+        }
+        return count;
+    }
+
+    /**
+     * Кандидаты из битовых карт категории и/или брэнда: в каждой полосе карты пересекаются (AND),
+     * товары берутся по общим номерам
+     */
+    private void scanPostings(Version version, ProductQuery query, Matches matches) {
+        int categoryCode = query.getCategory() == null ? KeyDictionary.NO_CODE : categoryCodes.find(query.getCategory());
+        int brandCode = query.getBrand() == null ? KeyDictionary.NO_CODE : brandCodes.find(query.getBrand());
+        if (query.getCategory() != null && categoryCode == KeyDictionary.NO_CODE
+                || query.getBrand() != null && brandCode == KeyDictionary.NO_CODE) {
+            return;
+        }
+        for (StripeState state : version.stripes) {
+            PersistentBitmap categories = categoryCode == KeyDictionary.NO_CODE ? null : state.byCategory.get(categoryCode);
+            PersistentBitmap brands = brandCode == KeyDictionary.NO_CODE ? null : state.byBrand.get(brandCode);
+            if (categories == null && categoryCode != KeyDictionary.NO_CODE
+                    || brands == null && brandCode != KeyDictionary.NO_CODE) {
+                continue;
+            }
+            long local = next(categories, brands, 0);
+            while (local >= 0) {
+                if (!matches.offer(load(state.products.get(local)))) {
+                    return;
+                }
+                local = next(categories, brands, local + 1);
+            }
+        }
+    }
+
+    /**
+     * @return следующий номер товара из пересечения карт (null - карта не задана)
+     */
+    private static long next(PersistentBitmap categories, PersistentBitmap brands, long from) {
+        if (categories == null) {
+            return brands.next(from);
+        }
+        return brands == null ? categories.next(from) : categories.nextCommon(brands, from);
+    }
+
+    /**
+     * Кандидаты из упорядоченного индекса в порядке ключа, порциями - до конца диапазона или до limit подходящих
+     */
+    private <K extends Comparable<? super K>> void scanIndex(Version version, SortedIndex<Product, K, Long> index,
+                                                             Object group, K from, K to, Matches matches) {
+        SortedIndex.Entry<K, Long> after = null;
+        int batch = 64;
+        while (true) {
+            List<SortedIndex.Entry<K, Long>> entries = group == null
+                    ? index.range(from, to, after, batch)
+                    : index.range(group, from, to, after, batch);
+            for (SortedIndex.Entry<K, Long> entry : entries) {
+                Product candidate = version.findProductById(entry.getValue())
+                        .filter(product -> index.holds(entry, product))
+                        .orElse(null);
+                if (!matches.offer(candidate)) {
+                    return;
+                }
+            }
+            if (entries.size() < batch) {
+                return;
+            }
+            after = entries.get(entries.size() - 1);
+            batch = Math.min(batch << 1, 4096);
+        }
+    }
+
+    /**
+     * Просмотр всей версии: элементы полос собираются в массив, который фильтруется задачами fork-join
+     * (вне кучи товары собираются из записей тоже параллельно)
+     */
+    private void scanInParallel(Version version, Matches matches) {
+        Object[] elements = new Object[version.size()];
+        int[] filled = {0};
+        for (StripeState state : version.stripes) {
+            state.products.forEach(element -> elements[filled[0]++] = element);
+        }
+        matches.found.addAll(ForkJoinPool.commonPool().invoke(new ScanTask(elements, 0, elements.length, matches.query)));
+        matches.examined += elements.length;
+    }
+
+    /**
+     * Версия "кэша" товаров - неизменяемый согласованный срез таблицы. Все чтения версии видят таблицу
+     * на момент ее публикации, изменения, сделанные позже, в нее не попадают. Блокировок чтение не требует.
+     * <p>
+     * Товары версии не следует изменять сеттерами - для изменения есть {@link ProductDB#update}.
+     */
+    public final class Version {
+        private final long number;
+        private final StripeState[] stripes;
+
+        private Version(long number, StripeState[] stripes) {
+            this.number = number;
+            this.stripes = stripes;
+        }
+
+        /**
+         * @return номер версии, растет с каждым изменением таблицы
+         */
+        public long getNumber() {
+            return number;
+        }
+
+        /**
+         * @return количество товаров в версии
+         */
+        public int size() {
+            int size = 0;
+            for (StripeState state : stripes) {
+                size += state.products.size();
+            }
+            return size;
+        }
+
+        /**
+         * @param id ID товара
+         * @return Optional, содержащий Product, если товар есть в версии, иначе пустой Optional.
+         */
+        public Optional<Product> findProductById(Long id) {
+            if (id == null || id < 0) {
+                return Optional.empty();
+            }
+            pin(this);
+            try {
+                return Optional.ofNullable(load(stripes[(int) (id & (STRIPES - 1))].element(id)));
+            } finally {
+                unpin();
+            }
+        }
+
+        /**
+         * @return список (копия) всех товаров версии, упорядоченный по ID
+         */
+        public List<Product> getProductsList() {
+            List<Product> all = new ArrayList<>(size());
+            pin(this);
+            try {
+                for (StripeState state : stripes) {
+                    state.products.forEach(element -> all.add(load(element)));
+                }
+            } finally {
+                unpin();
+            }
+            all.sort(Comparator.comparing(Product::getId));
+            return all;
+        }
+
+        /**
+         * @param category категория товаров
+         * @return список (копия) товаров категории, упорядоченный по ID
+         * @throws ProductDBException если товаров такой категории нет
+         */
+        public List<Product> findProductByCategory(Category category) {
+            checkCategory(this, category);
+            return query(ProductQuery.builder().category(category).build()).getProducts();
+        }
+
+        /**
+         * @param brand брэнд товаров
+         * @return список (копия) товаров брэнда, упорядоченный по ID
+         * @throws ProductDBException если товаров такого брэнда нет
+         */
+        public List<Product> findProductByBrand(Brand brand) {
+            checkBrand(this, brand);
+            return query(ProductQuery.builder().brand(brand).build()).getProducts();
+        }
+
+        /**
+         * Метод выполняет запрос к версии. Планировщик оценивает число кандидатов для каждого применимого пути
+         * доступа (ID, индексы названий, карты категорий и брэндов, упорядоченные индексы цен и остатков) и
+         * выбирает самый избирательный; для сортировки по цене (остатку) с limit упорядоченный индекс позволяет
+         * остановиться на limit-ом подходящем товаре. Если индексы не сужают выборку - версия просматривается
+         * параллельно (fork-join). Все условия запроса проверяются на каждом кандидате.
+         *
+         * @param query условия, порядок и ограничение числа товаров
+         * @return найденные товары и план выполнения (explain)
+         */
+        public QueryResult query(ProductQuery query) {
+            return ProductDB.this.query(this, query);
+        }
+
+        private Version with(int stripe, StripeState state) {
+            StripeState[] changed = stripes.clone();
+            changed[stripe] = state;
+            return new Version(number + 1, changed);
+        }
+    }
+
+    /**
+     * Неизменяемое содержимое полосы: товары (или handle их записей вне кучи) по номеру внутри полосы
+     * и битовые карты номеров по кодам категорий и брэндов. Карта кода остается и после удаления всех его товаров.
+     */
+    private static final class StripeState {
+        private static final StripeState EMPTY =
+                new StripeState(PersistentArray.empty(), PersistentArray.empty(), PersistentArray.empty());
+
+        private final PersistentArray<Object> products;
+        private final PersistentArray<PersistentBitmap> byCategory;
+        private final PersistentArray<PersistentBitmap> byBrand;
+
+        private StripeState(PersistentArray<Object> products, PersistentArray<PersistentBitmap> byCategory,
+                            PersistentArray<PersistentBitmap> byBrand) {
+            this.products = products;
+            this.byCategory = byCategory;
+            this.byBrand = byBrand;
+        }
+
+        private Object element(Long id) {
+            return products.get(localIndex(id));
+        }
+
+        private StripeState with(long local, Object element, int categoryCode, int brandCode) {
+            return new StripeState(products.with(local, element),
+                    byCategory.with(categoryCode, bitmap(byCategory, categoryCode).with(local)),
+                    byBrand.with(brandCode, bitmap(byBrand, brandCode).with(local)));
+        }
+
+        /**
+         * Пачка новых товаров: массив и карты копируются пакетно, каждый узел - не больше раза на пачку
+         */
+        private StripeState withAll(List<Product> batch, Object[] elements, int[] categoryCodes, int[] brandCodes) {
+            PersistentArray.Batch<Object> changedProducts = products.batch();
+            Map<Integer, PersistentBitmap.Batch> categories = new HashMap<>();
+            Map<Integer, PersistentBitmap.Batch> brands = new HashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                long local = localIndex(batch.get(i).getId());
+                changedProducts.set(local, elements[i]);
+                categories.computeIfAbsent(categoryCodes[i], code -> bitmap(byCategory, code).batch()).add(local);
+                brands.computeIfAbsent(brandCodes[i], code -> bitmap(byBrand, code).batch()).add(local);
+            }
+            return new StripeState(changedProducts.build(), build(byCategory, categories), build(byBrand, brands));
+        }
+
+        private static PersistentArray<PersistentBitmap> build(PersistentArray<PersistentBitmap> index,
+                                                               Map<Integer, PersistentBitmap.Batch> changed) {
+            PersistentArray.Batch<PersistentBitmap> bitmaps = index.batch();
+            changed.forEach((code, bitmap) -> bitmaps.set(code, bitmap.build()));
+            return bitmaps.build();
+        }
+
+        private StripeState without(long local, int categoryCode, int brandCode) {
+            return new StripeState(products.with(local, null),
+                    byCategory.with(categoryCode, bitmap(byCategory, categoryCode).without(local)),
+                    byBrand.with(brandCode, bitmap(byBrand, brandCode).without(local)));
+        }
+
+        /**
+         * Новая версия товара с теми же категорией и брэндом - карты не меняются
+         */
+        private StripeState replace(long local, Object element) {
+            return new StripeState(products.with(local, element), byCategory, byBrand);
+        }
+
+        private static PersistentBitmap bitmap(PersistentArray<PersistentBitmap> index, int code) {
+            PersistentBitmap bitmap = index.get(code);
+            return bitmap == null ? PersistentBitmap.empty() : bitmap;
+        }
+    }
+
+    /**
+     * Путь доступа, выбранный планировщиком
+     */
+    private static final class AccessPath {
+        private final QueryPlan.Access access;
+        /**
+         * Оценка числа кандидатов
+         */
+        private final long estimate;
+        /**
+         * Кандидаты идут в порядке сортировки запроса
+         */
+        private final boolean ordered;
+        /**
+         * Условия запроса, которым кандидаты удовлетворяют по построению
+         */
+        private final Set<ProductQuery.Condition> covers;
+
+        private AccessPath(QueryPlan.Access access, long estimate, boolean ordered, ProductQuery.Condition... covers) {
+            this.access = access;
+            this.estimate = estimate;
+            this.ordered = ordered;
+            this.covers = EnumSet.noneOf(ProductQuery.Condition.class);
+            this.covers.addAll(Arrays.asList(covers));
+        }
+    }
+
+    /**
+     * Отобранные кандидаты, удовлетворяющие всем условиям запроса
+     */
+    private static final class Matches {
+        private final ProductQuery query;
+        private final int stopAt;
+        private final List<Product> found = new ArrayList<>();
+        private long examined;
+
+        private Matches(ProductQuery query, int stopAt) {
+            this.query = query;
+            this.stopAt = stopAt;
+        }
+
+        /**
+         * @param product кандидат (null - товара нет в версии)
+         * @return false - если нужное число товаров уже набрано
+         */
+        private boolean offer(Product product) {
+            examined++;
+            if (product != null && query.matches(product)) {
+                found.add(product);
+            }
+            return found.size() < stopAt;
+        }
+    }
+
+    /**
+     * Fork-join задача фильтрации части массива элементов полос
+     */
+    private final class ScanTask extends RecursiveTask<List<Product>> {
+        private final Object[] elements;
+        private final int from;
+        private final int to;
+        private final ProductQuery query;
+
+        private ScanTask(Object[] elements, int from, int to, ProductQuery query) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.query = query;
+        }
+
+        @Override
+        protected List<Product> compute() {
+            if (to - from <= SCAN_CHUNK) {
+                List<Product> found = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    Product product = load(elements[i]);
+                    if (query.matches(product)) {
+                        found.add(product);
+                    }
+                }
+                return found;
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(elements, from, middle, query);
+            left.fork();
+            List<Product> found = new ScanTask(elements, middle, to, query).compute();
+            List<Product> leftFound = left.join();
+            leftFound.addAll(found);
+            return leftFound;
+        }
+    }
+
+    /**
+     * "Полоса" данных - единица блокировки писателей. Писатель под блокировкой полосы строит новое
+     * содержимое полосы из текущего, поддерживает вторичные индексы и публикует новую версию таблицы.
+     */
+    private final class Stripe {
+        private final int number;
+        private final ReentrantLock lock = new ReentrantLock();
+        /**
+         * Элементы, которых не будет в следующей публикуемой версии полосы (меняется под блокировкой полосы)
+         */
+        private final List<Object> retiring = new ArrayList<>();
+
+        private Stripe(int number) {
+            this.number = number;
+        }
+
+        /**
+         * @return содержимое полосы в последней версии (под блокировкой полосы его никто другой не меняет)
+         */
+        private StripeState state() {
+            return current.get().stripes[number];
+        }
+
+        private StripeState link(StripeState state, Product product) {
+            indexes.add(product);
+            textIndex.add(product);
+            int categoryCode = categoryCodes.codeOf(product.getCategory());
+            int brandCode = brandCodes.codeOf(product.getBrand());
+            return state.with(localIndex(product.getId()), element(product, categoryCode, brandCode), categoryCode, brandCode);
+        }
+
+        private StripeState linkAll(StripeState state, List<Product> batch) {
+            indexes.addAll(batch);
+            textIndex.addAll(batch);
+            Object[] elements = new Object[batch.size()];
+            int[] categories = new int[batch.size()];
+            int[] brands = new int[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                categories[i] = categoryCodes.codeOf(batch.get(i).getCategory());
+                brands[i] = brandCodes.codeOf(batch.get(i).getBrand());
+                elements[i] = element(batch.get(i), categories[i], brands[i]);
+            }
+            return state.withAll(batch, elements, categories, brands);
+        }
+
+        private StripeState unlink(StripeState state, Product product) {
+            indexes.remove(product);
+            textIndex.remove(product);
+            retire(state.element(product.getId()));
+            return state.without(localIndex(product.getId()),
+                    categoryCodes.find(product.getCategory()), brandCodes.find(product.getBrand()));
+        }
+
+        /**
+         * Снимает блокировку полосы; элементы, выведенные изменением, которое так и не было опубликовано, забываются
+         */
+        private void unlock() {
+            retiring.clear();
+            lock.unlock();
+        }
+
+        /**
+         * Элемент будет освобожден (вне кучи), когда станут недостижимы версии, опубликованные до следующей
+         */
+        private void retire(Object element) {
+            if (records != null) {
+                retiring.add(element);
+            }
+        }
+
+        /**
+         * Атомарно заменяет содержимое полосы в версии таблицы, остальные полосы переходят в новую версию как есть
+         */
+        private void publish(StripeState state) {
+            Version published = current.updateAndGet(version -> version.with(number, state));
+            if (!retiring.isEmpty()) {
+                for (Object element : retiring) {
+                    records.retire((Long) element, published.number);
+                }
+                retiring.clear();
+                reclaim();
+            }
+        }
+    }
+}
@@ -1,28 +1,36 @@
 package me.oldboy.market.cache_bd;
 
-import lombok.Getter;
+import me.oldboy.market.cache_bd.index.IndexSet;
+import me.oldboy.market.cache_bd.index.UniqueIndex;
 import me.oldboy.market.entity.User;
-import me.oldboy.market.exceptions.BrandDBException;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * Класс имитирует "кэш" таблицы БД содержащей данные о пользователях
+ * Класс имитирует "кэш" таблицы БД содержащей данные о пользователях.
+ * Email пользователя уникален и проиндексирован (см. cache_bd.index).
+ * Доступ - под блокировкой чтения/записи: с таблицей одновременно работают сеансы сервера (см. server).
  */
 public class UserDB {
     private static UserDB INSTANCE;
 
-    public static UserDB getINSTANCE() {
+    public static synchronized UserDB getINSTANCE() {
         if (INSTANCE == null) {
             INSTANCE = new UserDB();
         }
         return INSTANCE;
     }
 
-    @Getter
-    private Map<Long, User> userDb = new HashMap<>();
+    /**
+     * Упорядочена по ID: следующий ID (максимальный + 1) берется без перебора всех ключей
+     */
+    private final NavigableMap<Long, User> userDb = new TreeMap<>();
+
+    private final IndexSet<User, Long> indexes = new IndexSet<>(User::getUserId);
+    private final UniqueIndex<User, String, Long> byEmail = indexes.unique("email", User::getEmail);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
      * Метод добавляет нового пользователя User в "кэш" таблицу хранящую сведения о пользователях
@@ -31,18 +39,64 @@ public class UserDB {
      * @return уникальный идентификатор ID добавленного пользователя
      */
     public Long add(User user) {
-        long index = 1;
+        lock.writeLock().lock();
+        try {
+            indexes.check(user);
+            long index = userDb.isEmpty() ? 1 : userDb.lastKey() + 1;
+
+            user.setUserId(index);
+            userDb.put(index, user);
+            indexes.add(user);
 
-        if (userDb.size() != 0) {
-            index = index + userDb.keySet().stream()
-                    .max((a, b) -> a > b ? 1 : -1)
-                    .orElseThrow(() -> new BrandDBException("Element not found"));
+            return index;
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
+
+    /**
+     * Метод обновляет email и пароль существующего пользователя
+     *
+     * @param updateUser пользователь с обновленными данными (ID неизменен)
+     * @return true - если пользователь найден и обновлен, false - в противном случае
+     */
+    public boolean update(User updateUser) {
+        lock.writeLock().lock();
+        try {
+            User found = userDb.get(updateUser.getUserId());
+            if (found == null) {
+                return false;
+            }
+            indexes.check(updateUser);
+            User before = User.builder().userId(found.getUserId()).email(found.getEmail()).build();
 
-        user.setUserId(index);
-        userDb.put(index, user);
+            found.setEmail(updateUser.getEmail());
+            found.setPassword(updateUser.getPassword());
+            indexes.update(before, found);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-        return index;
+    /**
+     * Метод удаляет пользователя по ID
+     *
+     * @param id идентификатор пользователя
+     * @return true - если пользователь был найден и удален, false - в противном случае
+     */
+    public boolean delete(Long id) {
+        lock.writeLock().lock();
+        try {
+            User removed = userDb.remove(id);
+            if (removed == null) {
+                return false;
+            }
+            indexes.remove(removed);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -52,7 +106,12 @@ public class UserDB {
      * @return Optional, содержащий пользователя User, если он найден, иначе пустой Optional.
      */
     public Optional<User> findUserById(Long id) {
-        return Optional.ofNullable(userDb.get(id));
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(userDb.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -62,9 +121,48 @@ public class UserDB {
      * @return Optional, содержащий пользователя User, если он найден, иначе пустой Optional.
      */
     public Optional<User> findUserByEmail(String email) {
-        return userDb.values()
-                .stream()
-                .filter(user -> user.getEmail().equals(email))
-                .findFirst();
+        lock.readLock().lock();
+        try {
+            return byEmail.find(email).map(userDb::get);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return список (копия) всех пользователей
+     */
+    public List<User> findAll() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(userDb.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return количество пользователей
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return userDb.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод очищает "кэш" вместе с индексами (применяется в тестах и при перезагрузке данных)
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            userDb.clear();
+            indexes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
-}
\ No newline at end of file
+}
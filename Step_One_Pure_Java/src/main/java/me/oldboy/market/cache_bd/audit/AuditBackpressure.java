@@ -0,0 +1,20 @@
+package me.oldboy.market.cache_bd.audit;
+
+/**
+ * Что делать с новой записью аудита, если очередь фоновой записи ({@link AuditWriter}) заполнена
+ */
+public enum AuditBackpressure {
+    /**
+     * Ждать, пока в очереди освободится место (записи не теряются, пользователь ждет)
+     */
+    BLOCK,
+    /**
+     * Вытеснить самую старую запись из очереди (пользователь не ждет, часть аудита теряется)
+     */
+    DROP_OLDEST,
+    /**
+     * Дописать запись в файл переполнения на диске, пока очередь не разберется (записи не теряются,
+     * порядок сохраняется)
+     */
+    SPILL_TO_DISK
+}
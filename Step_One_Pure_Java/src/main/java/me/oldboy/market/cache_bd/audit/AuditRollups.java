@@ -0,0 +1,380 @@
+package me.oldboy.market.cache_bd.audit;
+
+import me.oldboy.market.cache_bd.codec.BinaryReader;
+import me.oldboy.market.cache_bd.codec.BinaryWriter;
+import me.oldboy.market.cache_bd.codec.BlockChannels;
+import me.oldboy.market.cache_bd.codec.CorruptBlockException;
+import me.oldboy.market.cache_bd.primitive.LongIntHashMap;
+import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Сводки аудита по времени: сколько записей пришлось на каждую минуту и каждый час в разрезе
+ * действия ({@link Action}), статуса ({@link Status}) и email пользователя. Обновляются при добавлении
+ * записи в аудит, поэтому запросы аналитики (неудачные изменения по часам, самые активные пользователи и т.п.)
+ * читают только сводки и не трогают сами записи.
+ * <p>
+ * Корзина - хэш-таблица {@link LongIntHashMap}: ключ упаковывает номер email в словаре сводок, действие
+ * и статус, значение - число записей. Минутные корзины хранятся {@link #MINUTE_RETENTION} от самой
+ * свежей записи, часовые - все время, в том числе после удаления старых сегментов аудита по сроку хранения.
+ * Период запроса набирается из целых часов и минут по краям; края старше хранимых минут округляются
+ * вниз до часа.
+ * <p>
+ * Сводки сохраняются в компактном блочном формате ({@link BlockChannels}) вместе с ID последней учтенной
+ * записи - при загрузке досчитываются только более поздние записи. Класс потокобезопасен.
+ */
+public class AuditRollups {
+    /**
+     * Сколько хранить минутные корзины (от самой свежей записи)
+     */
+    public static final long MINUTE_RETENTION = TimeUnit.DAYS.toMillis(2);
+
+    private static final int MAGIC = 0x41555255;
+    private static final short VERSION = 1;
+    private static final int BUCKETS_PER_BLOCK = 256;
+    private static final RollupUnit[] UNITS = RollupUnit.values();
+    private static final Action[] ACTIONS = Action.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final long minuteRetention;
+    /* Словарь email: номер в ключе корзины - позиция в списке + 1, 0 - записи без email */
+    private final Map<String, Integer> emailCodes = new HashMap<>();
+    private final List<String> emails = new ArrayList<>();
+    private final Map<RollupUnit, NavigableMap<Long, LongIntHashMap>> buckets = new EnumMap<>(RollupUnit.class);
+    /* Минутные корзины полны, начиная с этого момента (более ранние удалены) */
+    private long minutesSince = Long.MIN_VALUE;
+    private long lastId;
+
+    public AuditRollups() {
+        this(MINUTE_RETENTION);
+    }
+
+    /**
+     * @param minuteRetention сколько хранить минутные корзины, мс
+     */
+    public AuditRollups(long minuteRetention) {
+        this.minuteRetention = minuteRetention;
+        for (RollupUnit unit : UNITS) {
+            buckets.put(unit, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Учитывает запись аудита в минутной и часовой корзинах. Запись без временной метки не учитывается.
+     *
+     * @param audit запись аудита
+     */
+    public void record(Audit audit) {
+        lock.writeLock().lock();
+        try {
+            if (audit.getId() != null) {
+                lastId = Math.max(lastId, audit.getId());
+            }
+            if (audit.getTimestamp() == null) {
+                return;
+            }
+            long key = key(emailCode(audit.getUserEmail()), audit.getAction(), audit.getIsSuccess());
+            long minute = RollupUnit.MINUTE.floor(audit.getTimestamp());
+            if (minute >= minutesSince) {
+                NavigableMap<Long, LongIntHashMap> minutes = buckets.get(RollupUnit.MINUTE);
+                long horizon = RollupUnit.MINUTE.floor(minute - minuteRetention);
+                if (!minutes.containsKey(minute) && horizon > minutesSince) {
+                    minutesSince = horizon;
+                    minutes.headMap(minutesSince).clear();
+                }
+                increment(minutes, minute, key, 1);
+            }
+            increment(buckets.get(RollupUnit.HOUR), RollupUnit.HOUR.floor(audit.getTimestamp()), key, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return ID последней учтенной записи аудита, 0 - если записей не было
+     */
+    public long lastId() {
+        lock.readLock().lock();
+        try {
+            return lastId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ряд по корзинам заданного шага: сколько записей с заданными действием, статусом и email пришлось на каждую
+     * корзину периода (например, неудачные изменения товаров по часам за сегодня)
+     *
+     * @param unit   шаг ряда
+     * @param from   начало периода (Unix timestamp в миллисекундах, включительно, округляется вниз до корзины)
+     * @param to     конец периода (не включая)
+     * @param action действие, null - любое
+     * @param status статус, null - любой
+     * @param email  email пользователя, null - любой
+     * @return непустые корзины по возрастанию времени
+     */
+    public List<RollupPoint> series(RollupUnit unit, long from, long to, Action action, Status status, String email) {
+        lock.readLock().lock();
+        try {
+            Integer code = email == null ? null : emailCodes.get(email);
+            List<RollupPoint> points = new ArrayList<>();
+            if (email != null && code == null) {
+                return points;
+            }
+            for (Map.Entry<Long, LongIntHashMap> bucket : buckets.get(unit).subMap(unit.floor(from), true, to, false).entrySet()) {
+                long[] count = new long[1];
+                bucket.getValue().forEach((key, value) -> {
+                    if (matches(key, code, action, status)) {
+                        count[0] += value;
+                    }
+                });
+                if (count[0] > 0) {
+                    points.add(new RollupPoint(bucket.getKey(), count[0]));
+                }
+            }
+            return points;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Самые активные пользователи периода: больше всего записей аудита, при равенстве - по email
+     *
+     * @param from  начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to    конец периода (не включая)
+     * @param limit сколько пользователей вернуть
+     * @return пользователи по убыванию числа действий
+     */
+    public List<UserActivity> topUsers(long from, long to, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, long[]> byUser = new HashMap<>();
+            forEachCount(from, to, (key, value) -> {
+                int code = (int) (key >>> 16);
+                if (code != 0) {
+                    long[] counts = byUser.computeIfAbsent(code, c -> new long[2]);
+                    counts[0] += value;
+                    if (status(key) == Status.FAIL) {
+                        counts[1] += value;
+                    }
+                }
+            });
+            List<UserActivity> users = new ArrayList<>(byUser.size());
+            byUser.forEach((code, counts) -> users.add(new UserActivity(emails.get(code - 1), counts[0], counts[1])));
+            users.sort(Comparator.comparingLong(UserActivity::getTotal).reversed()
+                    .thenComparing(UserActivity::getUserEmail));
+            return new ArrayList<>(users.subList(0, Math.min(Math.max(limit, 0), users.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Число записей периода по действиям
+     *
+     * @param from   начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to     конец периода (не включая)
+     * @param status статус, null - любой
+     * @return число записей по каждому действию, в порядке перечисления {@link Action} (нулевые не попадают)
+     */
+    public Map<Action, Long> countByAction(long from, long to, Status status) {
+        lock.readLock().lock();
+        try {
+            long[] counts = new long[ACTIONS.length];
+            forEachCount(from, to, (key, value) -> {
+                Action action = action(key);
+                if (action != null && (status == null || status(key) == status)) {
+                    counts[action.ordinal()] += value;
+                }
+            });
+            Map<Action, Long> result = new EnumMap<>(Action.class);
+            for (Action action : ACTIONS) {
+                if (counts[action.ordinal()] > 0) {
+                    result.put(action, counts[action.ordinal()]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Сохраняет сводки в канал: файловый заголовок, блок состояния (ID последней учтенной записи, начало минутных
+     * корзин), блок словаря email и блоки по {@value #BUCKETS_PER_BLOCK} корзин одного шага. Корзина - разность
+     * начала с предыдущей корзиной блока и пары (ключ, число), все числа - varint.
+     *
+     * @param channel канал для записи
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        lock.readLock().lock();
+        try {
+            BlockChannels.writeFileHeader(channel, MAGIC, VERSION);
+            BinaryWriter block = new BinaryWriter(1 << 16);
+            block.writeVarLong(lastId).writeSignedVarLong(minutesSince);
+            BlockChannels.writeBlock(channel, block);
+
+            block.reset();
+            block.writeVarLong(emails.size());
+            for (String email : emails) {
+                block.writeString(email);
+            }
+            BlockChannels.writeBlock(channel, block);
+
+            for (RollupUnit unit : UNITS) {
+                Iterator<Map.Entry<Long, LongIntHashMap>> iterator = buckets.get(unit).entrySet().iterator();
+                while (iterator.hasNext()) {
+                    block.reset();
+                    List<Map.Entry<Long, LongIntHashMap>> chunk = new ArrayList<>(BUCKETS_PER_BLOCK);
+                    while (iterator.hasNext() && chunk.size() < BUCKETS_PER_BLOCK) {
+                        chunk.add(iterator.next());
+                    }
+                    block.writeByte(unit.ordinal()).writeVarLong(chunk.size());
+                    long previousStart = 0;
+                    for (Map.Entry<Long, LongIntHashMap> bucket : chunk) {
+                        block.writeSignedVarLong(bucket.getKey() - previousStart).writeVarLong(bucket.getValue().size());
+                        bucket.getValue().forEach((key, value) -> block.writeVarLong(key).writeVarLong(value));
+                        previousStart = bucket.getKey();
+                    }
+                    BlockChannels.writeBlock(channel, block);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Читает сводки, сохраненные {@link #writeTo}
+     *
+     * @param channel         канал для чтения
+     * @param minuteRetention сколько хранить минутные корзины, мс
+     * @return сводки
+     * @throws CorruptBlockException если файл поврежден или другой версии
+     */
+    public static AuditRollups readFrom(ReadableByteChannel channel, long minuteRetention) throws IOException {
+        short version = BlockChannels.readFileHeader(channel, MAGIC);
+        if (version != VERSION) {
+            throw new CorruptBlockException("Unsupported audit rollups version " + version);
+        }
+        AuditRollups rollups = new AuditRollups(minuteRetention);
+        BinaryReader block = requireBlock(channel);
+        rollups.lastId = block.readVarLong();
+        rollups.minutesSince = block.readSignedVarLong();
+
+        block = requireBlock(channel);
+        for (int i = block.readVarInt(); i > 0; i--) {
+            rollups.emailCode(block.readString());
+        }
+
+        while ((block = BlockChannels.readBlock(channel)) != null) {
+            int unit = block.readByte();
+            if (unit < 0 || unit >= UNITS.length) {
+                throw new CorruptBlockException("Unknown rollup unit " + unit);
+            }
+            NavigableMap<Long, LongIntHashMap> target = rollups.buckets.get(UNITS[unit]);
+            long start = 0;
+            for (int i = block.readVarInt(); i > 0; i--) {
+                start += block.readSignedVarLong();
+                for (int entries = block.readVarInt(); entries > 0; entries--) {
+                    long key = block.readVarLong();
+                    if ((key >>> 16) > rollups.emails.size()) {
+                        throw new CorruptBlockException("Email " + (key >>> 16) + " is not in the rollups dictionary");
+                    }
+                    increment(target, start, key, (int) block.readVarLong());
+                }
+            }
+        }
+        return rollups;
+    }
+
+    /**
+     * Перебирает ключи и числа корзин периода: целые часы из часовых корзин, края - из минутных
+     */
+    private void forEachCount(long from, long to, LongIntHashMap.EntryConsumer action) {
+        long start = from < minutesSince ? RollupUnit.HOUR.floor(from) : from;
+        long end = to < minutesSince ? RollupUnit.HOUR.floor(to) : to;
+        if (start >= end) {
+            return;
+        }
+        long hourFrom = RollupUnit.HOUR.ceil(start);
+        long hourTo = RollupUnit.HOUR.floor(end);
+        if (hourFrom < hourTo) {
+            forEachCount(RollupUnit.HOUR, hourFrom, hourTo, action);
+            forEachCount(RollupUnit.MINUTE, start, hourFrom, action);
+            forEachCount(RollupUnit.MINUTE, hourTo, end, action);
+        } else {
+            forEachCount(RollupUnit.MINUTE, start, end, action);
+        }
+    }
+
+    private void forEachCount(RollupUnit unit, long from, long to, LongIntHashMap.EntryConsumer action) {
+        if (from < to) {
+            buckets.get(unit).subMap(unit.floor(from), true, to, false).values().forEach(bucket -> bucket.forEach(action));
+        }
+    }
+
+    private int emailCode(String email) {
+        if (email == null) {
+            return 0;
+        }
+        Integer code = emailCodes.get(email);
+        if (code == null) {
+            emails.add(email);
+            code = emails.size();
+            emailCodes.put(email, code);
+        }
+        return code;
+    }
+
+    private static void increment(NavigableMap<Long, LongIntHashMap> target, long bucketStart, long key, int delta) {
+        LongIntHashMap bucket = target.computeIfAbsent(bucketStart, start -> new LongIntHashMap(4));
+        int count = bucket.get(key);
+        bucket.put(key, (count == LongIntHashMap.NO_VALUE ? 0 : count) + delta);
+    }
+
+    /**
+     * Ключ корзины: [номер email][номер действия + 1 (8 бит)][номер статуса + 1 (8 бит)], 0 - поле не задано
+     */
+    private static long key(int emailCode, Action action, Status status) {
+        return (long) emailCode << 16
+                | (action == null ? 0 : action.ordinal() + 1) << 8
+                | (status == null ? 0 : status.ordinal() + 1);
+    }
+
+    private static boolean matches(long key, Integer emailCode, Action action, Status status) {
+        return (emailCode == null || key >>> 16 == emailCode)
+                && (action == null || action(key) == action)
+                && (status == null || status(key) == status);
+    }
+
+    private static Action action(long key) {
+        int ordinal = (int) (key >>> 8 & 0xFF) - 1;
+        return ordinal < 0 || ordinal >= ACTIONS.length ? null : ACTIONS[ordinal];
+    }
+
+    private static Status status(long key) {
+        int ordinal = (int) (key & 0xFF) - 1;
+        return ordinal < 0 || ordinal >= STATUSES.length ? null : STATUSES[ordinal];
+    }
+
+    private static BinaryReader requireBlock(ReadableByteChannel channel) throws IOException {
+        BinaryReader block = BlockChannels.readBlock(channel);
+        if (block == null) {
+            throw new CorruptBlockException("Audit rollups file is truncated");
+        }
+        return block;
+    }
+}
@@ -0,0 +1,209 @@
+package me.oldboy.market.cache_bd.audit;
+
+import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.ProductDelta;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Сегмент журнала аудита - фиксированное число записей с подряд идущими ID.
+ * <p>
+ * Сегмент с номером N хранит записи с ID от N * capacity + 1 до (N + 1) * capacity, поэтому положение
+ * записи вычисляется из ее ID арифметически. Записи только добавляются в конец, заполненный сегмент
+ * "запечатывается" и больше не меняется. Сегмент не потокобезопасен, доступ синхронизирует AuditDB.
+ * <p>
+ * Записи хранятся не объектами, а колонками примитивов: временная метка, номер email в словаре
+ * сегмента, порядковые номера действия и статуса, ID товара, поля {@link ProductDelta} и итог пакетной операции.
+ * Объекты {@link Audit} собираются при чтении.
+ */
+public class AuditSegment {
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final int NO_INT = Integer.MIN_VALUE;
+    private static final byte NONE = -1;
+    private static final Action[] ACTIONS = Action.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final long number;
+    private final int capacity;
+    private int count;
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    private final long[] timestamps;
+    private final int[] emailCodes;
+    private final byte[] actions;
+    private final byte[] statuses;
+    private final long[] productIds;
+    private final byte[] deltaFields;
+    private final double[] prices;
+    private final int[] stocks;
+    private final int[] categoryIds;
+    private final int[] brandIds;
+    private final String[] names;
+    private final String[] descriptions;
+    private final String[] summaries;
+
+    private final List<String> emails = new ArrayList<>();
+    private Map<String, Integer> emailIndex = new HashMap<>();
+
+    public AuditSegment(long number, int capacity) {
+        this.number = number;
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.emailCodes = new int[capacity];
+        this.actions = new byte[capacity];
+        this.statuses = new byte[capacity];
+        this.productIds = new long[capacity];
+        this.deltaFields = new byte[capacity];
+        this.prices = new double[capacity];
+        this.stocks = new int[capacity];
+        this.categoryIds = new int[capacity];
+        this.brandIds = new int[capacity];
+        this.names = new String[capacity];
+        this.descriptions = new String[capacity];
+        this.summaries = new String[capacity];
+    }
+
+    /**
+     * @param audit запись, чей ID уже присвоен и относится к этому сегменту
+     */
+    public void append(Audit audit) {
+        int i = count++;
+        timestamps[i] = audit.getTimestamp() == null ? NO_TIMESTAMP : audit.getTimestamp();
+        emailCodes[i] = audit.getUserEmail() == null ? NONE
+                : emailIndex.computeIfAbsent(audit.getUserEmail(), email -> {
+                    emails.add(email);
+                    return emails.size() - 1;
+                });
+        actions[i] = audit.getAction() == null ? NONE : (byte) audit.getAction().ordinal();
+        statuses[i] = audit.getIsSuccess() == null ? NONE : (byte) audit.getIsSuccess().ordinal();
+        productIds[i] = audit.getProductId() == null ? 0 : audit.getProductId();
+
+        ProductDelta delta = audit.getProductDelta();
+        deltaFields[i] = delta == null ? NONE : (byte) delta.getFields();
+        if (delta != null) {
+            names[i] = delta.getName();
+            prices[i] = delta.getPrice();
+            stocks[i] = delta.getStockQuantity();
+            categoryIds[i] = delta.getCategoryId() == null ? NO_INT : delta.getCategoryId();
+            brandIds[i] = delta.getBrandId() == null ? NO_INT : delta.getBrandId();
+            descriptions[i] = delta.getDescription();
+        }
+        summaries[i] = audit.getSummary();
+
+        long timestamp = timestampAt(i);
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+        if (isFull()) {
+            /* Запечатанному сегменту индекс для добавления больше не нужен */
+            emailIndex = null;
+        }
+    }
+
+    /**
+     * @param id ID записи
+     * @return запись или null, если записи с таким ID в сегменте нет
+     */
+    public Audit get(long id) {
+        long offset = id - firstId();
+        return offset >= 0 && offset < count ? recordAt((int) offset) : null;
+    }
+
+    public void forEach(Consumer<Audit> action) {
+        for (int i = 0; i < count; i++) {
+            action.accept(recordAt(i));
+        }
+    }
+
+    /**
+     * Перебирает записи, чья временная метка лежит в диапазоне [from, to]
+     */
+    public void forEachBetween(long from, long to, Consumer<Audit> action) {
+        if (!overlaps(from, to)) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            long timestamp = timestampAt(i);
+            if (timestamp >= from && timestamp <= to) {
+                action.accept(recordAt(i));
+            }
+        }
+    }
+
+    /**
+     * Перебирает записи пользователя - сравниваются номера email в словаре сегмента
+     */
+    public void forEachWithEmail(String email, Consumer<Audit> action) {
+        int code = emails.indexOf(email);
+        if (code < 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (emailCodes[i] == code) {
+                action.accept(recordAt(i));
+            }
+        }
+    }
+
+    public boolean overlaps(long from, long to) {
+        return count > 0 && minTimestamp <= to && maxTimestamp >= from;
+    }
+
+    public long number() {
+        return number;
+    }
+
+    public long firstId() {
+        return number * capacity + 1;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return count == capacity;
+    }
+
+    public long minTimestamp() {
+        return minTimestamp;
+    }
+
+    public long maxTimestamp() {
+        return maxTimestamp;
+    }
+
+    private long timestampAt(int i) {
+        return timestamps[i] == NO_TIMESTAMP ? 0 : timestamps[i];
+    }
+
+    private Audit recordAt(int i) {
+        ProductDelta delta = null;
+        if (deltaFields[i] != NONE) {
+            delta = new ProductDelta(deltaFields[i], names[i], prices[i],
+                    categoryIds[i] == NO_INT ? null : categoryIds[i],
+                    brandIds[i] == NO_INT ? null : brandIds[i],
+                    descriptions[i], stocks[i]);
+        }
+        return Audit.builder()
+                .id(firstId() + i)
+                .timestamp(timestamps[i] == NO_TIMESTAMP ? null : timestamps[i])
+                .userEmail(emailCodes[i] == NONE ? null : emails.get(emailCodes[i]))
+                .action(actions[i] == NONE ? null : ACTIONS[actions[i]])
+                .isSuccess(statuses[i] == NONE ? null : STATUSES[statuses[i]])
+                .productId(productIds[i] == 0 ? null : productIds[i])
+                .productDelta(delta)
+                .summary(summaries[i])
+                .build();
+    }
+}
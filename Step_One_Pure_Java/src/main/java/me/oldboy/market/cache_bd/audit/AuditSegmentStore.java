@@ -0,0 +1,400 @@
+package me.oldboy.market.cache_bd.audit;
+
+import me.oldboy.market.cache_bd.codec.BinaryReader;
+import me.oldboy.market.cache_bd.codec.BinaryWriter;
+import me.oldboy.market.cache_bd.codec.BlockChannels;
+import me.oldboy.market.cache_bd.codec.CorruptBlockException;
+import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.ProductDelta;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+import me.oldboy.market.exceptions.AuditDBException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Файловое хранилище сегментов аудита: каталог с файлами segment-&lt;номер&gt;.seg для запечатанных
+ * сегментов и active.seg для текущего (незаполненного) сегмента.
+ * <p>
+ * Файл сегмента (формат версии 2, см. {@link BlockChannels}): блок заголовка (номер, емкость, число записей,
+ * мин./макс. временная метка), блок словаря email пользователей сегмента и блоки по {@value #RECORDS_PER_BLOCK}
+ * компактных записей (см. writeRecord), у каждого блока свой CRC. Заголовок читается отдельно, без чтения
+ * записей. Файлы пишутся во временный через FileChannel и атомарно подменяются.
+ * <p>
+ * Сегменты версии 1 (поля фиксированной ширины, без CRC) по-прежнему читаются и переписываются
+ * в версию 2 при следующей записи (для запечатанных - не переписываются).
+ * <p>
+ * Там же, в файле rollups.dat, хранятся сводки аудита по времени ({@link AuditRollups}).
+ */
+public class AuditSegmentStore {
+    private static final String SEALED_PREFIX = "segment-";
+    private static final String SUFFIX = ".seg";
+    private static final String ACTIVE_FILE = "active" + SUFFIX;
+    private static final String ROLLUPS_FILE = "rollups.dat";
+    private static final int MAGIC = 0x41554453;
+    private static final short LEGACY_VERSION = 1;
+    private static final short VERSION = 2;
+    private static final int RECORDS_PER_BLOCK = 512;
+    private static final int HAS_TIMESTAMP = 1;
+    private static final int HAS_EMAIL = 1 << 1;
+    private static final int HAS_ACTION = 1 << 2;
+    private static final int HAS_STATUS = 1 << 3;
+    private static final int HAS_PRODUCT = 1 << 4;
+    private static final int HAS_DELTA = 1 << 5;
+    private static final int HAS_SUMMARY = 1 << 6;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final Action[] ACTIONS = Action.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final Path directory;
+
+    public AuditSegmentStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new AuditDBException("Can't create audit directory " + directory, e);
+        }
+    }
+
+    /**
+     * @return заголовки запечатанных сегментов в порядке номеров
+     */
+    public List<SegmentHeader> sealedHeaders() {
+        List<SegmentHeader> headers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(this::isSealedFile)::iterator) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    headers.add(readHeader(channel, BlockChannels.readFileHeader(channel, MAGIC)));
+                }
+            }
+        } catch (IOException e) {
+            throw new AuditDBException("Can't read audit segments from " + directory, e);
+        }
+        headers.sort(Comparator.comparingLong(SegmentHeader::getNumber));
+        return headers;
+    }
+
+    public void writeSealed(AuditSegment segment) {
+        write(sealedFile(segment.number()), segment);
+    }
+
+    public AuditSegment readSealed(SegmentHeader header) {
+        return read(sealedFile(header.getNumber()));
+    }
+
+    /**
+     * Читает только заголовок и словарь email запечатанного сегмента, без записей
+     *
+     * @return email пользователей, у которых есть записи в сегменте
+     */
+    public List<String> readEmails(SegmentHeader header) {
+        Path file = sealedFile(header.getNumber());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            short version = BlockChannels.readFileHeader(channel, MAGIC);
+            readHeader(channel, version);
+            return Arrays.asList(readDictionary(channel, version));
+        } catch (IOException e) {
+            throw new AuditDBException("Can't read audit segment " + file, e);
+        }
+    }
+
+    public void deleteSealed(long number) {
+        try {
+            Files.deleteIfExists(sealedFile(number));
+        } catch (IOException e) {
+            throw new AuditDBException("Can't delete audit segment " + number, e);
+        }
+    }
+
+    public void writeActive(AuditSegment segment) {
+        write(directory.resolve(ACTIVE_FILE), segment);
+    }
+
+    /**
+     * @return сохраненный текущий сегмент или null, если его нет
+     */
+    public AuditSegment readActive() {
+        Path file = directory.resolve(ACTIVE_FILE);
+        return Files.isRegularFile(file) ? read(file) : null;
+    }
+
+    public void writeRollups(AuditRollups rollups) {
+        Path file = directory.resolve(ROLLUPS_FILE);
+        Path tmpFile = file.resolveSibling(ROLLUPS_FILE + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                rollups.writeTo(channel);
+                channel.force(true);
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new AuditDBException("Can't write audit rollups " + file, e);
+        }
+    }
+
+    /**
+     * Сводки - производные данные: если файла нет или он поврежден, они пересчитываются по сегментам
+     *
+     * @param minuteRetention сколько хранить минутные корзины, мс
+     * @return сохраненные сводки или null, если их нет или файл не читается
+     */
+    public AuditRollups readRollups(long minuteRetention) {
+        Path file = directory.resolve(ROLLUPS_FILE);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return AuditRollups.readFrom(channel, minuteRetention);
+        } catch (CorruptBlockException e) {
+            return null;
+        } catch (IOException e) {
+            throw new AuditDBException("Can't read audit rollups " + file, e);
+        }
+    }
+
+    private void write(Path file, AuditSegment segment) {
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                BlockChannels.writeFileHeader(channel, MAGIC, VERSION);
+                BinaryWriter block = new BinaryWriter(1 << 16);
+                block.writeVarLong(segment.number())
+                        .writeVarLong(segment.capacity())
+                        .writeVarLong(segment.count())
+                        .writeSignedVarLong(segment.minTimestamp())
+                        .writeSignedVarLong(segment.maxTimestamp());
+                BlockChannels.writeBlock(channel, block);
+
+                Map<String, Integer> emails = new LinkedHashMap<>();
+                segment.forEach(audit -> {
+                    if (audit.getUserEmail() != null) {
+                        emails.putIfAbsent(audit.getUserEmail(), emails.size());
+                    }
+                });
+                block.reset();
+                block.writeVarLong(emails.size());
+                for (String email : emails.keySet()) {
+                    block.writeString(email);
+                }
+                BlockChannels.writeBlock(channel, block);
+
+                for (int first = 0; first < segment.count(); first += RECORDS_PER_BLOCK) {
+                    int count = Math.min(RECORDS_PER_BLOCK, segment.count() - first);
+                    block.reset();
+                    block.writeVarLong(count);
+                    long previousTimestamp = 0;
+                    for (int i = first; i < first + count; i++) {
+                        Audit audit = segment.get(segment.firstId() + i);
+                        writeRecord(block, audit, emails, previousTimestamp);
+                        if (audit.getTimestamp() != null) {
+                            previousTimestamp = audit.getTimestamp();
+                        }
+                    }
+                    BlockChannels.writeBlock(channel, block);
+                }
+                channel.force(true);
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new AuditDBException("Can't write audit segment " + file, e);
+        }
+    }
+
+    private AuditSegment read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            short version = BlockChannels.readFileHeader(channel, MAGIC);
+            SegmentHeader header = readHeader(channel, version);
+            String[] emails = readDictionary(channel, version);
+            AuditSegment segment = new AuditSegment(header.getNumber(), header.getCapacity());
+            if (version == LEGACY_VERSION) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+                for (int i = 0; i < header.getCount(); i++) {
+                    append(segment, readLegacyRecord(in, emails));
+                }
+                return segment;
+            }
+            while (segment.count() < header.getCount()) {
+                BinaryReader block = requireBlock(channel);
+                long previousTimestamp = 0;
+                for (int i = block.readVarInt(); i > 0; i--) {
+                    Audit audit = readRecord(block, emails, previousTimestamp);
+                    if (audit.getTimestamp() != null) {
+                        previousTimestamp = audit.getTimestamp();
+                    }
+                    append(segment, audit);
+                }
+            }
+            return segment;
+        } catch (IOException e) {
+            throw new AuditDBException("Can't read audit segment " + file, e);
+        }
+    }
+
+    private static void append(AuditSegment segment, Audit audit) {
+        audit.setId(segment.firstId() + segment.count());
+        segment.append(audit);
+    }
+
+    /**
+     * Запись: байт флагов заданных полей, временная метка (разность с предыдущей записью блока, zigzag),
+     * номер email в словаре сегмента, порядковые номера действия и статуса, ID товара, маска полей
+     * ProductDelta с заданными полями и итог пакетной операции. Числа - varint, строки - UTF-8 с длиной.
+     * Записи без итога (все записи, сохраненные до его появления) читаются по-прежнему - флаг у них не задан.
+     * ID записи не хранится - он вычисляется из номера сегмента и позиции записи.
+     */
+    static void writeRecord(BinaryWriter out, Audit audit, Map<String, Integer> emails, long previousTimestamp) {
+        int flags = (audit.getTimestamp() != null ? HAS_TIMESTAMP : 0)
+                | (audit.getUserEmail() != null ? HAS_EMAIL : 0)
+                | (audit.getAction() != null ? HAS_ACTION : 0)
+                | (audit.getIsSuccess() != null ? HAS_STATUS : 0)
+                | (audit.getProductId() != null ? HAS_PRODUCT : 0)
+                | (audit.getProductDelta() != null ? HAS_DELTA : 0)
+                | (audit.getSummary() != null ? HAS_SUMMARY : 0);
+        out.writeByte(flags);
+        if (audit.getTimestamp() != null) out.writeSignedVarLong(audit.getTimestamp() - previousTimestamp);
+        if (audit.getUserEmail() != null) out.writeVarLong(emails.get(audit.getUserEmail()));
+        if (audit.getAction() != null) out.writeByte(audit.getAction().ordinal());
+        if (audit.getIsSuccess() != null) out.writeByte(audit.getIsSuccess().ordinal());
+        if (audit.getProductId() != null) out.writeSignedVarLong(audit.getProductId());
+
+        ProductDelta delta = audit.getProductDelta();
+        if (delta != null) {
+            out.writeByte(delta.getFields());
+            if (delta.has(ProductDelta.NAME)) out.writeString(delta.getName());
+            if (delta.has(ProductDelta.PRICE)) out.writeDouble(delta.getPrice());
+            if (delta.has(ProductDelta.CATEGORY)) out.writeNullableInt(delta.getCategoryId());
+            if (delta.has(ProductDelta.BRAND)) out.writeNullableInt(delta.getBrandId());
+            if (delta.has(ProductDelta.DESCRIPTION)) out.writeString(delta.getDescription());
+            if (delta.has(ProductDelta.STOCK)) out.writeSignedVarLong(delta.getStockQuantity());
+        }
+        if (audit.getSummary() != null) out.writeString(audit.getSummary());
+    }
+
+    static Audit readRecord(BinaryReader in, String[] emails, long previousTimestamp) throws IOException {
+        int flags = in.readByte();
+        Audit.AuditBuilder audit = Audit.builder();
+        if ((flags & HAS_TIMESTAMP) != 0) audit.timestamp(previousTimestamp + in.readSignedVarLong());
+        if ((flags & HAS_EMAIL) != 0) audit.userEmail(dictionaryEntry(emails, in.readVarInt()));
+        if ((flags & HAS_ACTION) != 0) audit.action(ACTIONS[in.readByte()]);
+        if ((flags & HAS_STATUS) != 0) audit.isSuccess(STATUSES[in.readByte()]);
+        if ((flags & HAS_PRODUCT) != 0) audit.productId(in.readSignedVarLong());
+        if ((flags & HAS_DELTA) != 0) {
+            byte fields = in.readByte();
+            audit.productDelta(new ProductDelta(fields,
+                    (fields & ProductDelta.NAME) != 0 ? in.readString() : null,
+                    (fields & ProductDelta.PRICE) != 0 ? in.readDouble() : 0,
+                    (fields & ProductDelta.CATEGORY) != 0 ? in.readNullableInt() : null,
+                    (fields & ProductDelta.BRAND) != 0 ? in.readNullableInt() : null,
+                    (fields & ProductDelta.DESCRIPTION) != 0 ? in.readString() : null,
+                    (fields & ProductDelta.STOCK) != 0 ? (int) in.readSignedVarLong() : 0));
+        }
+        if ((flags & HAS_SUMMARY) != 0) audit.summary(in.readString());
+        return audit.build();
+    }
+
+    /**
+     * Запись формата версии 1: поля фиксированной ширины, без CRC
+     */
+    private static Audit readLegacyRecord(DataInputStream in, String[] emails) throws IOException {
+        long timestamp = in.readLong();
+        int email = in.readInt();
+        byte action = in.readByte();
+        byte status = in.readByte();
+        long productId = in.readLong();
+
+        ProductDelta delta = null;
+        byte fields = in.readByte();
+        if (fields != -1) {
+            delta = new ProductDelta(fields,
+                    (fields & ProductDelta.NAME) != 0 ? readNullableString(in) : null,
+                    (fields & ProductDelta.PRICE) != 0 ? in.readDouble() : 0,
+                    (fields & ProductDelta.CATEGORY) != 0 ? readNullableInt(in) : null,
+                    (fields & ProductDelta.BRAND) != 0 ? readNullableInt(in) : null,
+                    (fields & ProductDelta.DESCRIPTION) != 0 ? readNullableString(in) : null,
+                    (fields & ProductDelta.STOCK) != 0 ? in.readInt() : 0);
+        }
+        return Audit.builder()
+                .timestamp(timestamp == NO_TIMESTAMP ? null : timestamp)
+                .userEmail(email == -1 ? null : emails[email])
+                .action(action == -1 ? null : ACTIONS[action])
+                .isSuccess(status == -1 ? null : STATUSES[status])
+                .productId(productId == 0 ? null : productId)
+                .productDelta(delta)
+                .build();
+    }
+
+    private static SegmentHeader readHeader(FileChannel channel, short version) throws IOException {
+        if (version == LEGACY_VERSION) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            return new SegmentHeader(in.readLong(), in.readInt(), in.readInt(), in.readLong(), in.readLong());
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported audit segment version " + version);
+        }
+        BinaryReader in = requireBlock(channel);
+        return new SegmentHeader(in.readVarLong(), in.readVarInt(), in.readVarInt(),
+                in.readSignedVarLong(), in.readSignedVarLong());
+    }
+
+    private static String[] readDictionary(FileChannel channel, short version) throws IOException {
+        if (version == LEGACY_VERSION) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            String[] emails = new String[in.readInt()];
+            for (int i = 0; i < emails.length; i++) {
+                emails[i] = in.readUTF();
+            }
+            return emails;
+        }
+        BinaryReader in = requireBlock(channel);
+        String[] emails = new String[in.readVarInt()];
+        for (int i = 0; i < emails.length; i++) {
+            emails[i] = in.readString();
+        }
+        return emails;
+    }
+
+    private static BinaryReader requireBlock(FileChannel channel) throws IOException {
+        BinaryReader block = BlockChannels.readBlock(channel);
+        if (block == null) {
+            throw new CorruptBlockException("Audit segment is truncated");
+        }
+        return block;
+    }
+
+    private static String dictionaryEntry(String[] emails, int index) throws CorruptBlockException {
+        if (index >= emails.length) {
+            throw new CorruptBlockException("Email " + index + " is not in the segment dictionary");
+        }
+        return emails[index];
+    }
+
+    private static Integer readNullableInt(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private Path sealedFile(long number) {
+        return directory.resolve(String.format("%s%016d%s", SEALED_PREFIX, number, SUFFIX));
+    }
+
+    private boolean isSealedFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEALED_PREFIX) && name.endsWith(SUFFIX);
+    }
+}
@@ -0,0 +1,169 @@
+package me.oldboy.market.cache_bd.audit;
+
+import me.oldboy.market.cache_bd.codec.BinaryReader;
+import me.oldboy.market.cache_bd.codec.BinaryWriter;
+import me.oldboy.market.cache_bd.codec.BlockChannels;
+import me.oldboy.market.cache_bd.codec.CorruptBlockException;
+import me.oldboy.market.entity.Audit;
+import me.oldboy.market.exceptions.AuditDBException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Файл переполнения очереди аудита ({@link AuditBackpressure#SPILL_TO_DISK}): записи, не поместившиеся
+ * в очередь {@link AuditWriter}, дописываются в конец файла и дочитываются с начала по мере разбора.
+ * Когда файл прочитан целиком, он обрезается до заголовка. Записи, оставшиеся в файле после сбоя,
+ * дочитываются при следующем старте.
+ * <p>
+ * Формат (см. {@link BlockChannels}): заголовок файла и по блоку на запись - [email][запись сегмента
+ * без ID], запись кодируется так же, как в сегменте аудита, со словарем из одного email.
+ * Оборванный при сбое последний блок отбрасывается. Класс не потокобезопасен - вызывающий его синхронизирует.
+ */
+class AuditSpillFile implements Closeable {
+    private static final int MAGIC = 0x41555350;
+    private static final short VERSION = 1;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final BinaryWriter encoder = new BinaryWriter(256);
+    private long readPosition = BlockChannels.FILE_HEADER_SIZE;
+
+    AuditSpillFile(Path file) {
+        this.file = file;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() == 0 || !hasValidHeader()) {
+                channel.truncate(0);
+                channel.position(0);
+                BlockChannels.writeFileHeader(channel, MAGIC, VERSION);
+            }
+        } catch (IOException e) {
+            throw new AuditDBException("Can't open audit spill file " + file, e);
+        }
+    }
+
+    /**
+     * Дописывает запись в конец файла
+     */
+    void append(Audit audit) {
+        encoder.reset();
+        encoder.writeString(audit.getUserEmail());
+        AuditSegmentStore.writeRecord(encoder, audit,
+                audit.getUserEmail() == null ? Map.of() : Map.of(audit.getUserEmail(), 0), 0);
+        try {
+            channel.position(channel.size());
+            BlockChannels.writeBlock(channel, encoder);
+        } catch (IOException e) {
+            throw new AuditDBException("Can't write audit spill file " + file, e);
+        }
+    }
+
+    /**
+     * Читает очередные записи в порядке их добавления
+     *
+     * @param max сколько записей прочитать не более
+     * @return прочитанные записи, пустой список - непрочитанных записей нет
+     */
+    List<Audit> read(int max) {
+        List<Audit> records = new ArrayList<>();
+        try {
+            channel.position(readPosition);
+            while (records.size() < max) {
+                BinaryReader body;
+                try {
+                    body = BlockChannels.readBlock(channel);
+                } catch (CorruptBlockException e) {
+                    System.out.println("Файл " + file.getFileName() + ": поврежденный хвост отброшен");
+                    channel.truncate(readPosition);
+                    break;
+                }
+                if (body == null) {
+                    break;
+                }
+                String email = body.readString();
+                records.add(AuditSegmentStore.readRecord(body, email == null ? new String[0] : new String[]{email}, 0));
+                readPosition = channel.position();
+            }
+        } catch (IOException e) {
+            throw new AuditDBException("Can't read audit spill file " + file, e);
+        }
+        return records;
+    }
+
+    /**
+     * Считает непрочитанные записи при открытии файла; поврежденный при сбое хвост отбрасывается сразу,
+     * чтобы новые записи не оказались за ним
+     *
+     * @return число непрочитанных записей
+     */
+    long countUnread() {
+        long count = 0;
+        try {
+            channel.position(readPosition);
+            long blockStart = readPosition;
+            try {
+                while (BlockChannels.readBlock(channel) != null) {
+                    count++;
+                    blockStart = channel.position();
+                }
+            } catch (CorruptBlockException e) {
+                System.out.println("Файл " + file.getFileName() + ": поврежденный хвост отброшен");
+                channel.truncate(blockStart);
+            }
+        } catch (IOException e) {
+            throw new AuditDBException("Can't read audit spill file " + file, e);
+        }
+        return count;
+    }
+
+    /**
+     * @return true - все записи файла прочитаны
+     */
+    boolean isDrained() {
+        try {
+            return readPosition >= channel.size();
+        } catch (IOException e) {
+            throw new AuditDBException("Can't read audit spill file " + file, e);
+        }
+    }
+
+    /**
+     * Обрезает прочитанный целиком файл до заголовка
+     */
+    void reset() {
+        try {
+            channel.truncate(BlockChannels.FILE_HEADER_SIZE);
+            readPosition = BlockChannels.FILE_HEADER_SIZE;
+        } catch (IOException e) {
+            throw new AuditDBException("Can't truncate audit spill file " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean hasValidHeader() throws IOException {
+        try {
+            channel.position(0);
+            return BlockChannels.readFileHeader(channel, MAGIC) == VERSION;
+        } catch (CorruptBlockException e) {
+            return false;
+        }
+    }
+}
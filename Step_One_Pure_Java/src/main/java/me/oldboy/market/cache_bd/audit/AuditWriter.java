@@ -0,0 +1,357 @@
+package me.oldboy.market.cache_bd.audit;
+
+import me.oldboy.market.cache_bd.AuditDB;
+import me.oldboy.market.entity.Audit;
+import me.oldboy.market.exceptions.AuditDBException;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Фоновая запись аудита: записи из пользовательских операций кладутся в ограниченную очередь
+ * (писать в нее могут любые потоки), а отдельный поток забирает все накопившиеся записи и добавляет
+ * их в {@link AuditDB} пачкой - под одной блокировкой и с одним сохранением текущего сегмента
+ * и сводок на диск (group commit). Пользовательская операция не ждет ни блокировки аудита,
+ * ни записи файлов, ни отложенной загрузки аудита.
+ * <p>
+ * Если очередь заполнена, поведение задает {@link AuditBackpressure}: ждать, вытеснить самую старую
+ * запись или дописать запись в файл переполнения ({@link AuditSpillFile}). Пока в файле переполнения
+ * есть записи, новые записи тоже идут в файл, а пишущий поток читает файл только после очереди -
+ * так записи попадают в аудит в порядке поступления.
+ * <p>
+ * {@link #flush()} дожидается записи всего, что было передано до его вызова (выход пользователя,
+ * просмотр аудита), {@link #close()} - дописывает очередь и останавливает поток; записи, переданные
+ * после закрытия, добавляются в AuditDB сразу. Поток не прерывается (interrupt закрыл бы файловый канал
+ * сегмента посреди записи): он сам завершается, увидев закрытие и пустые очередь и файл переполнения.
+ * <p>
+ * Пачка, которую не удалось добавить или сохранить (например, аудит не загрузился), не считается
+ * записанной: поток повторяет ее, а {@link #flush()} и {@link #close()} сообщают об ошибке. Если ошибка
+ * не прошла к закрытию, оставшиеся записи дописываются в файл переполнения (дочитаются при следующем
+ * старте), без него - теряются, о чем сообщает close.
+ */
+public class AuditWriter implements Closeable {
+    /**
+     * Емкость очереди по умолчанию
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /**
+     * Сколько записей пишущий поток добавляет за одну пачку не более
+     */
+    private static final int MAX_BATCH = 512;
+    /**
+     * Как долго пишущий поток ждет запись, прежде чем проверить, не закрыт ли AuditWriter (мс)
+     */
+    private static final long POLL_MILLIS = 100;
+
+    private final AuditDB auditDB;
+    private final AuditBackpressure backpressure;
+    private final BlockingQueue<Audit> queue;
+    /* Файл переполнения (только для SPILL_TO_DISK), его монитор охраняет и флаг spilling */
+    private final AuditSpillFile spillFile;
+    private boolean spilling;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Object writtenMonitor = new Object();
+    private long written;
+    /* Ошибка последней попытки записать пачку, null - последняя пачка записана (охраняется writtenMonitor) */
+    private RuntimeException writeFailure;
+
+    private final Thread writerThread;
+    /* submit кладет запись в очередь под read-блокировкой, close выставляет closed под write-блокировкой:
+       после закрытия в очередь уже ничего не попадет, и пишущий поток дописывает ее до конца */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    /**
+     * @param auditDB      "кэш" аудита, в который пишутся записи
+     * @param capacity     емкость очереди
+     * @param backpressure поведение при заполненной очереди
+     * @param spillFile    файл переполнения, нужен только для {@link AuditBackpressure#SPILL_TO_DISK}
+     */
+    public AuditWriter(AuditDB auditDB, int capacity, AuditBackpressure backpressure, Path spillFile) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Audit queue capacity must be positive: " + capacity);
+        }
+        this.auditDB = auditDB;
+        this.backpressure = backpressure;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        if (backpressure == AuditBackpressure.SPILL_TO_DISK) {
+            this.spillFile = new AuditSpillFile(spillFile);
+            /* Записи, оставшиеся в файле с прошлого запуска, старше новых - новые встанут за ними */
+            long leftover = this.spillFile.countUnread();
+            this.submitted.set(leftover);
+            this.spilling = leftover > 0;
+        } else {
+            this.spillFile = null;
+        }
+
+        this.writerThread = new Thread(this::writeLoop, "audit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Передает запись на фоновую запись
+     *
+     * @param audit запись аудита (ID присваивается при добавлении в AuditDB)
+     * @return true - запись принята, false - не принята (поток прерван в ожидании места в очереди)
+     */
+    public boolean submit(Audit audit) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                auditDB.add(audit);
+                return true;
+            }
+            return enqueue(audit);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Кладет запись в очередь (или файл переполнения) по правилу {@link AuditBackpressure}
+     */
+    private boolean enqueue(Audit audit) {
+        submitted.incrementAndGet();
+        switch (backpressure) {
+            case BLOCK -> {
+                try {
+                    queue.put(audit);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    markWritten(1);
+                    return false;
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(audit)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                        markWritten(1);
+                    }
+                }
+            }
+            case SPILL_TO_DISK -> {
+                synchronized (spillFile) {
+                    if (spilling || !queue.offer(audit)) {
+                        spilling = true;
+                        spillFile.append(audit);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Блокирует вызывающий поток, пока все ранее переданные записи не окажутся в AuditDB и на диске
+     *
+     * @throws AuditDBException если записи не удается записать
+     */
+    public void flush() {
+        long target = submitted.get();
+        synchronized (writtenMonitor) {
+            while (written < target) {
+                if (writeFailure != null) {
+                    throw new AuditDBException("Audit records are not written", writeFailure);
+                }
+                if (!writerThread.isAlive()) {
+                    return;
+                }
+                try {
+                    writtenMonitor.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return число записей, ожидающих в очереди (без файла переполнения)
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * @return число записей, вытесненных из очереди при {@link AuditBackpressure#DROP_OLDEST}
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Дописывает все переданные записи и останавливает пишущий поток
+     *
+     * @throws AuditDBException если часть записей не попала ни в AuditDB, ни в файл переполнения
+     */
+    @Override
+    public synchronized void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        boolean interrupted = false;
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (spillFile != null) {
+            spillFile.close();
+        }
+        synchronized (writtenMonitor) {
+            long lost = submitted.get() - written;
+            if (lost > 0) {
+                throw new AuditDBException(lost + " audit records are not written", writeFailure);
+            }
+        }
+    }
+
+    /**
+     * Цикл пишущего потока: ждет первую запись, забирает все накопившиеся и добавляет их одной пачкой.
+     * Незаписанная пачка повторяется через {@link #POLL_MILLIS}, при закрытии - уходит в файл переполнения.
+     */
+    private void writeLoop() {
+        List<Audit> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            /* Флаг читается до выборки: если закрыто и выбирать нечего - новых записей в очереди не будет */
+            boolean closing = closed;
+            if (batch.isEmpty()) {
+                try {
+                    nextBatch(batch);
+                } catch (InterruptedException e) {
+                    /* Поток никто не прерывает, при закрытии он выходит сам - дописав очередь и файл переполнения */
+                    continue;
+                }
+                if (batch.isEmpty()) {
+                    if (closing) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            if (writeBatch(batch)) {
+                batch.clear();
+            } else if (closing) {
+                spillUnwritten(batch);
+                return;
+            } else {
+                pause();
+            }
+        }
+    }
+
+    /**
+     * Сначала очередь, затем файл переполнения: пока он не пуст, новые записи идут только в него.
+     * Если записей нет - ждет первую не дольше {@link #POLL_MILLIS} и может вернуть пустую пачку
+     */
+    private void nextBatch(List<Audit> batch) throws InterruptedException {
+        queue.drainTo(batch, MAX_BATCH);
+        if (batch.isEmpty() && spillFile != null) {
+            synchronized (spillFile) {
+                if (spilling) {
+                    batch.addAll(spillFile.read(MAX_BATCH));
+                    if (spillFile.isDrained()) {
+                        spillFile.reset();
+                        spilling = false;
+                    }
+                }
+            }
+        }
+        if (batch.isEmpty()) {
+            Audit first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+            }
+        }
+    }
+
+    /**
+     * @return false - пачка не записана (ошибка запомнена для flush и close)
+     */
+    private boolean writeBatch(List<Audit> batch) {
+        try {
+            /* Записи, добавленные прошлой попыткой (им уже присвоен ID), повторно не добавляются */
+            auditDB.addAll(batch.stream().filter(audit -> audit.getId() == null).toList());
+            auditDB.flush();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            synchronized (writtenMonitor) {
+                writeFailure = e;
+                writtenMonitor.notifyAll();
+            }
+            return false;
+        }
+        synchronized (writtenMonitor) {
+            written += batch.size();
+            writeFailure = null;
+            writtenMonitor.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * При закрытии с незаписанной пачкой: пачка и остаток очереди дописываются в файл переполнения
+     * и будут добавлены при следующем старте (после записей, уже лежащих в файле). Без файла записи теряются,
+     * как и записи, уже добавленные в AuditDB, но не сохраненные на диск.
+     */
+    private void spillUnwritten(List<Audit> batch) {
+        if (spillFile == null) {
+            return;
+        }
+        List<Audit> unwritten = new ArrayList<>();
+        batch.stream().filter(audit -> audit.getId() == null).forEach(unwritten::add);
+        queue.drainTo(unwritten);
+        int spilled = 0;
+        try {
+            synchronized (spillFile) {
+                for (Audit audit : unwritten) {
+                    spillFile.append(audit);
+                    spilled++;
+                }
+            }
+        } catch (AuditDBException e) {
+            e.printStackTrace();
+        }
+        markWritten(spilled);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(POLL_MILLIS);
+        } catch (InterruptedException e) {
+            /* Поток никто не прерывает */
+        }
+    }
+
+    private void markWritten(int count) {
+        synchronized (writtenMonitor) {
+            written += count;
+            writtenMonitor.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package me.oldboy.market.cache_bd.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Точка ряда сводок аудита: число записей в одной корзине (минуте или часе)
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class RollupPoint {
+    /**
+     * Начало корзины (Unix timestamp в миллисекундах)
+     */
+    private final long bucketStart;
+    /**
+     * Число записей в корзине
+     */
+    private final long count;
+}
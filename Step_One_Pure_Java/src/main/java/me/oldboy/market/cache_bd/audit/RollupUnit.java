@@ -0,0 +1,36 @@
+package me.oldboy.market.cache_bd.audit;
+
+/**
+ * Шаг сводок аудита ({@link AuditRollups}): записи считаются в корзинах по минутам и по часам
+ */
+public enum RollupUnit {
+    MINUTE(60_000L),
+    HOUR(3_600_000L);
+
+    private final long millis;
+
+    RollupUnit(long millis) {
+        this.millis = millis;
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    /**
+     * @param timestamp Unix timestamp в миллисекундах
+     * @return начало корзины, в которую попадает момент
+     */
+    public long floor(long timestamp) {
+        return Math.floorDiv(timestamp, millis) * millis;
+    }
+
+    /**
+     * @param timestamp Unix timestamp в миллисекундах
+     * @return начало первой корзины, которая начинается не раньше момента
+     */
+    public long ceil(long timestamp) {
+        long floor = floor(timestamp);
+        return floor == timestamp ? floor : floor + millis;
+    }
+}
@@ -0,0 +1,27 @@
+package me.oldboy.market.cache_bd.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Сведения о запечатанном сегменте аудита, достаточные для поиска по ID и по времени
+ * без загрузки самих записей в память
+ */
+@Getter
+@AllArgsConstructor
+public class SegmentHeader {
+    private final long number;
+    private final int capacity;
+    private final int count;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+
+    public static SegmentHeader of(AuditSegment segment) {
+        return new SegmentHeader(segment.number(), segment.capacity(), segment.count(),
+                segment.minTimestamp(), segment.maxTimestamp());
+    }
+
+    public boolean overlaps(long from, long to) {
+        return count > 0 && minTimestamp <= to && maxTimestamp >= from;
+    }
+}
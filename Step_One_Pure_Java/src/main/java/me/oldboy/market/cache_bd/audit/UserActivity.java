@@ -0,0 +1,28 @@
+package me.oldboy.market.cache_bd.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Активность пользователя за период по сводкам аудита
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class UserActivity {
+    /**
+     * Email пользователя
+     */
+    private final String userEmail;
+    /**
+     * Число действий пользователя
+     */
+    private final long total;
+    /**
+     * Из них завершившихся неудачно
+     */
+    private final long failed;
+}
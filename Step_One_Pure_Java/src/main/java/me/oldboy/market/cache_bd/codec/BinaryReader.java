@@ -0,0 +1,118 @@
+package me.oldboy.market.cache_bd.codec;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Чтение данных, закодированных {@link BinaryWriter}, из буфера (обычно - тела проверенного блока).
+ * Выход за границу буфера или слишком длинный varint означают поврежденные данные - {@link CorruptBlockException}.
+ */
+public final class BinaryReader {
+    private final ByteBuffer buffer;
+
+    public BinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    public byte readByte() throws CorruptBlockException {
+        try {
+            return buffer.get();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public short readShort() throws CorruptBlockException {
+        try {
+            return buffer.getShort();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public int readInt() throws CorruptBlockException {
+        try {
+            return buffer.getInt();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public long readLong() throws CorruptBlockException {
+        try {
+            return buffer.getLong();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public double readDouble() throws CorruptBlockException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    public long readVarLong() throws CorruptBlockException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte next = readByte();
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new CorruptBlockException("Malformed varint");
+    }
+
+    /**
+     * @return неотрицательное число, записанное varint, не больше Integer.MAX_VALUE
+     */
+    public int readVarInt() throws CorruptBlockException {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new CorruptBlockException("Value " + value + " is out of int range");
+        }
+        return (int) value;
+    }
+
+    public long readSignedVarLong() throws CorruptBlockException {
+        long value = readVarLong();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    public Integer readNullableInt() throws CorruptBlockException {
+        long value = readVarLong();
+        if (value == 0) {
+            return null;
+        }
+        int zigzag = (int) (value - 1);
+        return zigzag >>> 1 ^ -(zigzag & 1);
+    }
+
+    public String readString() throws CorruptBlockException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw truncated();
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] utf8 = new byte[length];
+            buffer.get(buffer.position(), utf8);
+            value = new String(utf8, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static CorruptBlockException truncated() {
+        return new CorruptBlockException("Unexpected end of block");
+    }
+}
@@ -0,0 +1,123 @@
+package me.oldboy.market.cache_bd.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Буфер для кодирования записей файлов "кэша" в компактном двоичном виде (пара к {@link BinaryReader}):
+ * <p>
+ * - целые - varint (7 бит на байт, старший бит - "есть продолжение"), знаковые - через zigzag,
+ * поэтому ID, счетчики и небольшие разности занимают 1-3 байта вместо 4-8;
+ * - строки - длина varint и байты UTF-8 (длина хранится +1, 0 - null);
+ * - double и заголовки файлов - фиксированной ширины, big-endian.
+ * <p>
+ * Буфер переиспользуется: {@link #reset()} очищает его без освобождения памяти.
+ */
+public final class BinaryWriter {
+    private byte[] bytes;
+    private int size;
+
+    public BinaryWriter(int capacity) {
+        this.bytes = new byte[Math.max(capacity, 16)];
+    }
+
+    public BinaryWriter writeByte(int value) {
+        ensure(1);
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    public BinaryWriter writeShort(int value) {
+        ensure(2);
+        bytes[size++] = (byte) (value >>> 8);
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    public BinaryWriter writeInt(int value) {
+        ensure(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    public BinaryWriter writeLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    public BinaryWriter writeDouble(double value) {
+        return writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * @param value число, для отрицательных займет 10 байт - их следует писать через {@link #writeSignedVarLong}
+     */
+    public BinaryWriter writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Знаковое число в zigzag-кодировке: 0, -1, 1, -2 ... превращаются в 0, 1, 2, 3 ...
+     */
+    public BinaryWriter writeSignedVarLong(long value) {
+        return writeVarLong(value << 1 ^ value >> 63);
+    }
+
+    /**
+     * @param value число или null (занимает один нулевой байт)
+     */
+    public BinaryWriter writeNullableInt(Integer value) {
+        return value == null ? writeVarLong(0) : writeVarLong(((value << 1 ^ value >> 31) & 0xFFFFFFFFL) + 1);
+    }
+
+    /**
+     * @param value строка или null
+     */
+    public BinaryWriter writeString(String value) {
+        if (value == null) {
+            return writeVarLong(0);
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(utf8.length + 1L);
+        ensure(utf8.length);
+        System.arraycopy(utf8, 0, bytes, size, utf8.length);
+        size += utf8.length;
+        return this;
+    }
+
+    /**
+     * @return число записанных байт
+     */
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * @return записанные байты (без копирования, действителен до следующей записи)
+     */
+    public ByteBuffer buffer() {
+        return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    private void ensure(int more) {
+        if (size + more > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+        }
+    }
+}
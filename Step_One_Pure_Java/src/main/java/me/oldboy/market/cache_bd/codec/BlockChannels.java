@@ -0,0 +1,111 @@
+package me.oldboy.market.cache_bd.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * Блочный формат файлов "кэша" поверх каналов NIO.
+ * <p>
+ * Файл начинается с заголовка [int сигнатура][short версия формата], дальше идут блоки
+ * [int длина тела][int CRC32C тела][тело]. Каждый блок проверяется при чтении отдельно, поэтому
+ * поврежденный блок обнаруживается сразу, а оборванный при сбое последний блок можно отбросить.
+ */
+public final class BlockChannels {
+    public static final int FILE_HEADER_SIZE = 6;
+    public static final int BLOCK_HEADER_SIZE = 8;
+    /**
+     * Длина блока больше этой считается повреждением (защита от выделения памяти под мусорную длину)
+     */
+    private static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+
+    private BlockChannels() {
+    }
+
+    public static void writeFileHeader(WritableByteChannel channel, int magic, short version) throws IOException {
+        writeFully(channel, ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(magic).putShort(version).flip());
+    }
+
+    /**
+     * @return версия формата файла
+     * @throws CorruptBlockException если файл короче заголовка или сигнатура другая
+     */
+    public static short readFileHeader(ReadableByteChannel channel, int magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        if (readFully(channel, header) != FILE_HEADER_SIZE || header.flip().getInt() != magic) {
+            throw new CorruptBlockException("Unknown file signature");
+        }
+        return header.getShort();
+    }
+
+    /**
+     * @param body тело блока
+     * @return блок целиком (заголовок и тело), готовый к записи в канал
+     */
+    public static ByteBuffer frame(BinaryWriter body) {
+        ByteBuffer bytes = body.buffer();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.duplicate());
+        return ByteBuffer.allocate(BLOCK_HEADER_SIZE + bytes.remaining())
+                .putInt(bytes.remaining())
+                .putInt((int) crc.getValue())
+                .put(bytes)
+                .flip();
+    }
+
+    public static void writeBlock(WritableByteChannel channel, BinaryWriter body) throws IOException {
+        writeFully(channel, frame(body));
+    }
+
+    /**
+     * @return тело следующего блока или null, если файл закончился ровно на границе блока
+     * @throws CorruptBlockException если блок оборван или не сходится CRC
+     */
+    public static BinaryReader readBlock(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        int read = readFully(channel, header);
+        if (read == 0) {
+            return null;
+        }
+        header.flip();
+        int length = read == BLOCK_HEADER_SIZE ? header.getInt() : -1;
+        if (length < 0 || length > MAX_BLOCK_SIZE) {
+            throw new CorruptBlockException("Torn or malformed block header");
+        }
+        int expectedCrc = header.getInt();
+        ByteBuffer body = ByteBuffer.allocate(length);
+        if (readFully(channel, body) != length) {
+            throw new CorruptBlockException("Torn block");
+        }
+        body.flip();
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new CorruptBlockException("Block checksum mismatch");
+        }
+        return new BinaryReader(body);
+    }
+
+    public static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @return сколько байт прочитано (меньше размера буфера - файл закончился)
+     */
+    private static int readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
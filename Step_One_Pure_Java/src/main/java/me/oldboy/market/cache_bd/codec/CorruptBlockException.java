@@ -0,0 +1,12 @@
+package me.oldboy.market.cache_bd.codec;
+
+import java.io.IOException;
+
+/**
+ * Блок файла поврежден: не сходится CRC, блок оборван или его содержимое не читается
+ */
+public class CorruptBlockException extends IOException {
+    public CorruptBlockException(String message) {
+        super(message);
+    }
+}
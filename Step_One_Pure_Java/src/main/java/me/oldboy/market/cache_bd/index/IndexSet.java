@@ -0,0 +1,140 @@
+package me.oldboy.market.cache_bd.index;
+
+import me.oldboy.market.exceptions.IndexConstraintException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Набор вторичных индексов "кэш" таблицы. Таблица объявляет индексы с функцией извлечения ключа:
+ * <pre>
+ * private final IndexSet&lt;User, Long&gt; indexes = new IndexSet&lt;&gt;(User::getUserId);
+ * private final UniqueIndex&lt;User, String, Long&gt; byEmail = indexes.unique("email", User::getEmail);
+ * </pre>
+ * и сообщает набору о своих изменениях (add / update / remove) - все объявленные индексы
+ * поддерживаются автоматически. Индекс хранит не саму запись, а значение (обычно ID),
+ * по которому таблица находит запись за O(1).
+ *
+ * @param <E> тип записи таблицы
+ * @param <V> тип значения, хранимого индексами
+ */
+public class IndexSet<E, V> {
+    private final Function<E, V> valueExtractor;
+    private final List<SecondaryIndex<E, ?, V>> indexes = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param valueExtractor функция получения значения записи для индексов (обычно ее ID)
+     */
+    public IndexSet(Function<E, V> valueExtractor) {
+        this.valueExtractor = valueExtractor;
+    }
+
+    /**
+     * Составной ключ индекса (например, брэнд + название), допускает null в частях
+     *
+     * @param parts части ключа
+     * @return ключ с equals/hashCode по всем частям
+     */
+    public static List<Object> key(Object... parts) {
+        return Arrays.asList(parts);
+    }
+
+    public <K> UniqueIndex<E, K, V> unique(String name, Function<E, K> keyExtractor) {
+        UniqueIndex<E, K, V> index = new UniqueIndex<>(name, keyExtractor);
+        indexes.add(index);
+        return index;
+    }
+
+    public <K> NonUniqueIndex<E, K, V> nonUnique(String name, Function<E, K> keyExtractor) {
+        NonUniqueIndex<E, K, V> index = new NonUniqueIndex<>(name, keyExtractor);
+        indexes.add(index);
+        return index;
+    }
+
+    public <K extends Comparable<? super K>> SortedIndex<E, K, V> sorted(String name, Function<E, K> keyExtractor) {
+        SortedIndex<E, K, V> index = new SortedIndex<>(name, null, keyExtractor);
+        indexes.add(index);
+        return index;
+    }
+
+    /**
+     * Упорядоченный индекс, разбитый на группы (например, цены товаров внутри каждой категории)
+     */
+    public <K extends Comparable<? super K>> SortedIndex<E, K, V> sorted(String name, Function<E, ?> groupExtractor,
+                                                                         Function<E, K> keyExtractor) {
+        SortedIndex<E, K, V> index = new SortedIndex<>(name, groupExtractor, keyExtractor);
+        indexes.add(index);
+        return index;
+    }
+
+    /**
+     * Проверяет уникальные индексы для новой (или измененной) записи, ничего не меняя
+     *
+     * @param entity запись
+     * @throws IndexConstraintException если ключ записи уже занят другой записью
+     */
+    public void check(E entity) {
+        V value = valueExtractor.apply(entity);
+        for (SecondaryIndex<E, ?, V> index : indexes) {
+            if (!index.accepts(entity, value)) {
+                throw new IndexConstraintException("Duplicate key in index " + index.name());
+            }
+        }
+    }
+
+    /**
+     * Добавляет запись во все индексы (уникальность проверяется заранее, см. {@link #check})
+     */
+    public void add(E entity) {
+        V value = valueExtractor.apply(entity);
+        for (SecondaryIndex<E, ?, V> index : indexes) {
+            index.add(entity, value);
+        }
+    }
+
+    /**
+     * Добавляет пачку записей: индексы пополняются по очереди, каждый - всей пачкой
+     */
+    public void addAll(Collection<E> entities) {
+        for (SecondaryIndex<E, ?, V> index : indexes) {
+            index.addAll(entities, valueExtractor);
+        }
+    }
+
+    public void remove(E entity) {
+        V value = valueExtractor.apply(entity);
+        for (SecondaryIndex<E, ?, V> index : indexes) {
+            index.remove(entity, value);
+        }
+    }
+
+    /**
+     * Переносит запись в индексах, где изменился ее ключ. Новый ключ добавляется раньше, чем
+     * удаляется прежний: читатель без блокировок не застает момент, когда записи нет ни под одним
+     * ключом (лишнее значение отсеивается по версии читателя).
+     *
+     * @param before копия записи до изменения (с прежними ключами)
+     * @param after  запись после изменения
+     */
+    public void update(E before, E after) {
+        V oldValue = valueExtractor.apply(before);
+        V newValue = valueExtractor.apply(after);
+        for (SecondaryIndex<E, ?, V> index : indexes) {
+            if (Objects.equals(oldValue, newValue) && index.sameKey(before, after)) {
+                continue;
+            }
+            index.add(after, newValue);
+            index.remove(before, oldValue);
+        }
+    }
+
+    public void clear() {
+        for (SecondaryIndex<E, ?, V> index : indexes) {
+            index.clear();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package me.oldboy.market.cache_bd.index;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Неуникальный индекс: ключу соответствует множество значений (ID) записей. Потокобезопасен.
+ * <p>
+ * Большинство ключей (например, названия товаров) встречаются у одной записи, поэтому одно
+ * значение хранится как есть, а множество заводится только для второго значения ключа.
+ */
+public class NonUniqueIndex<E, K, V> extends SecondaryIndex<E, K, V> {
+    /* Значение ключа - V или Values */
+    private final Map<K, Object> values = new ConcurrentHashMap<>();
+
+    NonUniqueIndex(String name, Function<E, K> keyExtractor) {
+        super(name, keyExtractor);
+    }
+
+    /**
+     * @param key ключ
+     * @return значения (ID) записей с этим ключом, пустое множество если таких нет
+     */
+    @SuppressWarnings("unchecked")
+    public Set<V> find(K key) {
+        Object found = key == null ? null : values.get(key);
+        if (found == null) {
+            return Collections.emptySet();
+        }
+        return found instanceof Values ? Collections.unmodifiableSet(((Values<V>) found).set)
+                : Collections.singleton((V) found);
+    }
+
+    /**
+     * Удаляет значение из-под всех ключей (например, удаленный целиком сегмент аудита)
+     *
+     * @param value значение
+     */
+    public void removeValue(V value) {
+        for (K key : values.keySet()) {
+            values.computeIfPresent(key, (k, current) -> without(current, value));
+        }
+    }
+
+    @Override
+    boolean accepts(E entity, V value) {
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void add(E entity, V value) {
+        K key = keyOf(entity);
+        if (key != null) {
+            values.merge(key, value, (current, added) -> {
+                if (current instanceof Values) {
+                    ((Values<V>) current).set.add(value);
+                    return current;
+                }
+                if (current.equals(value)) {
+                    return current;
+                }
+                Values<V> both = new Values<>();
+                both.set.add((V) current);
+                both.set.add(value);
+                return both;
+            });
+        }
+    }
+
+    @Override
+    void remove(E entity, V value) {
+        K key = keyOf(entity);
+        if (key != null) {
+            values.computeIfPresent(key, (k, current) -> without(current, value));
+        }
+    }
+
+    @Override
+    void clear() {
+        values.clear();
+    }
+
+    /**
+     * @return значение ключа без value или null, если значений не осталось
+     */
+    @SuppressWarnings("unchecked")
+    private Object without(Object current, V value) {
+        if (!(current instanceof Values)) {
+            return current.equals(value) ? null : current;
+        }
+        Set<V> set = ((Values<V>) current).set;
+        set.remove(value);
+        return set.isEmpty() ? null : current;
+    }
+
+    private static final class Values<V> {
+        private final Set<V> set = ConcurrentHashMap.newKeySet();
+    }
+}
@@ -0,0 +1,59 @@
+package me.oldboy.market.cache_bd.index;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Вторичный индекс "кэш" таблицы: ключ, извлекаемый из записи, -> значение записи в индексе
+ * (обычно ее ID). Индексы объявляются и поддерживаются через {@link IndexSet}.
+ * Записи с ключом null в индекс не попадают.
+ *
+ * @param <E> тип записи таблицы
+ * @param <K> тип ключа индекса
+ * @param <V> тип значения, хранимого индексом
+ */
+public abstract class SecondaryIndex<E, K, V> {
+    private final String name;
+    private final Function<E, K> keyExtractor;
+
+    protected SecondaryIndex(String name, Function<E, K> keyExtractor) {
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    protected K keyOf(E entity) {
+        return keyExtractor.apply(entity);
+    }
+
+    /**
+     * @return true - если записи с таким значением можно присвоить ключ записи entity
+     */
+    abstract boolean accepts(E entity, V value);
+
+    abstract void add(E entity, V value);
+
+    /**
+     * Добавляет пачку записей, индекс может переопределить метод, чтобы строить записи пачкой
+     */
+    void addAll(Collection<E> entities, Function<E, V> valueExtractor) {
+        for (E entity : entities) {
+            add(entity, valueExtractor.apply(entity));
+        }
+    }
+
+    abstract void remove(E entity, V value);
+
+    /**
+     * @return true - если изменение записи не меняет ее место в индексе
+     */
+    boolean sameKey(E before, E after) {
+        return Objects.equals(keyOf(before), keyOf(after));
+    }
+
+    abstract void clear();
+}
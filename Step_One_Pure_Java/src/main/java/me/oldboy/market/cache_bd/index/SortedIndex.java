@@ -0,0 +1,288 @@
+package me.oldboy.market.cache_bd.index;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Упорядоченный индекс: записи отсортированы по ключу (цена, остаток и т.п.), при равных ключах - по
+ * значению (ID), поэтому позиция записи в индексе однозначна. Построен на skip list-ах
+ * ({@link ConcurrentSkipListSet}), потокобезопасен, выборка диапазона - O(log n + размер ответа).
+ * <p>
+ * Индекс может быть разбит на группы (например, цены товаров по категориям) - тогда диапазон
+ * запрашивается внутри группы. Записи с ключом или группой null в индекс не попадают.
+ * Значения индекса должны быть Comparable (обычно это ID записи).
+ * <p>
+ * Постраничный обход: последняя запись страницы ({@link Entry}) передается как after в следующий запрос.
+ */
+public class SortedIndex<E, K extends Comparable<? super K>, V> extends SecondaryIndex<E, K, V> {
+    /* Группа индекса без разбиения */
+    private static final Object ALL = new Object();
+
+    private final Function<E, ?> groupExtractor;
+    private final Map<Object, NavigableSet<Entry<K, V>>> groups = new ConcurrentHashMap<>();
+
+    SortedIndex(String name, Function<E, ?> groupExtractor, Function<E, K> keyExtractor) {
+        super(name, keyExtractor);
+        this.groupExtractor = groupExtractor;
+    }
+
+    /**
+     * Записи с ключом в диапазоне [from, to] по возрастанию ключа (индекс без групп)
+     *
+     * @param from  нижняя граница ключа включительно, null - без ограничения
+     * @param to    верхняя граница ключа включительно, null - без ограничения
+     * @param after последняя запись предыдущей страницы, null - с начала диапазона
+     * @param limit максимальное число записей
+     * @return записи индекса (ключ и значение)
+     */
+    public List<Entry<K, V>> range(K from, K to, Entry<K, V> after, int limit) {
+        return range(ALL, from, to, after, limit);
+    }
+
+    /**
+     * Записи группы с ключом в диапазоне [from, to] по возрастанию ключа
+     *
+     * @param group группа (например, категория)
+     * @param from  нижняя граница ключа включительно, null - без ограничения
+     * @param to    верхняя граница ключа включительно, null - без ограничения
+     * @param after последняя запись предыдущей страницы, null - с начала диапазона
+     * @param limit максимальное число записей
+     * @return записи индекса (ключ и значение)
+     */
+    public List<Entry<K, V>> range(Object group, K from, K to, Entry<K, V> after, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Entry<K, V>> found = new ArrayList<>(Math.min(limit, 64));
+        for (Entry<K, V> entry : tail(group, from, after)) {
+            if (to != null && entry.key.compareTo(to) > 0 || found.size() == limit) {
+                break;
+            }
+            found.add(entry);
+        }
+        return found;
+    }
+
+    /**
+     * Считает записи с ключом в диапазоне [from, to] (индекс без групп), см. {@link #count(Object, Comparable, Comparable, int)}
+     */
+    public int count(K from, K to, int cap) {
+        return count(ALL, from, to, cap);
+    }
+
+    /**
+     * Считает записи группы с ключом в диапазоне [from, to], но не дальше cap - для оценки избирательности условия
+     *
+     * @param group группа
+     * @param from  нижняя граница ключа включительно, null - без ограничения
+     * @param to    верхняя граница ключа включительно, null - без ограничения
+     * @param cap   предел счета
+     * @return число записей в диапазоне или cap, если их не меньше cap
+     */
+    public int count(Object group, K from, K to, int cap) {
+        int count = 0;
+        for (Entry<K, V> entry : tail(group, from, null)) {
+            if (count >= cap || to != null && entry.key.compareTo(to) > 0) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return наименьший ключ индекса без групп, null - если индекс пуст
+     */
+    public K first() {
+        return first(ALL);
+    }
+
+    /**
+     * @return наибольший ключ индекса без групп, null - если индекс пуст
+     */
+    public K last() {
+        return last(ALL);
+    }
+
+    /**
+     * @param group группа
+     * @return наименьший ключ группы, null - если в группе нет записей
+     */
+    public K first(Object group) {
+        NavigableSet<Entry<K, V>> entries = group == null ? null : groups.get(group);
+        return entries == null ? null : key(entries.iterator());
+    }
+
+    /**
+     * @param group группа
+     * @return наибольший ключ группы, null - если в группе нет записей
+     */
+    public K last(Object group) {
+        NavigableSet<Entry<K, V>> entries = group == null ? null : groups.get(group);
+        return entries == null ? null : key(entries.descendingIterator());
+    }
+
+    /**
+     * @return число записей в индексе (во всех группах)
+     */
+    public int size() {
+        int size = 0;
+        for (NavigableSet<Entry<K, V>> entries : groups.values()) {
+            size += entries.size();
+        }
+        return size;
+    }
+
+    /* Итератор, а не first()/last(): набор может опустеть между проверкой и чтением */
+    private K key(Iterator<Entry<K, V>> iterator) {
+        return iterator.hasNext() ? iterator.next().key : null;
+    }
+
+    /**
+     * @return записи группы, начиная с from (включительно) или после after - что дальше
+     */
+    private Iterable<Entry<K, V>> tail(Object group, K from, Entry<K, V> after) {
+        NavigableSet<Entry<K, V>> entries = group == null ? null : groups.get(group);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        if (after != null && (from == null || after.key.compareTo(from) >= 0)) {
+            return entries.tailSet(after, false);
+        }
+        if (from != null) {
+            return entries.tailSet(new Entry<>(from, null), true);
+        }
+        return entries;
+    }
+
+    /**
+     * Пока запись переносится к новому ключу, в индексе есть обе ее записи - читатель без блокировок
+     * отсеивает ту, что не совпадает с ключом записи в его версии
+     *
+     * @return true - если entity (из версии читателя) стоит в индексе под ключом entry
+     */
+    public boolean holds(Entry<K, V> entry, E entity) {
+        return entity != null && Objects.equals(keyOf(entity), entry.getKey());
+    }
+
+    @Override
+    boolean accepts(E entity, V value) {
+        return true;
+    }
+
+    @Override
+    void add(E entity, V value) {
+        Object group = groupExtractor == null ? ALL : groupExtractor.apply(entity);
+        K key = keyOf(entity);
+        if (group != null && key != null) {
+            Entry<K, V> entry = new Entry<>(key, value);
+            groups.compute(group, (g, entries) -> {
+                NavigableSet<Entry<K, V>> target = entries == null ? new ConcurrentSkipListSet<>() : entries;
+                target.add(entry);
+                return target;
+            });
+        }
+    }
+
+    /**
+     * Записи пачки раскладываются по группам и сортируются: skip list вставляет упорядоченные записи
+     * быстрее (путь поиска соседних записей уже в кэше процессора), а группа ищется один раз на пачку
+     */
+    @Override
+    void addAll(Collection<E> entities, Function<E, V> valueExtractor) {
+        Map<Object, List<Entry<K, V>>> batch = new HashMap<>();
+        for (E entity : entities) {
+            Object group = groupExtractor == null ? ALL : groupExtractor.apply(entity);
+            K key = keyOf(entity);
+            if (group != null && key != null) {
+                batch.computeIfAbsent(group, g -> new ArrayList<>()).add(new Entry<>(key, valueExtractor.apply(entity)));
+            }
+        }
+        batch.forEach((group, added) -> {
+            Collections.sort(added);
+            groups.compute(group, (g, entries) -> {
+                NavigableSet<Entry<K, V>> target = entries == null ? new ConcurrentSkipListSet<>() : entries;
+                target.addAll(added);
+                return target;
+            });
+        });
+    }
+
+    @Override
+    void remove(E entity, V value) {
+        Object group = groupExtractor == null ? ALL : groupExtractor.apply(entity);
+        K key = keyOf(entity);
+        if (group != null && key != null) {
+            Entry<K, V> entry = new Entry<>(key, value);
+            groups.computeIfPresent(group, (g, entries) -> {
+                entries.remove(entry);
+                return entries.isEmpty() ? null : entries;
+            });
+        }
+    }
+
+    @Override
+    boolean sameKey(E before, E after) {
+        return super.sameKey(before, after) && (groupExtractor == null
+                || Objects.equals(groupExtractor.apply(before), groupExtractor.apply(after)));
+    }
+
+    @Override
+    void clear() {
+        groups.clear();
+    }
+
+    /**
+     * Запись индекса: ключ и значение. Упорядочены по ключу, затем по значению (null - раньше всех).
+     */
+    public static final class Entry<K extends Comparable<? super K>, V> implements Comparable<Entry<K, V>> {
+        private final K key;
+        private final V value;
+
+        public Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compareTo(Entry<K, V> other) {
+            int byKey = key.compareTo(other.key);
+            if (byKey != 0 || value == other.value) {
+                return byKey;
+            }
+            if (value == null || other.value == null) {
+                return value == null ? -1 : 1;
+            }
+            return ((Comparable<Object>) value).compareTo(other.value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return key.equals(entry.key) && Objects.equals(value, entry.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
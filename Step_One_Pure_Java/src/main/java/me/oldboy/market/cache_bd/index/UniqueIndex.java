@@ -0,0 +1,61 @@
+package me.oldboy.market.cache_bd.index;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Уникальный индекс: каждому ключу соответствует не более одной записи. Потокобезопасен.
+ */
+public class UniqueIndex<E, K, V> extends SecondaryIndex<E, K, V> {
+    private final Map<K, V> values = new ConcurrentHashMap<>();
+
+    UniqueIndex(String name, Function<E, K> keyExtractor) {
+        super(name, keyExtractor);
+    }
+
+    /**
+     * @param key ключ
+     * @return значение (ID) записи с этим ключом или empty
+     */
+    public Optional<V> find(K key) {
+        return key == null ? Optional.empty() : Optional.ofNullable(values.get(key));
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    boolean accepts(E entity, V value) {
+        K key = keyOf(entity);
+        if (key == null) {
+            return true;
+        }
+        V existing = values.get(key);
+        return existing == null || Objects.equals(existing, value);
+    }
+
+    @Override
+    void add(E entity, V value) {
+        K key = keyOf(entity);
+        if (key != null) {
+            values.put(key, value);
+        }
+    }
+
+    @Override
+    void remove(E entity, V value) {
+        K key = keyOf(entity);
+        if (key != null) {
+            values.remove(key, value);
+        }
+    }
+
+    @Override
+    void clear() {
+        values.clear();
+    }
+}
@@ -0,0 +1,650 @@
+package me.oldboy.market.cache_bd.journal;
+
+import me.oldboy.market.cache_bd.ProductChangeListener;
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.cache_bd.codec.BinaryReader;
+import me.oldboy.market.cache_bd.codec.BinaryWriter;
+import me.oldboy.market.cache_bd.codec.BlockChannels;
+import me.oldboy.market.cache_bd.codec.CorruptBlockException;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи (write-ahead journal) изменений "кэша" товаров.
+ * <p>
+ * Каждое изменение ProductDB (добавление, обновление, удаление) превращается в небольшую двоичную
+ * запись и дописывается в конец файла product-&lt;поколение&gt;.journal - стоимость сохранения
+ * пропорциональна изменению, а не размеру каталога. Записи пишет отдельный поток пачками
+ * (group commit): все накопившиеся записи - одна запись в канал и один fsync.
+ * <p>
+ * Контрольная точка (checkpoint) переключает журнал на новое поколение, сохраняет снимок каталога
+ * (product.col) и удаляет журналы предыдущих поколений. Выполняется в фоне, когда журнал вырос,
+ * и при закрытии. При старте снимок загружается, затем поверх него "проигрываются" журналы -
+ * записи хранят полное состояние товара, поэтому повторное применение безопасно.
+ * <p>
+ * Формат файла (версия 2, см. {@link BlockChannels}): заголовок и записи-блоки со своим CRC, тело записи -
+ * [byte тип][varint ID][поля товара]. Числа - varint, строки - UTF-8 с длиной, категория и брэнд -
+ * номера в словаре поколения: при первом упоминании категории (брэнда) в файле перед записью товара
+ * пишется запись-определение. Поэтому записи кодирует пишущий поток - он же ведет словари.
+ * Оборванная при сбое последняя запись (не хватает байт или не сходится CRC) отбрасывается.
+ * Если пачку записать не удалось, файл обрезается до ее начала, а пачка повторяется - до тех пор
+ * {@link #flush()} сообщает об ошибке.
+ * <p>
+ * Журналы версии 1 (без заголовка, поля фиксированной ширины, CRC32) по-прежнему проигрываются.
+ */
+public class ProductJournal implements ProductChangeListener, Closeable {
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+    private static final byte DEFINE_CATEGORY = 3;
+    private static final byte DEFINE_BRAND = 4;
+    private static final int MAGIC = 0x504A524E;
+    private static final short VERSION = 2;
+    private static final Pattern JOURNAL_NAME = Pattern.compile("product-(\\d+)\\.journal");
+
+    /**
+     * Размер журнала, после которого фоновая задача делает контрольную точку
+     */
+    private static final long CHECKPOINT_THRESHOLD_BYTES = 4L * 1024 * 1024;
+    private static final long CHECKPOINT_CHECK_PERIOD_SEC = 30;
+    private static final long RETRY_DELAY_MILLIS = 100;
+
+    private final Path directory;
+    private final ProductDB productDB;
+    private final Consumer<ProductDB> snapshotWriter;
+
+    private final BlockingQueue<Change> pending = new LinkedBlockingQueue<>();
+    private final AtomicLong appended = new AtomicLong();
+    private final Object writtenMonitor = new Object();
+    private long written;
+    /* Ошибка последней попытки записи, null - последняя пачка записана */
+    private IOException writeFailure;
+
+    /* Канал текущего поколения меняется при контрольной точке, пишущий поток держит этот lock */
+    private final Object channelLock = new Object();
+    private FileChannel channel;
+    private long generation;
+    private long bytesSinceCheckpoint;
+    private boolean hasRecords;
+    /* Конец файла после неудачной записи не удалось обрезать - писать дальше можно только в новое поколение */
+    private boolean tornTail;
+    /* Словари категорий и брэндов текущего поколения: номер - порядок первого упоминания в файле */
+    private final Map<Category, Integer> categoryCodes = new HashMap<>();
+    private final Map<Brand, Integer> brandCodes = new HashMap<>();
+    private final BinaryWriter encoder = new BinaryWriter(256);
+
+    private final Thread writerThread;
+    private final ScheduledExecutorService checkpointer;
+    private volatile boolean closed;
+
+    private ProductJournal(Path directory, ProductDB productDB, Consumer<ProductDB> snapshotWriter,
+                           long generation, boolean hasRecords) throws IOException {
+        this.directory = directory;
+        this.productDB = productDB;
+        this.snapshotWriter = snapshotWriter;
+        this.generation = generation;
+        this.hasRecords = hasRecords;
+        this.channel = openGeneration(generation);
+
+        this.writerThread = new Thread(this::writeLoop, "product-journal-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+
+        this.checkpointer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "product-journal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.checkpointer.scheduleWithFixedDelay(this::checkpointIfLarge,
+                CHECKPOINT_CHECK_PERIOD_SEC, CHECKPOINT_CHECK_PERIOD_SEC, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Проигрывает все найденные журналы поверх уже загруженного снимка и открывает новое поколение
+     * журнала, подписанное на изменения ProductDB.
+     *
+     * @param directory      папка файлов БД
+     * @param productDB      "кэш" товаров, уже заполненный из снимка
+     * @param snapshotWriter сохраняет полный снимок каталога (вызывается на контрольной точке),
+     *                       о неудаче сообщает исключением
+     * @return открытый журнал
+     */
+    public static ProductJournal open(Path directory, ProductDB productDB, Consumer<ProductDB> snapshotWriter) {
+        try {
+            Files.createDirectories(directory);
+            List<Long> generations = listGenerations(directory);
+            long replayed = 0;
+            for (Long generation : generations) {
+                replayed += replay(directory.resolve(fileName(generation)), productDB);
+            }
+            long next = generations.isEmpty() ? 1 : generations.get(generations.size() - 1) + 1;
+
+            ProductJournal journal = new ProductJournal(directory, productDB, snapshotWriter, next, replayed > 0);
+            productDB.addChangeListener(journal);
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open product journal in " + directory, e);
+        }
+    }
+
+    @Override
+    public void onAdd(Product product) {
+        append(new Change(UPSERT, product));
+    }
+
+    @Override
+    public void onUpdate(Product before, Product after) {
+        append(new Change(UPSERT, after));
+    }
+
+    @Override
+    public void onDelete(Product product) {
+        append(new Change(DELETE, product));
+    }
+
+    /**
+     * Блокирует вызывающий поток, пока все ранее добавленные записи не окажутся на диске
+     *
+     * @throws UncheckedIOException если записи не удается записать (пишущий поток продолжает попытки)
+     */
+    public void flush() {
+        long target = appended.get();
+        synchronized (writtenMonitor) {
+            while (written < target && writerThread.isAlive()) {
+                if (writeFailure != null) {
+                    throw new UncheckedIOException("Product journal write failed", writeFailure);
+                }
+                try {
+                    writtenMonitor.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Контрольная точка: новое поколение журнала, снимок каталога, удаление старых журналов.
+     * Если снимок не записан, исключение писателя снимка пробрасывается, а старые журналы остаются -
+     * при следующем старте они будут проиграны поверх прежнего снимка.
+     */
+    public synchronized void checkpoint() {
+        try {
+            long previous;
+            /*
+             Записи, еще стоящие в очереди, попадут уже в новое поколение - порядок записей сохраняется
+             (их пишет один поток), а их эффект и так будет в снимке, повторное применение безопасно.
+             */
+            synchronized (channelLock) {
+                previous = generation;
+                switchGeneration();
+                bytesSinceCheckpoint = 0;
+                hasRecords = false;
+            }
+            /*
+             Снимок снимается после переключения - все, что не попадет в него, есть в новом журнале.
+             Старые поколения удаляются, только если снимок записан (иначе writer бросит исключение).
+             */
+            snapshotWriter.accept(productDB);
+            for (Long old : listGenerations(directory)) {
+                if (old <= previous) {
+                    Files.deleteIfExists(directory.resolve(fileName(old)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Product journal checkpoint failed", e);
+        }
+    }
+
+    /**
+     * Отписывает журнал от ProductDB, дописывает накопленное и, если были изменения,
+     * делает финальную контрольную точку. Ошибка контрольной точки пробрасывается после освобождения
+     * ресурсов, журналы при этом остаются на диске. Если не удалось дописать журнал, незаписанные
+     * изменения сохраняет контрольная точка - снимок берется из памяти.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        productDB.removeChangeListener(this);
+        boolean unwritten = false;
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+            unwritten = true;
+        }
+        boolean needCheckpoint;
+        synchronized (channelLock) {
+            needCheckpoint = unwritten || hasRecords || listGenerationsQuietly().size() > 1;
+        }
+        try {
+            if (needCheckpoint) {
+                checkpoint();
+            }
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        closed = true;
+        checkpointer.shutdownNow();
+        writerThread.interrupt();
+        synchronized (channelLock) {
+            try {
+                channel.close();
+                Path current = directory.resolve(fileName(generation));
+                if (Files.size(current) <= BlockChannels.FILE_HEADER_SIZE) {
+                    Files.delete(current);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void append(Change change) {
+        pending.add(change);
+        appended.incrementAndGet();
+    }
+
+    private void checkpointIfLarge() {
+        boolean large;
+        synchronized (channelLock) {
+            large = bytesSinceCheckpoint >= CHECKPOINT_THRESHOLD_BYTES;
+        }
+        if (large && !closed) {
+            try {
+                checkpoint();
+            } catch (RuntimeException e) {
+                /* Журналы остались на месте, следующая проверка повторит контрольную точку */
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Цикл пишущего потока: ждет первую запись, забирает все накопившиеся и пишет их одним fsync-ом.
+     * Незаписанная пачка остается и повторяется (вместе с новыми записями) после паузы.
+     */
+    private void writeLoop() {
+        List<Change> batch = new ArrayList<>();
+        while (!closed) {
+            try {
+                if (batch.isEmpty()) {
+                    batch.add(pending.take());
+                } else {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            pending.drainTo(batch);
+            boolean stored;
+            synchronized (channelLock) {
+                stored = writeBatch(batch);
+            }
+            if (stored) {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Вызывается под channelLock
+     *
+     * @return false - пачка не записана, конец файла и словари возвращены к состоянию до нее
+     */
+    private boolean writeBatch(List<Change> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        int knownCategories = categoryCodes.size();
+        int knownBrands = brandCodes.size();
+        long start = -1;
+        try {
+            if (tornTail) {
+                switchGeneration();
+                knownCategories = 0;
+                knownBrands = 0;
+            }
+            List<ByteBuffer> frames = new ArrayList<>(batch.size());
+            for (Change change : batch) {
+                encode(change, frames);
+            }
+            ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+            long total = 0;
+            for (ByteBuffer buffer : buffers) {
+                total += buffer.remaining();
+            }
+            start = channel.size();
+            long left = total;
+            while (left > 0) {
+                left -= channel.write(buffers);
+            }
+            channel.force(false);
+            bytesSinceCheckpoint += total;
+            hasRecords = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            forgetCodes(categoryCodes, knownCategories);
+            forgetCodes(brandCodes, knownBrands);
+            discardTail(start);
+            synchronized (writtenMonitor) {
+                writeFailure = e;
+                writtenMonitor.notifyAll();
+            }
+            return false;
+        }
+        synchronized (writtenMonitor) {
+            written += batch.size();
+            writeFailure = null;
+            writtenMonitor.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Обрезает недописанную пачку, чтобы следующие записи не оказались за оборванной (при проигрывании
+     * журнал читается до первой поврежденной записи). Не вышло - следующая пачка пойдет в новое поколение.
+     */
+    private void discardTail(long start) {
+        if (start < 0 || !channel.isOpen()) {
+            tornTail = true;
+            return;
+        }
+        try {
+            channel.truncate(start);
+            channel.force(false);
+        } catch (IOException e) {
+            tornTail = true;
+        }
+    }
+
+    /* Убирает из словаря элементы, определения которых были в незаписанной пачке */
+    private static <T> void forgetCodes(Map<T, Integer> codes, int known) {
+        codes.values().removeIf(code -> code > known);
+    }
+
+    /* Вызывается под channelLock: закрывает текущий файл журнала и начинает следующее поколение */
+    private void switchGeneration() throws IOException {
+        categoryCodes.clear();
+        brandCodes.clear();
+        tornTail = false;
+        channel.close();
+        generation = generation + 1;
+        channel = openGeneration(generation);
+    }
+
+    private FileChannel openGeneration(long generation) throws IOException {
+        FileChannel opened = FileChannel.open(directory.resolve(fileName(generation)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (opened.size() == 0) {
+            BlockChannels.writeFileHeader(opened, MAGIC, VERSION);
+        }
+        return opened;
+    }
+
+    private List<Long> listGenerationsQuietly() {
+        try {
+            return listGenerations(directory);
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    private static List<Long> listGenerations(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> JOURNAL_NAME.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String fileName(long generation) {
+        return "product-" + generation + ".journal";
+    }
+
+    /**
+     * Применяет записи одного файла журнала к ProductDB
+     *
+     * @return количество примененных записей
+     */
+    static long replay(Path file, ProductDB productDB) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            try {
+                short version = BlockChannels.readFileHeader(channel, MAGIC);
+                if (version != VERSION) {
+                    throw new IOException("Unsupported product journal version " + version);
+                }
+            } catch (CorruptBlockException e) {
+                channel.position(0);
+                return replayLegacy(file, channel, productDB);
+            }
+            long applied = 0;
+            List<Category> categories = new ArrayList<>();
+            List<Brand> brands = new ArrayList<>();
+            while (true) {
+                BinaryReader body;
+                try {
+                    body = BlockChannels.readBlock(channel);
+                } catch (CorruptBlockException e) {
+                    System.out.println("Журнал " + file.getFileName() + ": поврежденный хвост отброшен");
+                    break;
+                }
+                if (body == null) {
+                    break;
+                }
+                if (apply(body, productDB, categories, brands)) {
+                    applied++;
+                }
+            }
+            return applied;
+        }
+    }
+
+    /**
+     * @return true - если запись изменила товар (а не определила категорию или брэнд)
+     */
+    private static boolean apply(BinaryReader in, ProductDB productDB,
+                                 List<Category> categories, List<Brand> brands) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case DEFINE_CATEGORY -> {
+                categories.add(Category.builder().id(in.readNullableInt()).name(in.readString()).build());
+                return false;
+            }
+            case DEFINE_BRAND -> {
+                brands.add(Brand.builder().id(in.readNullableInt()).name(in.readString()).build());
+                return false;
+            }
+            case DELETE -> {
+                productDB.findProductById(in.readVarLong()).ifPresent(productDB::delete);
+                return true;
+            }
+            case UPSERT -> {
+                long id = in.readVarLong();
+                long created = in.readSignedVarLong();
+                Product product = Product.builder()
+                        .id(id)
+                        .creationTimestamp(created)
+                        .lastModifiedTimestamp(created + in.readSignedVarLong())
+                        .price(in.readDouble())
+                        .stockQuantity((int) in.readSignedVarLong())
+                        .category(entry(categories, in.readVarInt()))
+                        .brand(entry(brands, in.readVarInt()))
+                        .name(in.readString())
+                        .description(in.readString())
+                        .build();
+                productDB.restore(product);
+                return true;
+            }
+            default -> throw new CorruptBlockException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * @param code номер в словаре + 1, 0 - ссылки нет
+     */
+    private static <T> T entry(List<T> dictionary, int code) throws CorruptBlockException {
+        if (code > dictionary.size()) {
+            throw new CorruptBlockException("Dictionary entry " + code + " is not defined");
+        }
+        return code == 0 ? null : dictionary.get(code - 1);
+    }
+
+    /**
+     * Кодирует изменение в блоки (вызывается пишущим потоком под channelLock). Категория и брэнд,
+     * еще не встречавшиеся в текущем поколении, сначала записываются в словарь.
+     */
+    private void encode(Change change, List<ByteBuffer> frames) {
+        Product product = change.product;
+        if (change.type == DELETE) {
+            encoder.reset();
+            encoder.writeByte(DELETE).writeVarLong(product.getId());
+            frames.add(BlockChannels.frame(encoder));
+            return;
+        }
+        int category = code(product.getCategory(), categoryCodes, DEFINE_CATEGORY, frames);
+        int brand = code(product.getBrand(), brandCodes, DEFINE_BRAND, frames);
+        encoder.reset();
+        encoder.writeByte(UPSERT)
+                .writeVarLong(product.getId())
+                .writeSignedVarLong(product.getCreationTimestamp())
+                .writeSignedVarLong(product.getLastModifiedTimestamp() - product.getCreationTimestamp())
+                .writeDouble(product.getPrice())
+                .writeSignedVarLong(product.getStockQuantity())
+                .writeVarLong(category)
+                .writeVarLong(brand)
+                .writeString(product.getName())
+                .writeString(product.getDescription());
+        frames.add(BlockChannels.frame(encoder));
+    }
+
+    /**
+     * @return номер в словаре + 1 (0 - ссылки нет), новый элемент словаря сразу пишется записью-определением
+     */
+    private <T> int code(T value, Map<T, Integer> codes, byte defineType, List<ByteBuffer> frames) {
+        if (value == null) {
+            return 0;
+        }
+        Integer known = codes.get(value);
+        if (known != null) {
+            return known;
+        }
+        int code = codes.size() + 1;
+        codes.put(value, code);
+        encoder.reset();
+        encoder.writeByte(defineType);
+        if (value instanceof Category category) {
+            encoder.writeNullableInt(category.getId()).writeString(category.getName());
+        } else {
+            Brand brand = (Brand) value;
+            encoder.writeNullableInt(brand.getId()).writeString(brand.getName());
+        }
+        frames.add(BlockChannels.frame(encoder));
+        return code;
+    }
+
+    /**
+     * Проигрывает журнал версии 1: [int длина тела][int CRC32 тела][тело], тело - [byte тип][long ID][поля товара]
+     */
+    private static long replayLegacy(Path file, FileChannel channel, ProductDB productDB) throws IOException {
+        long applied = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        while (true) {
+            int length;
+            int crc;
+            byte[] body;
+            try {
+                length = in.readInt();
+                crc = in.readInt();
+                if (length <= 0) {
+                    break;
+                }
+                body = new byte[length];
+                in.readFully(body);
+            } catch (EOFException e) {
+                break;
+            }
+            if (crcOf(body) != crc) {
+                System.out.println("Журнал " + file.getFileName() + ": поврежденный хвост отброшен");
+                break;
+            }
+            applyLegacy(body, productDB);
+            applied++;
+        }
+        return applied;
+    }
+
+    private static void applyLegacy(byte[] body, ProductDB productDB) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        long id = in.readLong();
+        if (type == DELETE) {
+            productDB.findProductById(id).ifPresent(productDB::delete);
+            return;
+        }
+        Product product = Product.builder()
+                .id(id)
+                .creationTimestamp(in.readLong())
+                .lastModifiedTimestamp(in.readLong())
+                .price(in.readDouble())
+                .stockQuantity(in.readInt())
+                .category(Category.builder().id(readNullableInt(in)).name(readNullableString(in)).build())
+                .brand(Brand.builder().id(readNullableInt(in)).name(readNullableString(in)).build())
+                .name(readNullableString(in))
+                .description(readNullableString(in))
+                .build();
+        productDB.restore(product);
+    }
+
+    private static int crcOf(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static Integer readNullableInt(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Изменение товара, ожидающее записи в журнал
+     */
+    private static final class Change {
+        private final byte type;
+        private final Product product;
+
+        private Change(byte type, Product product) {
+            this.type = type;
+            this.product = product;
+        }
+    }
+}
@@ -3,12 +3,18 @@ package me.oldboy.market.cache_bd.loaders;
 import lombok.AllArgsConstructor;
 import me.oldboy.market.cache_bd.AuditDB;
 import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.cache_bd.audit.AuditBackpressure;
+import me.oldboy.market.cache_bd.audit.AuditWriter;
 import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.ProductDelta;
 import me.oldboy.market.entity.log_enum.Action;
 import me.oldboy.market.entity.log_enum.Status;
 
-import java.io.*;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Path;
 import java.util.Date;
 import java.util.List;
 
@@ -17,62 +23,69 @@ import java.util.List;
  */
 @AllArgsConstructor
 public class AuditDBLoader {
+    private static final Path AUDIT_DIRECTORY = Path.of("db_files", "audit");
+    private static final Path LEGACY_FILE = Path.of("db_files", "audit.sr");
+    private static final Path SPILL_FILE = AUDIT_DIRECTORY.resolve("spill.dat");
+
     /**
-     * Метод инициализирующий процесс загрузки данных в "кэш" из файла
+     * Метод инициализирующий процесс загрузки данных в "кэш": подключает каталог сегментов аудита
+     * (записи запечатанных сегментов остаются на диске). Файл прежнего формата (audit.sr), если есть,
+     * переносится в сегменты и удаляется. Число хранимых сегментов можно ограничить системным
+     * свойством audit.retainedSegments.
      *
      * @param auditDB кэш БД для загрузки данных по аудиту
      */
     public static void initInMemoryBase(AuditDB auditDB) {
-        List<Audit> readRecords = readFromExternalFile();
-        if (readRecords != null) {
-            for (int i = 0; i < readRecords.size(); i++) {
-                auditDB.add(readRecords.get(i));
-            }
+        auditDB.attachStorage(AUDIT_DIRECTORY);
+        Integer retainedSegments = Integer.getInteger("audit.retainedSegments");
+        if (retainedSegments != null) {
+            auditDB.setRetainedSegments(retainedSegments);
         }
+        migrateLegacyFile(auditDB);
     }
 
-    public static void writeToExternalFile(AuditDB auditDB) {
-        List<Audit> allAudRecord = auditDB.getAuditLogList();
-        String path = "db_files/audit.sr";
-
-        File file = new File(path);
-        if (!file.isFile() || !file.exists()) {
-            System.out.println("Файл БД не существует и будет создан");
-            try {
-                file.createNewFile();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-
-        try (ObjectOutputStream outputStream = new ObjectOutputStream(new FileOutputStream(file))) {
-            outputStream.writeObject(allAudRecord);
-            System.out.println("Добавлены новые аудит записи в файл");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Метод запускает фоновую запись аудита. Емкость очереди задается системным свойством audit.queueCapacity
+     * (по умолчанию {@value AuditWriter#DEFAULT_CAPACITY}), поведение при заполненной очереди - свойством
+     * audit.backpressure: BLOCK (по умолчанию), DROP_OLDEST или SPILL_TO_DISK (файл переполнения
+     * db_files/audit/spill.dat).
+     *
+     * @param auditDB кэш БД аудита
+     * @return запущенная фоновая запись аудита
+     */
+    public static AuditWriter startWriter(AuditDB auditDB) {
+        int capacity = Integer.getInteger("audit.queueCapacity", AuditWriter.DEFAULT_CAPACITY);
+        AuditBackpressure backpressure =
+                AuditBackpressure.valueOf(System.getProperty("audit.backpressure", AuditBackpressure.BLOCK.name()));
+        return new AuditWriter(auditDB, capacity, backpressure, SPILL_FILE);
     }
 
-    private static List<Audit> readFromExternalFile() {
-        List<Audit> allAudRecord = new ArrayList<>();
-        String path = "db_files/audit.sr";
+    /**
+     * Метод сохраняет текущий сегмент аудита, запечатанные сегменты записываются на диск при заполнении
+     *
+     * @param auditDB кэш БД аудита
+     */
+    public static void writeToExternalFile(AuditDB auditDB) {
+        auditDB.flush();
+        System.out.println("Добавлены новые аудит записи в файл");
+    }
 
-        File file = new File(path);
-        if (!file.isFile() || !file.exists() || file.length() == 0) {
-            System.out.println("Файл БД не существует или пуст");
-            return allAudRecord;
+    private static void migrateLegacyFile(AuditDB auditDB) {
+        File file = LEGACY_FILE.toFile();
+        if (!file.isFile()) {
+            return;
         }
 
         try (ObjectInputStream objectInputStream = new ObjectInputStream(new FileInputStream(file))) {
-            allAudRecord = (List<Audit>) objectInputStream.readObject();
-
-        } catch (IOException e) {
+            List<Audit> readRecords = (List<Audit>) objectInputStream.readObject();
+            readRecords.forEach(auditDB::add);
+        } catch (IOException | ClassNotFoundException e) {
             e.printStackTrace();
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException(e);
+            return;
         }
-
-        return allAudRecord;
+        auditDB.flush();
+        file.delete();
+        System.out.println("Файл аудита перенесен в сегменты " + AUDIT_DIRECTORY);
     }
 
     /**
@@ -86,7 +99,8 @@ public class AuditDBLoader {
                 .userEmail("u1@market.ru")
                 .action(Action.ADD_PRODUCT)
                 .isSuccess(Status.SUCCESS)
-                .product(productDB.findProductById(1L).get())
+                .productId(1L)
+                .productDelta(ProductDelta.of(productDB.findProductById(1L).get()))
                 .build();
 
         Audit rec_2 = Audit.builder()
@@ -94,7 +108,8 @@ public class AuditDBLoader {
                 .userEmail("u1@market.ru")
                 .action(Action.UPDATE_PRODUCT)
                 .isSuccess(Status.FAIL)
-                .product(productDB.findProductById(2L).get())
+                .productId(2L)
+                .productDelta(ProductDelta.of(productDB.findProductById(2L).get()))
                 .build();
 
         auditDB.add(rec_1);
@@ -3,10 +3,19 @@ package me.oldboy.market.cache_bd.loaders;
 import me.oldboy.market.cache_bd.BrandDB;
 import me.oldboy.market.cache_bd.CategoryDB;
 import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.cache_bd.journal.ProductJournal;
+import me.oldboy.market.cache_bd.snapshot.ProductColumnarSnapshot;
+import me.oldboy.market.cache_bd.snapshot.ProductSnapshotConverter;
 import me.oldboy.market.entity.Product;
 
-import java.io.*;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Date;
 import java.util.List;
 
@@ -14,62 +23,98 @@ import java.util.List;
  * Класс загружающий данные в кэш "таблицу" хранящую данные о товарах
  */
 public class ProductBDLoader {
+    private static final Path DB_DIRECTORY = Path.of("db_files");
+    private static final Path SNAPSHOT_FILE = DB_DIRECTORY.resolve("product.col");
+    private static final Path LEGACY_SNAPSHOT_FILE = DB_DIRECTORY.resolve("product.sr");
+
     /**
-     * Метод инициализирующий процесс загрузки тестовых данных в "кэш"
+     * Метод инициализирующий процесс загрузки данных в "кэш": отображает в память колоночный снимок
+     * каталога, "проигрывает" поверх него журнал изменений и подписывает журнал на дальнейшие изменения.
+     * Товары сохраняют свои ID, счетчик ID "кэша" сдвигается на максимальный из них.
+     * <p>
+     * Если колоночного снимка еще нет, а есть снимок прежнего формата (product.sr) - он конвертируется.
      *
      * @param productDB  кэш БД для загрузки данных по доступным товарам
+     * @return открытый журнал изменений товаров, должен быть закрыт при завершении работы
      */
-    public static void initInMemoryBase(ProductDB productDB) {
-        List<Product> readProductRecords = readFromExternalFile();
-        if (readProductRecords != null) {
-            for (int i = 0; i < readProductRecords.size(); i++) {
-                productDB.add(readProductRecords.get(i));
-            }
-        }
+    public static ProductJournal initInMemoryBase(ProductDB productDB) {
+        convertLegacySnapshot();
+        readFromExternalFile(productDB);
+        return ProductJournal.open(DB_DIRECTORY, productDB, ProductBDLoader::writeToExternalFile);
     }
 
+    /**
+     * Метод сохраняет полный снимок каталога, применяется журналом на контрольной точке.
+     * Файл пишется во временный и затем атомарно подменяет прежний снимок.
+     *
+     * @param productDB кэш БД товаров
+     * @throws UncheckedIOException если снимок не записан - журнал тогда сохраняет старые поколения
+     */
     public static void writeToExternalFile(ProductDB productDB) {
+        writeToExternalFile(productDB, SNAPSHOT_FILE);
+    }
+
+    /**
+     * Метод сохраняет полный снимок каталога в указанный файл (применяется в замерах)
+     *
+     * @param productDB    кэш БД товаров
+     * @param snapshotFile файл колоночного снимка
+     * @throws UncheckedIOException если снимок не записан (прежний снимок остается на месте)
+     */
+    public static void writeToExternalFile(ProductDB productDB, Path snapshotFile) {
         List<Product> allProduct = productDB.getProductsList();
-        String path = "db_files/product.sr";
+        Path tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
 
-        File file = new File(path);
-        if (!file.isFile() || !file.exists()) {
-            System.out.println("Файл БД не существует и будет создан");
-            try {
-                file.createNewFile();
-            } catch (IOException e) {
-                e.printStackTrace();
+        try {
+            Files.createDirectories(snapshotFile.toAbsolutePath().getParent());
+            ProductColumnarSnapshot.write(tmpFile, allProduct);
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+                channel.force(true);
             }
-        }
-
-        try (ObjectOutputStream outputStream = new ObjectOutputStream(new FileOutputStream(file))) {
-            outputStream.writeObject(allProduct);
+            Files.move(tmpFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
             System.out.println("Файл данных по продуктам обновлен.");
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException("Unable to write product snapshot " + snapshotFile, e);
         }
     }
 
-    private static List<Product> readFromExternalFile() {
-        List<Product> allProduct = new ArrayList<>();
-        String path = "db_files/product.sr";
+    private static void readFromExternalFile(ProductDB productDB) {
+        readFromExternalFile(productDB, SNAPSHOT_FILE);
+    }
 
-        File file = new File(path);
-        if (!file.isFile() || !file.exists() || file.length() == 0) {
+    /**
+     * Метод загружает товары из указанного колоночного снимка, журнал изменений не подключается
+     * (применяется в замерах)
+     *
+     * @param productDB    кэш БД товаров
+     * @param snapshotFile файл колоночного снимка
+     */
+    public static void readFromExternalFile(ProductDB productDB, Path snapshotFile) {
+        File file = snapshotFile.toFile();
+        if (!file.isFile() || file.length() == 0) {
             System.out.println("Файл БД не существует или пуст");
-            return allProduct;
+            return;
         }
 
-        try (ObjectInputStream objectInputStream = new ObjectInputStream(new FileInputStream(file))) {
-            allProduct = (List<Product>) objectInputStream.readObject();
-
+        try (ProductColumnarSnapshot snapshot = ProductColumnarSnapshot.open(snapshotFile)) {
+            for (int row = 0; row < snapshot.rowCount(); row++) {
+                productDB.restore(snapshot.product(row));
+            }
         } catch (IOException e) {
             e.printStackTrace();
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException(e);
         }
+    }
 
-        return allProduct;
+    private static void convertLegacySnapshot() {
+        if (Files.exists(SNAPSHOT_FILE) || !Files.isRegularFile(LEGACY_SNAPSHOT_FILE)) {
+            return;
+        }
+        try {
+            int rows = ProductSnapshotConverter.convert(LEGACY_SNAPSHOT_FILE, SNAPSHOT_FILE);
+            System.out.println("Файл данных по продуктам сконвертирован в колоночный формат, товаров: " + rows);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -0,0 +1,87 @@
+package me.oldboy.market.cache_bd.offheap;
+
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.util.function.IntFunction;
+
+/**
+ * Хранилище записей товаров вне объектов кучи: {@link me.oldboy.market.cache_bd.ProductDB} держит в полосах
+ * только handle записей (число long), а товар собирается при чтении.
+ * <p>
+ * Контракт общий для всех реализаций ({@link ProductSlabStore} - прямые буферы,
+ * {@link me.oldboy.market.cache_bd.tiered.TieredProductStore} - файл на диске и "горячий" кэш в куче):
+ * запись не меняется, пока на нее ссылается хоть одна версия таблицы, изменение товара пишет новую запись,
+ * а прежняя выводится ({@link #retire}) и освобождается ({@link #reclaim}), когда старые версии уже никто
+ * не читает. Чтение освобожденной записи распознается по поколению в handle и возвращает null.
+ */
+public interface ProductRecordStore {
+
+    /**
+     * Создает хранилище для таблицы: категория и брэнд хранятся в записи кодами словарей таблицы
+     */
+    @FunctionalInterface
+    interface Factory {
+        /**
+         * @param categories категория по ее коду в записи
+         * @param brands     брэнд по его коду в записи
+         * @return хранилище записей товаров
+         */
+        ProductRecordStore create(IntFunction<Category> categories, IntFunction<Brand> brands);
+    }
+
+    /**
+     * Записывает товар в свободную запись
+     *
+     * @param product      товар с уже присвоенным ID
+     * @param categoryCode код категории товара
+     * @param brandCode    код брэнда товара
+     * @return handle записи
+     */
+    long write(Product product, int categoryCode, int brandCode);
+
+    /**
+     * Собирает товар из записи
+     *
+     * @param handle handle записи
+     * @return товар или null, если запись уже освобождена (handle устарел)
+     */
+    Product read(long handle);
+
+    /**
+     * @param handle handle записи
+     * @return цена товара без сборки объекта товара
+     */
+    double price(long handle);
+
+    /**
+     * Выводит запись из оборота: ее еще читают версии таблицы с номером меньше version
+     *
+     * @param handle  handle записи
+     * @param version номер первой версии таблицы, в которой записи уже нет
+     */
+    void retire(long handle, long version);
+
+    /**
+     * Освобождает выведенные записи, которые уже никто не читает
+     *
+     * @param oldestReadVersion номер версии, более старые версии никто не читает
+     */
+    void reclaim(long oldestReadVersion);
+
+    /**
+     * @return число записей, занятых товарами (в том числе выведенными, но еще не освобожденными)
+     */
+    int size();
+
+    /**
+     * @return число выведенных, но еще не освобожденных записей
+     */
+    int retiredCount();
+
+    /**
+     * @return байты, выделенные под записи вне кучи (в памяти или на диске)
+     */
+    long reservedBytes();
+}
@@ -0,0 +1,182 @@
+package me.oldboy.market.cache_bd.offheap;
+
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Хранилище товаров вне кучи ({@link ProductRecordStore}): каждый товар - запись фиксированной ширины
+ * ({@value #RECORD_SIZE} байт) в прямом (direct) буфере-"слябе" на {@value #SLAB_RECORDS} записей,
+ * название и описание - в {@link StringArena}, категория и брэнд - кодами словарей таблицы.
+ * В куче от товара остается только ссылка на запись -
+ * число long (handle), объект {@link Product} собирается при чтении ({@link #read}) и сборщику мусора
+ * миллионы товаров обходить не нужно.
+ * <p>
+ * Запись: [поколение int][остаток int][ID long][цена double][код категории int][код брэнда int]
+ * [создан long][изменен long][название - ссылка в арене][описание - ссылка в арене].
+ * Handle - номер записи в младших 32 битах и ее поколение в старших.
+ * <p>
+ * Запись не меняется, пока на нее ссылается хоть одна версия таблицы: изменение товара пишет новую запись,
+ * а прежняя "выводится" ({@link #retire}) с номером версии, начиная с которой она не нужна. Освобождает
+ * выведенные записи {@link #reclaim}, когда более старые версии уже никто не читает ({@link ReadPins}).
+ * При освобождении поколение записи растет, поэтому чтение по устаревшему handle распознается и возвращает null.
+ */
+public final class ProductSlabStore implements ProductRecordStore {
+    /**
+     * Ширина записи товара в байтах
+     */
+    public static final int RECORD_SIZE = 64;
+    /**
+     * Записей в одном слябе (1 Мб)
+     */
+    public static final int SLAB_RECORDS = 1 << 14;
+
+    private static final int GENERATION = 0;
+    private static final int STOCK = 4;
+    private static final int ID = 8;
+    private static final int PRICE = 16;
+    private static final int CATEGORY = 24;
+    private static final int BRAND = 28;
+    private static final int CREATED = 32;
+    private static final int MODIFIED = 40;
+    private static final int NAME = 48;
+    private static final int DESCRIPTION = 56;
+
+    private final IntFunction<Category> categories;
+    private final IntFunction<Brand> brands;
+    private final StringArena strings = new StringArena();
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+    private int nextSlot;
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private final ArrayDeque<long[]> retired = new ArrayDeque<>();
+    private int liveRecords;
+
+    /**
+     * @param categories категория по ее коду в записи
+     * @param brands     брэнд по его коду в записи
+     */
+    public ProductSlabStore(IntFunction<Category> categories, IntFunction<Brand> brands) {
+        this.categories = categories;
+        this.brands = brands;
+    }
+
+    @Override
+    public long write(Product product, int categoryCode, int brandCode) {
+        long nameRef = strings.put(product.getName());
+        long descriptionRef = strings.put(product.getDescription());
+        int slot = allocate();
+        ByteBuffer slab = slabs[slot / SLAB_RECORDS];
+        int base = (slot % SLAB_RECORDS) * RECORD_SIZE;
+        int generation = slab.getInt(base + GENERATION);
+        slab.putInt(base + STOCK, product.getStockQuantity());
+        slab.putLong(base + ID, product.getId());
+        slab.putDouble(base + PRICE, product.getPrice());
+        slab.putInt(base + CATEGORY, categoryCode);
+        slab.putInt(base + BRAND, brandCode);
+        slab.putLong(base + CREATED, product.getCreationTimestamp());
+        slab.putLong(base + MODIFIED, product.getLastModifiedTimestamp());
+        slab.putLong(base + NAME, nameRef);
+        slab.putLong(base + DESCRIPTION, descriptionRef);
+        return handle(slot, generation);
+    }
+
+    @Override
+    public Product read(long handle) {
+        int slot = (int) handle;
+        int generation = (int) (handle >>> 32);
+        ByteBuffer slab = slabs[slot / SLAB_RECORDS];
+        int base = (slot % SLAB_RECORDS) * RECORD_SIZE;
+        if (slab.getInt(base + GENERATION) != generation) {
+            return null;
+        }
+        Product product = Product.builder()
+                .id(slab.getLong(base + ID))
+                .name(strings.get(slab.getLong(base + NAME)))
+                .price(slab.getDouble(base + PRICE))
+                .category(categories.apply(slab.getInt(base + CATEGORY)))
+                .brand(brands.apply(slab.getInt(base + BRAND)))
+                .description(strings.get(slab.getLong(base + DESCRIPTION)))
+                .stockQuantity(slab.getInt(base + STOCK))
+                .creationTimestamp(slab.getLong(base + CREATED))
+                .lastModifiedTimestamp(slab.getLong(base + MODIFIED))
+                .build();
+        /* Поколение не изменилось за время чтения - значит запись и ее строки не освобождались */
+        VarHandle.loadLoadFence();
+        return slab.getInt(base + GENERATION) == generation ? product : null;
+    }
+
+    @Override
+    public double price(long handle) {
+        int slot = (int) handle;
+        return slabs[slot / SLAB_RECORDS].getDouble((slot % SLAB_RECORDS) * RECORD_SIZE + PRICE);
+    }
+
+    @Override
+    public synchronized void retire(long handle, long version) {
+        retired.addLast(new long[]{handle, version});
+    }
+
+    @Override
+    public synchronized void reclaim(long oldestReadVersion) {
+        while (!retired.isEmpty() && retired.peekFirst()[1] <= oldestReadVersion) {
+            release((int) retired.pollFirst()[0]);
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return liveRecords;
+    }
+
+    @Override
+    public synchronized int retiredCount() {
+        return retired.size();
+    }
+
+    @Override
+    public long reservedBytes() {
+        return (long) slabs.length * SLAB_RECORDS * RECORD_SIZE + strings.reservedBytes();
+    }
+
+    private synchronized int allocate() {
+        liveRecords++;
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int slot = nextSlot++;
+        if (slot / SLAB_RECORDS == slabs.length) {
+            ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+            grown[slabs.length] = ByteBuffer.allocateDirect(SLAB_RECORDS * RECORD_SIZE);
+            slabs = grown;
+        }
+        return slot;
+    }
+
+    /**
+     * Сначала меняет поколение записи (чтение по старому handle отбросит результат), затем освобождает строки
+     */
+    private void release(int slot) {
+        ByteBuffer slab = slabs[slot / SLAB_RECORDS];
+        int base = (slot % SLAB_RECORDS) * RECORD_SIZE;
+        slab.putInt(base + GENERATION, slab.getInt(base + GENERATION) + 1);
+        VarHandle.storeStoreFence();
+        strings.free(slab.getLong(base + NAME));
+        strings.free(slab.getLong(base + DESCRIPTION));
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        }
+        freeSlots[freeCount++] = slot;
+        liveRecords--;
+    }
+
+    private static long handle(int slot, int generation) {
+        return ((long) generation << 32) | (slot & 0xFFFFFFFFL);
+    }
+}
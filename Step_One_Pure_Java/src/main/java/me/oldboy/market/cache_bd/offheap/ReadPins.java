@@ -0,0 +1,88 @@
+package me.oldboy.market.cache_bd.offheap;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Версии таблицы, которые читаются прямо сейчас: на время чтения поток "закрепляет" номер своей версии,
+ * по самому старому закрепленному номеру {@link ProductSlabStore#reclaim} решает, какие выведенные записи
+ * уже никто не читает. Вложенные чтения (запрос, внутри него поиск по ID) закрепляют версию один раз.
+ * Потокобезопасен.
+ * <p>
+ * Номера хранятся в массиве ячеек фиксированного размера: внешнее чтение занимает свободную ячейку
+ * (начиная с ячейки, выбранной по потоку) и освобождает ее по завершении. Число потоков, когда-либо
+ * читавших таблицу (по виртуальному потоку на сеанс сервера), на размер массива не влияет. Если заняты
+ * все ячейки, чтение ждет, пока одна из них освободится.
+ */
+public final class ReadPins {
+    private static final long NONE = Long.MAX_VALUE;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final ThreadLocal<Pin> own = ThreadLocal.withInitial(Pin::new);
+
+    public ReadPins() {
+        this(Runtime.getRuntime().availableProcessors() * 8);
+    }
+
+    /**
+     * @param concurrency сколько чтений может быть закреплено одновременно (округляется до степени двойки)
+     */
+    ReadPins(int concurrency) {
+        int size = Integer.highestOneBit(Math.max(concurrency, 2) - 1) << 1;
+        slots = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots.set(i, NONE);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Закрепляет версию до парного {@link #unpin()}
+     *
+     * @param version номер читаемой версии
+     */
+    public void pin(long version) {
+        Pin pin = own.get();
+        if (pin.depth++ > 0) {
+            if (version < slots.get(pin.slot)) {
+                slots.set(pin.slot, version);
+            }
+            return;
+        }
+        int slot = (int) Thread.currentThread().getId() & mask;
+        while (!slots.compareAndSet(slot, NONE, version)) {
+            slot = (slot + 1) & mask;
+            if (slot == ((int) Thread.currentThread().getId() & mask)) {
+                Thread.yield();
+            }
+        }
+        pin.slot = slot;
+    }
+
+    public void unpin() {
+        Pin pin = own.get();
+        if (--pin.depth == 0) {
+            slots.set(pin.slot, NONE);
+        }
+    }
+
+    /**
+     * @param current номер последней опубликованной версии
+     * @return номер самой старой читаемой сейчас версии (не больше current)
+     */
+    public long oldest(long current) {
+        long oldest = current;
+        for (int i = 0; i < slots.length(); i++) {
+            oldest = Math.min(oldest, slots.get(i));
+        }
+        return oldest;
+    }
+
+    /**
+     * Закрепление потока: занятая ячейка и глубина вложенных чтений, меняет только поток-владелец
+     */
+    private static final class Pin {
+        private int slot;
+        private int depth;
+    }
+}
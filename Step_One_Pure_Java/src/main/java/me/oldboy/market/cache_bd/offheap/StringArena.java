@@ -0,0 +1,148 @@
+package me.oldboy.market.cache_bd.offheap;
+
+import me.oldboy.market.exceptions.ProductDBException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Хранилище строк вне кучи: строка лежит в блоке [длина в байтах][UTF-8 байты] внутри прямого
+ * (direct) буфера-"куска" по 1 Мб. Блоки выделяются классами размеров - степенями двойки от 16 байт
+ * до размера куска, освобожденный блок попадает в список свободных своего класса и отдается следующей
+ * строке того же класса. Поэтому изменения и удаления товаров не растят арену бесконечно.
+ * <p>
+ * Ссылка на строку - ее смещение в арене (номер куска * размер куска + смещение в куске),
+ * {@link #NULL} - строки нет. Выделение и освобождение - под монитором арены, запись и чтение
+ * байтов блока - без блокировок (абсолютные операции не меняют состояние буфера).
+ */
+final class StringArena {
+    /**
+     * Ссылка на отсутствующую строку (null)
+     */
+    static final long NULL = -1;
+
+    private static final int CHUNK_BITS = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MIN_CLASS_BITS = 4;
+    private static final int CLASSES = CHUNK_BITS - MIN_CLASS_BITS + 1;
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private int bumpChunk = -1;
+    private int bumpPosition = CHUNK_SIZE;
+    private final long[][] free = new long[CLASSES][];
+    private final int[] freeCount = new int[CLASSES];
+    private long usedBytes;
+
+    /**
+     * Кладет строку в арену
+     *
+     * @param value строка
+     * @return ссылка на строку, {@link #NULL} - для null
+     */
+    long put(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int blockClass = blockClass(Integer.BYTES + bytes.length);
+        long ref = allocate(blockClass);
+        ByteBuffer chunk = chunks[chunk(ref)];
+        int offset = offset(ref);
+        chunk.putInt(offset, bytes.length);
+        chunk.put(offset + Integer.BYTES, bytes);
+        return ref;
+    }
+
+    /**
+     * @param ref ссылка на строку
+     * @return строка, null - для {@link #NULL}
+     */
+    String get(long ref) {
+        if (ref == NULL) {
+            return null;
+        }
+        ByteBuffer chunk = chunks[chunk(ref)];
+        int offset = offset(ref);
+        int length = chunk.getInt(offset);
+        if (length < 0 || length > CHUNK_SIZE - Integer.BYTES - offset) {
+            /* Блок уже отдан другой строке и переписывается - вызывающий отбросит прочитанное */
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        chunk.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Возвращает блок строки в список свободных блоков
+     *
+     * @param ref ссылка на строку (для {@link #NULL} ничего не делает)
+     */
+    synchronized void free(long ref) {
+        if (ref == NULL) {
+            return;
+        }
+        int length = chunks[chunk(ref)].getInt(offset(ref));
+        int blockClass = blockClass(Integer.BYTES + length);
+        long[] list = free[blockClass];
+        if (list == null) {
+            list = free[blockClass] = new long[16];
+        } else if (freeCount[blockClass] == list.length) {
+            list = free[blockClass] = Arrays.copyOf(list, list.length << 1);
+        }
+        list[freeCount[blockClass]++] = ref;
+        usedBytes -= 1L << (blockClass + MIN_CLASS_BITS);
+    }
+
+    /**
+     * @return байты, занятые строками (с округлением блоков до класса размера)
+     */
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return байты, выделенные под арену вне кучи
+     */
+    long reservedBytes() {
+        return (long) chunks.length * CHUNK_SIZE;
+    }
+
+    private synchronized long allocate(int blockClass) {
+        int size = 1 << (blockClass + MIN_CLASS_BITS);
+        usedBytes += size;
+        if (freeCount[blockClass] > 0) {
+            return free[blockClass][--freeCount[blockClass]];
+        }
+        if (bumpPosition + size > CHUNK_SIZE) {
+            ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            chunks = grown;
+            bumpChunk = chunks.length - 1;
+            bumpPosition = 0;
+        }
+        long ref = ((long) bumpChunk << CHUNK_BITS) | bumpPosition;
+        bumpPosition += size;
+        return ref;
+    }
+
+    /**
+     * @return класс размера блока: 0 - 16 байт, 1 - 32 байта ... последний - весь кусок
+     */
+    private static int blockClass(int bytes) {
+        if (bytes > CHUNK_SIZE) {
+            throw new ProductDBException("String is too long for off-heap storage: " + bytes + " bytes");
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(bytes, 1 << MIN_CLASS_BITS) - 1);
+        return bits - MIN_CLASS_BITS;
+    }
+
+    private static int chunk(long ref) {
+        return (int) (ref >>> CHUNK_BITS);
+    }
+
+    private static int offset(long ref) {
+        return (int) ref & (CHUNK_SIZE - 1);
+    }
+}
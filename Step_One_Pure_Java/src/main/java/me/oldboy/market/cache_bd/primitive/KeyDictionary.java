@@ -0,0 +1,58 @@
+package me.oldboy.market.cache_bd.primitive;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Словарь, выдающий объектам-ключам (категориям, брэндам) плотные целочисленные коды 0, 1, 2 ...
+ * По коду ProductDB находит битовую карту ({@link PersistentBitmap}) товаров категории или брэнда,
+ * коды же хранят записи товаров вне кучи. Потокобезопасен.
+ *
+ * @param <K> тип ключа
+ */
+public class KeyDictionary<K> {
+    /**
+     * Код, возвращаемый для неизвестного ключа
+     */
+    public static final int NO_CODE = -1;
+
+    private final Map<K, Integer> codes = new ConcurrentHashMap<>();
+    private final Map<Integer, K> keys = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCode = new AtomicInteger();
+
+    /**
+     * @param key ключ
+     * @return код ключа, при первом обращении ключу присваивается новый код
+     */
+    public int codeOf(K key) {
+        return codes.computeIfAbsent(key, k -> {
+            int code = nextCode.getAndIncrement();
+            keys.put(code, k);
+            return code;
+        });
+    }
+
+    /**
+     * @param code ранее выданный код
+     * @return ключ с этим кодом или null, если такой код не выдавался
+     */
+    public K keyOf(int code) {
+        return keys.get(code);
+    }
+
+    /**
+     * @param key ключ
+     * @return код ключа или {@link #NO_CODE}, если ключ еще не встречался
+     */
+    public int find(K key) {
+        Integer code = codes.get(key);
+        return code == null ? NO_CODE : code;
+    }
+
+    public void clear() {
+        codes.clear();
+        keys.clear();
+        nextCode.set(0);
+    }
+}
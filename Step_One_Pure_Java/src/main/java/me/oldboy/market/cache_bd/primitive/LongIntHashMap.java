@@ -0,0 +1,213 @@
+package me.oldboy.market.cache_bd.primitive;
+
+import java.util.Arrays;
+
+/**
+ * Хэш-таблица long -> int с открытой адресацией (линейное пробирование) без упаковки ключей в Long.
+ * Удаление выполняется обратным сдвигом (backward shift), поэтому "надгробий" в таблице не остается.
+ * Класс не потокобезопасен - синхронизация лежит на вызывающей стороне.
+ */
+public class LongIntHashMap {
+    /**
+     * Значение, возвращаемое при отсутствии ключа
+     */
+    public static final int NO_VALUE = -1;
+
+    private static final long FREE_KEY = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int resizeAt;
+    private int size;
+
+    /* Ключ 0 занят под маркер пустой ячейки, поэтому хранится отдельно */
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor((int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR)));
+    }
+
+    /**
+     * @param key ключ
+     * @return значение по ключу или {@link #NO_VALUE}
+     */
+    public int get(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : NO_VALUE;
+        }
+        int index = indexOf(key);
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                return NO_VALUE;
+            }
+            if (current == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * @param key   ключ
+     * @param value значение (не отрицательное)
+     * @return предыдущее значение по ключу или {@link #NO_VALUE}
+     */
+    public int put(long key, int value) {
+        if (key == FREE_KEY) {
+            int previous = hasFreeKey ? freeKeyValue : NO_VALUE;
+            if (!hasFreeKey) {
+                size++;
+            }
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return previous;
+        }
+        int index = indexOf(key);
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size >= resizeAt) {
+                    allocate(keys.length << 1);
+                }
+                return NO_VALUE;
+            }
+            if (current == key) {
+                int previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * @param key удаляемый ключ
+     * @return значение удаленного ключа или {@link #NO_VALUE}
+     */
+    public int remove(long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return NO_VALUE;
+            }
+            hasFreeKey = false;
+            size--;
+            return freeKeyValue;
+        }
+        int index = indexOf(key);
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                return NO_VALUE;
+            }
+            if (current == key) {
+                int removed = values[index];
+                shiftKeysBack(index);
+                size--;
+                return removed;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Перебирает пары ключ-значение в порядке хранения (не упорядочено)
+     *
+     * @param action действие над парой
+     */
+    public void forEach(EntryConsumer action) {
+        if (hasFreeKey) {
+            action.accept(FREE_KEY, freeKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    /**
+     * Сдвигает "хвост" цепочки пробирования на место удаленного ключа
+     *
+     * @param gap индекс освободившейся ячейки
+     */
+    private void shiftKeysBack(int gap) {
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                break;
+            }
+            int ideal = indexOf(current);
+            /* Ключ можно перенести, если освободившаяся ячейка лежит между его "родной" ячейкой и текущей */
+            if (((index - ideal) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = current;
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        keys[gap] = FREE_KEY;
+    }
+
+    private int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; i++) {
+                long key = oldKeys[i];
+                if (key != FREE_KEY) {
+                    int index = indexOf(key);
+                    while (keys[index] != FREE_KEY) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = key;
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        return Math.max(size, 4);
+    }
+
+    /**
+     * Действие над парой ключ-значение без упаковки ключа
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
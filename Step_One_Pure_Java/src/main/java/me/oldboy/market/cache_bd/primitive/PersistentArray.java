@@ -0,0 +1,274 @@
+package me.oldboy.market.cache_bd.primitive;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Неизменяемый (persistent) разреженный массив с индексами long >= 0 - дерево с 64 потомками в узле.
+ * Изменение ({@link #with}) не трогает текущий массив, а возвращает новый: копируется только путь
+ * от корня до листа (несколько массивов по 64 ссылки), остальные узлы у версий общие.
+ * <p>
+ * Поэтому версию можно читать из любого числа потоков без блокировок, пока писатель готовит следующую.
+ * Глубина дерева растет по мере надобности: для плотных индексов до 262 144 - три уровня.
+ *
+ * @param <T> тип элементов
+ */
+public final class PersistentArray<T> {
+    private static final int BITS = 6;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentArray<?> EMPTY = new PersistentArray<>(null, 0, 0);
+
+    private final Object[] root;
+    /**
+     * Сдвиг индекса для корневого уровня, на листовом уровне он равен 0
+     */
+    private final int shift;
+    private final int size;
+
+    private PersistentArray(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentArray<T> empty() {
+        return (PersistentArray<T>) EMPTY;
+    }
+
+    /**
+     * @param index индекс элемента
+     * @return элемент или null, если по индексу ничего нет
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long index) {
+        return (T) get(root, shift, index);
+    }
+
+    /**
+     * @param index индекс элемента (>= 0)
+     * @param value новое значение, null - удалить элемент
+     * @return новая версия массива (или эта же, если ничего не изменилось)
+     */
+    public PersistentArray<T> with(long index, T value) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Negative index " + index);
+        }
+        T old = get(index);
+        if (old == value) {
+            return this;
+        }
+        Object[] newRoot = root;
+        int newShift = shift;
+        if (newRoot == null) {
+            newShift = 0;
+            while (!fits(index, newShift)) {
+                newShift += BITS;
+            }
+        } else {
+            while (!fits(index, newShift)) {
+                Object[] grown = new Object[WIDTH];
+                grown[0] = newRoot;
+                newRoot = grown;
+                newShift += BITS;
+            }
+        }
+        newRoot = set(newRoot, newShift, index, value);
+        int newSize = size + (old == null ? 1 : 0) - (value == null ? 1 : 0);
+        return newSize == 0 ? empty() : new PersistentArray<>(newRoot, newShift, newSize);
+    }
+
+    /**
+     * @return пакетное изменение, которое начинается с этой версии массива (сама версия не меняется)
+     */
+    public Batch<T> batch() {
+        return new Batch<>(root, shift, size);
+    }
+
+    /**
+     * @return число элементов (не null)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param from индекс, с которого начинается поиск
+     * @return наименьший индекс >= from, по которому есть элемент, или -1
+     */
+    public long nextIndex(long from) {
+        if (root == null || from < 0 || !fits(from, shift)) {
+            return -1;
+        }
+        return nextIndex(root, shift, from, 0);
+    }
+
+    /**
+     * Обходит элементы по возрастанию индекса
+     */
+    public void forEach(Consumer<? super T> action) {
+        if (root != null) {
+            forEach(root, shift, action);
+        }
+    }
+
+    /**
+     * Пакетное изменение массива (например, при добавлении пачки элементов). Узел, скопированный
+     * в рамках пакета, больше никому не виден, поэтому следующие изменения пакета меняют его на месте:
+     * путь к соседним элементам копируется один раз на пакет, а не на каждый элемент.
+     * Пакет поддерживает только добавление и замену элементов и не потокобезопасен.
+     */
+    public static final class Batch<T> {
+        private final Set<Object[]> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+        private Object[] root;
+        private int shift;
+        private int size;
+
+        private Batch(Object[] root, int shift, int size) {
+            this.root = root;
+            this.shift = shift;
+            this.size = size;
+        }
+
+        /**
+         * @return элемент с учетом изменений пакета или null
+         */
+        @SuppressWarnings("unchecked")
+        public T get(long index) {
+            return (T) PersistentArray.get(root, shift, index);
+        }
+
+        /**
+         * @param index индекс элемента (>= 0)
+         * @param value новое значение (не null)
+         * @return этот пакет
+         */
+        public Batch<T> set(long index, T value) {
+            if (index < 0) {
+                throw new IndexOutOfBoundsException("Negative index " + index);
+            }
+            Objects.requireNonNull(value, "Batch does not remove elements");
+            if (root == null) {
+                shift = 0;
+                while (!fits(index, shift)) {
+                    shift += BITS;
+                }
+                root = own(null);
+            }
+            while (!fits(index, shift)) {
+                Object[] grown = own(null);
+                grown[0] = root;
+                root = grown;
+                shift += BITS;
+            }
+            root = own(root);
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                int position = (int) (index >>> level) & MASK;
+                Object[] child = own((Object[]) node[position]);
+                node[position] = child;
+                node = child;
+            }
+            int position = (int) index & MASK;
+            if (node[position] == null) {
+                size++;
+            }
+            node[position] = value;
+            return this;
+        }
+
+        /**
+         * @return новая версия массива; после этого пакет можно продолжать, уже не затрагивая ее
+         */
+        public PersistentArray<T> build() {
+            owned.clear();
+            return size == 0 ? empty() : new PersistentArray<>(root, shift, size);
+        }
+
+        /**
+         * @return узел, который пакет может менять на месте (копия чужого узла или новый)
+         */
+        private Object[] own(Object[] node) {
+            if (node != null && owned.contains(node)) {
+                return node;
+            }
+            Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+            owned.add(copy);
+            return copy;
+        }
+    }
+
+    private static Object get(Object[] root, int shift, long index) {
+        if (root == null || !fits(index, shift)) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(int) (index >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return node[(int) index & MASK];
+    }
+
+    private static boolean fits(long index, int shift) {
+        return shift + BITS >= Long.SIZE || index >>> (shift + BITS) == 0;
+    }
+
+    /**
+     * Копирует путь к индексу, пустые после удаления узлы не сохраняются
+     *
+     * @return новый узел или null, если он опустел
+     */
+    private static Object[] set(Object[] node, int level, long index, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int position = (int) (index >>> level) & MASK;
+        copy[position] = level == 0 ? value : set((Object[]) copy[position], level - BITS, index, value);
+        if (copy[position] == null) {
+            for (Object child : copy) {
+                if (child != null) {
+                    return copy;
+                }
+            }
+            return null;
+        }
+        return copy;
+    }
+
+    private static long nextIndex(Object[] node, int level, long from, long base) {
+        long span = 1L << level;
+        for (int position = (int) (from >>> level) & MASK; position < WIDTH; position++) {
+            Object child = node[position];
+            long childBase = base + position * span;
+            if (child != null) {
+                if (level == 0) {
+                    return childBase;
+                }
+                long found = nextIndex((Object[]) child, level - BITS, Math.max(from, childBase), childBase);
+                if (found >= 0) {
+                    return found;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void forEach(Object[] node, int level, Consumer<? super T> action) {
+        for (Object child : node) {
+            if (child == null) {
+                continue;
+            }
+            if (level == 0) {
+                action.accept((T) child);
+            } else {
+                forEach((Object[]) child, level - BITS, action);
+            }
+        }
+    }
+}
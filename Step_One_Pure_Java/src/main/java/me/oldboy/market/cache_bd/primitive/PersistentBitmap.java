@@ -0,0 +1,267 @@
+package me.oldboy.market.cache_bd.primitive;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Неизменяемое множество неотрицательных long (номеров записей) - сжатая битовая карта по мотивам Roaring.
+ * Значения разбиты на блоки по 4096: редкий блок хранится отсортированным массивом char (младшие 12 бит),
+ * плотный (больше 256 значений) - битовой картой из 64 long. Блоки лежат в {@link PersistentArray}.
+ * <p>
+ * Изменение возвращает новую карту: копируется один блок (не больше 512 байт) и путь к нему,
+ * поэтому карта годится для версий, которые читаются без блокировок.
+ */
+public final class PersistentBitmap {
+    private static final int BLOCK_BITS = 12;
+    private static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+    private static final int WORDS = (1 << BLOCK_BITS) / Long.SIZE;
+    /**
+     * Порог, после которого массив значений блока занимает больше места, чем его битовая карта
+     */
+    private static final int MAX_ARRAY = WORDS * Long.SIZE / Character.SIZE;
+    private static final PersistentBitmap EMPTY = new PersistentBitmap(PersistentArray.empty(), 0);
+
+    /**
+     * Блоки: char[] (отсортированные младшие биты) или long[] (битовая карта)
+     */
+    private final PersistentArray<Object> blocks;
+    private final int cardinality;
+
+    private PersistentBitmap(PersistentArray<Object> blocks, int cardinality) {
+        this.blocks = blocks;
+        this.cardinality = cardinality;
+    }
+
+    public static PersistentBitmap empty() {
+        return EMPTY;
+    }
+
+    public boolean contains(long value) {
+        if (value < 0) {
+            return false;
+        }
+        Object block = blocks.get(value >>> BLOCK_BITS);
+        int low = (int) value & BLOCK_MASK;
+        if (block instanceof long[]) {
+            return (((long[]) block)[low >>> 6] & 1L << low) != 0;
+        }
+        return block != null && Arrays.binarySearch((char[]) block, (char) low) >= 0;
+    }
+
+    /**
+     * @param value добавляемое значение (>= 0)
+     * @return новая карта (или эта же, если значение уже есть)
+     */
+    public PersistentBitmap with(long value) {
+        if (contains(value)) {
+            return this;
+        }
+        long key = value >>> BLOCK_BITS;
+        int low = (int) value & BLOCK_MASK;
+        Object block = blocks.get(key);
+        Object changed;
+        if (block instanceof long[]) {
+            long[] words = ((long[]) block).clone();
+            words[low >>> 6] |= 1L << low;
+            changed = words;
+        } else {
+            char[] values = block == null ? new char[0] : (char[]) block;
+            if (values.length == MAX_ARRAY) {
+                long[] words = new long[WORDS];
+                for (char existing : values) {
+                    words[existing >>> 6] |= 1L << existing;
+                }
+                words[low >>> 6] |= 1L << low;
+                changed = words;
+            } else {
+                int position = -Arrays.binarySearch(values, (char) low) - 1;
+                char[] inserted = new char[values.length + 1];
+                System.arraycopy(values, 0, inserted, 0, position);
+                inserted[position] = (char) low;
+                System.arraycopy(values, position, inserted, position + 1, values.length - position);
+                changed = inserted;
+            }
+        }
+        return new PersistentBitmap(blocks.with(key, changed), cardinality + 1);
+    }
+
+    /**
+     * @param value удаляемое значение
+     * @return новая карта (или эта же, если значения нет)
+     */
+    public PersistentBitmap without(long value) {
+        if (!contains(value)) {
+            return this;
+        }
+        long key = value >>> BLOCK_BITS;
+        int low = (int) value & BLOCK_MASK;
+        Object block = blocks.get(key);
+        Object changed;
+        if (block instanceof long[]) {
+            long[] words = ((long[]) block).clone();
+            words[low >>> 6] &= ~(1L << low);
+            changed = words;
+        } else {
+            char[] values = (char[]) block;
+            int position = Arrays.binarySearch(values, (char) low);
+            char[] removed = new char[values.length - 1];
+            System.arraycopy(values, 0, removed, 0, position);
+            System.arraycopy(values, position + 1, removed, position, removed.length - position);
+            changed = removed.length == 0 ? null : removed;
+        }
+        return new PersistentBitmap(blocks.with(key, changed), cardinality - 1);
+    }
+
+    /**
+     * @return пакетное добавление значений, которое начинается с этой карты (сама карта не меняется)
+     */
+    public Batch batch() {
+        return new Batch(blocks.batch(), cardinality);
+    }
+
+    /**
+     * @return число значений в карте
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @param from значение, с которого начинается поиск
+     * @return наименьшее значение карты >= from или -1, если таких нет
+     */
+    public long next(long from) {
+        from = Math.max(from, 0);
+        long key = blocks.nextIndex(from >>> BLOCK_BITS);
+        while (key >= 0) {
+            int low = key == from >>> BLOCK_BITS ? (int) from & BLOCK_MASK : 0;
+            int found = next(blocks.get(key), low);
+            if (found >= 0) {
+                return key << BLOCK_BITS | found;
+            }
+            key = blocks.nextIndex(key + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Пересечение без построения новой карты: перебираются значения меньшей из карт и проверяются в большей
+     *
+     * @param other вторая карта
+     * @param from  значение, с которого начинается поиск
+     * @return наименьшее значение >= from, которое есть в обеих картах, или -1
+     */
+    public long nextCommon(PersistentBitmap other, long from) {
+        PersistentBitmap smaller = cardinality <= other.cardinality ? this : other;
+        PersistentBitmap larger = smaller == this ? other : this;
+        for (long value = smaller.next(from); value >= 0; value = smaller.next(value + 1)) {
+            if (larger.contains(value)) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Пакетное добавление значений: блок, скопированный в рамках пакета, дальше меняется на месте,
+     * поэтому пачка значений одного блока копирует блок один раз. Не потокобезопасен.
+     */
+    public static final class Batch {
+        private final PersistentArray.Batch<Object> blocks;
+        private final Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+        private int cardinality;
+
+        private Batch(PersistentArray.Batch<Object> blocks, int cardinality) {
+            this.blocks = blocks;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * @param value добавляемое значение (>= 0)
+         * @return этот пакет
+         */
+        public Batch add(long value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Negative value " + value);
+            }
+            long key = value >>> BLOCK_BITS;
+            int low = (int) value & BLOCK_MASK;
+            Object block = blocks.get(key);
+            if (block instanceof long[]) {
+                long[] words = (long[]) block;
+                if ((words[low >>> 6] & 1L << low) != 0) {
+                    return this;
+                }
+                if (!owned.contains(words)) {
+                    words = words.clone();
+                    owned.add(words);
+                    blocks.set(key, words);
+                }
+                words[low >>> 6] |= 1L << low;
+            } else {
+                char[] values = block == null ? new char[0] : (char[]) block;
+                int position = Arrays.binarySearch(values, (char) low);
+                if (position >= 0) {
+                    return this;
+                }
+                Object changed;
+                if (values.length == MAX_ARRAY) {
+                    long[] words = new long[WORDS];
+                    for (char existing : values) {
+                        words[existing >>> 6] |= 1L << existing;
+                    }
+                    words[low >>> 6] |= 1L << low;
+                    changed = words;
+                } else {
+                    position = -position - 1;
+                    char[] inserted = new char[values.length + 1];
+                    System.arraycopy(values, 0, inserted, 0, position);
+                    inserted[position] = (char) low;
+                    System.arraycopy(values, position, inserted, position + 1, values.length - position);
+                    changed = inserted;
+                }
+                owned.remove(block);
+                owned.add(changed);
+                blocks.set(key, changed);
+            }
+            cardinality++;
+            return this;
+        }
+
+        /**
+         * @return новая версия карты; после этого пакет можно продолжать, уже не затрагивая ее
+         */
+        public PersistentBitmap build() {
+            owned.clear();
+            return new PersistentBitmap(blocks.build(), cardinality);
+        }
+    }
+
+    /**
+     * @return наименьшее значение блока >= low или -1
+     */
+    private static int next(Object block, int low) {
+        if (block instanceof long[]) {
+            long[] words = (long[]) block;
+            int word = low >>> 6;
+            long bits = words[word] & -1L << low;
+            while (true) {
+                if (bits != 0) {
+                    return word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                }
+                if (++word == WORDS) {
+                    return -1;
+                }
+                bits = words[word];
+            }
+        }
+        char[] values = (char[]) block;
+        int position = Arrays.binarySearch(values, (char) low);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        return position < values.length ? values[position] : -1;
+    }
+}
@@ -0,0 +1,108 @@
+package me.oldboy.market.cache_bd.query;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Запрос к таблице товаров: набор условий (все должны выполняться), порядок и ограничение числа строк.
+ * Незаданное (null) условие не ограничивает выборку:
+ * <pre>
+ * ProductQuery.builder().category(shoes).maxPrice(100.0).inStock(true).sort(ProductSort.PRICE_ASC).limit(10).build();
+ * </pre>
+ * Какой индекс использовать, решает планировщик {@link me.oldboy.market.cache_bd.ProductDB#query(ProductQuery)}.
+ */
+@Getter
+@Builder
+@ToString
+public class ProductQuery {
+    /**
+     * ID товара
+     */
+    private final Long id;
+    private final Category category;
+    private final Brand brand;
+    /**
+     * Точное название товара
+     */
+    private final String name;
+    /**
+     * Начало названия товара, без учета регистра
+     */
+    private final String namePrefix;
+    /**
+     * Минимальная цена включительно
+     */
+    private final Double minPrice;
+    /**
+     * Максимальная цена включительно
+     */
+    private final Double maxPrice;
+    /**
+     * true - только товары с ненулевым остатком
+     */
+    private final boolean inStock;
+    /**
+     * Порядок товаров в ответе, null - по ID
+     */
+    private final ProductSort sort;
+    /**
+     * Максимальное число товаров в ответе, 0 - без ограничения
+     */
+    private final int limit;
+
+    /**
+     * @param product товар
+     * @return true - если товар удовлетворяет всем условиям запроса
+     */
+    public boolean matches(Product product) {
+        return (id == null || id.equals(product.getId()))
+                && (category == null || category.equals(product.getCategory()))
+                && (brand == null || brand.equals(product.getBrand()))
+                && (name == null || name.equals(product.getName()))
+                && (namePrefix == null || product.getName() != null
+                && product.getName().regionMatches(true, 0, namePrefix, 0, namePrefix.length()))
+                && (minPrice == null || product.getPrice() >= minPrice)
+                && (maxPrice == null || product.getPrice() <= maxPrice)
+                && (!inStock || product.getStockQuantity() > 0);
+    }
+
+    /**
+     * @return заданные условия запроса в читаемом виде (для explain)
+     */
+    public Map<Condition, String> conditions() {
+        Map<Condition, String> conditions = new EnumMap<>(Condition.class);
+        if (id != null) conditions.put(Condition.ID, "id = " + id);
+        if (category != null) conditions.put(Condition.CATEGORY, "category = " + category.getName());
+        if (brand != null) conditions.put(Condition.BRAND, "brand = " + brand.getName());
+        if (name != null) conditions.put(Condition.NAME, "name = '" + name + "'");
+        if (namePrefix != null) conditions.put(Condition.NAME_PREFIX, "name starts with '" + namePrefix + "'");
+        if (minPrice != null || maxPrice != null) {
+            conditions.put(Condition.PRICE,
+                    "price in [" + Objects.toString(minPrice, "-inf") + ", " + Objects.toString(maxPrice, "+inf") + "]");
+        }
+        if (inStock) conditions.put(Condition.IN_STOCK, "in stock");
+        return conditions;
+    }
+
+    /**
+     * @return порядок товаров в ответе (по ID, если не задан)
+     */
+    public ProductSort sortOrDefault() {
+        return sort == null ? ProductSort.ID : sort;
+    }
+
+    /**
+     * Виды условий запроса
+     */
+    public enum Condition {
+        ID, CATEGORY, BRAND, NAME, NAME_PREFIX, PRICE, IN_STOCK
+    }
+}
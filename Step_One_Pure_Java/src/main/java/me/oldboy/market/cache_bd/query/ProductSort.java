@@ -0,0 +1,27 @@
+package me.oldboy.market.cache_bd.query;
+
+import me.oldboy.market.entity.Product;
+
+import java.util.Comparator;
+
+/**
+ * Порядок товаров в ответе на {@link ProductQuery}. При равных значениях товары упорядочены по ID.
+ */
+public enum ProductSort {
+    ID(Comparator.comparing(Product::getId)),
+    PRICE_ASC(Comparator.comparingDouble(Product::getPrice).thenComparing(Product::getId)),
+    PRICE_DESC(Comparator.comparingDouble(Product::getPrice).reversed().thenComparing(Product::getId)),
+    NAME(Comparator.comparing(Product::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Product::getId)),
+    STOCK_ASC(Comparator.comparingInt(Product::getStockQuantity).thenComparing(Product::getId));
+
+    private final Comparator<Product> comparator;
+
+    ProductSort(Comparator<Product> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<Product> comparator() {
+        return comparator;
+    }
+}
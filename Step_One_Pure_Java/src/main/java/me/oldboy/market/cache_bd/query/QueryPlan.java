@@ -0,0 +1,106 @@
+package me.oldboy.market.cache_bd.query;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * План выполненного запроса {@link ProductQuery} ("explain"): каким путем доступа выбраны кандидаты,
+ * какие условия проверялись уже на кандидатах, как получен порядок и сколько строк просмотрено.
+ */
+@Getter
+@AllArgsConstructor
+public class QueryPlan {
+    /**
+     * Выбранный путь доступа
+     */
+    private final Access access;
+    /**
+     * Условия, которые обеспечивает путь доступа
+     */
+    private final String accessCondition;
+    /**
+     * Оценка числа кандидатов, по которой выбран путь доступа
+     */
+    private final long estimatedRows;
+    /**
+     * Условия, проверяемые на каждом кандидате
+     */
+    private final List<String> filters;
+    private final ProductSort sort;
+    /**
+     * true - кандидаты уже идут в нужном порядке, сортировка не нужна и просмотр останавливается на limit
+     */
+    private final boolean indexOrder;
+    private final int limit;
+    /**
+     * Фактически просмотрено кандидатов
+     */
+    private final long examinedRows;
+    /**
+     * Возвращено товаров
+     */
+    private final int returnedRows;
+
+    /**
+     * @return план в читаемом виде
+     */
+    public String explain() {
+        StringBuilder plan = new StringBuilder()
+                .append(access).append(accessCondition.isEmpty() ? "" : " (" + accessCondition + ")")
+                .append(", estimated rows: ").append(estimatedRows);
+        if (!filters.isEmpty()) {
+            plan.append("\n  filter: ").append(String.join(" AND ", filters));
+        }
+        plan.append("\n  sort: ").append(sort).append(indexOrder ? " (index order)" : " (in memory)");
+        if (limit > 0) {
+            plan.append(", limit ").append(limit);
+        }
+        plan.append("\n  examined rows: ").append(examinedRows).append(", returned: ").append(returnedRows);
+        return plan.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+
+    /**
+     * Пути доступа к товарам
+     */
+    public enum Access {
+        /**
+         * Поиск по ID
+         */
+        ID_LOOKUP,
+        /**
+         * Индекс по названию
+         */
+        NAME_INDEX,
+        /**
+         * Индекс по паре (брэнд, название)
+         */
+        BRAND_NAME_INDEX,
+        /**
+         * Списки слотов категории и/или брэнда, пересекаемые как битовые карты
+         */
+        POSTINGS_BITMAP,
+        /**
+         * Упорядоченный индекс цен
+         */
+        PRICE_INDEX,
+        /**
+         * Упорядоченный индекс цен внутри категории
+         */
+        CATEGORY_PRICE_INDEX,
+        /**
+         * Упорядоченный индекс остатков
+         */
+        STOCK_INDEX,
+        /**
+         * Параллельный (fork-join) просмотр всей таблицы
+         */
+        PARALLEL_SCAN
+    }
+}
@@ -0,0 +1,17 @@
+package me.oldboy.market.cache_bd.query;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import me.oldboy.market.entity.Product;
+
+import java.util.List;
+
+/**
+ * Результат запроса {@link ProductQuery}: найденные товары и план, по которому они найдены
+ */
+@Getter
+@AllArgsConstructor
+public class QueryResult {
+    private final List<Product> products;
+    private final QueryPlan plan;
+}
@@ -0,0 +1,353 @@
+package me.oldboy.market.cache_bd.snapshot;
+
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Версионированный колоночный файл снимка каталога товаров, читаемый через {@link FileChannel#map}.
+ * <p>
+ * Числовые поля лежат колонками фиксированной ширины (все ID подряд, все цены подряд и т.д.),
+ * строки (названия, описания, имена категорий/брэндов) - в общей "куче" строк UTF-8, колонки хранят
+ * смещение и длину. Открытие файла - это только отображение его в память, строки декодируются
+ * по требованию, а сканирование цен и остатков идет прямо по отображенному буферу.
+ * <p>
+ * Раскладка файла (big-endian):
+ * <pre>
+ * заголовок (64 байта): int magic "PCOL", short версия, short резерв, int строк, int категорий,
+ *                       int брэндов, int резерв, long размер кучи строк, резерв до 64 байт
+ * колонки (по числу строк): long id, double price, int stockQuantity, int категория (индекс в словаре),
+ *                       int брэнд (индекс в словаре), long creationTimestamp, long lastModifiedTimestamp,
+ *                       int/int смещение/длина названия, int/int смещение/длина описания (длина -1 = null)
+ * словари: категории, затем брэнды - [int есть ли ID][int ID][int смещение имени][int длина имени]
+ * куча строк: байты UTF-8
+ * </pre>
+ */
+public final class ProductColumnarSnapshot implements Closeable {
+    public static final int MAGIC = 0x50434F4C;
+    public static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int ROW_WIDTH = 8 + 8 + 4 + 4 + 4 + 8 + 8 + 4 + 4 + 4 + 4;
+    private static final int DICTIONARY_ENTRY_WIDTH = 16;
+    private static final int NO_REF = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int rows;
+
+    private final int idPos;
+    private final int pricePos;
+    private final int stockPos;
+    private final int categoryPos;
+    private final int brandPos;
+    private final int createdPos;
+    private final int modifiedPos;
+    private final int nameOffsetPos;
+    private final int nameLengthPos;
+    private final int descriptionOffsetPos;
+    private final int descriptionLengthPos;
+    private final int heapPos;
+
+    private final Category[] categories;
+    private final Brand[] brands;
+
+    private ProductColumnarSnapshot(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a columnar product snapshot");
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar snapshot version " + version);
+        }
+        this.rows = buffer.getInt(8);
+        int categoryCount = buffer.getInt(12);
+        int brandCount = buffer.getInt(16);
+
+        this.idPos = HEADER_SIZE;
+        this.pricePos = idPos + rows * 8;
+        this.stockPos = pricePos + rows * 8;
+        this.categoryPos = stockPos + rows * 4;
+        this.brandPos = categoryPos + rows * 4;
+        this.createdPos = brandPos + rows * 4;
+        this.modifiedPos = createdPos + rows * 8;
+        this.nameOffsetPos = modifiedPos + rows * 8;
+        this.nameLengthPos = nameOffsetPos + rows * 4;
+        this.descriptionOffsetPos = nameLengthPos + rows * 4;
+        this.descriptionLengthPos = descriptionOffsetPos + rows * 4;
+        int categoryDictionaryPos = descriptionLengthPos + rows * 4;
+        int brandDictionaryPos = categoryDictionaryPos + categoryCount * DICTIONARY_ENTRY_WIDTH;
+        this.heapPos = brandDictionaryPos + brandCount * DICTIONARY_ENTRY_WIDTH;
+
+        this.categories = new Category[categoryCount];
+        for (int i = 0; i < categoryCount; i++) {
+            int entry = categoryDictionaryPos + i * DICTIONARY_ENTRY_WIDTH;
+            categories[i] = Category.builder().id(dictionaryId(entry)).name(dictionaryName(entry)).build();
+        }
+        this.brands = new Brand[brandCount];
+        for (int i = 0; i < brandCount; i++) {
+            int entry = brandDictionaryPos + i * DICTIONARY_ENTRY_WIDTH;
+            brands[i] = Brand.builder().id(dictionaryId(entry)).name(dictionaryName(entry)).build();
+        }
+    }
+
+    /**
+     * Отображает файл снимка в память (данные товаров при этом не читаются)
+     *
+     * @param file путь к файлу снимка
+     * @return открытый снимок
+     * @throws IOException если файл не читается или имеет неподдерживаемый формат/версию
+     */
+    public static ProductColumnarSnapshot open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Columnar snapshot is larger than 2 GB");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new ProductColumnarSnapshot(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Записывает товары в колоночный файл снимка
+     *
+     * @param file     путь к файлу
+     * @param products сохраняемые товары
+     * @throws IOException при ошибке записи
+     */
+    public static void write(Path file, List<Product> products) throws IOException {
+        int rows = products.size();
+        StringHeap heap = new StringHeap();
+
+        Map<Category, Integer> categoryIndex = new LinkedHashMap<>();
+        Map<Brand, Integer> brandIndex = new LinkedHashMap<>();
+        int[] categoryRefs = new int[rows];
+        int[] brandRefs = new int[rows];
+        int[] nameOffsets = new int[rows];
+        int[] nameLengths = new int[rows];
+        int[] descriptionOffsets = new int[rows];
+        int[] descriptionLengths = new int[rows];
+
+        for (int row = 0; row < rows; row++) {
+            Product product = products.get(row);
+            Category category = product.getCategory();
+            categoryRefs[row] = category == null ? NO_REF : categoryIndex.computeIfAbsent(category, c -> categoryIndex.size());
+            Brand brand = product.getBrand();
+            brandRefs[row] = brand == null ? NO_REF : brandIndex.computeIfAbsent(brand, b -> brandIndex.size());
+            long name = heap.add(product.getName());
+            nameOffsets[row] = (int) (name >>> 32);
+            nameLengths[row] = (int) name;
+            long description = heap.add(product.getDescription());
+            descriptionOffsets[row] = (int) (description >>> 32);
+            descriptionLengths[row] = (int) description;
+        }
+        long[] categoryNames = new long[categoryIndex.size()];
+        categoryIndex.forEach((category, index) -> categoryNames[index] = heap.add(category.getName()));
+        long[] brandNames = new long[brandIndex.size()];
+        brandIndex.forEach((brand, index) -> brandNames[index] = heap.add(brand.getName()));
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeInt(rows);
+            out.writeInt(categoryIndex.size());
+            out.writeInt(brandIndex.size());
+            out.writeInt(0);
+            out.writeLong(heap.size());
+            out.write(new byte[HEADER_SIZE - 32]);
+
+            for (Product product : products) {
+                out.writeLong(product.getId());
+            }
+            for (Product product : products) {
+                out.writeDouble(product.getPrice());
+            }
+            for (Product product : products) {
+                out.writeInt(product.getStockQuantity());
+            }
+            writeInts(out, categoryRefs);
+            writeInts(out, brandRefs);
+            for (Product product : products) {
+                out.writeLong(product.getCreationTimestamp());
+            }
+            for (Product product : products) {
+                out.writeLong(product.getLastModifiedTimestamp());
+            }
+            writeInts(out, nameOffsets);
+            writeInts(out, nameLengths);
+            writeInts(out, descriptionOffsets);
+            writeInts(out, descriptionLengths);
+
+            for (Category category : categoryIndex.keySet()) {
+                writeDictionaryEntry(out, category.getId(), categoryNames[categoryIndex.get(category)]);
+            }
+            for (Brand brand : brandIndex.keySet()) {
+                writeDictionaryEntry(out, brand.getId(), brandNames[brandIndex.get(brand)]);
+            }
+            heap.writeTo(out);
+        }
+    }
+
+    public int rowCount() {
+        return rows;
+    }
+
+    public long id(int row) {
+        return buffer.getLong(idPos + row * 8);
+    }
+
+    public double price(int row) {
+        return buffer.getDouble(pricePos + row * 8);
+    }
+
+    public int stockQuantity(int row) {
+        return buffer.getInt(stockPos + row * 4);
+    }
+
+    public Category category(int row) {
+        int ref = buffer.getInt(categoryPos + row * 4);
+        return ref == NO_REF ? null : categories[ref];
+    }
+
+    public Brand brand(int row) {
+        int ref = buffer.getInt(brandPos + row * 4);
+        return ref == NO_REF ? null : brands[ref];
+    }
+
+    public String name(int row) {
+        return string(buffer.getInt(nameOffsetPos + row * 4), buffer.getInt(nameLengthPos + row * 4));
+    }
+
+    public String description(int row) {
+        return string(buffer.getInt(descriptionOffsetPos + row * 4), buffer.getInt(descriptionLengthPos + row * 4));
+    }
+
+    /**
+     * Собирает объект товара из колонок строки
+     *
+     * @param row номер строки
+     * @return новый объект Product
+     */
+    public Product product(int row) {
+        return Product.builder()
+                .id(id(row))
+                .name(name(row))
+                .price(price(row))
+                .category(category(row))
+                .brand(brand(row))
+                .description(description(row))
+                .stockQuantity(stockQuantity(row))
+                .creationTimestamp(buffer.getLong(createdPos + row * 8))
+                .lastModifiedTimestamp(buffer.getLong(modifiedPos + row * 8))
+                .build();
+    }
+
+    /**
+     * Сканирует колонку цен в отображенном буфере, не создавая объектов товаров
+     *
+     * @param min минимальная цена (включительно)
+     * @param max максимальная цена (включительно)
+     * @return номера строк с ценой в заданном диапазоне
+     */
+    public IntStream rowsWithPriceBetween(double min, double max) {
+        return IntStream.range(0, rows).filter(row -> {
+            double price = price(row);
+            return price >= min && price <= max;
+        });
+    }
+
+    /**
+     * Сканирует колонку остатков в отображенном буфере, не создавая объектов товаров
+     *
+     * @param limit граница остатка (не включительно)
+     * @return номера строк с остатком меньше заданного
+     */
+    public IntStream rowsWithStockBelow(int limit) {
+        return IntStream.range(0, rows).filter(row -> stockQuantity(row) < limit);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private Integer dictionaryId(int entry) {
+        return buffer.getInt(entry) == 0 ? null : buffer.getInt(entry + 4);
+    }
+
+    private String dictionaryName(int entry) {
+        return string(buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+    }
+
+    private String string(int offset, int length) {
+        if (length == NO_REF) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(heapPos + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeDictionaryEntry(DataOutputStream out, Integer id, long name) throws IOException {
+        out.writeInt(id == null ? 0 : 1);
+        out.writeInt(id == null ? 0 : id);
+        out.writeInt((int) (name >>> 32));
+        out.writeInt((int) name);
+    }
+
+    /**
+     * Куча строк UTF-8: одинаковые строки хранятся один раз
+     */
+    private static final class StringHeap {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        private final Map<String, Long> known = new HashMap<>();
+
+        /**
+         * @return смещение (старшие 32 бита) и длина (младшие 32 бита) строки в куче, длина -1 для null
+         */
+        private long add(String value) {
+            if (value == null) {
+                return NO_REF & 0xFFFFFFFFL;
+            }
+            return known.computeIfAbsent(value, v -> {
+                byte[] encoded = v.getBytes(StandardCharsets.UTF_8);
+                long ref = ((long) bytes.size() << 32) | (encoded.length & 0xFFFFFFFFL);
+                bytes.write(encoded, 0, encoded.length);
+                return ref;
+            });
+        }
+
+        private int size() {
+            return bytes.size();
+        }
+
+        private void writeTo(OutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+}
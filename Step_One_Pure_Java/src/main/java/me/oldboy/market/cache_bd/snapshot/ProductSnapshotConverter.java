@@ -0,0 +1,63 @@
+package me.oldboy.market.cache_bd.snapshot;
+
+import me.oldboy.market.entity.Product;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Конвертер прежнего снимка товаров (сериализованный ObjectOutputStream список, product.sr)
+ * в колоночный формат {@link ProductColumnarSnapshot}.
+ * <p>
+ * Запуск: gradlew convertProductSnapshot (или -Psource=... -Ptarget=...)
+ */
+public class ProductSnapshotConverter {
+
+    public static void main(String[] args) throws IOException {
+        Path source = Path.of(args.length > 0 ? args[0] : "db_files/product.sr");
+        Path target = Path.of(args.length > 1 ? args[1] : "db_files/product.col");
+
+        int rows = convert(source, target);
+        System.out.println("Сконвертировано товаров: " + rows + " (" + source + " -> " + target + ")");
+    }
+
+    /**
+     * Читает прежний снимок и записывает его колоночную версию (через временный файл и атомарную подмену)
+     *
+     * @param source файл в формате ObjectOutputStream
+     * @param target файл колоночного снимка
+     * @return количество перенесенных товаров
+     * @throws IOException при ошибке чтения или записи
+     */
+    public static int convert(Path source, Path target) throws IOException {
+        List<Product> products = readLegacy(source);
+        Path tmpFile = target.resolveSibling(target.getFileName() + ".tmp");
+        ProductColumnarSnapshot.write(tmpFile, products);
+        Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return products.size();
+    }
+
+    /**
+     * Читает список товаров из файла прежнего формата
+     *
+     * @param source файл в формате ObjectOutputStream
+     * @return список товаров, пустой - если файл пуст
+     * @throws IOException при ошибке чтения или неизвестном содержимом файла
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Product> readLegacy(Path source) throws IOException {
+        if (Files.size(source) == 0) {
+            return new ArrayList<>();
+        }
+        try (ObjectInputStream objectInputStream =
+                     new ObjectInputStream(new BufferedInputStream(new FileInputStream(source.toFile())))) {
+            return (List<Product>) objectInputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in legacy product snapshot", e);
+        }
+    }
+}
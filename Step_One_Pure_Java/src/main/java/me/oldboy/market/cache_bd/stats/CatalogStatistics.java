@@ -0,0 +1,209 @@
+package me.oldboy.market.cache_bd.stats;
+
+import me.oldboy.market.cache_bd.ProductChangeListener;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Сводки по каталогу (число товаров, остаток, стоимость остатков, минимальная и максимальная цена),
+ * которые поддерживаются при каждом изменении товаров - по категориям, по брэндам и по всему каталогу.
+ * <p>
+ * Подписывается на изменения "кэша" как {@link ProductChangeListener}, поэтому получает их после публикации
+ * новой версии товаров. Счетчики группы меняются под ее монитором, после чего группа публикует неизменяемую
+ * сводку {@link ProductStats}: чтение сводки - O(1) и без блокировок, сколько бы товаров ни было в каталоге.
+ * <p>
+ * Сумма, остаток и число товаров меняются на разницу. Минимум и максимум при добавлении тоже, а если из группы
+ * ушла ее крайняя цена - границы пересчитываются источником, который дает таблица (упорядоченный индекс цен
+ * или просмотр товаров группы). Это случается только для товара с крайней ценой, обычные изменения его не требуют.
+ */
+public class CatalogStatistics implements ProductChangeListener {
+    private final Map<Category, Group> categories = new ConcurrentHashMap<>();
+    private final Map<Brand, Group> brands = new ConcurrentHashMap<>();
+    private final Group total;
+    private final Function<Category, double[]> categoryPrices;
+    private final Function<Brand, double[]> brandPrices;
+
+    /**
+     * Источники границ цен возвращают {минимум, максимум} по текущим товарам группы или null, если их нет
+     *
+     * @param totalPrices    границы цен всего каталога
+     * @param categoryPrices границы цен категории
+     * @param brandPrices    границы цен брэнда
+     */
+    public CatalogStatistics(Supplier<double[]> totalPrices, Function<Category, double[]> categoryPrices,
+                             Function<Brand, double[]> brandPrices) {
+        this.total = new Group(totalPrices);
+        this.categoryPrices = categoryPrices;
+        this.brandPrices = brandPrices;
+    }
+
+    /**
+     * @return сводка по всему каталогу
+     */
+    public ProductStats total() {
+        return total.stats;
+    }
+
+    /**
+     * @param category категория
+     * @return сводка по категории, пустая - если товаров категории нет
+     */
+    public ProductStats byCategory(Category category) {
+        Group group = category == null ? null : categories.get(category);
+        return group == null ? ProductStats.EMPTY : group.stats;
+    }
+
+    /**
+     * @param brand брэнд
+     * @return сводка по брэнду, пустая - если товаров брэнда нет
+     */
+    public ProductStats byBrand(Brand brand) {
+        Group group = brand == null ? null : brands.get(brand);
+        return group == null ? ProductStats.EMPTY : group.stats;
+    }
+
+    /**
+     * @return сводки всех категорий, в которых есть товары (копия, упорядочена по ID категории)
+     */
+    public Map<Category, ProductStats> byCategory() {
+        return copy(categories, Category::getId);
+    }
+
+    /**
+     * @return сводки всех брэндов, у которых есть товары (копия, упорядочена по ID брэнда)
+     */
+    public Map<Brand, ProductStats> byBrand() {
+        return copy(brands, Brand::getId);
+    }
+
+    @Override
+    public void onAdd(Product product) {
+        forEachGroup(product, group -> group.add(product.getPrice(), product.getStockQuantity()));
+    }
+
+    @Override
+    public void onUpdate(Product before, Product after) {
+        if (Double.compare(before.getPrice(), after.getPrice()) == 0
+                && before.getStockQuantity() == after.getStockQuantity()) {
+            return;
+        }
+        /* Категория и брэнд товара не меняются (см. ProductDB.update) */
+        forEachGroup(after, group ->
+                group.replace(before.getPrice(), before.getStockQuantity(), after.getPrice(), after.getStockQuantity()));
+    }
+
+    @Override
+    public void onDelete(Product product) {
+        forEachGroup(product, group -> group.remove(product.getPrice(), product.getStockQuantity()));
+    }
+
+    public void clear() {
+        categories.clear();
+        brands.clear();
+        total.reset();
+    }
+
+    /**
+     * Товар без категории (или брэнда) учитывается только в итоге по каталогу
+     */
+    private void forEachGroup(Product product, Consumer<Group> action) {
+        action.accept(total);
+        if (product.getCategory() != null) {
+            action.accept(categories.computeIfAbsent(product.getCategory(), key -> new Group(() -> categoryPrices.apply(key))));
+        }
+        if (product.getBrand() != null) {
+            action.accept(brands.computeIfAbsent(product.getBrand(), key -> new Group(() -> brandPrices.apply(key))));
+        }
+    }
+
+    private static <K> Map<K, ProductStats> copy(Map<K, Group> groups, Function<K, Integer> id) {
+        Map<K, ProductStats> copy = new LinkedHashMap<>();
+        groups.entrySet().stream()
+                .filter(entry -> entry.getValue().stats.getCount() > 0)
+                .sorted(Map.Entry.comparingByKey(Comparator.comparing(id, Comparator.nullsLast(Comparator.naturalOrder()))))
+                .forEach(entry -> copy.put(entry.getKey(), entry.getValue().stats));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Счетчики одной группы. Стоимость считается в копейках, чтобы добавления и удаления не копили
+     * ошибку округления double.
+     */
+    private static final class Group {
+        private final Supplier<double[]> prices;
+        private long count;
+        private long totalStock;
+        private long valueInKopecks;
+        private double minPrice;
+        private double maxPrice;
+        private volatile ProductStats stats = ProductStats.EMPTY;
+
+        private Group(Supplier<double[]> prices) {
+            this.prices = prices;
+        }
+
+        private synchronized void add(double price, int stock) {
+            minPrice = count == 0 ? price : Math.min(minPrice, price);
+            maxPrice = count == 0 ? price : Math.max(maxPrice, price);
+            count++;
+            totalStock += stock;
+            valueInKopecks += kopecks(price) * stock;
+            publish();
+        }
+
+        private synchronized void remove(double price, int stock) {
+            count--;
+            totalStock -= stock;
+            valueInKopecks -= kopecks(price) * stock;
+            if (count > 0 && (price <= minPrice || price >= maxPrice)) {
+                recalculatePrices();
+            }
+            publish();
+        }
+
+        private synchronized void replace(double oldPrice, int oldStock, double newPrice, int newStock) {
+            totalStock += newStock - oldStock;
+            valueInKopecks += kopecks(newPrice) * newStock - kopecks(oldPrice) * oldStock;
+            if (oldPrice <= minPrice && newPrice > oldPrice || oldPrice >= maxPrice && newPrice < oldPrice) {
+                recalculatePrices();
+            }
+            minPrice = Math.min(minPrice, newPrice);
+            maxPrice = Math.max(maxPrice, newPrice);
+            publish();
+        }
+
+        private synchronized void reset() {
+            count = 0;
+            totalStock = 0;
+            valueInKopecks = 0;
+            publish();
+        }
+
+        private void recalculatePrices() {
+            double[] bounds = prices.get();
+            if (bounds != null) {
+                minPrice = bounds[0];
+                maxPrice = bounds[1];
+            }
+        }
+
+        private void publish() {
+            stats = count <= 0 ? ProductStats.EMPTY
+                    : new ProductStats(count, totalStock, valueInKopecks / 100.0, minPrice, maxPrice);
+        }
+
+        private static long kopecks(double price) {
+            return Math.round(price * 100);
+        }
+    }
+}
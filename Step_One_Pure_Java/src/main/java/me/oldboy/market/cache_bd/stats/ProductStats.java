@@ -0,0 +1,39 @@
+package me.oldboy.market.cache_bd.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Сводка по группе товаров (категории, брэнду или всему каталогу) - неизменяемое значение,
+ * которое {@link CatalogStatistics} публикует после каждого изменения группы.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class ProductStats {
+    public static final ProductStats EMPTY = new ProductStats(0, 0, 0, null, null);
+
+    /**
+     * Число товаров
+     */
+    private final long count;
+    /**
+     * Суммарный остаток на складе
+     */
+    private final long totalStock;
+    /**
+     * Стоимость остатков (цена * остаток по всем товарам), с точностью до копейки
+     */
+    private final double inventoryValue;
+    /**
+     * Минимальная цена, null - если товаров нет
+     */
+    private final Double minPrice;
+    /**
+     * Максимальная цена, null - если товаров нет
+     */
+    private final Double maxPrice;
+}
@@ -0,0 +1,542 @@
+package me.oldboy.market.cache_bd.text;
+
+import me.oldboy.market.cache_bd.primitive.LongIntHashMap;
+import me.oldboy.market.entity.Product;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный полнотекстовый индекс по названию и описанию товаров.
+ * <p>
+ * Каждый товар получает порядковый номер документа, термину ({@link TextAnalyzer}) соответствует
+ * список документов в порядке возрастания номеров с весом термина (вхождения в название
+ * весят {@link #NAME_BOOST}, в описание - 1). Списки хранятся в примитивных массивах. Удаленный
+ * документ только помечается, списки вычищаются пакетно, когда удаленных становится больше живых.
+ * <p>
+ * В ответ попадают документы с наибольшим достижимым числом терминов запроса (обычно - со всеми),
+ * упорядоченные по BM25, при равенстве - раньше проиндексированный. Документы со всеми терминами
+ * находятся пересечением списков от самого короткого, поэтому частые слова запроса не замедляют
+ * поиск. Для списка одного термина хранятся блочные верхние границы веса, и блоки, которые не могут
+ * попасть в первые limit результатов, пропускаются.
+ */
+public class ProductTextIndex {
+    /**
+     * Вес вхождения термина в название товара относительно описания
+     */
+    public static final int NAME_BOOST = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    /**
+     * Удаленные документы не вычищаются, пока их меньше этого числа
+     */
+    private static final int MIN_COMPACTION = 1024;
+    /**
+     * Учитываются не больше стольких (самых редких) терминов запроса
+     */
+    private static final int MAX_QUERY_TERMS = 8;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final LongIntHashMap docById = new LongIntHashMap();
+    private final BitSet live = new BitSet();
+    private long[] docIds = new long[16];
+    private int[] docLengths = new int[16];
+    private int docCount;
+    private int liveCount;
+    private long totalLength;
+
+    /**
+     * Индексирует товар (если товар с таким ID уже проиндексирован - он заменяется)
+     *
+     * @param product товар с присвоенным ID
+     */
+    public void add(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product);
+            if (docCount == docIds.length) {
+                docIds = Arrays.copyOf(docIds, docCount << 1);
+                docLengths = Arrays.copyOf(docLengths, docCount << 1);
+            }
+            int doc = docCount++;
+            Map<String, Integer> weights = weights(product);
+            int length = 0;
+            for (int weight : weights.values()) {
+                length += weight;
+            }
+            for (Map.Entry<String, Integer> term : weights.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), key -> new Postings()).append(doc, term.getValue(), length);
+            }
+            docIds[doc] = product.getId();
+            docLengths[doc] = length;
+            docById.put(product.getId(), doc);
+            live.set(doc);
+            liveCount++;
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Индексирует пачку товаров под одной блокировкой
+     *
+     * @param products товары с присвоенными ID
+     */
+    public void addAll(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param product товар в том виде, в котором он был проиндексирован
+     */
+    public void remove(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product);
+            if (docCount - liveCount >= Math.max(MIN_COMPACTION, liveCount)) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param before товар до изменения (копия с прежним текстом)
+     * @param after  товар после изменения
+     */
+    public void update(Product before, Product after) {
+        if (Objects.equals(before.getName(), after.getName())
+                && Objects.equals(before.getDescription(), after.getDescription())) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            remove(before);
+            add(after);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет товары по тексту запроса
+     *
+     * @param query текст запроса (слова через пробел)
+     * @param limit максимальное число результатов
+     * @return ID найденных товаров от наиболее к наименее релевантному
+     */
+    public List<Long> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(TextAnalyzer.terms(query));
+        lock.readLock().lock();
+        try {
+            List<Postings> found = new ArrayList<>();
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    found.add(list);
+                }
+            }
+            if (found.isEmpty() || limit <= 0) {
+                return Collections.emptyList();
+            }
+            found.sort(Comparator.comparingInt(list -> list.size));
+            Postings[] lists = found.subList(0, Math.min(found.size(), MAX_QUERY_TERMS)).toArray(new Postings[0]);
+            double[] idf = new double[lists.length];
+            for (int l = 0; l < lists.length; l++) {
+                idf[l] = Math.log(1 + (liveCount - lists[l].live + 0.5) / (lists[l].live + 0.5));
+            }
+            double averageLength = (double) totalLength / liveCount;
+
+            TopHits top = new TopHits(limit);
+            /* Сначала документы со всеми терминами, если таких нет - с любыми (matched - 1) и т.д. */
+            for (int matched = lists.length; matched > 1 && top.size == 0; matched--) {
+                for (int subset = 1; subset < 1 << lists.length; subset++) {
+                    if (Integer.bitCount(subset) == matched) {
+                        intersect(lists, idf, subset, averageLength, top);
+                    }
+                }
+            }
+            if (top.size == 0) {
+                /* Ни один документ не содержит двух терминов - списки не пересекаются */
+                for (int l = 0; l < lists.length; l++) {
+                    collect(lists[l], idf[l], averageLength, top);
+                }
+            }
+            return top.ids(docIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return число проиндексированных товаров
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return число различных терминов
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docById.clear();
+            live.clear();
+            docCount = 0;
+            liveCount = 0;
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Помечает документ удаленным и уменьшает число живых документов у его терминов
+     */
+    private void removeDocument(Product product) {
+        int doc = docById.remove(product.getId());
+        if (doc == LongIntHashMap.NO_VALUE) {
+            return;
+        }
+        live.clear(doc);
+        liveCount--;
+        totalLength -= docLengths[doc];
+        for (String term : weights(product).keySet()) {
+            Postings list = postings.get(term);
+            if (list != null && --list.live == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    /**
+     * Перенумеровывает живые документы подряд (порядок сохраняется) и вычищает удаленные из списков
+     */
+    private void compact() {
+        int[] remap = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (live.get(doc)) {
+                remap[doc] = next;
+                docIds[next] = docIds[doc];
+                docLengths[next] = docLengths[doc];
+                next++;
+            } else {
+                remap[doc] = -1;
+            }
+        }
+        for (Postings list : postings.values()) {
+            list.retain(remap, docLengths);
+        }
+        docById.clear();
+        live.clear();
+        for (int doc = 0; doc < next; doc++) {
+            docById.put(docIds[doc], doc);
+        }
+        live.set(0, next);
+        docCount = next;
+    }
+
+    /**
+     * Документы, входящие во все списки subset: самый короткий список перебирается,
+     * в остальных документ ищется экспоненциальным поиском от предыдущей найденной позиции.
+     * Блок самого короткого списка пропускается, если даже с наибольшими вкладами остальных
+     * терминов его документы не попадут в первые limit результатов.
+     */
+    private void intersect(Postings[] lists, double[] idf, int subset, double averageLength, TopHits top) {
+        int[] members = new int[Integer.bitCount(subset)];
+        for (int l = 0, m = 0; l < lists.length; l++) {
+            if ((subset & 1 << l) != 0) {
+                members[m++] = l;
+            }
+        }
+        Postings driver = lists[members[0]];
+        double othersBound = -1;
+        int[] from = new int[members.length];
+        int end = 0;
+        next:
+        for (int i = 0; i < driver.size; i++) {
+            if (i == end) {
+                int block = i / Postings.BLOCK;
+                end = Math.min(i + Postings.BLOCK, driver.size);
+                /* Пока результат не набран, пропускать нечего; границы остальных списков считаются один раз */
+                if (top.isFull()) {
+                    if (othersBound < 0) {
+                        othersBound = 0;
+                        for (int m = 1; m < members.length; m++) {
+                            othersBound += lists[members[m]].maxScore(idf[members[m]], averageLength);
+                        }
+                    }
+                    double bound = driver.blockScore(block, idf[members[0]], averageLength) + othersBound;
+                    if (!top.admits(driver.docs[i], bound)) {
+                        i = end - 1;
+                        continue;
+                    }
+                }
+            }
+            int doc = driver.docs[i];
+            if (!live.get(doc)) {
+                continue;
+            }
+            double score = termScore(driver.weights[i], doc, idf[members[0]], averageLength);
+            for (int m = 1; m < members.length; m++) {
+                Postings list = lists[members[m]];
+                int position = list.find(doc, from[m]);
+                if (position < 0) {
+                    from[m] = -position - 1;
+                    continue next;
+                }
+                from[m] = position + 1;
+                score += termScore(list.weights[position], doc, idf[members[m]], averageLength);
+            }
+            top.offer(doc, score);
+        }
+    }
+
+    /**
+     * Лучшие документы одного списка; блок пропускается, если его верхняя граница не лучше худшего из отобранных
+     */
+    private void collect(Postings list, double idf, double averageLength, TopHits top) {
+        for (int block = 0, start = 0; start < list.size; block++, start += Postings.BLOCK) {
+            if (!top.admits(list.docs[start], list.blockScore(block, idf, averageLength))) {
+                continue;
+            }
+            int end = Math.min(start + Postings.BLOCK, list.size);
+            for (int i = start; i < end; i++) {
+                int doc = list.docs[i];
+                if (live.get(doc)) {
+                    top.offer(doc, termScore(list.weights[i], doc, idf, averageLength));
+                }
+            }
+        }
+    }
+
+    private double termScore(int weight, int doc, double idf, double averageLength) {
+        return bm25(weight, docLengths[doc], idf, averageLength);
+    }
+
+    /**
+     * BM25 одного термина; растет с весом и убывает с длиной документа, поэтому годится для верхних границ
+     */
+    private static double bm25(int weight, int length, double idf, double averageLength) {
+        double norm = K1 * (1 - B + B * length / averageLength);
+        return idf * weight * (K1 + 1) / (weight + norm);
+    }
+
+    /**
+     * @return термин -> вес в товаре (вхождения в название умножаются на NAME_BOOST)
+     */
+    private static Map<String, Integer> weights(Product product) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String term : TextAnalyzer.terms(product.getName())) {
+            weights.merge(term, NAME_BOOST, Integer::sum);
+        }
+        for (String term : TextAnalyzer.terms(product.getDescription())) {
+            weights.merge(term, 1, Integer::sum);
+        }
+        return weights;
+    }
+
+    /**
+     * Список документов термина: номера по возрастанию и веса, live - число живых документов в списке.
+     * На каждый блок из BLOCK документов - наибольший вес и наименьшая длина документа в блоке.
+     */
+    private static final class Postings {
+        private static final int BLOCK = 64;
+
+        private int[] docs = new int[4];
+        private short[] weights = new short[4];
+        private short[] blockMaxWeights = new short[1];
+        private int[] blockMinLengths = new int[1];
+        private int size;
+        private int live;
+
+        private void append(int doc, int weight, int length) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size << 1);
+                weights = Arrays.copyOf(weights, size << 1);
+            }
+            docs[size] = doc;
+            weights[size] = (short) Math.min(weight, Short.MAX_VALUE);
+            updateBlock(size, weights[size], length);
+            size++;
+            live++;
+        }
+
+        private void updateBlock(int position, short weight, int length) {
+            int block = position / BLOCK;
+            if (position % BLOCK == 0) {
+                if (block == blockMaxWeights.length) {
+                    blockMaxWeights = Arrays.copyOf(blockMaxWeights, block << 1);
+                    blockMinLengths = Arrays.copyOf(blockMinLengths, block << 1);
+                }
+                blockMaxWeights[block] = weight;
+                blockMinLengths[block] = length;
+            } else {
+                blockMaxWeights[block] = (short) Math.max(blockMaxWeights[block], weight);
+                blockMinLengths[block] = Math.min(blockMinLengths[block], length);
+            }
+        }
+
+        /**
+         * @return верхняя граница BM25 документов блока
+         */
+        private double blockScore(int block, double idf, double averageLength) {
+            return bm25(blockMaxWeights[block], blockMinLengths[block], idf, averageLength);
+        }
+
+        /**
+         * @return верхняя граница BM25 документов списка
+         */
+        private double maxScore(double idf, double averageLength) {
+            double max = 0;
+            for (int block = 0; block * BLOCK < size; block++) {
+                max = Math.max(max, blockScore(block, idf, averageLength));
+            }
+            return max;
+        }
+
+        /**
+         * @return позиция документа или (-(точка вставки) - 1), поиск начинается с позиции from
+         */
+        private int find(int doc, int from) {
+            if (from >= size) {
+                return -size - 1;
+            }
+            int bound = 1;
+            while (from + bound < size && docs[from + bound] < doc) {
+                bound <<= 1;
+            }
+            return Arrays.binarySearch(docs, from + (bound >> 1), Math.min(from + bound + 1, size), doc);
+        }
+
+        /**
+         * @param remap   новый номер документа по старому (-1 - удален)
+         * @param lengths длины документов по новым номерам
+         */
+        private void retain(int[] remap, int[] lengths) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = remap[docs[i]];
+                if (doc >= 0) {
+                    docs[kept] = doc;
+                    weights[kept] = weights[i];
+                    updateBlock(kept, weights[kept], lengths[doc]);
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    /**
+     * Первые limit результатов: двоичная куча на массивах, в вершине - худший из отобранных
+     * (меньший score, при равенстве - больший номер документа)
+     */
+    private static final class TopHits {
+        private final int[] docs;
+        private final double[] scores;
+        private int size;
+
+        private TopHits(int limit) {
+            docs = new int[limit];
+            scores = new double[limit];
+        }
+
+        private boolean isFull() {
+            return size == docs.length;
+        }
+
+        /**
+         * @param doc   наименьший номер документа из проверяемых
+         * @param bound верхняя граница их score
+         * @return может ли хоть один из них попасть в результат
+         */
+        private boolean admits(int doc, double bound) {
+            return size < docs.length || worse(docs[0], scores[0], doc, bound);
+        }
+
+        private void offer(int doc, double score) {
+            if (size < docs.length) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >> 1;
+                    if (!worse(doc, score, docs[parent], scores[parent])) {
+                        break;
+                    }
+                    docs[i] = docs[parent];
+                    scores[i] = scores[parent];
+                    i = parent;
+                }
+                docs[i] = doc;
+                scores[i] = score;
+            } else if (worse(docs[0], scores[0], doc, score)) {
+                siftDown(doc, score);
+            }
+        }
+
+        private void siftDown(int doc, double score) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && worse(docs[child + 1], scores[child + 1], docs[child], scores[child])) {
+                    child++;
+                }
+                if (!worse(docs[child], scores[child], doc, score)) {
+                    break;
+                }
+                docs[i] = docs[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            docs[i] = doc;
+            scores[i] = score;
+        }
+
+        /**
+         * @return ID документов от лучшего к худшему (куча при этом опустошается)
+         */
+        private List<Long> ids(long[] docIds) {
+            Long[] ids = new Long[size];
+            while (size > 0) {
+                ids[size - 1] = docIds[docs[0]];
+                size--;
+                siftDown(docs[size], scores[size]);
+            }
+            return Arrays.asList(ids);
+        }
+
+        private static boolean worse(int doc, double score, int otherDoc, double otherScore) {
+            return score < otherScore || score == otherScore && doc > otherDoc;
+        }
+    }
+}
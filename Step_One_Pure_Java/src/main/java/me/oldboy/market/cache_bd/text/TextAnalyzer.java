@@ -0,0 +1,97 @@
+package me.oldboy.market.cache_bd.text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбор текста для полнотекстового индекса: разбиение на слова (буквы и цифры), приведение к
+ * нижнему регистру с учетом кириллицы (ё = е) и "легкий" стемминг - отсечение типовых окончаний
+ * русских слов и множественного числа английских. Один и тот же разбор применяется и к товарам,
+ * и к поисковому запросу, поэтому "товары", "товаров" и "Товар" дают один термин.
+ */
+public final class TextAnalyzer {
+    /**
+     * Окончания, от длинных к коротким - отсекается самое длинное подходящее
+     */
+    private static final String[] RUSSIAN_ENDINGS = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "иях", "ией",
+            "ая", "яя", "ое", "ее", "ые", "ие", "ой", "ей", "ий", "ый", "ом", "ем", "ам", "ям",
+            "ах", "ях", "ов", "ев", "ую", "юю", "ию", "ия", "ья", "ью",
+            "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й"
+    };
+    /**
+     * Минимальная длина основы после отсечения окончания
+     */
+    private static final int MIN_STEM = 3;
+    /**
+     * Окончания, сгруппированные по последней букве ('а'..'я'), в том же порядке
+     */
+    private static final String[][] ENDINGS_BY_LAST = new String['я' - 'а' + 1][];
+
+    static {
+        for (char last = 'а'; last <= 'я'; last++) {
+            List<String> endings = new ArrayList<>();
+            for (String ending : RUSSIAN_ENDINGS) {
+                if (ending.charAt(ending.length() - 1) == last) {
+                    endings.add(ending);
+                }
+            }
+            ENDINGS_BY_LAST[last - 'а'] = endings.toArray(new String[0]);
+        }
+    }
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * @param text произвольный текст (может быть null)
+     * @return термины текста в порядке следования, с повторами
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        char[] word = new char[text.length()];
+        int length = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word[length++] = fold(c);
+            } else if (length > 0) {
+                terms.add(stem(word, length));
+                length = 0;
+            }
+        }
+        return terms;
+    }
+
+    private static char fold(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+
+    private static String stem(char[] word, int length) {
+        char last = word[length - 1];
+        if (last >= 'а' && last <= 'я') {
+            for (String ending : ENDINGS_BY_LAST[last - 'а']) {
+                if (length - ending.length() >= MIN_STEM && endsWith(word, length, ending)) {
+                    return new String(word, 0, length - ending.length());
+                }
+            }
+        } else if (length > MIN_STEM && last == 's' && word[length - 2] != 's' && Character.isLetter(word[0])) {
+            return new String(word, 0, length - 1);
+        }
+        return new String(word, 0, length);
+    }
+
+    private static boolean endsWith(char[] word, int length, String ending) {
+        int offset = length - ending.length();
+        for (int i = 0; i < ending.length(); i++) {
+            if (word[offset + i] != ending.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
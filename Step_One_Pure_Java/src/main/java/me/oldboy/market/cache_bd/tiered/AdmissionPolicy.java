@@ -0,0 +1,18 @@
+package me.oldboy.market.cache_bd.tiered;
+
+/**
+ * Политика "горячего" яруса товаров ({@link HotTier}): кого держать в памяти, когда ярус заполнен
+ */
+public enum AdmissionPolicy {
+    /**
+     * W-TinyLFU: новые товары попадают в маленькое LRU "окно" (1% яруса), а из окна в основную часть
+     * (сегментированный LRU) - только если их частота обращений выше, чем у вытесняемого товара.
+     * Частоты считает компактный счетчик {@link FrequencySketch}, поэтому однократный просмотр всего
+     * каталога не вытесняет часто читаемые товары.
+     */
+    TINY_LFU,
+    /**
+     * Обычный LRU: прочитанный товар всегда попадает в ярус, вытесняется давно не читанный
+     */
+    LRU
+}
@@ -0,0 +1,260 @@
+package me.oldboy.market.cache_bd.tiered;
+
+import me.oldboy.market.entity.Product;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * "Горячий" ярус: собранные товары по handle их записей в ограниченном числе штук.
+ * При {@link AdmissionPolicy#TINY_LFU} ярус делится на окно (LRU, 1%), испытательный (probation, 20% основной части)
+ * и защищенный (protected, 80%) сегменты: повторное чтение из испытательного сегмента переводит товар
+ * в защищенный, переполнение защищенного возвращает его самый старый товар в испытательный. Товар, вытесненный
+ * из окна, проходит в основную часть, только если он читается чаще ее самого старого испытательного товара.
+ * При {@link AdmissionPolicy#LRU} весь ярус - одно окно.
+ * <p>
+ * Все операции - под монитором яруса: они короткие (хэш-таблица и перестановка в списке), а сборка товара
+ * из записи на диске выполняется вне монитора.
+ */
+final class HotTier {
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private final int capacity;
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final FrequencySketch sketch;
+    private final Map<Long, Node> nodes = new HashMap<>();
+    private final Node window = Node.sentinel();
+    private final Node probation = Node.sentinel();
+    private final Node protectedSegment = Node.sentinel();
+    private int windowSize;
+    private int probationSize;
+    private int protectedSize;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    /**
+     * @param capacity сколько товаров держать в ярусе (0 - ярус выключен)
+     * @param policy   политика допуска и вытеснения
+     */
+    HotTier(int capacity, AdmissionPolicy policy) {
+        this.capacity = capacity;
+        if (policy == AdmissionPolicy.LRU || capacity < 2) {
+            this.windowCapacity = capacity;
+            this.sketch = null;
+        } else {
+            this.windowCapacity = Math.max(1, capacity / 100);
+            this.sketch = new FrequencySketch(capacity);
+        }
+        this.mainCapacity = capacity - windowCapacity;
+        this.protectedCapacity = mainCapacity * 4 / 5;
+    }
+
+    /**
+     * Ищет товар в ярусе и учитывает обращение (попадание или промах)
+     *
+     * @param handle handle записи товара
+     * @return товар или null - его нет в ярусе
+     */
+    synchronized Product get(long handle) {
+        if (sketch != null) {
+            sketch.increment(handle);
+        }
+        Node node = nodes.get(handle);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        touch(node);
+        return node.product;
+    }
+
+    /**
+     * @param handle handle записи товара
+     * @return товар или null, без учета обращения
+     */
+    synchronized Product peek(long handle) {
+        Node node = nodes.get(handle);
+        return node == null ? null : node.product;
+    }
+
+    /**
+     * Кладет прочитанный с диска товар в окно яруса, вытесняя лишнее
+     *
+     * @param handle  handle записи товара
+     * @param product товар
+     */
+    synchronized void put(long handle, Product product) {
+        if (capacity == 0 || nodes.containsKey(handle)) {
+            return;
+        }
+        Node node = new Node(handle, product);
+        nodes.put(handle, node);
+        node.segment = WINDOW;
+        node.linkBefore(window);
+        if (++windowSize <= windowCapacity) {
+            return;
+        }
+        Node candidate = window.next;
+        candidate.unlink();
+        windowSize--;
+        if (sketch == null) {
+            nodes.remove(candidate.handle);
+            evictions++;
+        } else {
+            admit(candidate);
+        }
+    }
+
+    /**
+     * Убирает товар освобожденной записи
+     *
+     * @param handle handle записи
+     */
+    synchronized void remove(long handle) {
+        Node node = nodes.remove(handle);
+        if (node != null) {
+            node.unlink();
+            resize(node.segment, -1);
+        }
+    }
+
+    /**
+     * @return сколько товаров сейчас в ярусе
+     */
+    synchronized int size() {
+        return nodes.size();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return сколько товаров вытеснено из памяти (в том числе не допущенных в основную часть)
+     */
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return сколько товаров из окна не допущено в основную часть: их частота ниже, чем у вытесняемого
+     */
+    synchronized long rejections() {
+        return rejections;
+    }
+
+    /**
+     * Кандидат из окна против самого старого испытательного (если испытательный пуст - защищенного) товара
+     */
+    private void admit(Node candidate) {
+        if (probationSize + protectedSize < mainCapacity) {
+            candidate.segment = PROBATION;
+            candidate.linkBefore(probation);
+            probationSize++;
+            return;
+        }
+        Node victim = probation.next != probation ? probation.next : protectedSegment.next;
+        if (victim.isSentinel() || sketch.frequency(candidate.handle) <= sketch.frequency(victim.handle)) {
+            nodes.remove(candidate.handle);
+            rejections++;
+        } else {
+            victim.unlink();
+            resize(victim.segment, -1);
+            nodes.remove(victim.handle);
+            candidate.segment = PROBATION;
+            candidate.linkBefore(probation);
+            probationSize++;
+        }
+        evictions++;
+    }
+
+    private void touch(Node node) {
+        node.unlink();
+        if (node.segment == WINDOW) {
+            node.linkBefore(window);
+        } else if (node.segment == PROTECTED) {
+            node.linkBefore(protectedSegment);
+        } else {
+            probationSize--;
+            node.segment = PROTECTED;
+            node.linkBefore(protectedSegment);
+            if (++protectedSize > protectedCapacity) {
+                Node demoted = protectedSegment.next;
+                demoted.unlink();
+                protectedSize--;
+                demoted.segment = PROBATION;
+                demoted.linkBefore(probation);
+                probationSize++;
+            }
+        }
+    }
+
+    private void resize(byte segment, int delta) {
+        if (segment == WINDOW) {
+            windowSize += delta;
+        } else if (segment == PROBATION) {
+            probationSize += delta;
+        } else {
+            protectedSize += delta;
+        }
+    }
+
+    /**
+     * Элемент двусвязного кольцевого списка сегмента, у каждого сегмента - свой узел-"страж"
+     */
+    private static final class Node {
+        private final long handle;
+        private final Product product;
+        private byte segment;
+        private Node prev;
+        private Node next;
+
+        private Node(long handle, Product product) {
+            this.handle = handle;
+            this.product = product;
+        }
+
+        private static Node sentinel() {
+            Node sentinel = new Node(0, null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        private boolean isSentinel() {
+            return product == null;
+        }
+
+        /**
+         * Ставит узел последним (самым свежим) в список стража
+         */
+        private void linkBefore(Node sentinel) {
+            prev = sentinel.prev;
+            next = sentinel;
+            sentinel.prev.next = this;
+            sentinel.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+}
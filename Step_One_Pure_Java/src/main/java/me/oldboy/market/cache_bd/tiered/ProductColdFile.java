@@ -0,0 +1,263 @@
+package me.oldboy.market.cache_bd.tiered;
+
+import me.oldboy.market.cache_bd.codec.BinaryReader;
+import me.oldboy.market.cache_bd.codec.BinaryWriter;
+import me.oldboy.market.cache_bd.codec.CorruptBlockException;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import me.oldboy.market.exceptions.ProductDBException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * "Холодный" ярус - файл записей товаров. Запись лежит в блоке, размер блока - степень двойки от 64 байт до 1 Мб
+ * (по длине записи), поэтому адрес блока - его смещение / 64. Освобожденный блок попадает в список свободных блоков
+ * своего размера и отдается следующей записи того же размера, файл растет только на число живых товаров.
+ * <p>
+ * Блок: [поколение int][длина тела int][цена double][тело: ID, остаток, коды категории и брэнда, время
+ * создания и изменения - varint ({@link BinaryWriter}), название и описание - UTF-8]. Handle - адрес блока
+ * в младших 32 битах и поколение в старших, при освобождении поколение в файле растет.
+ * <p>
+ * Файл - рабочий: данные товаров сохраняет журнал таблицы, поэтому при открытии файл очищается.
+ * Чтение и запись - позиционные (FileChannel.read/write с позицией), они не мешают друг другу
+ * из разных потоков; под монитором - только выделение и освобождение блоков.
+ */
+final class ProductColdFile implements Closeable {
+    private static final int BLOCK_BITS = 6;
+    private static final int MAX_BLOCK_BITS = 20;
+    private static final int CLASSES = MAX_BLOCK_BITS - BLOCK_BITS + 1;
+    private static final int HEADER = 16;
+    private static final int LENGTH = 4;
+    private static final int PRICE = 8;
+    /**
+     * Сколько байт читать за одно обращение: типичная запись товара укладывается целиком
+     */
+    private static final int READ_AHEAD = 256;
+
+    private final FileChannel channel;
+    private final IntFunction<Category> categories;
+    private final IntFunction<Brand> brands;
+    private final long[][] free = new long[CLASSES][];
+    private final int[] freeCount = new int[CLASSES];
+    private long end;
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    /**
+     * @param path       файл (создается или очищается)
+     * @param categories категория по ее коду в записи
+     * @param brands     брэнд по его коду в записи
+     */
+    ProductColdFile(Path path, IntFunction<Category> categories, IntFunction<Brand> brands) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open product cold file " + path, e);
+        }
+        this.categories = categories;
+        this.brands = brands;
+    }
+
+    /**
+     * Записывает товар в свободный блок
+     *
+     * @return handle записи
+     */
+    long write(Product product, int categoryCode, int brandCode) {
+        BinaryWriter body = new BinaryWriter(96)
+                .writeVarLong(product.getId())
+                .writeSignedVarLong(product.getStockQuantity())
+                .writeVarLong(categoryCode)
+                .writeVarLong(brandCode)
+                .writeVarLong(product.getCreationTimestamp())
+                .writeVarLong(product.getLastModifiedTimestamp())
+                .writeString(product.getName())
+                .writeString(product.getDescription());
+        long handle = allocate(blockClass(HEADER + body.size()));
+        ByteBuffer block = ByteBuffer.allocate(HEADER + body.size())
+                .putInt(generation(handle))
+                .putInt(body.size())
+                .putDouble(product.getPrice())
+                .put(body.buffer());
+        write(block.flip(), offset(handle));
+        writes.increment();
+        return handle;
+    }
+
+    /**
+     * Собирает товар из блока
+     *
+     * @return товар или null, если блок уже освобожден (handle устарел)
+     */
+    Product read(long handle) {
+        long offset = offset(handle);
+        int generation = generation(handle);
+        ByteBuffer block = read(offset, READ_AHEAD);
+        reads.increment();
+        if (block.remaining() < HEADER || block.getInt(0) != generation) {
+            return null;
+        }
+        int length = block.getInt(LENGTH);
+        if (length < 0 || length > (1 << MAX_BLOCK_BITS) - HEADER) {
+            return null;
+        }
+        if (HEADER + length > block.remaining()) {
+            block = read(offset, HEADER + length);
+        }
+        Product product;
+        try {
+            product = decode(block, length);
+        } catch (CorruptBlockException e) {
+            product = null;
+        }
+        /* Поколение не изменилось за время чтения - значит блок не освобождался и не переписывался */
+        if (read(offset, Integer.BYTES).getInt(0) != generation) {
+            return null;
+        }
+        if (product == null) {
+            throw new ProductDBException("Product cold file record is corrupted at offset " + offset);
+        }
+        return product;
+    }
+
+    /**
+     * @return цена товара из заголовка блока
+     */
+    double price(long handle) {
+        reads.increment();
+        return read(offset(handle) + PRICE, Double.BYTES).getDouble(0);
+    }
+
+    /**
+     * Освобождает блок: поколение в файле растет, блок уходит в список свободных блоков своего размера
+     */
+    synchronized void release(long handle) {
+        long offset = offset(handle);
+        ByteBuffer header = read(offset, PRICE);
+        int generation = header.getInt(0) + 1;
+        write(ByteBuffer.allocate(Integer.BYTES).putInt(generation).flip(), offset);
+        int blockClass = blockClass(HEADER + header.getInt(LENGTH));
+        long[] list = free[blockClass];
+        if (list == null) {
+            list = free[blockClass] = new long[16];
+        } else if (freeCount[blockClass] == list.length) {
+            list = free[blockClass] = Arrays.copyOf(list, list.length << 1);
+        }
+        list[freeCount[blockClass]++] = handle(offset, generation);
+    }
+
+    /**
+     * @return размер файла
+     */
+    synchronized long size() {
+        return end;
+    }
+
+    long reads() {
+        return reads.sum();
+    }
+
+    long writes() {
+        return writes.sum();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return handle свободного блока (с поколением, которое получит новая запись)
+     */
+    private synchronized long allocate(int blockClass) {
+        if (freeCount[blockClass] > 0) {
+            return free[blockClass][--freeCount[blockClass]];
+        }
+        long offset = end;
+        end += 1L << (blockClass + BLOCK_BITS);
+        return handle(offset, 0);
+    }
+
+    private Product decode(ByteBuffer block, int length) throws CorruptBlockException {
+        BinaryReader body = new BinaryReader(block.slice(HEADER, length));
+        long id = body.readVarLong();
+        int stock = (int) body.readSignedVarLong();
+        int categoryCode = body.readVarInt();
+        int brandCode = body.readVarInt();
+        long created = body.readVarLong();
+        long modified = body.readVarLong();
+        return Product.builder()
+                .id(id)
+                .name(body.readString())
+                .price(block.getDouble(PRICE))
+                .category(categories.apply(categoryCode))
+                .brand(brands.apply(brandCode))
+                .description(body.readString())
+                .stockQuantity(stock)
+                .creationTimestamp(created)
+                .lastModifiedTimestamp(modified)
+                .build();
+    }
+
+    private ByteBuffer read(long offset, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read product cold file", e);
+        }
+        return buffer.flip();
+    }
+
+    private void write(ByteBuffer buffer, long offset) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write product cold file", e);
+        }
+    }
+
+    /**
+     * @return класс размера блока: 0 - 64 байта, 1 - 128 байт ... последний - 1 Мб
+     */
+    private static int blockClass(int bytes) {
+        if (bytes > 1 << MAX_BLOCK_BITS) {
+            throw new ProductDBException("Product is too large for the cold file: " + bytes + " bytes");
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(bytes, 1 << BLOCK_BITS) - 1);
+        return bits - BLOCK_BITS;
+    }
+
+    private static long handle(long offset, int generation) {
+        return ((long) generation << 32) | (offset >>> BLOCK_BITS);
+    }
+
+    private static long offset(long handle) {
+        return (handle & 0xFFFFFFFFL) << BLOCK_BITS;
+    }
+
+    private static int generation(long handle) {
+        return (int) (handle >>> 32);
+    }
+}
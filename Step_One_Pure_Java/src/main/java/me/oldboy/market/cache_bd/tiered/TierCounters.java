@@ -0,0 +1,64 @@
+package me.oldboy.market.cache_bd.tiered;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Снимок счетчиков ярусного хранения товаров ({@link TieredProductStore}) для экрана статистики
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class TierCounters {
+    /**
+     * Политика "горячего" яруса
+     */
+    private final AdmissionPolicy policy;
+    /**
+     * Сколько товаров "горячий" ярус держит в памяти
+     */
+    private final int capacity;
+    /**
+     * Сколько товаров в нем сейчас
+     */
+    private final int size;
+    /**
+     * Чтения товара, найденного в памяти
+     */
+    private final long hits;
+    /**
+     * Чтения товара, которого не было в памяти (читается из файла)
+     */
+    private final long misses;
+    /**
+     * Товары, вытесненные из памяти (в том числе не допущенные в основную часть яруса)
+     */
+    private final long evictions;
+    /**
+     * Товары, не допущенные в основную часть яруса: их читают реже вытесняемых
+     */
+    private final long rejections;
+    /**
+     * Обращения к файлу "холодного" яруса на чтение
+     */
+    private final long diskReads;
+    /**
+     * Записи товаров в файл
+     */
+    private final long diskWrites;
+    /**
+     * Размер файла в байтах
+     */
+    private final long fileBytes;
+
+    /**
+     * @return доля чтений, найденных в памяти (0 - чтений не было)
+     */
+    public double hitRate() {
+        long reads = hits + misses;
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+}
@@ -0,0 +1,152 @@
+package me.oldboy.market.cache_bd.tiered;
+
+import me.oldboy.market.cache_bd.offheap.ProductRecordStore;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.function.IntFunction;
+
+/**
+ * Ярусное хранение товаров: все записи лежат в файле ({@link ProductColdFile}), а часто читаемые товары -
+ * еще и собранными объектами в ограниченном "горячем" ярусе в куче ({@link HotTier}). Размер каталога
+ * ограничен диском, а не -Xmx: в куче остаются handle записей, вторичные индексы и "горячий" ярус.
+ * <p>
+ * Запись на диск - сразу при изменении товара (записи неизменяемы, поэтому вытеснение из памяти ничего
+ * не пишет), в "горячий" ярус товар попадает при чтении - поиск по ID, по категории и брэнду и любые выборки
+ * {@link me.oldboy.market.cache_bd.ProductDB} читают товар через {@link #read}, промах прозрачно читает файл.
+ * <p>
+ * Свойства синглтона таблицы: products.tiered=true - включить, products.hotCapacity - емкость
+ * "горячего" яруса в товарах ({@value #DEFAULT_HOT_CAPACITY}), products.admission - TINY_LFU (по умолчанию)
+ * или LRU, products.coldFile - файл записей (по умолчанию - временный файл, удаляется при выходе).
+ */
+public final class TieredProductStore implements ProductRecordStore, Closeable {
+    /**
+     * Емкость "горячего" яруса по умолчанию
+     */
+    public static final int DEFAULT_HOT_CAPACITY = 100_000;
+
+    private final AdmissionPolicy policy;
+    private final HotTier hot;
+    private final ProductColdFile file;
+    private final ArrayDeque<long[]> retired = new ArrayDeque<>();
+    private int liveRecords;
+
+    /**
+     * @param file        файл записей (создается или очищается)
+     * @param hotCapacity сколько товаров держать в памяти
+     * @param policy      политика "горячего" яруса
+     * @param categories  категория по ее коду в записи
+     * @param brands      брэнд по его коду в записи
+     */
+    public TieredProductStore(Path file, int hotCapacity, AdmissionPolicy policy,
+                              IntFunction<Category> categories, IntFunction<Brand> brands) {
+        this.policy = policy;
+        this.hot = new HotTier(hotCapacity, policy);
+        this.file = new ProductColdFile(file, categories, brands);
+    }
+
+    /**
+     * @return фабрика хранилища для {@link me.oldboy.market.cache_bd.ProductDB}
+     */
+    public static Factory factory(Path file, int hotCapacity, AdmissionPolicy policy) {
+        return (categories, brands) -> new TieredProductStore(file, hotCapacity, policy, categories, brands);
+    }
+
+    /**
+     * @return фабрика хранилища по системным свойствам products.coldFile, products.hotCapacity, products.admission
+     */
+    public static Factory fromSystemProperties() {
+        String coldFile = System.getProperty("products.coldFile");
+        Path file;
+        if (coldFile != null) {
+            file = Path.of(coldFile);
+        } else {
+            try {
+                file = Files.createTempFile("products-cold", ".dat");
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create product cold file", e);
+            }
+            file.toFile().deleteOnExit();
+        }
+        return factory(file,
+                Integer.getInteger("products.hotCapacity", DEFAULT_HOT_CAPACITY),
+                AdmissionPolicy.valueOf(System.getProperty("products.admission", AdmissionPolicy.TINY_LFU.name())));
+    }
+
+    @Override
+    public long write(Product product, int categoryCode, int brandCode) {
+        long handle = file.write(product, categoryCode, brandCode);
+        synchronized (this) {
+            liveRecords++;
+        }
+        return handle;
+    }
+
+    @Override
+    public Product read(long handle) {
+        Product product = hot.get(handle);
+        if (product == null) {
+            product = file.read(handle);
+            if (product != null) {
+                hot.put(handle, product);
+            }
+        }
+        return product;
+    }
+
+    @Override
+    public double price(long handle) {
+        Product product = hot.peek(handle);
+        return product != null ? product.getPrice() : file.price(handle);
+    }
+
+    @Override
+    public synchronized void retire(long handle, long version) {
+        retired.addLast(new long[]{handle, version});
+    }
+
+    @Override
+    public synchronized void reclaim(long oldestReadVersion) {
+        while (!retired.isEmpty() && retired.peekFirst()[1] <= oldestReadVersion) {
+            long handle = retired.pollFirst()[0];
+            hot.remove(handle);
+            file.release(handle);
+            liveRecords--;
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return liveRecords;
+    }
+
+    @Override
+    public synchronized int retiredCount() {
+        return retired.size();
+    }
+
+    @Override
+    public long reservedBytes() {
+        return file.size();
+    }
+
+    /**
+     * @return снимок счетчиков попаданий, промахов, вытеснений и обращений к файлу
+     */
+    public TierCounters counters() {
+        return new TierCounters(policy, hot.capacity(), hot.size(), hot.hits(), hot.misses(),
+                hot.evictions(), hot.rejections(), file.reads(), file.writes(), file.size());
+    }
+
+    @Override
+    public void close() {
+        file.close();
+    }
+}
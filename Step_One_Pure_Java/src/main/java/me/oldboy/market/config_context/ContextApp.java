@@ -2,15 +2,21 @@ package me.oldboy.market.config_context;
 
 import lombok.Getter;
 import me.oldboy.market.cache_bd.*;
+import me.oldboy.market.cache_bd.audit.AuditWriter;
+import me.oldboy.market.cache_bd.journal.ProductJournal;
 import me.oldboy.market.cache_bd.loaders.*;
 import me.oldboy.market.controlers.LoginLogoutController;
 import me.oldboy.market.controlers.ProductCrudController;
+import me.oldboy.market.controlers.ProductImportController;
+import me.oldboy.market.controlers.view.ViewAuditAnalyticsController;
 import me.oldboy.market.controlers.view.ViewAuditRecordController;
 import me.oldboy.market.controlers.view.ViewBrandController;
 import me.oldboy.market.controlers.view.ViewCategoryController;
 import me.oldboy.market.controlers.view.ViewProductController;
+import me.oldboy.market.controlers.view.ViewStatisticsController;
 import me.oldboy.market.repository.*;
 import me.oldboy.market.services.AuditService;
+import me.oldboy.market.services.ProductImportService;
 import me.oldboy.market.services.ProductService;
 import me.oldboy.market.services.UserService;
 import me.oldboy.market.validator.InputExistChecker;
@@ -26,6 +32,12 @@ public class ContextApp {
     private CategoryDB categoryDB;
     private ProductDB productDB;
     private BrandDB brandDB;
+    /* Фоновая запись аудита */
+    private AuditWriter auditWriter;
+    /* Журнал изменений товаров */
+    private ProductJournal productJournal;
+    /* Время загрузки данных по этапам */
+    private StartupReport startupReport;
 
     /* Слой репозиториев (DAO) */
     private AuditRepository auditRepository;
@@ -36,14 +48,18 @@ public class ContextApp {
     /* Слой сервисов */
     private AuditService auditService;
     private ProductService productService;
+    private ProductImportService productImportService;
     private UserService userService;
     /* Слой контроллеров */
     private LoginLogoutController loginLogoutController;
     private ProductCrudController productCrudController;
+    private ProductImportController productImportController;
     private ViewProductController viewProductController;
     private ViewBrandController viewBrandController;
     private ViewCategoryController viewCategoryController;
     private ViewAuditRecordController viewAuditRecordController;
+    private ViewAuditAnalyticsController viewAuditAnalyticsController;
+    private ViewStatisticsController viewStatisticsController;
     /* Псевдо валидаторы */
     private InputExistChecker inputExistChecker;
 
@@ -54,12 +70,22 @@ public class ContextApp {
         this.brandDB = BrandDB.getINSTANCE();
         this.productDB = ProductDB.getINSTANCE();
         this.auditDB = AuditDB.getINSTANCE();
-        /* Прогружаем их данными */
-        UserDBLoader.initInMemoryBase(userDB);
-        CategoryDBLoader.initInMemoryBase(categoryDB);
-        BrandDBLoader.initInMemoryBase(brandDB);
-        ProductBDLoader.initInMemoryBase(productDB);
-        AuditDBLoader.initInMemoryBase(auditDB);
+        /*
+        Прогружаем их данными: независимые "таблицы" параллельно, товары - после категорий и брэндов,
+        на которые они ссылаются. История аудита нужна не в каждой сессии - она подгрузится при первом обращении.
+        */
+        this.startupReport = new StartupOrchestrator()
+                .stage("users", () -> UserDBLoader.initInMemoryBase(userDB))
+                .stage("categories", () -> CategoryDBLoader.initInMemoryBase(categoryDB))
+                .stage("brands", () -> BrandDBLoader.initInMemoryBase(brandDB))
+                .stage("products", () -> this.productJournal = ProductBDLoader.initInMemoryBase(productDB),
+                        "categories", "brands")
+                .deferred("audit")
+                .run();
+        auditDB.loadOnFirstAccess(AuditDBLoader::initInMemoryBase);
+        System.out.print(startupReport.format());
+        /* Аудит записи сохраняет фоновый поток, пользовательские операции его не ждут */
+        this.auditWriter = AuditDBLoader.startWriter(auditDB);
         /* Инициализируем слой репозиториев и прокидываем зависимости */
         this.userRepository = new UserRepository(userDB);
         this.productRepository = new ProductRepository(productDB);
@@ -69,14 +95,18 @@ public class ContextApp {
         /* Инициализируем слой сервисов и прокидываем зависимости */
         this.userService = new UserService(userRepository);
         this.productService = new ProductService(productRepository);
-        this.auditService = new AuditService(auditRepository);
+        this.productImportService = new ProductImportService(productRepository, categoryRepository, brandRepository);
+        this.auditService = new AuditService(auditRepository, auditWriter);
         /* Инициализируем слой контроллеров и прокидываем зависимости */
         this.loginLogoutController = new LoginLogoutController(userService, auditService);
         this.productCrudController = new ProductCrudController(productService, auditService);
+        this.productImportController = new ProductImportController(productImportService, auditService);
         this.viewProductController = new ViewProductController(productService);
         this.viewCategoryController = new ViewCategoryController(categoryRepository);
         this.viewBrandController = new ViewBrandController(brandRepository);
-        this.viewAuditRecordController = new ViewAuditRecordController(auditRepository);
+        this.viewAuditRecordController = new ViewAuditRecordController(auditService, productRepository);
+        this.viewAuditAnalyticsController = new ViewAuditAnalyticsController(auditService);
+        this.viewStatisticsController = new ViewStatisticsController(productService);
         /* Инициализируем псевдо-валидатор и прокидываем зависимости */
         this.inputExistChecker = new InputExistChecker(categoryRepository, brandRepository);
     }
@@ -0,0 +1,146 @@
+package me.oldboy.market.config_context;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Оркестратор запуска приложения: выполняет этапы загрузки данных с учетом зависимостей между ними.
+ * Этап запускается, как только завершены все этапы, от которых он зависит, поэтому независимые
+ * этапы (например, загрузка пользователей и каталога товаров) идут параллельно.
+ * <p>
+ * Зависимости указываются на уже объявленные этапы - так порядок объявления исключает циклы.
+ * Если этап упал, зависящие от него этапы не выполняются, а {@link #run()} бросает исключение этапа.
+ * Этапы, выполняемые позже по требованию (при первом обращении), объявляются через {@link #deferred}
+ * и попадают только в отчет.
+ */
+public class StartupOrchestrator {
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    /**
+     * Объявляет этап загрузки
+     *
+     * @param name      имя этапа (для отчета и зависимостей)
+     * @param action    действие этапа
+     * @param dependsOn имена ранее объявленных этапов, которые должны завершиться до начала этого
+     * @return этот оркестратор
+     * @throws IllegalArgumentException если имя занято или зависимость не объявлена
+     */
+    public StartupOrchestrator stage(String name, Runnable action, String... dependsOn) {
+        if (stages.containsKey(name)) {
+            throw new IllegalArgumentException("Stage " + name + " is already declared");
+        }
+        List<Stage> dependencies = new ArrayList<>();
+        for (String dependency : dependsOn) {
+            Stage stage = stages.get(dependency);
+            if (stage == null) {
+                throw new IllegalArgumentException("Stage " + name + " depends on undeclared stage " + dependency);
+            }
+            dependencies.add(stage);
+        }
+        stages.put(name, new Stage(name, action, dependencies));
+        return this;
+    }
+
+    /**
+     * Объявляет этап, который выполнится позже - при первом обращении к его данным
+     *
+     * @param name имя этапа
+     * @return этот оркестратор
+     */
+    public StartupOrchestrator deferred(String name) {
+        return stage(name, null);
+    }
+
+    /**
+     * Выполняет все этапы и дожидается их завершения
+     *
+     * @return отчет о времени выполнения этапов
+     * @throws RuntimeException исключение первого (в порядке объявления) упавшего этапа
+     */
+    public StartupReport run() {
+        int threads = Math.max(2, Math.min(stages.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new BootThreadFactory());
+        long start = System.nanoTime();
+        try {
+            Map<Stage, CompletableFuture<StartupReport.StageTiming>> futures = new LinkedHashMap<>();
+            for (Stage stage : stages.values()) {
+                CompletableFuture<?>[] before = stage.dependencies.stream()
+                        .map(futures::get)
+                        .toArray(CompletableFuture[]::new);
+                futures.put(stage, CompletableFuture.allOf(before).thenApplyAsync(done -> stage.run(start), executor));
+            }
+            /* Ждем все этапы, в том числе независимые от упавшего, и только потом сообщаем об ошибке */
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException ignored) {
+                /* Исключение первого упавшего этапа бросается ниже */
+            }
+            List<StartupReport.StageTiming> timings = new ArrayList<>();
+            for (CompletableFuture<StartupReport.StageTiming> future : futures.values()) {
+                timings.add(result(future));
+            }
+            return new StartupReport(timings, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static StartupReport.StageTiming result(CompletableFuture<StartupReport.StageTiming> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Startup stage failed", cause);
+        }
+    }
+
+    /**
+     * Этап загрузки: действие и этапы, от которых оно зависит
+     */
+    private static final class Stage {
+        private final String name;
+        /**
+         * null - этап отложен до первого обращения
+         */
+        private final Runnable action;
+        private final List<Stage> dependencies;
+
+        private Stage(String name, Runnable action, List<Stage> dependencies) {
+            this.name = name;
+            this.action = action;
+            this.dependencies = dependencies;
+        }
+
+        private StartupReport.StageTiming run(long bootStart) {
+            if (action == null) {
+                return StartupReport.StageTiming.deferred(name);
+            }
+            long started = System.nanoTime();
+            action.run();
+            long finished = System.nanoTime();
+            return new StartupReport.StageTiming(name, TimeUnit.NANOSECONDS.toMillis(started - bootStart),
+                    TimeUnit.NANOSECONDS.toMillis(finished - started), Thread.currentThread().getName());
+        }
+    }
+
+    /**
+     * Потоки загрузки - демоны с узнаваемыми именами
+     */
+    private static final class BootThreadFactory implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "boot-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package me.oldboy.market.config_context;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Отчет о запуске приложения: время начала и длительность каждого этапа загрузки.
+ * Сумма длительностей больше общего времени, если этапы шли параллельно.
+ */
+@Getter
+@AllArgsConstructor
+public class StartupReport {
+    /**
+     * Этапы в порядке объявления
+     */
+    private final List<StageTiming> stages;
+    /**
+     * Общее время загрузки, мс
+     */
+    private final long totalMillis;
+
+    /**
+     * @return таблица этапов для вывода в консоль
+     */
+    public String format() {
+        long sum = stages.stream().mapToLong(StageTiming::getDurationMillis).sum();
+        StringBuilder report = new StringBuilder()
+                .append("Загрузка данных: ").append(totalMillis).append(" мс (сумма этапов ").append(sum).append(" мс)\n")
+                .append(String.format("  %-12s | %9s | %16s | %s%n", "этап", "старт, мс", "длительность, мс", "поток"));
+        for (StageTiming stage : stages) {
+            if (stage.isDeferred()) {
+                report.append(String.format("  %-12s | при первом обращении%n", stage.getName()));
+            } else {
+                report.append(String.format("  %-12s | %9d | %16d | %s%n", stage.getName(), stage.getStartMillis(),
+                        stage.getDurationMillis(), stage.getThread()));
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Время выполнения одного этапа
+     */
+    public static final class StageTiming {
+        private final String name;
+        private final long startMillis;
+        private final long durationMillis;
+        private final String thread;
+
+        public StageTiming(String name, long startMillis, long durationMillis, String thread) {
+            this.name = name;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+            this.thread = thread;
+        }
+
+        /**
+         * @return этап, отложенный до первого обращения к его данным
+         */
+        public static StageTiming deferred(String name) {
+            return new StageTiming(name, 0, 0, null);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return начало этапа от старта загрузки, мс
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * @return имя потока, выполнившего этап, null - этап отложен
+         */
+        public String getThread() {
+            return thread;
+        }
+
+        public boolean isDeferred() {
+            return thread == null;
+        }
+    }
+}
@@ -42,10 +42,12 @@ public class LoginLogoutController {
 
     /**
      * Передает в аудит-логер электронную почту пользователя при выходе из системы
+     * и дожидается сохранения всех аудит записей сеанса
      *
      * @param email электронная почта пользователя завершившего работу с системой
      */
     public void logOut(String email) {
         auditService.saveAuditRecord(Action.LOGOUT, Status.SUCCESS, email, null);
+        auditService.flush();
     }
 }
\ No newline at end of file
@@ -50,8 +50,9 @@ public class ProductCrudController {
             if (foundProduct.getCategory().equals(product.getCategory()) &&
                     foundProduct.getBrand().equals(product.getBrand())) {
 
+                Product beforeUpdate = cloneProduct(foundProduct);
                 productService.updateProduct(product);
-                auditService.saveAuditRecord(Action.UPDATE_PRODUCT, Status.SUCCESS, email, product);
+                auditService.saveAuditRecord(Action.UPDATE_PRODUCT, Status.SUCCESS, email, beforeUpdate, product);
             } else {
                 throw new ProductCrudControllerException("Unable to update category or brand, please create a new product.");
             }
@@ -71,7 +72,7 @@ public class ProductCrudController {
     public boolean deleteProduct(Long productId, String email) {
         boolean isDelete = false;
         try {
-            Product toAuditRecord = cloneProduct(productService.findProductById(productId));
+            Product toAuditRecord = productService.findProductById(productId);
             isDelete = productService.deleteProduct(productId);
             if (isDelete) {
                 auditService.saveAuditRecord(Action.DELETE_PRODUCT, Status.SUCCESS, email, toAuditRecord);
@@ -100,10 +101,10 @@ public class ProductCrudController {
     }
 
     /**
-     * Клонирует товар для целей аудита в процессе удаления
+     * Клонирует товар для целей аудита: состояние до обновления нужно, чтобы записать в аудит только изменения
      *
-     * @param product оригинальный товар для клонирования перед удалением
-     * @return полный клон товара сохраняемый в "кэш таблицы" аудита.
+     * @param product оригинальный товар для клонирования перед обновлением
+     * @return полный клон товара
      */
     private Product cloneProduct(Product product) {
         Product cloneProd = Product.builder()
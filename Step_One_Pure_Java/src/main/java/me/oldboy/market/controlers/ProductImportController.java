@@ -0,0 +1,47 @@
+package me.oldboy.market.controlers;
+
+import lombok.AllArgsConstructor;
+import me.oldboy.market.entity.ImportReport;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+import me.oldboy.market.exceptions.WrongEnteredDataFormatException;
+import me.oldboy.market.services.AuditService;
+import me.oldboy.market.services.ProductImportService;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Класс запускает пакетный импорт товаров из CSV файла и записывает в аудит-лог одну итоговую
+ * запись на весь импорт (а не запись на каждый товар).
+ */
+@AllArgsConstructor
+public class ProductImportController {
+    private ProductImportService productImportService;
+    private AuditService auditService;
+
+    /**
+     * Импортирует товары из CSV файла (UTF-8)
+     *
+     * @param file  путь к файлу
+     * @param email электронный адрес пользователя, запустившего импорт
+     * @return итог импорта или null, если файл не прочитан
+     */
+    public ImportReport importProducts(Path file, String email) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            ImportReport report = productImportService.importCsv(reader, file.getFileName().toString());
+            /* Частично отклоненный файл - успешный импорт, отклоненные строки перечислены в итоге */
+            Status status = report.getImported() > 0 || report.getRejected() == 0 ? Status.SUCCESS : Status.FAIL;
+            auditService.saveSummaryRecord(Action.IMPORT_PRODUCTS, status, email, report.summary());
+            return report;
+        } catch (IOException | WrongEnteredDataFormatException e) {
+            auditService.saveSummaryRecord(Action.IMPORT_PRODUCTS, Status.FAIL, email,
+                    "Импорт " + file + ": " + e.getMessage());
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+}
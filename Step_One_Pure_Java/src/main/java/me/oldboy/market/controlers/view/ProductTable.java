@@ -0,0 +1,185 @@
+package me.oldboy.market.controlers.view;
+
+import me.oldboy.market.cache_bd.query.ProductSort;
+import me.oldboy.market.entity.Product;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Постраничная таблица товаров для консоли. Держит снимок списка товаров (массив ссылок, сами товары
+ * не копируются), страница - срез этого массива, поэтому переход между страницами не зависит от размера
+ * списка. Сортировка по колонке выполняется один раз при ее смене. Страница собирается в буфер и выводится
+ * одной записью.
+ */
+public class ProductTable {
+    /**
+     * Размер страницы по умолчанию
+     */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final String LINE = "-----------------------------------------------------------------------------";
+    private static final String ROW_FORMAT = "%-8s | %-24s | %-12s | %-12s | %10s | %7s%n";
+    private static final int NAME_WIDTH = 24;
+    private static final int SPECIES_WIDTH = 12;
+
+    private final String title;
+    private final Product[] rows;
+    private final int pageSize;
+    private final PrintStream out;
+    private int page = 1;
+    private ProductSort sort;
+
+    /**
+     * @param title    заголовок таблицы
+     * @param products товары в порядке вывода
+     * @param pageSize сколько строк на странице
+     * @param out      поток вывода
+     */
+    public ProductTable(String title, Collection<Product> products, int pageSize, PrintStream out) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.title = title;
+        this.rows = products.toArray(new Product[0]);
+        this.pageSize = pageSize;
+        this.out = out;
+    }
+
+    /**
+     * Таблица со страницей по умолчанию, выводимая в System.out
+     */
+    public ProductTable(String title, Collection<Product> products) {
+        this(title, products, DEFAULT_PAGE_SIZE, System.out);
+    }
+
+    /**
+     * @return число товаров в таблице
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * @return число страниц, у пустой таблицы - одна пустая страница
+     */
+    public int pageCount() {
+        return Math.max(1, (rows.length + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * @return номер текущей страницы, начиная с 1
+     */
+    public int page() {
+        return page;
+    }
+
+    /**
+     * @return текущая сортировка, null - исходный порядок
+     */
+    public ProductSort sort() {
+        return sort;
+    }
+
+    /**
+     * Переходит на следующую страницу
+     *
+     * @return false - текущая страница последняя, переход не выполнен
+     */
+    public boolean next() {
+        return jump(page + 1);
+    }
+
+    /**
+     * Переходит на предыдущую страницу
+     *
+     * @return false - текущая страница первая, переход не выполнен
+     */
+    public boolean previous() {
+        return jump(page - 1);
+    }
+
+    /**
+     * Переходит на страницу с заданным номером
+     *
+     * @param number номер страницы, начиная с 1
+     * @return false - страницы с таким номером нет, текущая страница не меняется
+     */
+    public boolean jump(int number) {
+        if (number < 1 || number > pageCount()) {
+            return false;
+        }
+        page = number;
+        return true;
+    }
+
+    /**
+     * Упорядочивает таблицу по колонке и возвращается на первую страницу
+     *
+     * @param sort порядок товаров
+     */
+    public void sortBy(ProductSort sort) {
+        if (sort != this.sort) {
+            Arrays.parallelSort(rows, sort.comparator());
+            this.sort = sort;
+        }
+        page = 1;
+    }
+
+    /**
+     * @return товары текущей страницы
+     */
+    public List<Product> pageRows() {
+        int from = (page - 1) * pageSize;
+        return Arrays.asList(rows).subList(from, Math.min(from + pageSize, rows.length));
+    }
+
+    /**
+     * @return текст текущей страницы: заголовок, строки товаров и номер страницы
+     */
+    public String renderPage() {
+        StringBuilder text = new StringBuilder(256 + pageSize * 96);
+        text.append(LINE).append(System.lineSeparator())
+                .append(System.lineSeparator()).append(title).append(System.lineSeparator())
+                .append(System.lineSeparator());
+        if (rows.length == 0) {
+            text.append("Товары не найдены").append(System.lineSeparator());
+        } else {
+            text.append(String.format(ROW_FORMAT, "ID", "Название", "Категория", "Брэнд", "Цена", "Остаток"));
+            for (Product product : pageRows()) {
+                text.append(String.format(Locale.ROOT, ROW_FORMAT,
+                        product.getId(),
+                        cut(product.getName(), NAME_WIDTH),
+                        cut(product.getCategory() == null ? null : product.getCategory().getName(), SPECIES_WIDTH),
+                        cut(product.getBrand() == null ? null : product.getBrand().getName(), SPECIES_WIDTH),
+                        String.format(Locale.ROOT, "%.2f", product.getPrice()),
+                        product.getStockQuantity()));
+            }
+            text.append(System.lineSeparator())
+                    .append("Страница ").append(page).append(" из ").append(pageCount())
+                    .append(" (товаров: ").append(rows.length)
+                    .append(sort == null ? "" : ", сортировка: " + sort)
+                    .append(')').append(System.lineSeparator());
+        }
+        text.append(LINE).append(System.lineSeparator());
+        return text.toString();
+    }
+
+    /**
+     * Выводит текущую страницу одной записью в поток вывода
+     */
+    public void print() {
+        out.print(renderPage());
+        out.flush();
+    }
+
+    private static String cut(String value, int width) {
+        if (value == null) {
+            return "";
+        }
+        return value.length() <= width ? value : value.substring(0, width - 1) + "~";
+    }
+}
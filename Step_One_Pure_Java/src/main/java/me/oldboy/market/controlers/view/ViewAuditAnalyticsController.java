@@ -0,0 +1,100 @@
+package me.oldboy.market.controlers.view;
+
+import lombok.AllArgsConstructor;
+import me.oldboy.market.cache_bd.audit.RollupPoint;
+import me.oldboy.market.cache_bd.audit.RollupUnit;
+import me.oldboy.market.cache_bd.audit.UserActivity;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+import me.oldboy.market.services.AuditService;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс для отображения аналитики аудита. Все отчеты строятся по сводкам аудита (минуты, часы),
+ * сами аудит записи не читаются - сколько бы их ни накопилось.
+ */
+@AllArgsConstructor
+public class ViewAuditAnalyticsController {
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+    private AuditService auditService;
+
+    /**
+     * Отображает число действий каждого вида за период: всего и неудачных
+     *
+     * @param from   начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to     конец периода (не включая)
+     * @param period название периода для заголовка
+     * @return число действий по видам
+     */
+    public Map<Action, Long> printActionSummary(long from, long to, String period) {
+        Map<Action, Long> total = auditService.getActionCounts(from, to, null);
+        Map<Action, Long> failed = auditService.getActionCounts(from, to, Status.FAIL);
+        System.out.println("-----------------------------------------------------------------------------");
+        System.out.println("\nДействия пользователей " + period + ":\n");
+        if (total.isEmpty()) {
+            System.out.println("Действий не было");
+        } else {
+            System.out.printf("%-16s | %8s | %10s%n", "действие", "всего", "неудачно");
+            total.forEach((action, count) ->
+                    System.out.printf("%-16s | %8d | %10d%n", action, count, failed.getOrDefault(action, 0L)));
+        }
+        System.out.println("-----------------------------------------------------------------------------");
+        return total;
+    }
+
+    /**
+     * Отображает число действий по корзинам времени, например неудачные изменения товаров по часам
+     *
+     * @param unit   шаг (минута или час)
+     * @param from   начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to     конец периода (не включая)
+     * @param action действие, null - любое
+     * @param status статус, null - любой
+     * @param title  заголовок отчета
+     * @return непустые корзины по возрастанию времени
+     */
+    public List<RollupPoint> printActivityByTime(RollupUnit unit, long from, long to, Action action, Status status,
+                                                 String title) {
+        List<RollupPoint> points = auditService.getActivityByTime(unit, from, to, action, status);
+        System.out.println("-----------------------------------------------------------------------------");
+        System.out.println("\n" + title + ":\n");
+        if (points.isEmpty()) {
+            System.out.println("Действий не было");
+        } else {
+            points.forEach(point -> System.out.printf("%s | %6d%n", BUCKET_FORMAT.format(
+                    Instant.ofEpochMilli(point.getBucketStart()).atZone(ZoneId.systemDefault())), point.getCount()));
+        }
+        System.out.println("-----------------------------------------------------------------------------");
+        return points;
+    }
+
+    /**
+     * Отображает самых активных пользователей за период
+     *
+     * @param from   начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to     конец периода (не включая)
+     * @param limit  сколько пользователей показать
+     * @param period название периода для заголовка
+     * @return пользователи по убыванию числа действий
+     */
+    public List<UserActivity> printMostActiveUsers(long from, long to, int limit, String period) {
+        List<UserActivity> users = auditService.getMostActiveUsers(from, to, limit);
+        System.out.println("-----------------------------------------------------------------------------");
+        System.out.println("\nСамые активные пользователи " + period + ":\n");
+        if (users.isEmpty()) {
+            System.out.println("Действий не было");
+        } else {
+            System.out.printf("%-30s | %8s | %10s%n", "пользователь", "действий", "неудачно");
+            users.forEach(user ->
+                    System.out.printf("%-30s | %8d | %10d%n", user.getUserEmail(), user.getTotal(), user.getFailed()));
+        }
+        System.out.println("-----------------------------------------------------------------------------");
+        return users;
+    }
+}
@@ -2,7 +2,9 @@ package me.oldboy.market.controlers.view;
 
 import lombok.AllArgsConstructor;
 import me.oldboy.market.entity.Audit;
-import me.oldboy.market.repository.AuditRepository;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.repository.ProductRepository;
+import me.oldboy.market.services.AuditService;
 
 import java.util.List;
 
@@ -11,18 +13,30 @@ import java.util.List;
  */
 @AllArgsConstructor
 public class ViewAuditRecordController {
-    private AuditRepository auditRepository;
+    private AuditService auditService;
+    private ProductRepository productRepository;
 
     /**
-     * Метод отображает все доступные аудит записи
+     * Метод отображает все доступные аудит записи, включая еще не сохраненные фоновой записью.
+     * Записи хранят только ID товара и изменения, сам товар подгружается из "кэша" товаров только здесь,
+     * при отображении.
      *
      * @return коллекцию аудит Audit объектов, записей о действиях пользователей в системе
      */
     public List<Audit> printAllAuditRecord() {
-        List<Audit> allAud = auditRepository.findAll();
+        List<Audit> allAud = auditService.findAllAuditRecord();
         System.out.println("---------------------------------------------------------------------");
-        allAud.forEach(System.out::println);
+        allAud.forEach(audit -> System.out.println(describe(audit)));
         System.out.println("---------------------------------------------------------------------");
         return allAud;
     }
-}
\ No newline at end of file
+
+    private String describe(Audit audit) {
+        if (audit.getProductId() == null) {
+            return audit.toString();
+        }
+        return audit + " -> " + productRepository.findById(audit.getProductId())
+                .map(Product::toString)
+                .orElse("товар удален из каталога");
+    }
+}
@@ -2,6 +2,8 @@ package me.oldboy.market.controlers.view;
 
 import lombok.AllArgsConstructor;
 import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.ProductCursor;
+import me.oldboy.market.entity.ProductPage;
 import me.oldboy.market.entity.prod_species.Brand;
 import me.oldboy.market.entity.prod_species.Category;
 import me.oldboy.market.exceptions.ProductServiceException;
@@ -14,16 +16,28 @@ import java.util.List;
  */
 @AllArgsConstructor
 public class ViewProductController {
+    /**
+     * Сколько наиболее релевантных товаров показывать при поиске по тексту
+     */
+    private static final int TEXT_SEARCH_LIMIT = 20;
+    /**
+     * Размер страницы при постраничном выводе (диапазон цен, отчет об остатках)
+     */
+    private static final int PAGE_SIZE = 10;
+    /**
+     * Сколько самых дешевых товаров категории показывать
+     */
+    private static final int CHEAPEST_LIMIT = 10;
+
     private ProductService productService;
 
     /**
-     * Отображает список всех доступных продуктов.
+     * Отображает первую страницу таблицы всех доступных продуктов.
+     *
+     * @return таблица всех продуктов для листания
      */
-    public void viewAllProduct() {
-        System.out.println("-----------------------------------------------------------------------------");
-        System.out.println("\nСписок товаров:\n");
-        productService.getAllProduct().forEach(System.out::println);
-        System.out.println("-----------------------------------------------------------------------------");
+    public ProductTable viewAllProduct() {
+        return printTable("Список товаров:", productService.getAllProduct());
     }
 
     /**
@@ -82,30 +96,113 @@ public class ViewProductController {
     }
 
     /**
-     * Отображает все продукты Product принадлежащих к категории Category
+     * Отображает продукты Product, найденные по словам из названия и описания, в порядке релевантности
+     *
+     * @param query текст запроса
+     * @return список найденных продуктов Product
+     */
+    public List<Product> findProductsByText(String query) {
+        List<Product> found = productService.searchProductsByText(query, TEXT_SEARCH_LIMIT);
+        if (found.isEmpty()) {
+            System.out.println("-----------------------------------------------------------------------------");
+            System.out.println("\nПо запросу '" + query + "' товары не найдены");
+            System.out.println("-----------------------------------------------------------------------------");
+        } else {
+            System.out.print(renderRows("По запросу '" + query + "' найдено (наиболее подходящие первыми):", found));
+        }
+        return found;
+    }
+
+    /**
+     * Отображает страницу продуктов Product с ценой в диапазоне [minPrice, maxPrice]
+     *
+     * @param minPrice минимальная цена
+     * @param maxPrice максимальная цена
+     * @param after    позиция конца предыдущей страницы, null - первая страница
+     * @return позиция для следующей страницы, null - если страница последняя
+     */
+    public ProductCursor findProductsByPriceRange(double minPrice, double maxPrice, ProductCursor after) {
+        try {
+            return printPage("Товары с ценой от " + minPrice + " до " + maxPrice + " (по возрастанию цены):",
+                    productService.findProductsByPriceRange(minPrice, maxPrice, after, PAGE_SIZE));
+        } catch (ProductServiceException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Отображает самые дешевые продукты Product категории Category
      *
      * @param category категория для поиска
-     * @return список всех продуктов Product указанной категории Category
+     * @return список продуктов Product по возрастанию цены
      */
-    public List<Product> findProductByCategory(Category category) {
-        System.out.println("-----------------------------------------------------------------------------");
-        System.out.println("\nСписок товаров по категории" + category.getName() + " :\n");
-        productService.findProductByCategory(category).forEach(System.out::println);
-        System.out.println("-----------------------------------------------------------------------------");
-        return productService.findProductByCategory(category);
+    public List<Product> findCheapestProductsByCategory(Category category) {
+        List<Product> found = productService.findCheapestProductsByCategory(category, CHEAPEST_LIMIT);
+        if (found.isEmpty()) {
+            System.out.println("-----------------------------------------------------------------------------");
+            System.out.println("\nВ категории " + category.getName() + " товаров нет");
+            System.out.println("-----------------------------------------------------------------------------");
+        } else {
+            System.out.print(renderRows("Самые дешевые товары категории " + category.getName() + " :", found));
+        }
+        return found;
+    }
+
+    /**
+     * Отображает страницу отчета об остатках - продукты Product с остатком меньше порога
+     *
+     * @param threshold порог остатка (не включая)
+     * @param after     позиция конца предыдущей страницы, null - первая страница
+     * @return позиция для следующей страницы, null - если страница последняя
+     */
+    public ProductCursor findLowStockProducts(int threshold, ProductCursor after) {
+        try {
+            return printPage("Товары с остатком меньше " + threshold + " (по возрастанию остатка):",
+                    productService.findLowStockProducts(threshold, after, PAGE_SIZE));
+        } catch (ProductServiceException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Отображает первую страницу таблицы продуктов Product принадлежащих к категории Category
+     *
+     * @param category категория для поиска
+     * @return таблица всех продуктов Product указанной категории Category для листания
+     */
+    public ProductTable findProductByCategory(Category category) {
+        return printTable("Список товаров по категории " + category.getName() + " :",
+                productService.findProductByCategory(category));
     }
 
     /**
-     * Отображает все продукты Product принадлежащих брэнду Brand
+     * Отображает первую страницу таблицы продуктов Product принадлежащих брэнду Brand
      *
      * @param brand брэнд для поиска
-     * @return список всех продуктов Product указанного брэнда Brand
+     * @return таблица всех продуктов Product указанного брэнда Brand для листания
      */
-    public List<Product> findProductByBrand(Brand brand) {
-        System.out.println("-----------------------------------------------------------------------------");
-        System.out.println("\nСписок товаров по брэнду" + brand.getName() + " :\n");
-        productService.findProductByBrand(brand).forEach(System.out::println);
-        System.out.println("-----------------------------------------------------------------------------");
-        return productService.findProductByBrand(brand);
+    public ProductTable findProductByBrand(Brand brand) {
+        return printTable("Список товаров по брэнду " + brand.getName() + " :",
+                productService.findProductByBrand(brand));
+    }
+
+    private ProductTable printTable(String title, List<Product> products) {
+        ProductTable table = new ProductTable(title, products);
+        table.print();
+        return table;
+    }
+
+    private ProductCursor printPage(String title, ProductPage page) {
+        System.out.print(renderRows(title, page.getProducts()));
+        return page.getNext();
+    }
+
+    /**
+     * @return текст таблицы из одной страницы - весь список целиком
+     */
+    private String renderRows(String title, List<Product> products) {
+        return new ProductTable(title, products, Math.max(1, products.size()), System.out).renderPage();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package me.oldboy.market.controlers.view;
+
+import lombok.AllArgsConstructor;
+import me.oldboy.market.cache_bd.stats.ProductStats;
+import me.oldboy.market.cache_bd.tiered.TierCounters;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import me.oldboy.market.services.ProductService;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Класс для отображения сводок по каталогу: по всему каталогу, по категориям и по брэндам.
+ * Сводки поддерживаются при каждом изменении товаров, поэтому экран не просматривает товары.
+ * При ярусном хранении товаров экран показывает и счетчики кэша товаров.
+ */
+@AllArgsConstructor
+public class ViewStatisticsController {
+    private static final String ROW_FORMAT = "%-24s | %8s | %10s | %16s | %10s | %10s%n";
+    private static final String COUNTER_FORMAT = "%-24s | %16s%n";
+
+    private ProductService productService;
+
+    /**
+     * Отображает сводку по каталогу и таблицы сводок по категориям и брэндам
+     */
+    public void printCatalogStatistics() {
+        System.out.println("-----------------------------------------------------------------------------");
+        System.out.println("\nСтатистика каталога:\n");
+        printHeader("");
+        printRow("Весь каталог", productService.getCatalogStats());
+
+        System.out.println("\nПо категориям:\n");
+        printTable("категория", productService.getStatsByCategory(), Category::getName);
+
+        System.out.println("\nПо брэндам:\n");
+        printTable("брэнд", productService.getStatsByBrand(), Brand::getName);
+
+        productService.getTierCounters().ifPresent(this::printTierCounters);
+        System.out.println("-----------------------------------------------------------------------------");
+    }
+
+    private void printTierCounters(TierCounters counters) {
+        System.out.println("\nКэш товаров (" + counters.getPolicy() + "):\n");
+        System.out.printf(COUNTER_FORMAT, "в памяти / емкость", counters.getSize() + " / " + counters.getCapacity());
+        System.out.printf(COUNTER_FORMAT, "попадания", counters.getHits());
+        System.out.printf(COUNTER_FORMAT, "промахи", counters.getMisses());
+        System.out.printf(COUNTER_FORMAT, "доля попаданий", String.format("%.1f%%", counters.hitRate() * 100));
+        System.out.printf(COUNTER_FORMAT, "вытеснено", counters.getEvictions());
+        System.out.printf(COUNTER_FORMAT, "не допущено", counters.getRejections());
+        System.out.printf(COUNTER_FORMAT, "чтений с диска", counters.getDiskReads());
+        System.out.printf(COUNTER_FORMAT, "записей на диск", counters.getDiskWrites());
+        System.out.printf(COUNTER_FORMAT, "файл, Мб", String.format("%.1f", counters.getFileBytes() / 1048576.0));
+    }
+
+    private <K> void printTable(String title, Map<K, ProductStats> stats, Function<K, String> name) {
+        if (stats.isEmpty()) {
+            System.out.println("Товаров нет");
+            return;
+        }
+        printHeader(title);
+        stats.forEach((key, value) -> printRow(name.apply(key), value));
+    }
+
+    private void printHeader(String title) {
+        System.out.printf(ROW_FORMAT, title, "товаров", "остаток", "стоимость", "мин. цена", "макс. цена");
+    }
+
+    private void printRow(String title, ProductStats stats) {
+        System.out.printf(ROW_FORMAT, title, stats.getCount(), stats.getTotalStock(),
+                String.format("%.2f", stats.getInventoryValue()), price(stats.getMinPrice()), price(stats.getMaxPrice()));
+    }
+
+    private static String price(Double price) {
+        return price == null ? "-" : String.format("%.2f", price);
+    }
+}
@@ -4,6 +4,8 @@ import lombok.*;
 import me.oldboy.market.entity.log_enum.Action;
 import me.oldboy.market.entity.log_enum.Status;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 /**
@@ -40,8 +42,39 @@ public class Audit implements Serializable {
      */
     private Status isSuccess;
     /**
-     * Товар, над которым было выполнено действие.
+     * ID товара, над которым было выполнено действие.
      * Может быть null для действий, не связанных с товаром, например LogIn/LogOut
      */
-    private Product product;
+    private Long productId;
+    /**
+     * Поля товара: при обновлении - только изменившиеся, при создании и удалении - все.
+     * Сам товар по productId подгружается только при отображении записи.
+     */
+    private ProductDelta productDelta;
+    /**
+     * Итог пакетной операции, не относящейся к одному товару (например, импорта товаров).
+     * Для операций с одним товаром и входа/выхода - null.
+     */
+    private String summary;
+
+    /**
+     * Читает и записи прежнего формата (audit.sr), хранившие товар целиком в поле product
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = (Long) fields.get("id", null);
+        timestamp = (Long) fields.get("timestamp", null);
+        userEmail = (String) fields.get("userEmail", null);
+        action = (Action) fields.get("action", null);
+        isSuccess = (Status) fields.get("isSuccess", null);
+        if (fields.getObjectStreamClass().getField("product") != null) {
+            Product product = (Product) fields.get("product", null);
+            productId = product == null ? null : product.getId();
+            productDelta = product == null ? null : ProductDelta.of(product);
+        } else {
+            productId = (Long) fields.get("productId", null);
+            productDelta = (ProductDelta) fields.get("productDelta", null);
+        }
+        summary = (String) fields.get("summary", null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package me.oldboy.market.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Итог пакетного импорта товаров: сколько строк прочитано, добавлено и отклонено,
+ * первые ошибки разбора и время импорта.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ImportReport {
+    /**
+     * Источник данных (например, имя файла)
+     */
+    private final String source;
+    /**
+     * Прочитано строк с данными (без заголовка и пустых строк)
+     */
+    private final long rows;
+    /**
+     * Добавлено товаров
+     */
+    private final long imported;
+    /**
+     * Отклонено строк (ошибка формата, неизвестная категория или брэнд, повтор товара)
+     */
+    private final long rejected;
+    /**
+     * Первые ошибки с номерами строк файла (не все, если ошибок много)
+     */
+    private final List<String> errors;
+    /**
+     * Время импорта, мс
+     */
+    private final long elapsedMillis;
+
+    /**
+     * @return скорость импорта, строк в секунду
+     */
+    public long rowsPerSecond() {
+        return elapsedMillis == 0 ? rows * 1000 : rows * 1000 / elapsedMillis;
+    }
+
+    /**
+     * @return итог одной строкой (для консоли и записи аудита)
+     */
+    public String summary() {
+        return "Импорт " + source + ": строк " + rows + ", добавлено " + imported + ", отклонено " + rejected
+                + ", " + elapsedMillis + " мс (" + rowsPerSecond() + " строк/с)";
+    }
+}
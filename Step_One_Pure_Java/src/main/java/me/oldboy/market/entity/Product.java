@@ -60,7 +60,7 @@ public class Product implements Serializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Product product = (Product) o;
-        return id == product.id && Double.compare(product.price, price) == 0 && stockQuantity == product.stockQuantity && lastModifiedTimestamp == product.lastModifiedTimestamp && Objects.equals(name, product.name) && Objects.equals(category, product.category) && Objects.equals(brand, product.brand) && Objects.equals(description, product.description);
+        return Objects.equals(id, product.id) && Double.compare(product.price, price) == 0 && stockQuantity == product.stockQuantity && lastModifiedTimestamp == product.lastModifiedTimestamp && Objects.equals(name, product.name) && Objects.equals(category, product.category) && Objects.equals(brand, product.brand) && Objects.equals(description, product.description);
     }
 
     @Override
@@ -0,0 +1,26 @@
+package me.oldboy.market.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Позиция в упорядоченной выборке товаров (по цене, по остатку) - значение ключа сортировки
+ * и ID последнего показанного товара. Следующая страница начинается сразу после этой позиции,
+ * поэтому добавление и удаление товаров между запросами страниц не сдвигает и не дублирует выдачу.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class ProductCursor {
+    /**
+     * Значение ключа сортировки (цена или остаток) последнего товара страницы
+     */
+    private final double key;
+    /**
+     * ID последнего товара страницы
+     */
+    private final Long productId;
+}
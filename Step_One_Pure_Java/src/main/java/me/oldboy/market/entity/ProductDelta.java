@@ -0,0 +1,96 @@
+package me.oldboy.market.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Компактный "снимок" полей товара для записи аудита: только изменившиеся поля (при обновлении)
+ * либо все поля (при создании и удалении). Категория и брэнд хранятся по ID, сам товар -
+ * по ID в записи аудита, поэтому аудит не удерживает в памяти объекты товаров.
+ * Какие поля заданы - определяет битовая маска {@link #getFields()}.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class ProductDelta implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int NAME = 1;
+    public static final int PRICE = 1 << 1;
+    public static final int CATEGORY = 1 << 2;
+    public static final int BRAND = 1 << 3;
+    public static final int DESCRIPTION = 1 << 4;
+    public static final int STOCK = 1 << 5;
+    public static final int ALL = NAME | PRICE | CATEGORY | BRAND | DESCRIPTION | STOCK;
+
+    /**
+     * Битовая маска заданных полей
+     */
+    private final int fields;
+    private final String name;
+    private final double price;
+    private final Integer categoryId;
+    private final Integer brandId;
+    private final String description;
+    private final int stockQuantity;
+
+    /**
+     * @param product товар
+     * @return все поля товара
+     */
+    public static ProductDelta of(Product product) {
+        return new ProductDelta(ALL, product.getName(), product.getPrice(),
+                product.getCategory() == null ? null : product.getCategory().getId(),
+                product.getBrand() == null ? null : product.getBrand().getId(),
+                product.getDescription(), product.getStockQuantity());
+    }
+
+    /**
+     * @param before товар до изменения
+     * @param after  товар после изменения
+     * @return только изменившиеся поля, с новыми значениями
+     */
+    public static ProductDelta between(Product before, Product after) {
+        ProductDelta full = of(after);
+        int changed = 0;
+        if (!Objects.equals(before.getName(), after.getName())) changed |= NAME;
+        if (Double.compare(before.getPrice(), after.getPrice()) != 0) changed |= PRICE;
+        if (!Objects.equals(before.getCategory(), after.getCategory())) changed |= CATEGORY;
+        if (!Objects.equals(before.getBrand(), after.getBrand())) changed |= BRAND;
+        if (!Objects.equals(before.getDescription(), after.getDescription())) changed |= DESCRIPTION;
+        if (before.getStockQuantity() != after.getStockQuantity()) changed |= STOCK;
+
+        return new ProductDelta(changed,
+                (changed & NAME) != 0 ? full.name : null,
+                (changed & PRICE) != 0 ? full.price : 0,
+                (changed & CATEGORY) != 0 ? full.categoryId : null,
+                (changed & BRAND) != 0 ? full.brandId : null,
+                (changed & DESCRIPTION) != 0 ? full.description : null,
+                (changed & STOCK) != 0 ? full.stockQuantity : 0);
+    }
+
+    /**
+     * @param field одно из полей-флагов (NAME, PRICE ...)
+     * @return true - если поле задано
+     */
+    public boolean has(int field) {
+        return (fields & field) != 0;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        if (has(NAME)) joiner.add("name='" + name + "'");
+        if (has(PRICE)) joiner.add("price=" + price);
+        if (has(CATEGORY)) joiner.add("categoryId=" + categoryId);
+        if (has(BRAND)) joiner.add("brandId=" + brandId);
+        if (has(DESCRIPTION)) joiner.add("description='" + description + "'");
+        if (has(STOCK)) joiner.add("stockQuantity=" + stockQuantity);
+        return joiner.toString();
+    }
+}
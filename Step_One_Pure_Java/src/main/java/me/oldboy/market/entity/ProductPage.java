@@ -0,0 +1,28 @@
+package me.oldboy.market.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Страница упорядоченной выборки товаров
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ProductPage {
+    /**
+     * Товары страницы
+     */
+    private final List<Product> products;
+    /**
+     * Позиция для запроса следующей страницы, null - если страница последняя
+     */
+    private final ProductCursor next;
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
@@ -28,5 +28,10 @@ public enum Action {
     /**
      * Удаление продукта из каталога
      */
-    DELETE_PRODUCT
+    DELETE_PRODUCT,
+
+    /**
+     * Пакетный импорт товаров из файла (одна итоговая запись на весь импорт)
+     */
+    IMPORT_PRODUCTS
 }
@@ -0,0 +1,27 @@
+package me.oldboy.market.exceptions;
+
+/**
+ * Исключение, выбрасываемое при операциях с "кэшем БД" аудита,
+ * в т.ч. при ошибках записи и чтения сегментов журнала аудита на диске.
+ * При переходе на реляционную БД будет исключена из приложения.
+ */
+public class AuditDBException extends RuntimeException {
+    /**
+     * Создает новое исключение с указанным сообщением об ошибке
+     *
+     * @param msg детальное сообщение об ошибке
+     */
+    public AuditDBException(String msg) {
+        super(msg);
+    }
+
+    /**
+     * Создает новое исключение с указанным сообщением и причиной
+     *
+     * @param msg   детальное сообщение об ошибке
+     * @param cause исходное исключение
+     */
+    public AuditDBException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
@@ -0,0 +1,17 @@
+package me.oldboy.market.exceptions;
+
+/**
+ * Исключение, выбрасываемое "кэшем БД" при нарушении уникального индекса
+ * (например, повторный email пользователя или название категории).
+ * При переходе на реляционную БД будет исключена из приложения.
+ */
+public class IndexConstraintException extends RuntimeException {
+    /**
+     * Создает новое исключение с указанным сообщением об ошибке
+     *
+     * @param msg детальное сообщение об ошибке
+     */
+    public IndexConstraintException(String msg) {
+        super(msg);
+    }
+}
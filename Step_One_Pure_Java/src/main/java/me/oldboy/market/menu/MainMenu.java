@@ -3,10 +3,12 @@ package me.oldboy.market.menu;
 import me.oldboy.market.config_context.ContextApp;
 import me.oldboy.market.controlers.LoginLogoutController;
 import me.oldboy.market.controlers.view.ViewAuditRecordController;
+import me.oldboy.market.controlers.view.ViewStatisticsController;
 import me.oldboy.market.entity.User;
 import me.oldboy.market.menu.items.*;
 import me.oldboy.market.validator.InputValidator;
 
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 /**
@@ -21,7 +23,10 @@ public class MainMenu {
     private UpdateProductItem updateProductItem;
     private DeleteProductItem deleteProductItem;
     private FindProductItem findProductItem;
+    private ImportProductsItem importProductsItem;
+    private AuditAnalyticsItem auditAnalyticsItem;
     private ViewAuditRecordController viewAuditRecordController;
+    private ViewStatisticsController viewStatisticsController;
 
     /**
      * Constructor
@@ -55,11 +60,15 @@ public class MainMenu {
                 contextApp.getViewBrandController(),
                 contextApp.getBrandRepository(),
                 contextApp.getCategoryRepository());
+        this.importProductsItem = new ImportProductsItem(contextApp.getProductImportController());
+        this.auditAnalyticsItem = new AuditAnalyticsItem(contextApp.getViewAuditAnalyticsController());
         this.viewAuditRecordController = contextApp.getViewAuditRecordController();
+        this.viewStatisticsController = contextApp.getViewStatisticsController();
     }
 
     /**
-     * Start main menu method for login and product manage
+     * Start main menu method for login and product manage. The end of input (closed console or
+     * disconnected server client) finishes the menu with logout of the authenticated user.
      *
      * @param scanner scanner for console menu item selection
      * @return false after exit method (for possible outer manage)
@@ -69,7 +78,12 @@ public class MainMenu {
         System.out.println("*** Добро пожаловать в систему управления товарами ***\n");
         System.out.println("---------------------------------------------------------------------");
 
-        User loggedInUser = loginMenu.login(scanner);
+        User loggedInUser = null;
+        try {
+            loggedInUser = loginMenu.login(scanner);
+        } catch (NoSuchElementException e) {
+            /* Ввод закончился до входа в систему (клиент сервера отключился) */
+        }
 
         if (loggedInUser == null) {
             repeatMenu = false;
@@ -78,7 +92,13 @@ public class MainMenu {
         }
 
         while (repeatMenu) {
-            repeatMenu = productAndLogMenu(loggedInUser.getEmail(), scanner);
+            try {
+                repeatMenu = productAndLogMenu(loggedInUser.getEmail(), scanner);
+            } catch (NoSuchElementException e) {
+                /* Ввод закончился (клиент сервера отключился) - выходим из системы, как по пункту меню */
+                loginLogoutController.logOut(loggedInUser.getEmail());
+                repeatMenu = false;
+            }
         }
 
         System.out.println("---------------------------------------------------------------------");
@@ -93,7 +113,7 @@ public class MainMenu {
      *
      * @param email   email address of the authenticated user (for audit purposes)
      * @param scanner scanner for console menu item selection
-     * @return true - using menu (1-6 items), false - exit menu (7)
+     * @return true - using menu (1-9 items), false - exit menu (10)
      */
     private boolean productAndLogMenu(String email, Scanner scanner) {
         boolean repeatMenu = true;
@@ -104,7 +124,10 @@ public class MainMenu {
                 "4 - Удалить товар; \n" +
                 "5 - Найти товар; \n" +
                 "6 - Посмотреть аудит-логи; \n" +
-                "7 - Покинуть программу;\n\n" +
+                "7 - Импорт товаров из CSV; \n" +
+                "8 - Статистика каталога; \n" +
+                "9 - Аналитика аудита; \n" +
+                "10 - Покинуть программу;\n\n" +
                 "Сделайте выбор и нажмите ввод: ";
         System.out.print(userMenu);
 
@@ -130,6 +153,15 @@ public class MainMenu {
                 viewAuditRecordController.printAllAuditRecord();
                 break;
             case "7":
+                importProductsItem.subMenu(email, scanner);
+                break;
+            case "8":
+                viewStatisticsController.printCatalogStatistics();
+                break;
+            case "9":
+                auditAnalyticsItem.subMenu(scanner);
+                break;
+            case "10":
                 loginLogoutController.logOut(email);
                 repeatMenu = false;
                 break;
@@ -0,0 +1,74 @@
+package me.oldboy.market.menu.items;
+
+import lombok.AllArgsConstructor;
+import me.oldboy.market.cache_bd.audit.RollupUnit;
+import me.oldboy.market.controlers.view.ViewAuditAnalyticsController;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+import me.oldboy.market.validator.InputValidator;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Scanner;
+
+/**
+ * Класс консольного взаимодействия с пользователем для просмотра аналитики аудита
+ */
+@AllArgsConstructor
+public class AuditAnalyticsItem {
+    /**
+     * Сколько самых активных пользователей показывать
+     */
+    private static final int TOP_USERS = 10;
+    private static final long HOUR = RollupUnit.HOUR.millis();
+
+    private ViewAuditAnalyticsController viewAuditAnalyticsController;
+
+    /**
+     * Метод, консольного взаимодействия с пользователем, выводящий меню отчетов по аудиту.
+     *
+     * @param scanner сканер для ввода пункта меню из консоли
+     */
+    public void subMenu(Scanner scanner) {
+        boolean isEntering = true;
+        System.out.println("-----------------------------------------------------------------------------");
+        do {
+            System.out.print("Аналитика аудита : " +
+                    "\n1 - действия пользователей за сегодня;" +
+                    "\n2 - неудачные изменения товаров по часам за сегодня;" +
+                    "\n3 - самые активные пользователи за сутки;" +
+                    "\n4 - действия по минутам за последний час;" +
+                    "\n5 - покинуть раздел;\n\n" +
+                    "Сделайте выбор и нажмите ввод: ");
+            String choiceMenuItem = scanner.nextLine().trim();
+            long now = System.currentTimeMillis();
+
+            switch (choiceMenuItem) {
+                case "1":
+                    viewAuditAnalyticsController.printActionSummary(startOfToday(), now + 1, "за сегодня");
+                    break;
+                case "2":
+                    viewAuditAnalyticsController.printActivityByTime(RollupUnit.HOUR, startOfToday(), now + 1,
+                            Action.UPDATE_PRODUCT, Status.FAIL, "Неудачные изменения товаров по часам за сегодня");
+                    break;
+                case "3":
+                    viewAuditAnalyticsController.printMostActiveUsers(now - 24 * HOUR, now + 1, TOP_USERS, "за сутки");
+                    break;
+                case "4":
+                    viewAuditAnalyticsController.printActivityByTime(RollupUnit.MINUTE, now - HOUR, now + 1,
+                            null, null, "Действия по минутам за последний час");
+                    break;
+                case "5":
+                    isEntering = false;
+                    break;
+                default:
+                    InputValidator.repeatEnterItem();
+                    break;
+            }
+        } while (isEntering);
+    }
+
+    private static long startOfToday() {
+        return LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
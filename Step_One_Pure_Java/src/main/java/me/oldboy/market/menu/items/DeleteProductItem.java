@@ -36,7 +36,7 @@ public class DeleteProductItem {
 
             switch (choiceMenuItem) {
                 case "1":
-                    viewProductController.viewAllProduct();
+                    ProductTableBrowser.browse(viewProductController.viewAllProduct(), scanner);
                     break;
                 case "2":
                     selectProductForDelete(email, scanner);
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import me.oldboy.market.controlers.view.ViewBrandController;
 import me.oldboy.market.controlers.view.ViewCategoryController;
 import me.oldboy.market.controlers.view.ViewProductController;
+import me.oldboy.market.entity.ProductCursor;
 import me.oldboy.market.entity.prod_species.Brand;
 import me.oldboy.market.entity.prod_species.Category;
 import me.oldboy.market.repository.BrandRepository;
@@ -41,7 +42,11 @@ public class FindProductItem {
                     "\n4 - найти товар по брэнду и названию;" +
                     "\n5 - посмотреть все товары по категории;" +
                     "\n6 - посмотреть все товары по брэнду;" +
-                    "\n7 - покинуть раздел;\n\n" +
+                    "\n7 - найти товары по тексту (название, описание);" +
+                    "\n8 - найти товары в диапазоне цен;" +
+                    "\n9 - посмотреть самые дешевые товары категории;" +
+                    "\n10 - отчет: товары с остатком меньше заданного;" +
+                    "\n11 - покинуть раздел;\n\n" +
                     "Сделайте выбор и нажмите ввод: ");
             String choiceMenuItem = scanner.nextLine().trim();
 
@@ -65,6 +70,18 @@ public class FindProductItem {
                     findAllProductByBrandChoice(scanner);
                     break;
                 case "7":
+                    findByTextChoice(scanner);
+                    break;
+                case "8":
+                    findByPriceRangeChoice(scanner);
+                    break;
+                case "9":
+                    findCheapestByCategoryChoice(scanner);
+                    break;
+                case "10":
+                    findLowStockChoice(scanner);
+                    break;
+                case "11":
                     isEntering = false;
                     break;
                 default:
@@ -144,9 +161,75 @@ public class FindProductItem {
     }
 
     /**
-     * По запросу из консоли, ищет все продукт по уникальному ID брэнда и выводит на экран.
+     * По запросу из консоли, ищет продукты по словам из названия и описания и выводит на экран.
+     *
+     * @param scanner сканер для ввода из консоли текста запроса
+     */
+    private void findByTextChoice(Scanner scanner) {
+        System.out.print("Введите слова для поиска: ");
+        String query = scanner.nextLine().trim();
+        viewProductController.findProductsByText(query);
+    }
+
+    /**
+     * По запросу из консоли, выводит постранично товары с ценой в заданном диапазоне.
+     *
+     * @param scanner сканер для ввода из консоли границ диапазона цен и ответа "показать следующую страницу"
+     */
+    private void findByPriceRangeChoice(Scanner scanner) {
+        System.out.print("Введите минимальную цену: ");
+        Double minPrice = InputValidator.doubleValidator(scanner);
+        System.out.print("Введите максимальную цену: ");
+        Double maxPrice = InputValidator.doubleValidator(scanner);
+        ProductCursor cursor = null;
+        do {
+            cursor = viewProductController.findProductsByPriceRange(minPrice, maxPrice, cursor);
+        } while (cursor != null && nextPageChoice(scanner));
+    }
+
+    /**
+     * По запросу из консоли, выводит самые дешевые товары выбранной категории.
      *
-     * @param scanner сканер для ввода из консоли ID брэнда товара
+     * @param scanner сканер для ввода из консоли ID категории товара
+     */
+    private void findCheapestByCategoryChoice(Scanner scanner) {
+        System.out.println("-----------------------------------------------------------------------------");
+        System.out.println("\nДоступны категории: ");
+        viewCategoryController.printAllCategory();
+        System.out.println("-----------------------------------------------------------------------------");
+        System.out.print("Введите ID категории: ");
+        Integer inputCategoryId = InputValidator.intValidator(scanner);
+        Category foundCategory = categoryRepository.findById(inputCategoryId).get();
+        viewProductController.findCheapestProductsByCategory(foundCategory);
+    }
+
+    /**
+     * По запросу из консоли, выводит постранично товары, остаток которых меньше заданного порога.
+     *
+     * @param scanner сканер для ввода из консоли порога остатка и ответа "показать следующую страницу"
+     */
+    private void findLowStockChoice(Scanner scanner) {
+        System.out.print("Введите порог остатка: ");
+        Integer threshold = InputValidator.intValidator(scanner);
+        ProductCursor cursor = null;
+        do {
+            cursor = viewProductController.findLowStockProducts(threshold, cursor);
+        } while (cursor != null && nextPageChoice(scanner));
+    }
+
+    /**
+     * @param scanner сканер для ввода ответа из консоли
+     * @return true - если пользователь хочет увидеть следующую страницу
+     */
+    private boolean nextPageChoice(Scanner scanner) {
+        System.out.print("Показать следующую страницу? (д - да, любой другой ввод - нет): ");
+        return scanner.nextLine().trim().equalsIgnoreCase("д");
+    }
+
+    /**
+     * По запросу из консоли, ищет все продукт по уникальному ID брэнда и выводит на экран постранично.
+     *
+     * @param scanner сканер для ввода из консоли ID брэнда товара и команд листания таблицы
      */
     private void findAllProductByBrandChoice(Scanner scanner) {
         System.out.println("-----------------------------------------------------------------------------");
@@ -156,13 +239,13 @@ public class FindProductItem {
         System.out.print("Введите ID брэнда: ");
         Integer inputBrandId = InputValidator.intValidator(scanner);
         Brand foundBrand = brandRepository.findById(inputBrandId).get();
-        viewProductController.findProductByBrand(foundBrand);
+        ProductTableBrowser.browse(viewProductController.findProductByBrand(foundBrand), scanner);
     }
 
     /**
-     * По запросу из консоли, ищет все продукт по уникальному ID категории товара и выводит на экран.
+     * По запросу из консоли, ищет все продукт по уникальному ID категории товара и выводит на экран постранично.
      *
-     * @param scanner сканер для ввода из консоли ID категории товара
+     * @param scanner сканер для ввода из консоли ID категории товара и команд листания таблицы
      */
     private void findAllProductByCategoryChoice(Scanner scanner) {
         System.out.println("-----------------------------------------------------------------------------");
@@ -172,6 +255,6 @@ public class FindProductItem {
         System.out.print("Введите ID категории: ");
         Integer inputCategoryId = InputValidator.intValidator(scanner);
         Category foundCategory = categoryRepository.findById(inputCategoryId).get();
-        viewProductController.findProductByCategory(foundCategory);
+        ProductTableBrowser.browse(viewProductController.findProductByCategory(foundCategory), scanner);
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package me.oldboy.market.menu.items;
+
+import lombok.AllArgsConstructor;
+import me.oldboy.market.controlers.ProductImportController;
+import me.oldboy.market.entity.ImportReport;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Scanner;
+
+/**
+ * Класс консольного взаимодействия с пользователем для импорта товаров из CSV файла
+ */
+@AllArgsConstructor
+public class ImportProductsItem {
+
+    private ProductImportController productImportController;
+
+    /**
+     * Метод запрашивает путь к CSV файлу, передает его на слой контроллеров и показывает итог импорта.
+     *
+     * @param email   электронный адрес пользователя, который импортирует товары
+     * @param scanner сканер для ввода данных из консоли
+     * @return итог импорта или null, если файл не прочитан
+     */
+    public ImportReport subMenu(String email, Scanner scanner) {
+        System.out.println("-----------------------------------------------------------------------------");
+        System.out.println("\n *** Импорт товаров из CSV *** \n");
+        System.out.println("Первая строка файла - заголовок: name,price,category,brand,description,stock " +
+                "(разделитель - запятая или точка с запятой);");
+        System.out.println("категория и брэнд - название или ID из справочника, кодировка файла - UTF-8.");
+        System.out.print("\n- Путь к файлу: ");
+        String path = scanner.nextLine().trim();
+
+        Path file;
+        try {
+            file = Path.of(path);
+        } catch (InvalidPathException e) {
+            System.out.println("Неверный путь к файлу: " + e.getMessage());
+            return null;
+        }
+
+        ImportReport report = productImportController.importProducts(file, email);
+        if (report != null) {
+            System.out.println("\n" + report.summary());
+            report.getErrors().forEach(error -> System.out.println(" - " + error));
+            if (report.getRejected() > report.getErrors().size()) {
+                System.out.println(" ... и еще " + (report.getRejected() - report.getErrors().size()));
+            }
+        }
+        return report;
+    }
+}
@@ -0,0 +1,86 @@
+package me.oldboy.market.menu.items;
+
+import me.oldboy.market.cache_bd.query.ProductSort;
+import me.oldboy.market.controlers.view.ProductTable;
+import me.oldboy.market.validator.InputValidator;
+
+import java.util.Scanner;
+
+/**
+ * Класс консольного листания таблицы товаров {@link ProductTable}: следующая и предыдущая страница,
+ * переход на страницу по номеру и сортировка по колонке
+ */
+public class ProductTableBrowser {
+
+    /**
+     * Метод консольного взаимодействия с пользователем для листания уже выведенной (первая страница)
+     * таблицы товаров. Если страница одна - ничего не спрашивает.
+     *
+     * @param table   таблица товаров, null - нечего листать
+     * @param scanner сканер для ввода команд листания
+     */
+    public static void browse(ProductTable table, Scanner scanner) {
+        if (table == null || table.pageCount() <= 1) {
+            return;
+        }
+        while (true) {
+            System.out.print("н - следующая, п - предыдущая, номер - перейти на страницу, " +
+                    "с - сортировать, любой другой ввод - выйти: ");
+            String command = scanner.nextLine().trim().toLowerCase();
+            if (command.equals("н")) {
+                if (!table.next()) {
+                    System.out.println("Это последняя страница");
+                    continue;
+                }
+            } else if (command.equals("п")) {
+                if (!table.previous()) {
+                    System.out.println("Это первая страница");
+                    continue;
+                }
+            } else if (command.equals("с")) {
+                ProductSort sort = sortChoice(scanner);
+                if (sort == null) {
+                    continue;
+                }
+                table.sortBy(sort);
+            } else if (!command.isEmpty() && command.chars().allMatch(Character::isDigit)) {
+                if (command.length() > 9 || !table.jump(Integer.parseInt(command))) {
+                    System.out.println("Страницы с таким номером нет, всего страниц: " + table.pageCount());
+                    continue;
+                }
+            } else {
+                return;
+            }
+            table.print();
+        }
+    }
+
+    /**
+     * @param scanner сканер для ввода номера колонки сортировки
+     * @return выбранный порядок товаров, null - выбор не сделан
+     */
+    private static ProductSort sortChoice(Scanner scanner) {
+        System.out.print("Сортировать: " +
+                "\n1 - по ID;" +
+                "\n2 - по цене (по возрастанию);" +
+                "\n3 - по цене (по убыванию);" +
+                "\n4 - по названию;" +
+                "\n5 - по остатку;\n\n" +
+                "Сделайте выбор и нажмите ввод: ");
+        switch (scanner.nextLine().trim()) {
+            case "1":
+                return ProductSort.ID;
+            case "2":
+                return ProductSort.PRICE_ASC;
+            case "3":
+                return ProductSort.PRICE_DESC;
+            case "4":
+                return ProductSort.NAME;
+            case "5":
+                return ProductSort.STOCK_ASC;
+            default:
+                InputValidator.repeatEnterItem();
+                return null;
+        }
+    }
+}
@@ -43,7 +43,7 @@ public class UpdateProductItem {
 
             switch (choiceMenuItem) {
                 case "1":
-                    viewProductController.viewAllProduct();
+                    ProductTableBrowser.browse(viewProductController.viewAllProduct(), scanner);
                     break;
                 case "2":
                     selectProductForUpdate(email, scanner);
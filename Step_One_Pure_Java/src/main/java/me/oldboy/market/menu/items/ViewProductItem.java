@@ -37,7 +37,7 @@ public class ViewProductItem {
                     viewOneProduct(scanner);
                     break;
                 case "2":
-                    viewProductController.viewAllProduct();
+                    ProductTableBrowser.browse(viewProductController.viewAllProduct(), scanner);
                     break;
                 case "3":
                     isEntering = false;
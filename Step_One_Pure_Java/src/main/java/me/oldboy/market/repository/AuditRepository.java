@@ -2,9 +2,15 @@ package me.oldboy.market.repository;
 
 import lombok.AllArgsConstructor;
 import me.oldboy.market.cache_bd.AuditDB;
+import me.oldboy.market.cache_bd.audit.RollupPoint;
+import me.oldboy.market.cache_bd.audit.RollupUnit;
+import me.oldboy.market.cache_bd.audit.UserActivity;
 import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -35,7 +41,7 @@ public class AuditRepository implements CrudRepository<Long, Audit> {
      */
     @Override
     public List<Audit> findAll() {
-        return auditDB.getAuditLogList();
+        return auditDB.findAll();
     }
 
     /**
@@ -46,10 +52,66 @@ public class AuditRepository implements CrudRepository<Long, Audit> {
      */
     @Override
     public Optional<Audit> findById(Long id) {
-        return auditDB.getAuditLogList()
-                .stream()
-                .filter(audit -> audit.getId().equals(id))
-                .findFirst();
+        return auditDB.findById(id);
+    }
+
+    /**
+     * Находит записи аудита, сделанные в заданный период времени.
+     *
+     * @param from начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to   конец периода (Unix timestamp в миллисекундах, включительно)
+     * @return список записей аудита в порядке добавления
+     */
+    public List<Audit> findByTimestampBetween(long from, long to) {
+        return auditDB.findByTimestampBetween(from, to);
+    }
+
+    /**
+     * Находит записи аудита пользователя (по индексу email).
+     *
+     * @param email email пользователя
+     * @return список записей аудита в порядке добавления
+     */
+    public List<Audit> findByUserEmail(String email) {
+        return auditDB.findByUserEmail(email);
+    }
+
+    /**
+     * Считает записи аудита по корзинам времени (по сводкам, без чтения самих записей).
+     *
+     * @param unit   шаг корзин (минута или час)
+     * @param from   начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to     конец периода (не включая)
+     * @param action действие, null - любое
+     * @param status статус, null - любой
+     * @return непустые корзины по возрастанию времени
+     */
+    public List<RollupPoint> countByTime(RollupUnit unit, long from, long to, Action action, Status status) {
+        return auditDB.rollups().series(unit, from, to, action, status, null);
+    }
+
+    /**
+     * Находит самых активных пользователей периода (по сводкам, без чтения самих записей).
+     *
+     * @param from  начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to    конец периода (не включая)
+     * @param limit сколько пользователей вернуть
+     * @return пользователи по убыванию числа действий
+     */
+    public List<UserActivity> findMostActiveUsers(long from, long to, int limit) {
+        return auditDB.rollups().topUsers(from, to, limit);
+    }
+
+    /**
+     * Считает записи аудита периода по действиям (по сводкам, без чтения самих записей).
+     *
+     * @param from   начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to     конец периода (не включая)
+     * @param status статус, null - любой
+     * @return число записей по действиям
+     */
+    public Map<Action, Long> countByAction(long from, long to, Status status) {
+        return auditDB.rollups().countByAction(from, to, status);
     }
 
     @Override
@@ -23,7 +23,7 @@ public class BrandRepository implements CrudRepository<Integer, Brand> {
      */
     @Override
     public List<Brand> findAll() {
-        return brandDB.getBrandList();
+        return brandDB.findAll();
     }
 
     /**
@@ -37,6 +37,16 @@ public class BrandRepository implements CrudRepository<Integer, Brand> {
         return brandDB.getById(id);
     }
 
+    /**
+     * Находит брэнд Brand по уникальному названию
+     *
+     * @param name название
+     * @return Optional, содержащий Brand, если найден, иначе пустой Optional.
+     */
+    public Optional<Brand> findByName(String name) {
+        return brandDB.findByName(name);
+    }
+
     /*
     Поскольку в задании нет упоминания об управлении другими сущностями кроме товара,
     методы приведенные ниже не реализованы, но имеют перспективу в дальнейшем, т.к.
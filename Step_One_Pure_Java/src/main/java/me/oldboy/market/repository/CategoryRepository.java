@@ -23,7 +23,7 @@ public class CategoryRepository implements CrudRepository<Integer, Category> {
      */
     @Override
     public List<Category> findAll() {
-        return categoryDB.getCategoryList();
+        return categoryDB.findAll();
     }
 
     /**
@@ -37,6 +37,16 @@ public class CategoryRepository implements CrudRepository<Integer, Category> {
         return categoryDB.findById(id);
     }
 
+    /**
+     * Находит категорию Category по уникальному названию
+     *
+     * @param name название
+     * @return Optional, содержащий Category, если найден, иначе пустой Optional.
+     */
+    public Optional<Category> findByName(String name) {
+        return categoryDB.findByName(name);
+    }
+
     /*
     Поскольку в задании нет упоминания об управлении другими сущностями кроме товара,
     методы приведенные ниже не реализованы, но имеют перспективу в дальнейшем, т.к.
@@ -2,11 +2,18 @@ package me.oldboy.market.repository;
 
 import lombok.AllArgsConstructor;
 import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.cache_bd.query.ProductQuery;
+import me.oldboy.market.cache_bd.query.QueryResult;
+import me.oldboy.market.cache_bd.stats.ProductStats;
+import me.oldboy.market.cache_bd.tiered.TierCounters;
 import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.ProductCursor;
+import me.oldboy.market.entity.ProductPage;
 import me.oldboy.market.entity.prod_species.Brand;
 import me.oldboy.market.entity.prod_species.Category;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -36,6 +43,17 @@ public class ProductRepository implements CrudRepository<Long, Product> {
         return productDB.findProductById(generateId).get();
     }
 
+    /**
+     * Сохраняет пачку новых продуктов одной операцией "кэша" (диапазон ID и индексы - на всю пачку).
+     *
+     * @param products продукты для сохранения
+     * @return те же продукты с присвоенными идентификаторами ID
+     */
+    public List<Product> saveAll(List<Product> products) {
+        productDB.addAll(products);
+        return products;
+    }
+
     /**
      * Возвращает все продукты из "кэша" БД.
      *
@@ -46,6 +64,16 @@ public class ProductRepository implements CrudRepository<Long, Product> {
         return productDB.getProductsList();
     }
 
+    /**
+     * Возвращает текущую версию товаров - согласованный срез, который не меняется при последующих
+     * изменениях. Пригоден для нескольких чтений, которые должны видеть одно и то же состояние.
+     *
+     * @return версия "кэша" товаров, читается без блокировок
+     */
+    public ProductDB.Version snapshot() {
+        return productDB.snapshot();
+    }
+
     /**
      * Находит продукт по уникальному идентификатору ID.
      *
@@ -92,10 +120,7 @@ public class ProductRepository implements CrudRepository<Long, Product> {
      * @return Optional с найденным продуктом Product, empty в противном случае
      */
     public Optional<Product> findByCategoryAndId(Category category, Long productId) {
-        return findByCategory(category)
-                .stream()
-                .filter(p -> p.getId().equals(productId))
-                .findFirst();
+        return productDB.findProductByCategoryAndId(category, productId);
     }
 
     /**
@@ -106,24 +131,85 @@ public class ProductRepository implements CrudRepository<Long, Product> {
      * @return Optional с найденным продуктом Product, empty в противном случае
      */
     public Optional<Product> findByBrandAndId(Brand brand, Long productId) {
-        return findByBrand(brand)
-                .stream()
-                .filter(p -> p.getId().equals(productId))
-                .findFirst();
+        return productDB.findProductByBrandAndId(brand, productId);
     }
 
     /**
-     * Находит продукт по бренду Brand и названию продукта.
+     * Находит продукт по бренду Brand и названию продукта (по индексу ProductDB).
      *
      * @param brand бренд для поиска
      * @param name  название продукта
      * @return Optional с найденным продуктом Product, empty в противном случае
      */
     public Optional<Product> findByBrandAndName(Brand brand, String name) {
-        return findByBrand(brand)
-                .stream()
-                .filter(p -> p.getName().equals(name))
-                .findFirst();
+        return productDB.findProductByBrandAndName(brand, name);
+    }
+
+    /**
+     * Находит все продукты Product с указанным названием.
+     *
+     * @param name название продукта
+     * @return список продуктов с таким названием, пустой если таких нет
+     */
+    public List<Product> findByName(String name) {
+        return productDB.findProductsByName(name);
+    }
+
+    /**
+     * Находит продукты Product по словам из названия и описания.
+     *
+     * @param query текст запроса
+     * @param limit максимальное число результатов
+     * @return найденные продукты, от наиболее к наименее релевантному
+     */
+    public List<Product> searchByText(String query, int limit) {
+        return productDB.searchByText(query, limit);
+    }
+
+    /**
+     * Находит продукты Product по набору условий; индекс для поиска выбирает планировщик ProductDB.
+     *
+     * @param query условия поиска, порядок и ограничение числа продуктов
+     * @return найденные продукты и план выполнения запроса
+     */
+    public QueryResult query(ProductQuery query) {
+        return productDB.query(query);
+    }
+
+    /**
+     * Находит продукты Product с ценой в диапазоне [minPrice, maxPrice], постранично.
+     *
+     * @param minPrice минимальная цена
+     * @param maxPrice максимальная цена
+     * @param after    позиция конца предыдущей страницы, null - первая страница
+     * @param limit    размер страницы
+     * @return страница продуктов по возрастанию цены
+     */
+    public ProductPage findByPriceRange(double minPrice, double maxPrice, ProductCursor after, int limit) {
+        return productDB.findProductsByPriceRange(minPrice, maxPrice, after, limit);
+    }
+
+    /**
+     * Находит самые дешевые продукты Product в категории Category.
+     *
+     * @param category категория
+     * @param limit    сколько продуктов вернуть
+     * @return продукты по возрастанию цены, пустой список если в категории нет продуктов
+     */
+    public List<Product> findCheapestByCategory(Category category, int limit) {
+        return productDB.findCheapestProductsByCategory(category, limit);
+    }
+
+    /**
+     * Находит продукты Product с остатком меньше порога, постранично.
+     *
+     * @param threshold порог остатка (не включая)
+     * @param after     позиция конца предыдущей страницы, null - первая страница
+     * @param limit     размер страницы
+     * @return страница продуктов по возрастанию остатка
+     */
+    public ProductPage findLowStock(int threshold, ProductCursor after, int limit) {
+        return productDB.findLowStockProducts(threshold, after, limit);
     }
 
     /**
@@ -145,4 +231,32 @@ public class ProductRepository implements CrudRepository<Long, Product> {
     public List<Product> findByBrand(Brand brand) {
         return productDB.findProductByBrand(brand);
     }
-}
\ No newline at end of file
+
+    /**
+     * @return сводка по всему каталогу (число товаров, остаток, стоимость остатков, границы цен)
+     */
+    public ProductStats getTotalStats() {
+        return productDB.statistics().total();
+    }
+
+    /**
+     * @return сводки по категориям, в которых есть товары
+     */
+    public Map<Category, ProductStats> getStatsByCategory() {
+        return productDB.statistics().byCategory();
+    }
+
+    /**
+     * @return сводки по брэндам, у которых есть товары
+     */
+    public Map<Brand, ProductStats> getStatsByBrand() {
+        return productDB.statistics().byBrand();
+    }
+
+    /**
+     * @return счетчики "горячего" и "холодного" ярусов хранения товаров, пусто - товары хранятся не ярусами
+     */
+    public Optional<TierCounters> getTierCounters() {
+        return productDB.tierCounters();
+    }
+}
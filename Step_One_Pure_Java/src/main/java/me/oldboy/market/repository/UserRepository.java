@@ -40,10 +40,7 @@ public class UserRepository implements CrudRepository<Long, User>{
      */
     @Override
     public List<User> findAll() {
-        return userDB.getUserDb()
-                .values()
-                .stream()
-                .toList();
+        return userDB.findAll();
     }
 
     /**
@@ -64,11 +61,7 @@ public class UserRepository implements CrudRepository<Long, User>{
      */
     @Override
     public void update(User updateUser) {
-        if(findById(updateUser.getUserId()).isPresent()){
-            User foundUserForUpdate = userDB.getUserDb().get(updateUser.getUserId());
-            foundUserForUpdate.setEmail(updateUser.getEmail());
-            foundUserForUpdate.setPassword(updateUser.getPassword());
-        }
+        userDB.update(updateUser);
     }
 
     /**
@@ -79,26 +72,17 @@ public class UserRepository implements CrudRepository<Long, User>{
      */
     @Override
     public boolean delete(Long id) {
-        boolean isDelete = false;
-        if(findById(id).isPresent()){
-            userDB.getUserDb().remove(id);
-            isDelete = true;
-        }
-        return isDelete;
+        return userDB.delete(id);
     }
 
     /**
      * Находит пользователя по email адресу.
-     * Email используется как уникальный идентификатор для входа в систему.
+     * Email используется как уникальный идентификатор для входа в систему, поиск идет по индексу.
      *
      * @param email email адрес пользователя
      * @return Optional с найденным пользователем User, empty если не найден
      */
     public Optional<User> findUserByEmail(String email){
-        return userDB.getUserDb()
-                .values()
-                .stream()
-                .filter(user -> user.getEmail().equals(email))
-                .findFirst();
+        return userDB.findUserByEmail(email);
     }
 }
\ No newline at end of file
@@ -0,0 +1,219 @@
+package me.oldboy.market.server;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * TCP сервер консольного меню: строчный протокол - клиент (telnet, nc, нагрузочный драйвер) шлет строки ввода,
+ * сервер отвечает тем же текстом, что меню выводит в консоль. Каждое подключение - отдельный сеанс в своем
+ * (виртуальном, см. {@link SessionThreads}) потоке: сеанс получает свой Scanner над вводом сокета, а System.out
+ * сеанса направляется в сокет ({@link SessionConsole}). Все сеансы работают с одним общим контекстом приложения.
+ * <p>
+ * Вывод сеанса копится в буфере и уходит в сокет одной записью перед тем, как сеанс начнет ждать ввод,
+ * поэтому ответ на команду - один-два TCP пакета, а не пакет на каждую строку.
+ */
+public class ConsoleServer implements Closeable {
+    /**
+     * Порт сервера по умолчанию
+     */
+    public static final int DEFAULT_PORT = 7070;
+
+    private static final int BACKLOG = 512;
+    private static final int OUTPUT_BUFFER = 16 * 1024;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final int port;
+    private final Charset charset;
+    private final Consumer<Scanner> session;
+    private final SessionThreads threads;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong accepted = new AtomicLong();
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    /**
+     * @param port           порт (0 - любой свободный)
+     * @param charset        кодировка строк протокола
+     * @param virtualThreads сеансы в виртуальных потоках, если JVM их поддерживает
+     * @param session        работа одного сеанса со своим Scanner-ом (например, главное меню)
+     */
+    public ConsoleServer(int port, Charset charset, boolean virtualThreads, Consumer<Scanner> session) {
+        this.port = port;
+        this.charset = charset;
+        this.session = session;
+        this.threads = SessionThreads.create(virtualThreads);
+    }
+
+    /**
+     * Открывает порт и начинает принимать подключения
+     *
+     * @throws IOException порт не открыт
+     */
+    public synchronized void start() throws IOException {
+        SessionConsole.install(charset);
+        serverSocket = new ServerSocket(port, BACKLOG);
+        acceptor = new Thread(this::acceptLoop, "console-server");
+        acceptor.start();
+    }
+
+    /**
+     * @return порт, который слушает сервер
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return true - сеансы работают в виртуальных потоках
+     */
+    public boolean isVirtualThreads() {
+        return threads.isVirtual();
+    }
+
+    /**
+     * @return число открытых сеансов
+     */
+    public int activeSessions() {
+        return connections.size();
+    }
+
+    /**
+     * @return число принятых подключений с момента запуска
+     */
+    public long acceptedSessions() {
+        return accepted.get();
+    }
+
+    /**
+     * Перестает принимать подключения и завершает открытые сеансы: их ввод закрывается,
+     * меню видит конец ввода и выходит из системы (с аудит записью), как при отключении клиента
+     */
+    @Override
+    public synchronized void close() {
+        if (serverSocket == null || serverSocket.isClosed()) {
+            return;
+        }
+        try {
+            serverSocket.close();
+            acceptor.join();
+            for (Socket socket : connections) {
+                shutdownInput(socket);
+            }
+            ExecutorService executor = threads.executor();
+            executor.shutdown();
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                for (Socket socket : connections) {
+                    closeQuietly(socket);
+                }
+                executor.shutdownNow();
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка остановки сервера: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                accepted.incrementAndGet();
+                threads.executor().execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.out.println("Ошибка приема подключения: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            PrintStream out = new PrintStream(
+                    new BufferedOutputStream(socket.getOutputStream(), OUTPUT_BUFFER), false, charset);
+            Scanner scanner = new Scanner(new SessionInput(socket.getInputStream(), out), charset);
+            SessionConsole.bind(out);
+            try {
+                session.accept(scanner);
+            } catch (NoSuchElementException e) {
+                /* Клиент отключился посреди ввода */
+            } catch (RuntimeException e) {
+                System.out.println("Ошибка: " + e.getMessage() + ", сеанс завершен");
+                SessionConsole.unbind();
+                System.out.println("Сеанс " + socket.getRemoteSocketAddress() + " завершен с ошибкой: " + e);
+            } finally {
+                out.flush();
+                SessionConsole.unbind();
+            }
+        } catch (IOException e) {
+            /* Соединение уже разорвано - сеанс закончен */
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private static void shutdownInput(Socket socket) {
+        try {
+            socket.shutdownInput();
+        } catch (IOException e) {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            /* Сокет уже закрыт */
+        }
+    }
+
+    /**
+     * Ввод сеанса: перед каждым чтением из сокета (сеанс ждет следующую строку) выталкивает вывод сеанса,
+     * при закрытии (меню закрывает свой Scanner) - дописывает вывод до закрытия сокета
+     */
+    private static final class SessionInput extends FilterInputStream {
+        private final PrintStream out;
+
+        private SessionInput(InputStream in, PrintStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            out.flush();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            out.flush();
+            return super.read(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package me.oldboy.market.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+/**
+ * Подмена System.out для сервера: меню, контроллеры и элементы меню пишут в System.out, а байты уходят
+ * в поток вывода сеанса, к которому привязан текущий поток ({@link #bind}). Потоки без сеанса
+ * (сам сервер, фоновые потоки) пишут в исходный System.out.
+ * <p>
+ * Привязка - через ThreadLocal: каждый сеанс работает в своем (виртуальном) потоке, поэтому код меню
+ * не меняется и не знает, чей вывод он формирует.
+ */
+public final class SessionConsole extends OutputStream {
+    private static final ThreadLocal<PrintStream> SESSION = new ThreadLocal<>();
+    private static volatile PrintStream original;
+
+    private SessionConsole() {
+    }
+
+    /**
+     * Подменяет System.out (повторный вызов ничего не меняет)
+     *
+     * @param charset кодировка текста, выводимого через System.out (и в сеансы, и в консоль сервера)
+     */
+    public static synchronized void install(Charset charset) {
+        if (original == null) {
+            original = System.out;
+            System.setOut(new PrintStream(new SessionConsole(), true, charset));
+        }
+    }
+
+    /**
+     * Возвращает исходный System.out
+     */
+    public static synchronized void uninstall() {
+        if (original != null) {
+            System.out.flush();
+            System.setOut(original);
+            original = null;
+        }
+    }
+
+    /**
+     * Направляет вывод текущего потока в поток сеанса
+     *
+     * @param session поток вывода сеанса
+     */
+    public static void bind(PrintStream session) {
+        SESSION.set(session);
+    }
+
+    /**
+     * Возвращает вывод текущего потока в консоль сервера
+     */
+    public static void unbind() {
+        SESSION.remove();
+    }
+
+    @Override
+    public void write(int b) {
+        target().write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        target().write(bytes, offset, length);
+    }
+
+    /**
+     * Вывод сеанса выталкивается перед чтением ввода сеанса (см. {@link ConsoleServer}),
+     * здесь выталкивается только консоль сервера
+     */
+    @Override
+    public void flush() throws IOException {
+        PrintStream target = target();
+        if (target != SESSION.get()) {
+            target.flush();
+        }
+    }
+
+    private static PrintStream target() {
+        PrintStream session = SESSION.get();
+        if (session != null) {
+            return session;
+        }
+        PrintStream console = original;
+        return console != null ? console : System.err;
+    }
+}
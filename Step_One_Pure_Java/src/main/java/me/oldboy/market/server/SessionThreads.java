@@ -0,0 +1,56 @@
+package me.oldboy.market.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Исполнитель сеансов: на Java 21+ - виртуальный поток на сеанс (Executors.newVirtualThreadPerTaskExecutor,
+ * вызывается через отражение - проект собирается под Java 17), на более старых JVM или при
+ * -Dserver.virtualThreads=false - пул обычных потоков-демонов, растущий по числу сеансов.
+ * Сеанс почти все время ждет ввода, виртуальный поток при этом не занимает поток ОС.
+ */
+final class SessionThreads {
+    private final ExecutorService executor;
+    private final boolean virtual;
+
+    private SessionThreads(ExecutorService executor, boolean virtual) {
+        this.executor = executor;
+        this.virtual = virtual;
+    }
+
+    /**
+     * @param preferVirtual пробовать ли виртуальные потоки
+     * @return исполнитель сеансов
+     */
+    static SessionThreads create(boolean preferVirtual) {
+        if (preferVirtual) {
+            try {
+                ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+                return new SessionThreads(executor, true);
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                /* Java 17-20 (или preview не включен) - обычные потоки */
+            }
+        }
+        AtomicInteger number = new AtomicInteger();
+        return new SessionThreads(Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "session-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }), false);
+    }
+
+    ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * @return true - сеансы работают в виртуальных потоках
+     */
+    boolean isVirtual() {
+        return virtual;
+    }
+}
@@ -1,47 +1,102 @@
 package me.oldboy.market.services;
 
 import lombok.AllArgsConstructor;
+import me.oldboy.market.cache_bd.audit.AuditWriter;
+import me.oldboy.market.cache_bd.audit.RollupPoint;
+import me.oldboy.market.cache_bd.audit.RollupUnit;
+import me.oldboy.market.cache_bd.audit.UserActivity;
 import me.oldboy.market.entity.Audit;
 import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.ProductDelta;
 import me.oldboy.market.entity.log_enum.Action;
 import me.oldboy.market.entity.log_enum.Status;
 import me.oldboy.market.repository.AuditRepository;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Сервисный класс для управления записями аудит-догов.
  * Предоставляет высокоуровневые методы для логирования действий пользователей и получения истории аудита.
+ * Если задана фоновая запись ({@link AuditWriter}), записи передаются ей и пользовательская операция
+ * не ждет их сохранения; методы чтения сначала дожидаются записи уже переданного.
  *
  * @see Audit
  * @see AuditRepository
+ * @see AuditWriter
  * @see Action
  * @see Status
  */
 @AllArgsConstructor
 public class AuditService {
     private AuditRepository auditRepository;
+    /* Фоновая запись аудита, null - записи сохраняются синхронно */
+    private AuditWriter auditWriter;
+
+    public AuditService(AuditRepository auditRepository) {
+        this(auditRepository, null);
+    }
 
     /**
      * Создает и сохраняет запись аудита действий пользователя.
-     * Автоматически устанавливает текущую временную метку.
+     * Автоматически устанавливает текущую временную метку, товар сохраняется по ID вместе со всеми полями.
      *
      * @param action тип выполненного действия
      * @param isSuccess статус выполнения операции
      * @param email email пользователя, выполнившего действие
      * @param product продукт, над которым выполнено действие (может быть null, для ситуации LogIn/LogOut)
-     * @return true - запись успешно сохранена, false - в противном случае
+     * @return true - запись успешно сохранена (принята на фоновую запись), false - в противном случае
      */
     public boolean saveAuditRecord(Action action, Status isSuccess, String email, Product product){
+        return save(action, isSuccess, email,
+                product == null ? null : product.getId(),
+                product == null ? null : ProductDelta.of(product), null);
+    }
+
+    /**
+     * Создает и сохраняет запись аудита об изменении товара, в запись попадают только изменившиеся поля.
+     *
+     * @param action тип выполненного действия
+     * @param isSuccess статус выполнения операции
+     * @param email email пользователя, выполнившего действие
+     * @param before товар до изменения
+     * @param after товар после изменения
+     * @return true - запись успешно сохранена, false - в противном случае
+     */
+    public boolean saveAuditRecord(Action action, Status isSuccess, String email, Product before, Product after){
+        return save(action, isSuccess, email, after.getId(), ProductDelta.between(before, after), null);
+    }
+
+    /**
+     * Создает и сохраняет итоговую запись аудита пакетной операции (например, импорта товаров),
+     * которая не относится к одному товару: итог хранится в отдельном поле записи (Audit.summary).
+     *
+     * @param action тип выполненного действия
+     * @param isSuccess статус выполнения операции
+     * @param email email пользователя, выполнившего действие
+     * @param summary итог операции (сколько обработано, сколько отклонено и т.п.)
+     * @return true - запись успешно сохранена, false - в противном случае
+     */
+    public boolean saveSummaryRecord(Action action, Status isSuccess, String email, String summary){
+        return save(action, isSuccess, email, null, null, summary);
+    }
+
+    private boolean save(Action action, Status isSuccess, String email, Long productId, ProductDelta delta,
+                         String summary){
         Audit audRecord = Audit.builder()
                 .timestamp(new Date().getTime())
                 .userEmail(email)
                 .action(action)
                 .isSuccess(isSuccess)
-                .product(product)
+                .productId(productId)
+                .productDelta(delta)
+                .summary(summary)
                 .build();
 
+        if(auditWriter != null){
+            return auditWriter.submit(audRecord);
+        }
         Audit savedAud = auditRepository.save(audRecord);
 
         if(savedAud != null){
@@ -51,12 +106,63 @@ public class AuditService {
         }
     }
 
+    /**
+     * Дожидается сохранения всех переданных на фоновую запись аудит записей (выход пользователя, завершение работы)
+     */
+    public void flush(){
+        if(auditWriter != null){
+            auditWriter.flush();
+        }
+    }
+
     /**
      * Возвращает полную историю записей аудита.
      *
      * @return список всех записей аудита в порядке добавления
      */
     public List<Audit> findAllAuditRecord(){
+        flush();
         return auditRepository.findAll();
     }
+
+    /**
+     * Возвращает число действий по корзинам времени, например неудачные изменения товаров по часам.
+     *
+     * @param unit шаг корзин (минута или час)
+     * @param from начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to конец периода (не включая)
+     * @param action действие, null - любое
+     * @param status статус, null - любой
+     * @return непустые корзины по возрастанию времени
+     */
+    public List<RollupPoint> getActivityByTime(RollupUnit unit, long from, long to, Action action, Status status){
+        flush();
+        return auditRepository.countByTime(unit, from, to, action, status);
+    }
+
+    /**
+     * Возвращает самых активных пользователей периода.
+     *
+     * @param from начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to конец периода (не включая)
+     * @param limit сколько пользователей вернуть
+     * @return пользователи по убыванию числа действий
+     */
+    public List<UserActivity> getMostActiveUsers(long from, long to, int limit){
+        flush();
+        return auditRepository.findMostActiveUsers(from, to, limit);
+    }
+
+    /**
+     * Возвращает число действий периода по их видам.
+     *
+     * @param from начало периода (Unix timestamp в миллисекундах, включительно)
+     * @param to конец периода (не включая)
+     * @param status статус, null - любой
+     * @return число записей по действиям
+     */
+    public Map<Action, Long> getActionCounts(long from, long to, Status status){
+        flush();
+        return auditRepository.countByAction(from, to, status);
+    }
 }
\ No newline at end of file
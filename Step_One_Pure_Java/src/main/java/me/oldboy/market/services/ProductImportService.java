@@ -0,0 +1,348 @@
+package me.oldboy.market.services;
+
+import lombok.AllArgsConstructor;
+import me.oldboy.market.cache_bd.index.IndexSet;
+import me.oldboy.market.entity.ImportReport;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import me.oldboy.market.exceptions.WrongEnteredDataFormatException;
+import me.oldboy.market.repository.BrandRepository;
+import me.oldboy.market.repository.CategoryRepository;
+import me.oldboy.market.repository.ProductRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Сервис пакетного импорта товаров из CSV.
+ * <p>
+ * Первая строка файла - заголовок с колонками name, price, category, brand, description, stock
+ * (в любом порядке, разделитель - запятая или точка с запятой). Категория и брэнд задаются названием
+ * или ID и должны существовать в справочниках, цена и остаток неотрицательны. Поле в кавычках может
+ * содержать разделитель, кавычка внутри него удваивается; одна строка файла - один товар.
+ * <p>
+ * Файл читается потоком: строки собираются в части по {@link #CHUNK_ROWS}, части разбираются
+ * и проверяются параллельно, а в "кэш" попадают по порядку, каждая - одной пачкой через
+ * {@link ProductRepository#saveAll}. Одновременно в памяти не больше нескольких частей на поток,
+ * поэтому размер файла ограничен только диском. Товар, который уже есть в каталоге (тот же брэнд
+ * и название) или повторяется в файле, отклоняется - остается первый.
+ */
+@AllArgsConstructor
+public class ProductImportService {
+    /**
+     * Строк файла в одной части (единица параллельного разбора и пакетной вставки)
+     */
+    private static final int CHUNK_ROWS = 4096;
+    /**
+     * Ошибок в отчете не больше этого числа, остальные только считаются
+     */
+    private static final int MAX_ERRORS = 20;
+    private static final List<String> COLUMNS = List.of("name", "price", "category", "brand", "description", "stock");
+
+    private ProductRepository productRepository;
+    private CategoryRepository categoryRepository;
+    private BrandRepository brandRepository;
+
+    /**
+     * Импортирует товары из CSV
+     *
+     * @param source CSV с заголовком (читается до конца, но не закрывается)
+     * @param name   имя источника для отчета
+     * @return итог импорта
+     * @throws IOException                     ошибка чтения источника
+     * @throws WrongEnteredDataFormatException если источник пуст или в заголовке не хватает колонок
+     */
+    public ImportReport importCsv(Reader source, String name) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader reader = source instanceof BufferedReader ? (BufferedReader) source
+                : new BufferedReader(source, 1 << 16);
+        String header = reader.readLine();
+        if (header == null) {
+            throw new WrongEnteredDataFormatException("Empty CSV file");
+        }
+        Layout layout = Layout.of(header);
+        Lookup lookup = new Lookup(categoryRepository.findAll(), brandRepository.findAll(), System.currentTimeMillis());
+        Tally tally = new Tally();
+
+        Deque<CompletableFuture<Chunk>> inFlight = new ArrayDeque<>();
+        int window = ForkJoinPool.getCommonPoolParallelism() + 1;
+        List<String> lines = new ArrayList<>(CHUNK_ROWS);
+        long firstLine = 2;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+            if (lines.size() == CHUNK_ROWS) {
+                inFlight.add(parseAsync(lines, firstLine, layout, lookup));
+                firstLine += lines.size();
+                lines = new ArrayList<>(CHUNK_ROWS);
+                if (inFlight.size() > window) {
+                    save(inFlight.poll().join(), tally);
+                }
+            }
+        }
+        if (!lines.isEmpty()) {
+            inFlight.add(parseAsync(lines, firstLine, layout, lookup));
+        }
+        while (!inFlight.isEmpty()) {
+            save(inFlight.poll().join(), tally);
+        }
+        return new ImportReport(name, tally.rows, tally.imported, tally.rejected,
+                Collections.unmodifiableList(tally.errors), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static CompletableFuture<Chunk> parseAsync(List<String> lines, long firstLine, Layout layout, Lookup lookup) {
+        return CompletableFuture.supplyAsync(() -> parse(lines, firstLine, layout, lookup));
+    }
+
+    private static Chunk parse(List<String> lines, long firstLine, Layout layout, Lookup lookup) {
+        Chunk chunk = new Chunk();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.rows++;
+            long number = firstLine + i;
+            List<String> fields = split(line, layout.delimiter);
+            if (fields == null) {
+                chunk.reject(number, "незакрытая кавычка");
+            } else if (fields.size() < layout.width) {
+                chunk.reject(number, "полей " + fields.size() + ", ожидается " + layout.width);
+            } else {
+                String error = layout.toProduct(fields, lookup, chunk);
+                if (error == null) {
+                    chunk.lines.add(number);
+                } else {
+                    chunk.reject(number, error);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Отклоняет повторы (в каталоге и внутри части) и добавляет остальные товары части одной пачкой.
+     * Части сохраняются по порядку, поэтому повтор из более ранней части уже найдется в каталоге.
+     */
+    private void save(Chunk chunk, Tally tally) {
+        tally.rows += chunk.rows;
+        chunk.errors.forEach(tally::error);
+        tally.rejected += chunk.rejected;
+
+        Set<List<Object>> keys = new HashSet<>();
+        List<Product> fresh = new ArrayList<>(chunk.products.size());
+        for (int i = 0; i < chunk.products.size(); i++) {
+            Product product = chunk.products.get(i);
+            if (!keys.add(IndexSet.key(product.getBrand(), product.getName())) || exists(product)) {
+                tally.rejected++;
+                tally.error("строка " + chunk.lines.get(i) + ": товар '" + product.getName() + "' брэнда '"
+                        + product.getBrand().getName() + "' уже есть");
+            } else {
+                fresh.add(product);
+            }
+        }
+        productRepository.saveAll(fresh);
+        tally.imported += fresh.size();
+    }
+
+    private boolean exists(Product product) {
+        for (Product sameName : productRepository.findByName(product.getName())) {
+            if (product.getBrand().equals(sameName.getBrand())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Делит строку CSV на поля
+     *
+     * @return поля без обрамляющих пробелов и кавычек, null - если кавычка не закрыта
+     */
+    static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                /* Пробелы перед открывающей кавычкой не входят в поле */
+                field.setLength(wasQuoted ? field.length() : 0);
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == delimiter) {
+                fields.add(wasQuoted ? field.toString() : field.toString().trim());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (!wasQuoted) {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(wasQuoted ? field.toString() : field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * Разделитель и номера колонок файла (по заголовку)
+     */
+    private static final class Layout {
+        private final char delimiter;
+        private final int width;
+        private final int name;
+        private final int price;
+        private final int category;
+        private final int brand;
+        private final int description;
+        private final int stock;
+
+        private Layout(char delimiter, int width, Map<String, Integer> columns) {
+            this.delimiter = delimiter;
+            this.width = width;
+            this.name = columns.get("name");
+            this.price = columns.get("price");
+            this.category = columns.get("category");
+            this.brand = columns.get("brand");
+            this.description = columns.get("description");
+            this.stock = columns.get("stock");
+        }
+
+        private static Layout of(String header) {
+            char delimiter = header.indexOf(';') >= 0 ? ';' : ',';
+            List<String> names = split(header.replace("\uFEFF", ""), delimiter);
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; names != null && i < names.size(); i++) {
+                columns.putIfAbsent(names.get(i).toLowerCase(Locale.ROOT), i);
+            }
+            for (String column : COLUMNS) {
+                if (!columns.containsKey(column)) {
+                    throw new WrongEnteredDataFormatException("CSV header has no column '" + column
+                            + "', expected: " + String.join(",", COLUMNS));
+                }
+            }
+            return new Layout(delimiter, names.size(), columns);
+        }
+
+        /**
+         * Собирает товар из полей строки и кладет его в часть
+         *
+         * @return описание ошибки или null, если товар собран
+         */
+        private String toProduct(List<String> fields, Lookup lookup, Chunk chunk) {
+            String productName = fields.get(name);
+            if (productName.isEmpty()) {
+                return "пустое название";
+            }
+            double productPrice;
+            int productStock;
+            try {
+                productPrice = Double.parseDouble(fields.get(price).replace(',', '.'));
+                productStock = Integer.parseInt(fields.get(stock));
+            } catch (NumberFormatException e) {
+                return "цена или остаток не число";
+            }
+            if (!(productPrice >= 0) || Double.isInfinite(productPrice) || productStock < 0) {
+                return "отрицательная или неверная цена или остаток";
+            }
+            Category productCategory = lookup.category(fields.get(category));
+            if (productCategory == null) {
+                return "неизвестная категория '" + fields.get(category) + "'";
+            }
+            Brand productBrand = lookup.brand(fields.get(brand));
+            if (productBrand == null) {
+                return "неизвестный брэнд '" + fields.get(brand) + "'";
+            }
+            chunk.products.add(Product.builder()
+                    .name(productName)
+                    .price(productPrice)
+                    .category(productCategory)
+                    .brand(productBrand)
+                    .description(fields.get(description))
+                    .stockQuantity(productStock)
+                    .creationTimestamp(lookup.timestamp)
+                    .build());
+            return null;
+        }
+    }
+
+    /**
+     * Справочники категорий и брэндов на момент начала импорта - по названию (без учета регистра) и по ID.
+     * Не меняются во время импорта, поэтому читаются из потоков разбора без блокировок.
+     */
+    private static final class Lookup {
+        private final Map<String, Category> categories = new HashMap<>();
+        private final Map<String, Brand> brands = new HashMap<>();
+        private final long timestamp;
+
+        private Lookup(List<Category> categoryList, List<Brand> brandList, long timestamp) {
+            for (Category category : categoryList) {
+                categories.put(String.valueOf(category.getId()), category);
+                categories.putIfAbsent(category.getName().toLowerCase(Locale.ROOT), category);
+            }
+            for (Brand brand : brandList) {
+                brands.put(String.valueOf(brand.getId()), brand);
+                brands.putIfAbsent(brand.getName().toLowerCase(Locale.ROOT), brand);
+            }
+            this.timestamp = timestamp;
+        }
+
+        private Category category(String key) {
+            return categories.get(key.toLowerCase(Locale.ROOT));
+        }
+
+        private Brand brand(String key) {
+            return brands.get(key.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Результат разбора части: собранные товары с номерами их строк и ошибки
+     */
+    private static final class Chunk {
+        private final List<Product> products = new ArrayList<>();
+        private final List<Long> lines = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private long rows;
+        private long rejected;
+
+        private void reject(long line, String reason) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("строка " + line + ": " + reason);
+            }
+        }
+    }
+
+    /**
+     * Счетчики всего импорта (меняются только в потоке чтения файла)
+     */
+    private static final class Tally {
+        private final List<String> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long rejected;
+
+        private void error(String message) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(message);
+            }
+        }
+    }
+}
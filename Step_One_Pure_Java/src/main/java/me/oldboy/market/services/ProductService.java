@@ -1,13 +1,21 @@
 package me.oldboy.market.services;
 
 import lombok.AllArgsConstructor;
+import me.oldboy.market.cache_bd.query.ProductQuery;
+import me.oldboy.market.cache_bd.query.QueryResult;
+import me.oldboy.market.cache_bd.stats.ProductStats;
+import me.oldboy.market.cache_bd.tiered.TierCounters;
 import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.ProductCursor;
+import me.oldboy.market.entity.ProductPage;
 import me.oldboy.market.entity.prod_species.Brand;
 import me.oldboy.market.entity.prod_species.Category;
 import me.oldboy.market.exceptions.ProductServiceException;
 import me.oldboy.market.repository.ProductRepository;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Сервисный класс для управления товарами в системе маркетплейса.
@@ -34,6 +42,16 @@ public class ProductService {
         return productRepository.save(product);
     }
 
+    /**
+     * Создает пачку новых продуктов Product в "кэше БД" (см. {@link ProductRepository#saveAll}).
+     *
+     * @param products продукты для создания (без ID)
+     * @return созданные продукты с присвоенными идентификаторами ID
+     */
+    public List<Product> createProducts(List<Product> products) {
+        return productRepository.saveAll(products);
+    }
+
     /**
      * Возвращает все продукты из "кэша БД".
      *
@@ -109,6 +127,81 @@ public class ProductService {
         return productRepository.findByBrandAndName(brand, name).orElse(null);
     }
 
+    /**
+     * Находит продукты по тексту запроса (слова названия и описания), с ранжированием по релевантности.
+     *
+     * @param query текст запроса
+     * @param limit максимальное число результатов
+     * @return найденные продукты, пустой список - если запрос пуст или ничего не найдено
+     */
+    public List<Product> searchProductsByText(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        return productRepository.searchByText(query, limit);
+    }
+
+    /**
+     * Находит продукты по набору условий (категория, брэнд, цена, начало названия, наличие) с сортировкой.
+     *
+     * @param query условия поиска, порядок и ограничение числа продуктов
+     * @return найденные продукты и план выполнения запроса (explain)
+     * @throws ProductServiceException если задано отрицательное ограничение числа продуктов или min цена больше max
+     */
+    public QueryResult findProducts(ProductQuery query) throws ProductServiceException {
+        if (query.getLimit() < 0 || query.getMinPrice() != null && query.getMaxPrice() != null
+                && query.getMinPrice() > query.getMaxPrice()) {
+            throw new ProductServiceException("Incorrect query: " + query);
+        }
+        return productRepository.query(query);
+    }
+
+    /**
+     * Находит продукты в диапазоне цен, постранично (для следующей страницы передается {@link ProductPage#getNext()}).
+     *
+     * @param minPrice минимальная цена
+     * @param maxPrice максимальная цена
+     * @param after    позиция конца предыдущей страницы, null - первая страница
+     * @param limit    размер страницы
+     * @return страница продуктов по возрастанию цены
+     * @throws ProductServiceException если границы диапазона или размер страницы некорректны
+     */
+    public ProductPage findProductsByPriceRange(double minPrice, double maxPrice, ProductCursor after, int limit)
+            throws ProductServiceException {
+        if (minPrice > maxPrice || limit <= 0) {
+            throw new ProductServiceException("Incorrect price range or page size");
+        }
+        return productRepository.findByPriceRange(minPrice, maxPrice, after, limit);
+    }
+
+    /**
+     * Находит самые дешевые продукты категории.
+     *
+     * @param category категория
+     * @param limit    сколько продуктов вернуть
+     * @return продукты по возрастанию цены, пустой список если в категории нет продуктов
+     */
+    public List<Product> findCheapestProductsByCategory(Category category, int limit) {
+        return productRepository.findCheapestByCategory(category, limit);
+    }
+
+    /**
+     * Отчет об остатках: продукты с остатком меньше порога, постранично, начиная с наименьшего остатка.
+     *
+     * @param threshold порог остатка (не включая)
+     * @param after     позиция конца предыдущей страницы, null - первая страница
+     * @param limit     размер страницы
+     * @return страница продуктов по возрастанию остатка
+     * @throws ProductServiceException если размер страницы некорректен
+     */
+    public ProductPage findLowStockProducts(int threshold, ProductCursor after, int limit)
+            throws ProductServiceException {
+        if (limit <= 0) {
+            throw new ProductServiceException("Incorrect page size");
+        }
+        return productRepository.findLowStock(threshold, after, limit);
+    }
+
     /**
      * Находит все продукты указанной категории.
      *
@@ -128,4 +221,41 @@ public class ProductService {
     public List<Product> findProductByBrand(Brand brand) {
         return productRepository.findByBrand(brand);
     }
-}
\ No newline at end of file
+
+    /**
+     * Возвращает сводку по всему каталогу, она поддерживается при каждом изменении товаров.
+     *
+     * @return число товаров, остаток, стоимость остатков и границы цен
+     */
+    public ProductStats getCatalogStats() {
+        return productRepository.getTotalStats();
+    }
+
+    /**
+     * Возвращает сводки по категориям, в которых есть товары.
+     *
+     * @return сводки, упорядоченные по ID категории
+     */
+    public Map<Category, ProductStats> getStatsByCategory() {
+        return productRepository.getStatsByCategory();
+    }
+
+    /**
+     * Возвращает сводки по брэндам, у которых есть товары.
+     *
+     * @return сводки, упорядоченные по ID брэнда
+     */
+    public Map<Brand, ProductStats> getStatsByBrand() {
+        return productRepository.getStatsByBrand();
+    }
+
+    /**
+     * Возвращает счетчики ярусного хранения товаров: попадания и промахи "горячего" яруса, вытеснения,
+     * обращения к файлу "холодного" яруса.
+     *
+     * @return счетчики, пусто - товары хранятся не ярусами
+     */
+    public Optional<TierCounters> getTierCounters() {
+        return productRepository.getTierCounters();
+    }
+}
@@ -0,0 +1,229 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.cache_bd.AuditDB;
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.controlers.ProductCrudController;
+import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import me.oldboy.market.repository.AuditRepository;
+import me.oldboy.market.repository.ProductRepository;
+import me.oldboy.market.services.AuditService;
+import me.oldboy.market.services.ProductService;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Отчет о памяти кучи и размере файлов для 1М записей аудита, созданных ProductCrudController
+ * (20% создание, 60% обновление, 20% удаление товаров): прежняя запись (Audit со ссылкой на Product,
+ * весь список через ObjectOutputStream в audit.sr) против компактной (ID товара + изменения,
+ * сегменты AuditDB).
+ * <p>
+ * В память включено только то, что удерживает сам аудит (ProductDB в обоих случаях одинакова).
+ * Запуск: gradlew auditFootprintReport (или -Precords=1000000)
+ */
+public class AuditFootprintReport {
+    private static final int LIVE_PRODUCTS = 5_000;
+    private static final String EMAIL = "admin@market.ru";
+    /* Единственная ссылка на измеряемый аудит */
+    private static Object held;
+    private static final Category[] CATEGORIES = {
+            Category.builder().id(1).name("Обувь").build(),
+            Category.builder().id(2).name("Уборка").build(),
+            Category.builder().id(3).name("Электроника").build()
+    };
+    private static final Brand[] BRANDS = {
+            Brand.builder().id(1).name("Puma").build(),
+            Brand.builder().id(2).name("PolarBear").build(),
+            Brand.builder().id(3).name("Marten").build()
+    };
+
+    public static void main(String[] args) throws IOException {
+        int records = Integer.getInteger("records", 1_000_000);
+        Path directory = Files.createTempDirectory("audit-footprint");
+        try {
+            /* Прежняя запись */
+            LegacyAuditService legacyService = new LegacyAuditService();
+            ProductDB legacyProducts = new ProductDB();
+            runWorkload(legacyProducts, legacyService, records, legacyService.log::size);
+            Path legacyFile = directory.resolve("audit.sr");
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(legacyFile.toFile())))) {
+                out.writeObject(legacyService.log);
+            }
+            held = legacyService.log;
+            legacyService = null;
+            long legacyBytes = releaseHeld();
+            legacyProducts = null;
+
+            /* Компактная запись */
+            AuditDB auditDB = new AuditDB();
+            ProductDB products = new ProductDB();
+            runWorkload(products, new AuditService(new AuditRepository(auditDB)), records, auditDB::size);
+            Path segments = directory.resolve("audit");
+            AuditDB stored = new AuditDB();
+            stored.attachStorage(segments);
+            auditDB.forEach(stored::add);
+            stored.flush();
+            stored = null;
+            held = auditDB;
+            auditDB = null;
+            long compactBytes = releaseHeld();
+
+            long legacyFileBytes = Files.size(legacyFile);
+            long compactFileBytes;
+            try (Stream<Path> files = Files.list(segments)) {
+                compactFileBytes = files.mapToLong(file -> file.toFile().length()).sum();
+            }
+
+            System.out.println("Записей аудита: " + records + ", товаров в каталоге ~" + LIVE_PRODUCTS);
+            System.out.printf("%-35s | %12s | %14s | %12s%n", "запись", "куча, МБ", "байт на запись", "файлы, МБ");
+            print("Audit + Product (прежняя)", legacyBytes, legacyFileBytes, records);
+            print("ID товара + изменения (текущая)", compactBytes, compactFileBytes, records);
+            System.out.printf("Экономия: куча %.1f%%, файлы %.1f%%%n",
+                    100.0 * (legacyBytes - compactBytes) / legacyBytes,
+                    100.0 * (legacyFileBytes - compactFileBytes) / legacyFileBytes);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void runWorkload(ProductDB productDB, AuditService auditService, int records, IntSupplier auditSize) {
+        ProductCrudController controller =
+                new ProductCrudController(new ProductService(new ProductRepository(productDB)), auditService);
+        /* Поиск дубликата по брэнду в createProduct требует, чтобы у брэнда уже был хоть один товар */
+        for (Brand brand : BRANDS) {
+            productDB.add(Product.builder().name("Образец " + brand.getName()).category(CATEGORIES[0]).brand(brand).build());
+        }
+        Random random = new Random(42);
+        List<Long> live = new ArrayList<>();
+        int created = 0;
+        while (auditSize.getAsInt() < records) {
+            double operation = random.nextDouble();
+            if (live.size() < LIVE_PRODUCTS || operation < 0.2) {
+                int i = created++;
+                Product product = controller.createProduct(Product.builder()
+                        .name("Товар " + i)
+                        .price(10 + i % 1000)
+                        .category(CATEGORIES[i % CATEGORIES.length])
+                        .brand(BRANDS[i % BRANDS.length])
+                        .description("Описание товара " + i)
+                        .stockQuantity(i % 100)
+                        .build(), EMAIL);
+                live.add(product.getId());
+            } else if (operation < 0.8) {
+                Product found = controller.findProductById(live.get(random.nextInt(live.size())));
+                controller.updateProduct(Product.builder()
+                        .id(found.getId())
+                        .name(found.getName())
+                        .price(found.getPrice() + 1)
+                        .category(found.getCategory())
+                        .brand(found.getBrand())
+                        .description(found.getDescription())
+                        .stockQuantity(random.nextInt(100))
+                        .build(), EMAIL);
+            } else {
+                int index = random.nextInt(live.size());
+                controller.deleteProduct(live.get(index), EMAIL);
+                live.set(index, live.get(live.size() - 1));
+                live.remove(live.size() - 1);
+            }
+        }
+    }
+
+    private static void print(String layout, long heapBytes, long fileBytes, int records) {
+        System.out.printf("%-35s | %12.1f | %14.1f | %12.1f%n", layout,
+                heapBytes / 1024.0 / 1024.0, (double) heapBytes / records, fileBytes / 1024.0 / 1024.0);
+    }
+
+    /**
+     * @return на сколько уменьшается занятая куча, когда {@link #held} становится недостижим
+     */
+    private static long releaseHeld() {
+        long with = usedHeap();
+        held = null;
+        return with - usedHeap();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Прежняя запись аудита - товар целиком
+     */
+    private static class LegacyAudit implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final Long id;
+        private final Long timestamp;
+        private final String userEmail;
+        private final Action action;
+        private final Status isSuccess;
+        private final Product product;
+
+        private LegacyAudit(Long id, Action action, Status isSuccess, String userEmail, Product product) {
+            this.id = id;
+            this.timestamp = new Date().getTime();
+            this.userEmail = userEmail;
+            this.action = action;
+            this.isSuccess = isSuccess;
+            this.product = product;
+        }
+    }
+
+    /**
+     * Повторяет прежний AuditService: в запись попадает переданный товар (при удалении - его клон)
+     */
+    private static class LegacyAuditService extends AuditService {
+        private final List<LegacyAudit> log = new ArrayList<>();
+
+        private LegacyAuditService() {
+            super(null);
+        }
+
+        @Override
+        public boolean saveAuditRecord(Action action, Status isSuccess, String email, Product product) {
+            Product recorded = action == Action.DELETE_PRODUCT ? copyOf(product) : product;
+            return log.add(new LegacyAudit(log.size() + 1L, action, isSuccess, email, recorded));
+        }
+
+        @Override
+        public boolean saveAuditRecord(Action action, Status isSuccess, String email, Product before, Product after) {
+            return log.add(new LegacyAudit(log.size() + 1L, action, isSuccess, email, after));
+        }
+
+        private static Product copyOf(Product product) {
+            return Product.builder()
+                    .id(product.getId())
+                    .name(product.getName())
+                    .price(product.getPrice())
+                    .category(product.getCategory())
+                    .brand(product.getBrand())
+                    .description(product.getDescription())
+                    .stockQuantity(product.getStockQuantity())
+                    .creationTimestamp(product.getCreationTimestamp())
+                    .lastModifiedTimestamp(product.getLastModifiedTimestamp())
+                    .build();
+        }
+    }
+}
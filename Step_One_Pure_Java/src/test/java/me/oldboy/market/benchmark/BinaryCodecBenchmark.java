@@ -0,0 +1,225 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.cache_bd.AuditDB;
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.cache_bd.journal.ProductJournal;
+import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.ProductDelta;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Замер двоичного кодека (cache_bd.codec) против ObjectOutputStream: время сохранения, время загрузки
+ * и размер файлов.
+ * <p>
+ * - аудит: 1М записей, сегменты AuditDB (varint, словарь email, CRC на блок) против списка Audit
+ * в ObjectOutputStream;
+ * - товары: 200К изменений каталога в журнале ProductJournal (varint, словарь категорий и брэндов,
+ * CRC на запись) против тех же товаров в ObjectOutputStream. Сохранение журнала - дописывание
+ * записей вместе с ProductDB.add, поэтому для журнала замеряется только размер и проигрывание,
+ * чтение в обоих случаях - с загрузкой в ProductDB.
+ * <p>
+ * Запуск: gradlew codecBenchmark (или -Precords=1000000 -Pproducts=200000 -Prounds=3)
+ */
+public class BinaryCodecBenchmark {
+    private static final Category[] CATEGORIES = new Category[20];
+    private static final Brand[] BRANDS = new Brand[500];
+
+    static {
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            CATEGORIES[i] = Category.builder().id(i + 1).name("Категория " + i).build();
+        }
+        for (int i = 0; i < BRANDS.length; i++) {
+            BRANDS[i] = Brand.builder().id(i + 1).name("Брэнд " + i).build();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int records = Integer.getInteger("records", 1_000_000);
+        int products = Integer.getInteger("products", 200_000);
+        int rounds = Integer.getInteger("rounds", 3);
+        Path directory = Files.createTempDirectory("codec-benchmark");
+        try {
+            System.out.printf("%-32s | %10s | %10s | %12s%n", "формат", "запись, мс", "чтение, мс", "файлы, КБ");
+            compareAudit(directory, records, rounds);
+            compareProducts(directory, products, rounds);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void compareAudit(Path directory, int records, int rounds) throws IOException {
+        List<Audit> audits = new ArrayList<>(records);
+        Random random = new Random(42);
+        for (int i = 0; i < records; i++) {
+            audits.add(Audit.builder()
+                    .id(i + 1L)
+                    .timestamp(1_700_000_000_000L + i * 50L + random.nextInt(50))
+                    .userEmail("user" + random.nextInt(200) + "@market.ru")
+                    .action(Action.UPDATE_PRODUCT)
+                    .isSuccess(random.nextInt(10) == 0 ? Status.FAIL : Status.SUCCESS)
+                    .productId(1L + random.nextInt(100_000))
+                    .productDelta(new ProductDelta(ProductDelta.PRICE | ProductDelta.STOCK, null,
+                            random.nextInt(100_000) / 100.0, null, null, null, random.nextInt(100)))
+                    .build());
+        }
+
+        Path serialized = directory.resolve("audit.sr");
+        long[] oos = measure(rounds,
+                () -> writeObject(serialized, audits),
+                () -> ((List<?>) readObject(serialized)).size());
+        print("Аудит, ObjectOutputStream", oos, Files.size(serialized));
+
+        Path segments = directory.resolve("audit");
+        long[] codec = measure(rounds,
+                () -> {
+                    delete(segments);
+                    AuditDB auditDB = new AuditDB();
+                    auditDB.attachStorage(segments);
+                    audits.forEach(auditDB::add);
+                    auditDB.flush();
+                },
+                () -> {
+                    AuditDB auditDB = new AuditDB();
+                    auditDB.attachStorage(segments);
+                    int[] count = {0};
+                    auditDB.forEach(audit -> count[0]++);
+                    return count[0];
+                });
+        print("Аудит, сегменты (кодек)", codec, sizeOf(segments));
+    }
+
+    private static void compareProducts(Path directory, int count, int rounds) throws IOException {
+        List<Product> catalog = new ArrayList<>(count);
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            catalog.add(Product.builder()
+                    .id(i + 1L)
+                    .name("Товар " + i)
+                    .price(random.nextInt(1_000_000) / 100.0)
+                    .category(CATEGORIES[random.nextInt(CATEGORIES.length)])
+                    .brand(BRANDS[random.nextInt(BRANDS.length)])
+                    .description("Описание товара " + i)
+                    .stockQuantity(random.nextInt(50))
+                    .creationTimestamp(1_700_000_000_000L + i)
+                    .lastModifiedTimestamp(1_700_000_000_000L + i)
+                    .build());
+        }
+
+        /* Чтение в обоих случаях включает загрузку товаров в новый ProductDB */
+        Path serialized = directory.resolve("product.sr");
+        long[] oos = measure(rounds,
+                () -> writeObject(serialized, catalog),
+                () -> {
+                    ProductDB restored = new ProductDB();
+                    for (Object product : (List<?>) readObject(serialized)) {
+                        restored.restore((Product) product);
+                    }
+                    return restored.size();
+                });
+        print("Товары, ObjectOutputStream", oos, Files.size(serialized));
+
+        /* Журнал заполняется один раз: добавления в ProductDB дописываются в него фоновым потоком */
+        Path journalDirectory = directory.resolve("journal");
+        ProductDB source = new ProductDB();
+        ProductJournal journal = ProductJournal.open(journalDirectory, source, productDB -> {
+        });
+        catalog.forEach(product -> source.restore(copy(product)));
+        journal.flush();
+        long journalBytes = sizeOf(journalDirectory);
+        long[] replay = measure(rounds, () -> {
+        }, () -> {
+            ProductDB restored = new ProductDB();
+            /* Не закрывается: закрытие сделало бы контрольную точку и удалило проигранный журнал */
+            ProductJournal.open(journalDirectory, restored, productDB -> {
+            });
+            return restored.size();
+        });
+        replay[0] = -1;
+        print("Товары, журнал (кодек)", replay, journalBytes);
+    }
+
+    /**
+     * @return лучшее время записи и чтения из rounds попыток, мс
+     */
+    private static long[] measure(int rounds, IORunnable save, IOCounter load) throws IOException {
+        long bestSave = Long.MAX_VALUE;
+        long bestLoad = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            save.run();
+            bestSave = Math.min(bestSave, (System.nanoTime() - start) / 1_000_000);
+            start = System.nanoTime();
+            if (load.count() < 0) {
+                throw new IllegalStateException("Nothing loaded");
+            }
+            bestLoad = Math.min(bestLoad, (System.nanoTime() - start) / 1_000_000);
+        }
+        return new long[]{bestSave, bestLoad};
+    }
+
+    private static void print(String title, long[] millis, long bytes) {
+        System.out.printf("%-32s | %10s | %10d | %12d%n", title,
+                millis[0] < 0 ? "-" : String.valueOf(millis[0]), millis[1], bytes / 1024);
+    }
+
+    private static Product copy(Product product) {
+        return Product.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .price(product.getPrice())
+                .category(product.getCategory())
+                .brand(product.getBrand())
+                .description(product.getDescription())
+                .stockQuantity(product.getStockQuantity())
+                .creationTimestamp(product.getCreationTimestamp())
+                .lastModifiedTimestamp(product.getLastModifiedTimestamp())
+                .build();
+    }
+
+    private static void writeObject(Path file, Object value) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 1 << 16))) {
+            out.writeObject(value);
+        }
+    }
+
+    private static Object readObject(Path file) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file.toFile()), 1 << 16))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private interface IORunnable {
+        void run() throws IOException;
+    }
+
+    private interface IOCounter {
+        int count() throws IOException;
+    }
+}
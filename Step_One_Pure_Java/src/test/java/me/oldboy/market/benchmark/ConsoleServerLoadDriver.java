@@ -0,0 +1,218 @@
+package me.oldboy.market.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный драйвер сервера консольного меню: N операторов одновременно входят в систему по TCP
+ * и выполняют только читающие сценарии - просмотр товара по ID (70%), статистика каталога (20%),
+ * поиск товаров по тексту (10%), затем выходят из системы. Каждая команда - строка, ответ читается
+ * до следующего приглашения меню. Итог - команды и сценарии в секунду, задержка команды (p50, p99, max).
+ * <p>
+ * Сервер запускается отдельно: java -Dserver.port=7070 -jar build/libs/market.jar
+ * <p>
+ * Запуск: gradlew serverLoad (или -Poperators=500 -Pseconds=60 -Phost=localhost -Pport=7070 -PmaxProductId=1000)
+ */
+public class ConsoleServerLoadDriver {
+    private static final String MAIN_PROMPT = "Покинуть программу;\n\nСделайте выбор и нажмите ввод: ";
+    private static final String SECTION_PROMPT = "покинуть раздел;\n\nСделайте выбор и нажмите ввод: ";
+    private static final String[] SEARCH_WORDS = {"ноутбук", "телефон", "кроссовки", "чайник", "куртка"};
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = System.getProperty("host", "localhost");
+        int port = Integer.getInteger("port", 7070);
+        int operators = Integer.getInteger("operators", 300);
+        int seconds = Integer.getInteger("seconds", 30);
+        int maxProductId = Integer.getInteger("maxProductId", 100);
+        String email = System.getProperty("email", "admin@market.ru");
+        String password = System.getProperty("password", "1234");
+
+        System.out.println("Сервер: " + host + ":" + port + ", операторов: " + operators +
+                ", длительность: " + seconds + " c");
+
+        LongAdder scenarios = new LongAdder();
+        LongAdder failures = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch loggedIn = new CountDownLatch(operators);
+        List<Operator> crew = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+
+        for (int i = 0; i < operators; i++) {
+            Operator operator = new Operator(host, port, maxProductId);
+            crew.add(operator);
+            workers.add(new Thread(() -> {
+                try {
+                    operator.logIn(email, password);
+                    loggedIn.countDown();
+                    loggedIn.await();
+                    while (running.get()) {
+                        operator.randomScenario();
+                        scenarios.increment();
+                    }
+                    operator.logOut();
+                } catch (IOException e) {
+                    failures.increment();
+                    System.out.println("Оператор отключен: " + e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    loggedIn.countDown();
+                    operator.close();
+                }
+            }, "operator-" + i));
+        }
+
+        long loginStart = System.nanoTime();
+        workers.forEach(Thread::start);
+        loggedIn.await();
+        long loginMillis = (System.nanoTime() - loginStart) / 1_000_000;
+        System.out.println("Все операторы вошли за " + loginMillis + " мс");
+
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long commands = crew.stream().mapToLong(operator -> operator.commands).sum();
+        long[] all = crew.stream()
+                .flatMapToLong(operator -> Arrays.stream(operator.latencies, 0, operator.commands))
+                .sorted()
+                .toArray();
+        System.out.printf("%-20s | %12s%n", "показатель", "значение");
+        System.out.printf("%-20s | %12.0f%n", "команд/с", commands / elapsed);
+        System.out.printf("%-20s | %12.0f%n", "сценариев/с", scenarios.sum() / elapsed);
+        System.out.printf("%-20s | %12.2f%n", "p50 команды, мс", percentile(all, 0.50) / 1e6);
+        System.out.printf("%-20s | %12.2f%n", "p99 команды, мс", percentile(all, 0.99) / 1e6);
+        System.out.printf("%-20s | %12.2f%n", "max команды, мс", all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+        System.out.printf("%-20s | %12d%n", "отключений", failures.sum());
+    }
+
+    private static long percentile(long[] sorted, double rank) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, (long) (rank * sorted.length))];
+    }
+
+    /**
+     * Один оператор: свое подключение к серверу и свой счетчик команд с задержками
+     */
+    private static final class Operator {
+        private final String host;
+        private final int port;
+        private final int maxProductId;
+        private final Response response = new Response();
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+        private long[] latencies = new long[1024];
+        private int commands;
+
+        private Operator(String host, int port, int maxProductId) {
+            this.host = host;
+            this.port = port;
+            this.maxProductId = maxProductId;
+        }
+
+        private void logIn(String email, String password) throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in = new BufferedInputStream(socket.getInputStream());
+            out = socket.getOutputStream();
+            read("нажмите ввод: ");
+            command("1", "Введите email: ");
+            command(email, "Введите пароль: ");
+            command(password, MAIN_PROMPT);
+        }
+
+        private void randomScenario() throws IOException {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int dice = random.nextInt(10);
+            if (dice < 7) {
+                command("2", SECTION_PROMPT);
+                command("1", "Введите ID интересующего продукта: ");
+                command(String.valueOf(1 + random.nextInt(maxProductId)), SECTION_PROMPT);
+                command("3", MAIN_PROMPT);
+            } else if (dice < 9) {
+                command("8", MAIN_PROMPT);
+            } else {
+                command("5", SECTION_PROMPT);
+                command("7", "Введите слова для поиска: ");
+                command(SEARCH_WORDS[random.nextInt(SEARCH_WORDS.length)], SECTION_PROMPT);
+                command("11", MAIN_PROMPT);
+            }
+        }
+
+        private void logOut() throws IOException {
+            command("10", null);
+        }
+
+        /**
+         * Отправляет строку и дочитывает ответ до приглашения (null - до закрытия соединения сервером)
+         */
+        private void command(String line, String prompt) throws IOException {
+            long start = System.nanoTime();
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            read(prompt);
+            if (commands == latencies.length) {
+                latencies = Arrays.copyOf(latencies, commands << 1);
+            }
+            latencies[commands++] = System.nanoTime() - start;
+        }
+
+        private void read(String prompt) throws IOException {
+            response.reset();
+            byte[] suffix = prompt == null ? null : prompt.getBytes(StandardCharsets.UTF_8);
+            while (true) {
+                int b = in.read();
+                if (b < 0) {
+                    if (suffix == null) {
+                        return;
+                    }
+                    throw new EOFException("сервер закрыл соединение, ответ: " + response.toString(StandardCharsets.UTF_8));
+                }
+                response.write(b);
+                if (suffix != null && response.endsWith(suffix)) {
+                    return;
+                }
+            }
+        }
+
+        private void close() {
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException ignored) {
+                /* Соединение уже закрыто */
+            }
+        }
+    }
+
+    /**
+     * Ответ сервера: окончание сверяется прямо в буфере, без копирования принятых байтов
+     */
+    private static final class Response extends ByteArrayOutputStream {
+        private Response() {
+            super(4096);
+        }
+
+        private boolean endsWith(byte[] suffix) {
+            return count >= suffix.length && Arrays.equals(buf, count - suffix.length, count, suffix, 0, suffix.length);
+        }
+    }
+}
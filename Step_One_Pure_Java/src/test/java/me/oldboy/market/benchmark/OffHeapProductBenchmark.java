@@ -0,0 +1,101 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Замер хранения товаров в куче и вне кучи ({@link ProductDB#ProductDB(boolean)}) на большом каталоге:
+ * <p>
+ * - время загрузки пачками ProductDB.addAll;
+ * - занятая куча после сборки мусора при живом каталоге и память вне кучи;
+ * - число и суммарное время сборок мусора за загрузку, пауза полной сборки (System.gc) с живым каталогом.
+ * <p>
+ * Запуск: gradlew offHeapBenchmark (или -Pproducts=5000000 -PbatchSize=4096)
+ */
+public class OffHeapProductBenchmark {
+
+    public static void main(String[] args) {
+        int products = Integer.getInteger("products", 5_000_000);
+        int batchSize = Integer.getInteger("batchSize", 4096);
+        List<Category> categories = new ArrayList<>();
+        List<Brand> brands = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            categories.add(new Category(i, "Категория " + i));
+            brands.add(new Brand(i, "Брэнд " + i));
+        }
+
+        System.out.println("Товаров: " + products + ", пачка: " + batchSize
+                + ", куча (max): " + Runtime.getRuntime().maxMemory() / (1 << 20) + " Мб");
+        System.out.printf("%-8s | %10s | %10s | %10s | %8s | %12s | %12s%n",
+                "режим", "загрузка,мс", "куча, Мб", "вне кучи,Мб", "сборок", "сборки, мс", "полная, мс");
+        for (boolean offHeap : new boolean[]{false, true}) {
+            fullGc();
+            long heapBefore = usedHeap();
+            long[] gcBefore = gcCountAndTime();
+
+            ProductDB productDB = new ProductDB(offHeap);
+            Random random = new Random(42);
+            long start = System.nanoTime();
+            for (int from = 0; from < products; from += batchSize) {
+                productDB.addAll(batch(random, from, Math.min(products, from + batchSize), categories, brands));
+            }
+            long loadMillis = (System.nanoTime() - start) / 1_000_000;
+            long[] gcAfter = gcCountAndTime();
+
+            long fullGcMillis = fullGc();
+            long heap = usedHeap() - heapBefore;
+            if (productDB.size() != products) {
+                throw new IllegalStateException("Загружено " + productDB.size() + " товаров");
+            }
+            System.out.printf("%-8s | %10d | %10d | %10d | %8d | %12d | %12d%n",
+                    offHeap ? "вне кучи" : "куча", loadMillis, heap >> 20, productDB.offHeapBytes() >> 20,
+                    gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1], fullGcMillis);
+        }
+    }
+
+    private static List<Product> batch(Random random, int from, int to, List<Category> categories, List<Brand> brands) {
+        List<Product> batch = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            batch.add(Product.builder()
+                    .name("Товар " + i)
+                    .price(random.nextInt(1_000_000) / 100.0)
+                    .category(categories.get(random.nextInt(categories.size())))
+                    .brand(brands.get(random.nextInt(brands.size())))
+                    .description("Описание товара " + i + " для каталога")
+                    .stockQuantity(random.nextInt(50))
+                    .build());
+        }
+        return batch;
+    }
+
+    /**
+     * @return длительность полной сборки мусора, мс
+     */
+    private static long fullGc() {
+        long start = System.nanoTime();
+        System.gc();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long[] gcCountAndTime() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return new long[]{count, millis};
+    }
+}
@@ -0,0 +1,119 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный замер ProductDB под конкурентным доступом: смешанная нагрузка
+ * (80% чтение по ID, 10% добавление, 10% обновление) на 1, 2, 4 ... N потоках.
+ * <p>
+ * Запуск: gradlew contentionBenchmark (или -Pthreads=16 -PseedSize=100000 -PsecondsPerRun=3)
+ */
+public class ProductDBContentionBenchmark {
+    private static final Category[] CATEGORIES = {
+            Category.builder().id(1).name("Обувь").build(),
+            Category.builder().id(2).name("Уборка").build(),
+            Category.builder().id(3).name("Электроника").build()
+    };
+    private static final Brand[] BRANDS = {
+            Brand.builder().id(1).name("Puma").build(),
+            Brand.builder().id(2).name("PolarBear").build(),
+            Brand.builder().id(3).name("Marten").build()
+    };
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+        int seedSize = Integer.getInteger("seedSize", 100_000);
+        int secondsPerRun = Integer.getInteger("secondsPerRun", 3);
+
+        System.out.println("Ядер: " + Runtime.getRuntime().availableProcessors() +
+                ", товаров на старте: " + seedSize + ", длительность прогона: " + secondsPerRun + " c");
+        System.out.printf("%8s | %15s | %8s%n", "потоков", "операций/с", "рост");
+
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double throughput = run(threads, seedSize, secondsPerRun);
+            if (baseline == 0) {
+                baseline = throughput;
+            }
+            System.out.printf("%8d | %15.0f | %7.2fx%n", threads, throughput, throughput / baseline);
+        }
+    }
+
+    private static double run(int threads, int seedSize, int seconds) throws InterruptedException {
+        ProductDB productDB = new ProductDB();
+        for (int i = 0; i < seedSize; i++) {
+            productDB.add(newProduct(i));
+        }
+
+        LongAdder operations = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long done = 0;
+                while (running.get()) {
+                    int dice = random.nextInt(10);
+                    long id = 1 + random.nextInt(seedSize);
+                    if (dice == 0) {
+                        productDB.add(newProduct(random.nextInt()));
+                    } else if (dice == 1) {
+                        productDB.findProductById(id).ifPresent(found -> {
+                            Product update = Product.builder()
+                                    .id(found.getId())
+                                    .name(found.getName())
+                                    .category(found.getCategory())
+                                    .brand(found.getBrand())
+                                    .price(found.getPrice() + 1)
+                                    .stockQuantity(found.getStockQuantity())
+                                    .build();
+                            productDB.update(update);
+                        });
+                    } else {
+                        productDB.findProductById(id);
+                    }
+                    done++;
+                }
+                operations.add(done);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return operations.sum() / (double) seconds;
+    }
+
+    private static Product newProduct(int seed) {
+        return Product.builder()
+                .name("Товар " + seed)
+                .price(10 + Math.abs(seed % 1000))
+                .category(CATEGORIES[Math.abs(seed % CATEGORIES.length)])
+                .brand(BRANDS[Math.abs(seed % BRANDS.length)])
+                .description("Описание товара " + seed)
+                .stockQuantity(Math.abs(seed % 100))
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import me.oldboy.market.repository.ProductRepository;
+
+import java.util.*;
+
+/**
+ * Отчет о занимаемой индексами ProductDB памяти кучи на 1М товаров: прежняя раскладка
+ * (ArrayList + HashMap&lt;Long, Product&gt; + HashMap&lt;Category/Brand, ArrayList&lt;Product&gt;&gt;)
+ * против текущей (слоты + примитивные индексы), заполняемой через ProductRepository.
+ * <p>
+ * Сами объекты Product в обоих случаях одни и те же и в разницу не входят.
+ * Запуск: gradlew footprintReport (или -Pproducts=1000000)
+ */
+public class ProductDBFootprintReport {
+    private static final Category[] CATEGORIES = {
+            Category.builder().id(1).name("Обувь").build(),
+            Category.builder().id(2).name("Уборка").build(),
+            Category.builder().id(3).name("Электроника").build()
+    };
+    private static final Brand[] BRANDS = {
+            Brand.builder().id(1).name("Puma").build(),
+            Brand.builder().id(2).name("PolarBear").build(),
+            Brand.builder().id(3).name("Marten").build()
+    };
+
+    public static void main(String[] args) {
+        int count = Integer.getInteger("products", 1_000_000);
+
+        Product[] products = new Product[count];
+        for (int i = 0; i < count; i++) {
+            products[i] = Product.builder()
+                    .name("Товар " + i)
+                    .price(10 + i % 1000)
+                    .category(CATEGORIES[i % CATEGORIES.length])
+                    .brand(BRANDS[i % BRANDS.length])
+                    .description("Описание " + i)
+                    .stockQuantity(i % 100)
+                    .build();
+        }
+        long productsOnly = usedHeap();
+
+        LegacyLayout legacy = new LegacyLayout();
+        for (Product product : products) {
+            legacy.add(product);
+        }
+        long legacyBytes = usedHeap() - productsOnly;
+        legacy = null;
+
+        long beforeNew = usedHeap();
+        ProductRepository productRepository = new ProductRepository(new ProductDB());
+        for (Product product : products) {
+            productRepository.save(product);
+        }
+        long currentBytes = usedHeap() - beforeNew;
+
+        /* Контрольные обращения через API репозитория */
+        if (productRepository.findById((long) count).isEmpty()
+                || productRepository.findByCategory(CATEGORIES[0]).isEmpty()
+                || productRepository.findAll().size() != count) {
+            throw new IllegalStateException("ProductRepository lost data");
+        }
+
+        System.out.println("Товаров: " + count);
+        System.out.printf("%-40s | %12s | %14s%n", "раскладка", "МБ", "байт на товар");
+        print("HashMap/ArrayList (прежняя)", legacyBytes, count);
+        print("слоты + примитивные индексы (текущая)", currentBytes, count);
+        System.out.printf("Экономия: %.1f%%%n", 100.0 * (legacyBytes - currentBytes) / legacyBytes);
+    }
+
+    private static void print(String layout, long bytes, int count) {
+        System.out.printf("%-40s | %12.1f | %14.1f%n", layout, bytes / 1024.0 / 1024.0, (double) bytes / count);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Повторяет структуры прежней версии ProductDB
+     */
+    private static class LegacyLayout {
+        private final List<Product> productsList = new ArrayList<>();
+        private final Map<Long, Product> productByIdIndex = new HashMap<>();
+        private final Map<Category, List<Product>> categoryIndex = new HashMap<>();
+        private final Map<Brand, List<Product>> brandIndex = new HashMap<>();
+
+        private void add(Product product) {
+            /* Как и прежний add() - новый ID упаковывается в новый Long */
+            Long index = productsList.size() + 1L;
+            product.setId(index);
+            productsList.add(product);
+            productByIdIndex.put(index, product);
+            categoryIndex.computeIfAbsent(product.getCategory(), c -> new ArrayList<>()).add(product);
+            brandIndex.computeIfAbsent(product.getBrand(), b -> new ArrayList<>()).add(product);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.cache_bd.BrandDB;
+import me.oldboy.market.cache_bd.CategoryDB;
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.cache_bd.loaders.BrandDBLoader;
+import me.oldboy.market.cache_bd.loaders.CategoryDBLoader;
+import me.oldboy.market.entity.ImportReport;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import me.oldboy.market.repository.BrandRepository;
+import me.oldboy.market.repository.CategoryRepository;
+import me.oldboy.market.repository.ProductRepository;
+import me.oldboy.market.services.ProductImportService;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Замер пакетной вставки товаров:
+ * <p>
+ * - ProductDB.add по одному товару против ProductDB.addAll пачками (диапазон ID, блокировка полосы
+ * и пакетное построение индексов - на пачку);
+ * - полный импорт CSV через ProductImportService (разбор, проверка, поиск повторов и вставка), строк в секунду.
+ * <p>
+ * Запуск: gradlew importBenchmark (или -Prows=300000 -PbatchSize=4096 -Prounds=3)
+ */
+public class ProductImportBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int rows = Integer.getInteger("rows", 300_000);
+        int batchSize = Integer.getInteger("batchSize", 4096);
+        int rounds = Integer.getInteger("rounds", 3);
+
+        CategoryDB categoryDB = CategoryDB.getINSTANCE();
+        CategoryDBLoader.initInMemoryBase(categoryDB);
+        BrandDB brandDB = BrandDB.getINSTANCE();
+        BrandDBLoader.initInMemoryBase(brandDB);
+        List<Category> categories = categoryDB.findAll();
+        List<Brand> brands = brandDB.findAll();
+        String csv = csv(rows, categories, brands);
+
+        System.out.println("Товаров: " + rows + ", пачка: " + batchSize + ", ядер: " + Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-28s | %10s | %12s%n", "способ", "лучшее, мс", "строк/с");
+        long bestAdd = Long.MAX_VALUE;
+        long bestAddAll = Long.MAX_VALUE;
+        long bestImport = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            List<Product> products = products(rows, categories, brands);
+            ProductDB productDB = new ProductDB();
+            long start = System.nanoTime();
+            for (Product product : products) {
+                productDB.add(product);
+            }
+            bestAdd = Math.min(bestAdd, (System.nanoTime() - start) / 1_000_000);
+
+            products = products(rows, categories, brands);
+            productDB = new ProductDB();
+            start = System.nanoTime();
+            for (int from = 0; from < rows; from += batchSize) {
+                productDB.addAll(products.subList(from, Math.min(rows, from + batchSize)));
+            }
+            bestAddAll = Math.min(bestAddAll, (System.nanoTime() - start) / 1_000_000);
+
+            ProductImportService importService = new ProductImportService(new ProductRepository(new ProductDB()),
+                    new CategoryRepository(categoryDB), new BrandRepository(brandDB));
+            ImportReport report = importService.importCsv(new StringReader(csv), "benchmark.csv");
+            if (report.getImported() != rows) {
+                throw new IllegalStateException(report.summary());
+            }
+            bestImport = Math.min(bestImport, report.getElapsedMillis());
+        }
+        print("ProductDB.add по одному", bestAdd, rows);
+        print("ProductDB.addAll пачками", bestAddAll, rows);
+        print("импорт CSV", bestImport, rows);
+    }
+
+    private static void print(String title, long millis, int rows) {
+        System.out.printf("%-28s | %10d | %12d%n", title, millis, rows * 1000L / Math.max(millis, 1));
+    }
+
+    private static List<Product> products(int rows, List<Category> categories, List<Brand> brands) {
+        List<Product> products = new ArrayList<>(rows);
+        Random random = new Random(42);
+        for (int i = 0; i < rows; i++) {
+            products.add(Product.builder()
+                    .name("Товар " + i)
+                    .price(random.nextInt(1_000_000) / 100.0)
+                    .category(categories.get(random.nextInt(categories.size())))
+                    .brand(brands.get(random.nextInt(brands.size())))
+                    .description("Описание товара " + i)
+                    .stockQuantity(random.nextInt(50))
+                    .build());
+        }
+        return products;
+    }
+
+    private static String csv(int rows, List<Category> categories, List<Brand> brands) {
+        StringBuilder csv = new StringBuilder("name,price,category,brand,description,stock\n");
+        for (Product product : products(rows, categories, brands)) {
+            csv.append(product.getName()).append(',')
+                    .append(product.getPrice()).append(',')
+                    .append(product.getCategory().getName()).append(',')
+                    .append(product.getBrand().getName()).append(',')
+                    .append('"').append(product.getDescription()).append("\",")
+                    .append(product.getStockQuantity()).append('\n');
+        }
+        return csv.toString();
+    }
+}
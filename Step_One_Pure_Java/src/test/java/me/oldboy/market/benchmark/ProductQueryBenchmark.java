@@ -0,0 +1,99 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.cache_bd.query.ProductQuery;
+import me.oldboy.market.cache_bd.query.ProductSort;
+import me.oldboy.market.cache_bd.query.QueryResult;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Замер запросов ProductQuery на 1М товаров (20 категорий, 500 брэндов) против прежнего способа -
+ * выборки всей категории (брэнда) с фильтрацией и сортировкой в памяти. Для каждого запроса
+ * печатается выбранный планировщиком план.
+ * <p>
+ * Запуск: gradlew queryBenchmark (или -Pproducts=1000000 -Prounds=20)
+ */
+public class ProductQueryBenchmark {
+
+    public static void main(String[] args) {
+        int count = Integer.getInteger("products", 1_000_000);
+        int rounds = Integer.getInteger("rounds", 20);
+        Category[] categories = new Category[20];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = Category.builder().id(i + 1).name("Категория " + i).build();
+        }
+        Brand[] brands = new Brand[500];
+        for (int i = 0; i < brands.length; i++) {
+            brands[i] = Brand.builder().id(i + 1).name("Брэнд " + i).build();
+        }
+
+        Random random = new Random(42);
+        ProductDB productDB = new ProductDB();
+        for (int i = 0; i < count; i++) {
+            productDB.add(Product.builder()
+                    .name("Товар " + i)
+                    .price(random.nextInt(1_000_000) / 100.0)
+                    .category(categories[random.nextInt(categories.length)])
+                    .brand(brands[random.nextInt(brands.length)])
+                    .stockQuantity(random.nextInt(50))
+                    .build());
+        }
+        Category category = categories[3];
+        Brand brand = brands[77];
+
+        measure("категория + ID", rounds,
+                () -> productDB.findProductByCategory(category).stream()
+                        .filter(product -> product.getId() == 424242L).collect(Collectors.toList()),
+                ProductQuery.builder().category(category).id(424242L).build(), productDB);
+        measure("категория + брэнд", rounds,
+                () -> productDB.findProductByCategory(category).stream()
+                        .filter(product -> brand.equals(product.getBrand())).collect(Collectors.toList()),
+                ProductQuery.builder().category(category).brand(brand).build(), productDB);
+        measure("10 самых дешевых в категории", rounds,
+                () -> productDB.findProductByCategory(category).stream()
+                        .sorted(Comparator.comparingDouble(Product::getPrice).thenComparing(Product::getId))
+                        .limit(10).collect(Collectors.toList()),
+                ProductQuery.builder().category(category).sort(ProductSort.PRICE_ASC).limit(10).build(), productDB);
+        measure("цена 100..101, в наличии", rounds,
+                () -> productDB.getProductsList().stream()
+                        .filter(product -> product.getPrice() >= 100 && product.getPrice() <= 101 && product.getStockQuantity() > 0)
+                        .collect(Collectors.toList()),
+                ProductQuery.builder().minPrice(100.0).maxPrice(101.0).inStock(true).build(), productDB);
+        measure("начало названия (без индекса)", rounds,
+                () -> productDB.getProductsList().stream()
+                        .filter(product -> product.getName().startsWith("Товар 99999"))
+                        .collect(Collectors.toList()),
+                ProductQuery.builder().namePrefix("Товар 99999").build(), productDB);
+    }
+
+    private static void measure(String title, int rounds, Supplier<List<Product>> before, ProductQuery query, ProductDB productDB) {
+        for (int i = 0; i < 3; i++) {
+            before.get();
+            productDB.query(query);
+        }
+        long start = System.nanoTime();
+        int expected = 0;
+        for (int i = 0; i < rounds; i++) {
+            expected = before.get().size();
+        }
+        double beforeMs = (System.nanoTime() - start) / 1e6 / rounds;
+
+        start = System.nanoTime();
+        QueryResult result = null;
+        for (int i = 0; i < rounds; i++) {
+            result = productDB.query(query);
+        }
+        double queryMs = (System.nanoTime() - start) / 1e6 / rounds;
+
+        System.out.printf("%n%s: найдено %d (прежде %d), прежде %.3f мс, ProductQuery %.3f мс%n%s%n",
+                title, result.getProducts().size(), expected, beforeMs, queryMs, result.getPlan().explain());
+    }
+}
@@ -0,0 +1,126 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.cache_bd.snapshot.ProductColumnarSnapshot;
+import me.oldboy.market.cache_bd.snapshot.ProductSnapshotConverter;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Замер времени загрузки снимка каталога на 1М товаров: прежний формат (ObjectInputStream)
+ * против колоночного (FileChannel.map) - только открытие, открытие + сборка всех Product
+ * в ProductDB, и сканирование колонки цен прямо по отображенному буферу.
+ * <p>
+ * Запуск: gradlew snapshotLoadBenchmark (или -Pproducts=1000000 -Prounds=5)
+ */
+public class ProductSnapshotLoadBenchmark {
+    private static final Category[] CATEGORIES = {
+            Category.builder().id(1).name("Обувь").build(),
+            Category.builder().id(2).name("Уборка").build(),
+            Category.builder().id(3).name("Электроника").build()
+    };
+    private static final Brand[] BRANDS = {
+            Brand.builder().id(1).name("Puma").build(),
+            Brand.builder().id(2).name("PolarBear").build(),
+            Brand.builder().id(3).name("Marten").build()
+    };
+
+    public static void main(String[] args) throws IOException {
+        int count = Integer.getInteger("products", 1_000_000);
+        int rounds = Integer.getInteger("rounds", 5);
+
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(Product.builder()
+                    .id(i + 1L)
+                    .name("Товар " + i)
+                    .price(10 + i % 1000)
+                    .category(CATEGORIES[i % CATEGORIES.length])
+                    .brand(BRANDS[i % BRANDS.length])
+                    .description("Описание " + i)
+                    .stockQuantity(i % 100)
+                    .creationTimestamp(1_700_000_000_000L + i)
+                    .lastModifiedTimestamp(1_700_000_000_000L + i)
+                    .build());
+        }
+
+        Path directory = Files.createTempDirectory("snapshot-benchmark");
+        Path legacyFile = directory.resolve("product.sr");
+        Path columnarFile = directory.resolve("product.col");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(legacyFile.toFile())))) {
+                out.writeObject(products);
+            }
+            products = null;
+            ProductSnapshotConverter.convert(legacyFile, columnarFile);
+
+            System.out.println("Товаров: " + count + ", прогонов: " + rounds + " (лучший результат)");
+            System.out.printf("Размер файла: product.sr %.1f МБ, product.col %.1f МБ%n",
+                    Files.size(legacyFile) / 1024.0 / 1024.0, Files.size(columnarFile) / 1024.0 / 1024.0);
+            System.out.printf("%-45s | %10s%n", "операция", "мс");
+
+            print("ObjectInputStream -> ProductDB (прежний)", best(rounds, () -> {
+                ProductDB productDB = new ProductDB();
+                ProductSnapshotConverter.readLegacy(legacyFile).forEach(productDB::restore);
+                return productDB.size();
+            }));
+            print("map (открытие колоночного снимка)", best(rounds, () -> {
+                try (ProductColumnarSnapshot snapshot = ProductColumnarSnapshot.open(columnarFile)) {
+                    return snapshot.rowCount();
+                }
+            }));
+            print("map -> ProductDB (колоночный)", best(rounds, () -> {
+                ProductDB productDB = new ProductDB();
+                try (ProductColumnarSnapshot snapshot = ProductColumnarSnapshot.open(columnarFile)) {
+                    for (int row = 0; row < snapshot.rowCount(); row++) {
+                        productDB.restore(snapshot.product(row));
+                    }
+                }
+                return productDB.size();
+            }));
+            print("map + скан цен 100..200 без Product", best(rounds, () -> {
+                try (ProductColumnarSnapshot snapshot = ProductColumnarSnapshot.open(columnarFile)) {
+                    return (int) snapshot.rowsWithPriceBetween(100, 200).count();
+                }
+            }));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void print(String operation, double millis) {
+        System.out.printf("%-45s | %10.1f%n", operation, millis);
+    }
+
+    private static double best(int rounds, Load load) throws IOException {
+        long best = Long.MAX_VALUE;
+        int check = -1;
+        for (int i = 0; i < rounds; i++) {
+            System.gc();
+            long start = System.nanoTime();
+            int result = load.run();
+            best = Math.min(best, System.nanoTime() - start);
+            if (check != -1 && check != result) {
+                throw new IllegalStateException("Unstable result: " + check + " vs " + result);
+            }
+            check = result;
+        }
+        return best / 1_000_000.0;
+    }
+
+    @FunctionalInterface
+    private interface Load {
+        int run() throws IOException;
+    }
+}
@@ -0,0 +1,105 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Замер поиска товаров по тексту на 1М товаров: полнотекстовый индекс ProductDB против
+ * прежнего способа - просмотра всего каталога с проверкой вхождения слов в название и описание.
+ * Запросы от узкого (редкие слова) до широкого (слово есть у трети каталога).
+ * <p>
+ * Запуск: gradlew textSearchBenchmark (или -Pproducts=1000000 -Prounds=200)
+ */
+public class ProductTextSearchBenchmark {
+    private static final int LIMIT = 20;
+    private static final String[] NOUNS = {
+            "кроссовки", "ботинки", "туфли", "сапоги", "куртка", "пылесос", "швабра", "ведро",
+            "наушники", "колонка", "зарядка", "кабель", "чайник", "фонарь", "рюкзак", "перчатки"
+    };
+    private static final String[] ADJECTIVES = {
+            "беговые", "зимние", "летние", "кожаные", "легкие", "прочные", "беспроводные", "компактные",
+            "водонепроницаемые", "детские", "мужские", "женские", "складные", "дорожные", "яркие", "тихие"
+    };
+    private static final String[] WORDS = {
+            "удобный", "надежный", "гарантия", "качество", "материал", "подарок", "доставка", "новинка",
+            "хит", "сезон", "скидка", "комплект", "цвет", "размер", "модель", "серия", "коллекция",
+            "оригинал", "производство", "упаковка", "уход", "стирка", "батарея", "мощность"
+    };
+    private static final String[] QUERIES = {
+            "модель 424242",
+            "беспроводные наушники 777",
+            "кожаные сапоги",
+            "Водонепроницаемые РЮКЗАКИ дорожные",
+            "гарантия"
+    };
+
+    public static void main(String[] args) {
+        int count = Integer.getInteger("products", 1_000_000);
+        int rounds = Integer.getInteger("rounds", 200);
+        Category category = Category.builder().id(1).name("Разное").build();
+        Brand brand = Brand.builder().id(1).name("Marten").build();
+
+        Random random = new Random(42);
+        ProductDB productDB = new ProductDB();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            productDB.add(Product.builder()
+                    .name(ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)]
+                            + " модель " + i)
+                    .category(category)
+                    .brand(brand)
+                    .description(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                            + ", " + WORDS[random.nextInt(WORDS.length)] + " " + (i % 1000))
+                    .build());
+        }
+        System.out.printf("Товаров: %d, загрузка в ProductDB с индексами: %.0f мс%n", count, (System.nanoTime() - start) / 1e6);
+
+        List<Product> all = productDB.getProductsList();
+        System.out.printf("%-40s | %8s | %12s | %12s%n", "запрос", "найдено", "индекс, мс", "просмотр, мс");
+        for (String query : QUERIES) {
+            for (int i = 0; i < rounds / 10 + 1; i++) {
+                productDB.searchByText(query, LIMIT);
+            }
+            start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < rounds; i++) {
+                found = productDB.searchByText(query, LIMIT).size();
+            }
+            double indexed = (System.nanoTime() - start) / 1e6 / rounds;
+
+            int scanRounds = Math.max(1, rounds / 50);
+            start = System.nanoTime();
+            for (int i = 0; i < scanRounds; i++) {
+                scan(all, query);
+            }
+            double scanned = (System.nanoTime() - start) / 1e6 / scanRounds;
+            System.out.printf("%-40s | %8d | %12.3f | %12.1f%n", query, found, indexed, scanned);
+        }
+    }
+
+    /**
+     * Прежний способ: все слова запроса должны входить в название или описание товара
+     */
+    private static List<Product> scan(List<Product> products, String query) {
+        String[] words = query.toLowerCase(Locale.ROOT).split("\\s+");
+        return products.stream()
+                .filter(product -> {
+                    String text = (product.getName() + " " + product.getDescription()).toLowerCase(Locale.ROOT);
+                    for (String word : words) {
+                        if (!text.contains(word)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                })
+                .limit(LIMIT)
+                .collect(Collectors.toList());
+    }
+}
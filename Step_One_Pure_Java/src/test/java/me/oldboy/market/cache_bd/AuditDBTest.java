@@ -1,15 +1,26 @@
 package me.oldboy.market.cache_bd;
 
+import me.oldboy.market.cache_bd.audit.UserActivity;
+import me.oldboy.market.cache_bd.codec.CorruptBlockException;
 import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.ProductDelta;
 import me.oldboy.market.entity.log_enum.Action;
 import me.oldboy.market.entity.log_enum.Status;
+import me.oldboy.market.exceptions.AuditDBException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Date;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class AuditDBTest {
     private AuditDB auditDB;
@@ -41,7 +52,7 @@ class AuditDBTest {
 
     @AfterEach
     void cleanBase(){
-        auditDB.getAuditLogList().clear();
+        auditDB.clear();
     }
 
 
@@ -51,4 +62,275 @@ class AuditDBTest {
         assertThat(auditDB.add(audRec_2)).isEqualTo(2L);
         assertThat(auditDB.add(audRec_3)).isEqualTo(3L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void findById_shouldFindRecordsAcrossSegments_Test() {
+        AuditDB segmented = new AuditDB(4);
+        for (int i = 0; i < 10; i++) {
+            segmented.add(record(1000L + i));
+        }
+
+        assertThat(segmented.size()).isEqualTo(10);
+        assertThat(segmented.findById(1L).get().getTimestamp()).isEqualTo(1000L);
+        assertThat(segmented.findById(6L).get().getTimestamp()).isEqualTo(1005L);
+        assertThat(segmented.findById(10L).get().getTimestamp()).isEqualTo(1009L);
+        assertThat(segmented.findById(11L)).isEmpty();
+        assertThat(segmented.findAll()).extracting(Audit::getId).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+    }
+
+    @Test
+    void findByTimestampBetween_shouldReturnOnlyRecordsInRange_Test() {
+        AuditDB segmented = new AuditDB(4);
+        for (int i = 0; i < 12; i++) {
+            segmented.add(record(1000L + i * 10));
+        }
+
+        assertThat(segmented.findByTimestampBetween(1035, 1070))
+                .extracting(Audit::getTimestamp)
+                .containsExactly(1040L, 1050L, 1060L, 1070L);
+    }
+
+    @Test
+    void sealedSegments_shouldBeEvictedToDisk_andReloadedAfterRestart_Test(@TempDir Path dir) {
+        AuditDB segmented = new AuditDB(4);
+        segmented.attachStorage(dir);
+        for (int i = 0; i < 18; i++) {
+            segmented.add(record(1000L + i));
+        }
+        segmented.flush();
+
+        /* 4 запечатанных сегмента на диске, в куче - только текущий */
+        assertThat(segmented.residentSegments()).isEqualTo(1);
+        assertThat(segmented.findById(2L).get().getTimestamp()).isEqualTo(1001L);
+
+        AuditDB restarted = new AuditDB(4);
+        restarted.attachStorage(dir);
+
+        assertThat(restarted.size()).isEqualTo(18);
+        assertThat(restarted.findById(17L).get().getTimestamp()).isEqualTo(1016L);
+        assertThat(restarted.findById(5L).get().getTimestamp()).isEqualTo(1004L);
+        assertThat(restarted.add(record(2000L))).isEqualTo(19L);
+    }
+
+    @Test
+    void retention_shouldDropWholeOldSegments_Test(@TempDir Path dir) throws Exception {
+        AuditDB segmented = new AuditDB(4);
+        segmented.attachStorage(dir);
+        segmented.setRetainedSegments(2);
+        for (int i = 0; i < 14; i++) {
+            segmented.add(record(1000L + i));
+        }
+
+        /* Запечатано 3 сегмента, хранятся 2 последних + текущий */
+        assertThat(segmented.size()).isEqualTo(10);
+        assertThat(segmented.findById(4L)).isEmpty();
+        assertThat(segmented.findById(5L)).isNotEmpty();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.map(f -> f.getFileName().toString()).collect(Collectors.toList()))
+                    .containsExactlyInAnyOrder("segment-0000000000000001.seg", "segment-0000000000000002.seg");
+        }
+
+        assertThat(segmented.dropSegmentsOlderThan(1008L)).isEqualTo(4);
+        assertThat(segmented.size()).isEqualTo(6);
+        assertThat(segmented.findAll()).extracting(Audit::getId).containsExactly(9L, 10L, 11L, 12L, 13L, 14L);
+    }
+
+    @Test
+    void sealedSegments_shouldKeepCompactRecordFields_Test(@TempDir Path dir) {
+        AuditDB segmented = new AuditDB(2);
+        segmented.attachStorage(dir);
+        ProductDelta delta = new ProductDelta(ProductDelta.PRICE | ProductDelta.DESCRIPTION, null, 99.5, null, null, null, 0);
+        segmented.add(Audit.builder()
+                .timestamp(1000L)
+                .userEmail("u1@marcet.ru")
+                .action(Action.UPDATE_PRODUCT)
+                .isSuccess(Status.FAIL)
+                .productId(42L)
+                .productDelta(delta)
+                .build());
+        segmented.add(record(1001L));
+        segmented.add(record(1002L));
+
+        AuditDB restarted = new AuditDB(2);
+        restarted.attachStorage(dir);
+        Audit restored = restarted.findById(1L).get();
+
+        assertThat(restored.getTimestamp()).isEqualTo(1000L);
+        assertThat(restored.getUserEmail()).isEqualTo("u1@marcet.ru");
+        assertThat(restored.getAction()).isEqualTo(Action.UPDATE_PRODUCT);
+        assertThat(restored.getIsSuccess()).isEqualTo(Status.FAIL);
+        assertThat(restored.getProductId()).isEqualTo(42L);
+        assertThat(restored.getProductDelta()).isEqualTo(delta);
+        assertThat(restarted.findById(2L).get().getProductDelta()).isNull();
+    }
+
+    @Test
+    void sealedSegments_shouldKeepBatchSummary_apartFromProductDelta_Test(@TempDir Path dir) {
+        AuditDB segmented = new AuditDB(2);
+        segmented.attachStorage(dir);
+        segmented.add(Audit.builder()
+                .timestamp(1000L)
+                .action(Action.IMPORT_PRODUCTS)
+                .isSuccess(Status.SUCCESS)
+                .summary("Импорт test.csv: добавлено 2, отклонено 4")
+                .build());
+        segmented.add(record(1001L));
+        segmented.add(record(1002L));
+
+        AuditDB restarted = new AuditDB(2);
+        restarted.attachStorage(dir);
+        Audit restored = restarted.findById(1L).get();
+
+        assertThat(restored.getSummary()).isEqualTo("Импорт test.csv: добавлено 2, отклонено 4");
+        assertThat(restored.getProductDelta()).isNull();
+        assertThat(restarted.findById(2L).get().getSummary()).isNull();
+    }
+
+    @Test
+    void sealedSegments_shouldDetectCorruptedRecordBlock_Test(@TempDir Path dir) throws Exception {
+        AuditDB segmented = new AuditDB(2);
+        segmented.attachStorage(dir);
+        segmented.add(record(1000L));
+        segmented.add(record(1001L));
+        segmented.add(record(1002L));
+        segmented.flush();
+        /* Портим последний байт блока записей запечатанного сегмента */
+        Path sealed = dir.resolve("segment-0000000000000000.seg");
+        byte[] bytes = Files.readAllBytes(sealed);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(sealed, bytes);
+
+        AuditDB restarted = new AuditDB(2);
+        restarted.attachStorage(dir);
+
+        assertThat(restarted.size()).isEqualTo(3);
+        assertThatThrownBy(() -> restarted.findById(1L))
+                .isInstanceOf(AuditDBException.class)
+                .hasRootCauseInstanceOf(CorruptBlockException.class);
+        assertThat(restarted.findById(3L).get().getTimestamp()).isEqualTo(1002L);
+    }
+
+    @Test
+    void findByUserEmail_shouldReadOnlyIndexedSegments_andSurviveRestart_Test(@TempDir Path dir) {
+        AuditDB segmented = new AuditDB(4);
+        segmented.attachStorage(dir);
+        for (int i = 0; i < 10; i++) {
+            Audit audit = record(1000L + i);
+            audit.setUserEmail(i == 1 || i == 9 ? "rare@market.ru" : "often@market.ru");
+            segmented.add(audit);
+        }
+        segmented.flush();
+
+        assertThat(segmented.findByUserEmail("rare@market.ru")).extracting(Audit::getId).containsExactly(2L, 10L);
+        assertThat(segmented.findByUserEmail("nobody@market.ru")).isEmpty();
+
+        AuditDB restarted = new AuditDB(4);
+        restarted.attachStorage(dir);
+
+        assertThat(restarted.findByUserEmail("rare@market.ru")).extracting(Audit::getId).containsExactly(2L, 10L);
+        assertThat(restarted.findByUserEmail("often@market.ru")).hasSize(8);
+
+        restarted.setRetainedSegments(1);
+
+        assertThat(restarted.findByUserEmail("rare@market.ru")).extracting(Audit::getId).containsExactly(10L);
+    }
+
+    @Test
+    void loadOnFirstAccess_shouldRunLoaderOnce_beforeFirstRead_Test(@TempDir Path dir) {
+        AuditDB saved = new AuditDB(4);
+        saved.attachStorage(dir);
+        for (int i = 0; i < 6; i++) {
+            saved.add(record(1000L + i));
+        }
+        saved.flush();
+
+        AuditDB lazy = new AuditDB(4);
+        int[] loads = {0};
+        lazy.loadOnFirstAccess(db -> {
+            loads[0]++;
+            db.attachStorage(dir);
+            /* Обращение к аудиту из самого загрузчика не ждет загрузки */
+            db.setRetainedSegments(10);
+        });
+
+        assertThat(lazy.isLoadPending()).isTrue();
+        assertThat(loads[0]).isZero();
+
+        assertThat(lazy.size()).isEqualTo(6);
+        assertThat(lazy.add(record(2000L))).isEqualTo(7L);
+        assertThat(loads[0]).isEqualTo(1);
+        assertThat(lazy.isLoadPending()).isFalse();
+    }
+
+    @Test
+    void loadOnFirstAccess_shouldKeepFailure_andRethrowItToLaterCallers_Test() {
+        int[] loads = {0};
+        AuditDBException failure = new AuditDBException("Can't read audit segments");
+        auditDB.loadOnFirstAccess(db -> {
+            loads[0]++;
+            throw failure;
+        });
+
+        assertThatThrownBy(() -> auditDB.size()).isSameAs(failure);
+        assertThatThrownBy(() -> auditDB.add(audRec_1))
+                .isInstanceOf(AuditDBException.class)
+                .hasCause(failure);
+        assertThatThrownBy(() -> auditDB.flush()).hasCause(failure);
+        assertThat(loads[0]).isEqualTo(1);
+        assertThat(auditDB.isLoadPending()).isTrue();
+    }
+
+    @Test
+    void clear_shouldCancelPendingLoad_Test() {
+        auditDB.loadOnFirstAccess(db -> db.add(audRec_1));
+
+        auditDB.clear();
+
+        assertThat(auditDB.isLoadPending()).isFalse();
+        assertThat(auditDB.size()).isZero();
+    }
+
+    @Test
+    void rollups_shouldCatchUpAfterRestart_andOutliveDroppedSegments_Test(@TempDir Path dir) throws Exception {
+        AuditDB segmented = new AuditDB(4);
+        segmented.attachStorage(dir);
+        for (int i = 0; i < 10; i++) {
+            segmented.add(record(1000L + i));
+        }
+        segmented.flush();
+        /* Записи 11, 12 запечатывают сегмент уже после сохранения сводок */
+        segmented.add(record(1010L));
+        segmented.add(record(1011L));
+
+        AuditDB restarted = new AuditDB(4);
+        restarted.attachStorage(dir);
+
+        assertThat(restarted.rollups().lastId()).isEqualTo(12L);
+        assertThat(restarted.rollups().countByAction(0, 2000L, null)).containsOnly(Map.entry(Action.LOGIN, 12L));
+
+        restarted.setRetainedSegments(1);
+
+        assertThat(restarted.size()).isEqualTo(4);
+        assertThat(restarted.rollups().topUsers(0, 2000L, 5))
+                .containsExactly(new UserActivity("u1@marcet.ru", 12, 0));
+
+        /* Поврежденный файл сводок - сводки строятся заново по оставшимся сегментам */
+        restarted.flush();
+        Files.write(dir.resolve("rollups.dat"), new byte[]{1, 2, 3});
+        AuditDB rebuilt = new AuditDB(4);
+        rebuilt.attachStorage(dir);
+
+        assertThat(rebuilt.rollups().lastId()).isEqualTo(12L);
+        assertThat(rebuilt.rollups().countByAction(0, 2000L, null)).containsOnly(Map.entry(Action.LOGIN, 4L));
+    }
+
+    private Audit record(long timestamp) {
+        return Audit.builder()
+                .timestamp(timestamp)
+                .userEmail("u1@marcet.ru")
+                .action(Action.LOGIN)
+                .isSuccess(Status.SUCCESS)
+                .build();
+    }
+
+}
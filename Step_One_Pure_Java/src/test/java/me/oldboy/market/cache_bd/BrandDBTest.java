@@ -28,8 +28,7 @@ class BrandDBTest {
 
     @AfterEach
     void cleanBase(){
-        brandDB.getBrandList().clear();
-        brandDB.getIndexBrand().clear();
+        brandDB.clear();
     }
 
     @Test
@@ -28,8 +28,7 @@ class CategoryDBTest {
 
     @AfterEach
     void cleanBase(){
-        categoryDB.getCategoryList().clear();
-        categoryDB.getIndexCategory().clear();
+        categoryDB.clear();
     }
 
     @Test
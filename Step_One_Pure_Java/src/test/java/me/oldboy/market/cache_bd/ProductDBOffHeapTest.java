@@ -0,0 +1,159 @@
+package me.oldboy.market.cache_bd;
+
+import me.oldboy.market.cache_bd.query.ProductQuery;
+import me.oldboy.market.cache_bd.query.ProductSort;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import me.oldboy.market.exceptions.ProductDBException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductDBOffHeapTest {
+    private ProductDB productDB;
+    private Brand brand;
+    private Category laptops, phones;
+
+    @BeforeEach
+    void setUp() {
+        productDB = new ProductDB(true);
+        brand = Brand.builder().id(1).name("Brand_1").build();
+        laptops = Category.builder().id(1).name("Ноутбуки").build();
+        phones = Category.builder().id(2).name("Смартфоны").build();
+    }
+
+    @Test
+    void crudAndQueries_shouldWorkOnOffHeapRecords_Test() {
+        Product laptop = product("Ноутбук", laptops, 900.0, 3);
+        Product phone = product("Смартфон", phones, 300.0, 0);
+        productDB.add(laptop);
+        productDB.addAll(List.of(phone, product("Планшет", phones, 500.0, 8)));
+
+        assertThat(productDB.isOffHeap()).isTrue();
+        assertThat(productDB.offHeapBytes()).isGreaterThan(0L);
+        assertThat(productDB.findProductById(laptop.getId())).contains(laptop);
+        assertThat(productDB.findProductById(laptop.getId()).get()).isNotSameAs(laptop);
+        assertThat(productDB.findProductByCategory(phones)).extracting(Product::getName)
+                .containsExactly("Смартфон", "Планшет");
+        assertThat(productDB.findProductsByName("Планшет")).hasSize(1);
+        assertThat(productDB.query(ProductQuery.builder().inStock(true).sort(ProductSort.PRICE_DESC).build())
+                .getProducts()).extracting(Product::getName).containsExactly("Ноутбук", "Планшет");
+
+        productDB.update(Product.builder().id(laptop.getId()).name("Ноутбук Pro").price(1200.0)
+                .category(laptops).brand(brand).stockQuantity(1).build());
+        productDB.delete(phone);
+
+        assertThat(productDB.findProductById(laptop.getId()).get().getName()).isEqualTo("Ноутбук Pro");
+        assertThat(productDB.findProductById(phone.getId())).isEmpty();
+        assertThat(productDB.statistics().total().getMaxPrice()).isEqualTo(1200.0);
+        assertThat(productDB.getProductsList()).extracting(Product::getName).containsExactly("Ноутбук Pro", "Планшет");
+    }
+
+    @Test
+    void heldSnapshot_shouldKeepReadingOldRecords_whileProductIsRewritten_Test() {
+        Product laptop = product("Ноутбук", laptops, 900.0, 3);
+        productDB.add(laptop);
+        ProductDB.Version before = productDB.snapshot();
+
+        for (int i = 0; i < 5_000; i++) {
+            productDB.update(Product.builder().id(laptop.getId()).name("Ноутбук " + i).price(i)
+                    .category(laptops).brand(brand).build());
+        }
+
+        assertThat(before.findProductById(laptop.getId()).get().getName()).isEqualTo("Ноутбук");
+        assertThat(before.findProductByCategory(laptops)).extracting(Product::getPrice).containsExactly(900.0);
+        assertThat(productDB.findProductById(laptop.getId()).get().getName()).isEqualTo("Ноутбук 4999");
+    }
+
+    @Test
+    void snapshot_olderThanRetention_shouldFailInsteadOfReadingReusedRecords_Test() {
+        Product laptop = product("Ноутбук", laptops, 900.0, 3);
+        productDB.add(laptop);
+        ProductDB.Version before = productDB.snapshot();
+
+        for (int i = 0; i < 70_000; i++) {
+            productDB.update(Product.builder().id(laptop.getId()).name("Ноутбук").price(i)
+                    .category(laptops).brand(brand).build());
+        }
+
+        assertThatThrownBy(() -> before.findProductById(laptop.getId()))
+                .isInstanceOf(ProductDBException.class)
+                .hasMessageContaining("too old");
+        assertThat(productDB.findProductById(laptop.getId()).get().getPrice()).isEqualTo(69_999.0);
+    }
+
+    @Test
+    void clear_shouldEmptyTable_butKeepOldSnapshotReadable_Test() {
+        productDB.add(product("Ноутбук", laptops, 900.0, 3));
+        ProductDB.Version before = productDB.snapshot();
+
+        productDB.clear();
+        Long id = productDB.add(product("Смартфон", phones, 300.0, 1));
+
+        assertThat(productDB.size()).isEqualTo(1);
+        assertThat(productDB.findProductById(id).get().getName()).isEqualTo("Смартфон");
+        assertThat(before.findProductById(1L).get().getCategory()).isEqualTo(laptops);
+    }
+
+    @Test
+    void readers_shouldSeeConsistentProducts_underConcurrentUpdates_stressTest() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(productDB.add(product("Товар " + i, laptops, i, i)));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            int writer = w;
+            tasks.add(pool.submit(() -> {
+                for (int round = 0; round < 200; round++) {
+                    for (int i = writer; i < ids.size(); i += 2) {
+                        /* Цена и остаток всегда совпадают - читатель проверяет, что запись не "порвана" */
+                        productDB.update(Product.builder().id(ids.get(i)).name("Товар " + i + "/" + round)
+                                .price(round).stockQuantity(round).category(laptops).brand(brand).build());
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            tasks.add(pool.submit(() -> {
+                while (running.get()) {
+                    for (Product product : productDB.snapshot().getProductsList()) {
+                        assertThat(product.getPrice()).isEqualTo((double) product.getStockQuantity());
+                    }
+                }
+            }));
+        }
+        tasks.get(0).get();
+        tasks.get(1).get();
+        running.set(false);
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        pool.shutdown();
+
+        assertThat(productDB.getProductsList()).extracting(Product::getStockQuantity).containsOnly(199);
+    }
+
+    private Product product(String name, Category category, double price, int stock) {
+        return Product.builder()
+                .name(name)
+                .price(price)
+                .category(category)
+                .brand(brand)
+                .description("Описание: " + name)
+                .stockQuantity(stock)
+                .build();
+    }
+}
@@ -1,5 +1,9 @@
 package me.oldboy.market.cache_bd;
 
+import me.oldboy.market.cache_bd.query.ProductQuery;
+import me.oldboy.market.cache_bd.query.ProductSort;
+import me.oldboy.market.cache_bd.query.QueryPlan;
+import me.oldboy.market.cache_bd.query.QueryResult;
 import me.oldboy.market.entity.Product;
 import me.oldboy.market.entity.prod_species.Brand;
 import me.oldboy.market.entity.prod_species.Category;
@@ -8,6 +12,16 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -42,10 +56,7 @@ class ProductDBTest {
 
     @AfterEach
     void cleanBase(){
-        productDB.getProductsList().clear();
-        productDB.getProductByIdIndex().clear();
-        productDB.getCategoryIndex().clear();
-        productDB.getBrandIndex().clear();
+        productDB.clear();
     }
 
     @Test
@@ -117,9 +128,9 @@ class ProductDBTest {
 
         assertThat(productDB.delete(prd_1)).isTrue();
         assertThat(productDB.getProductsList().contains(prd_1)).isFalse();
-        assertThat(productDB.getProductByIdIndex().get(generatedId_1)).isNull();
-        assertThat(productDB.getCategoryIndex().get(prd_1.getCategory()).contains(prd_1)).isFalse();
-        assertThat(productDB.getBrandIndex().get(prd_1.getBrand()).contains(prd_1)).isFalse();
+        assertThat(productDB.findProductById(generatedId_1)).isEmpty();
+        assertThat(productDB.findProductByCategory(prd_1.getCategory()).contains(prd_1)).isFalse();
+        assertThat(productDB.findProductByBrand(prd_1.getBrand()).contains(prd_1)).isFalse();
     }
 
     @Test
@@ -151,11 +162,321 @@ class ProductDBTest {
 
         productDB.update(updateProduct);
 
-        assertThat(updateProduct.getId()).isEqualTo(prd_1.getId());
-        assertThat(updateProduct.getPrice()).isEqualTo(prd_1.getPrice());
-        assertThat(updateProduct.getDescription()).isEqualTo(prd_1.getDescription());
-        assertThat(updateProduct.getStockQuantity()).isEqualTo(prd_1.getStockQuantity());
-        assertThat(updateProduct.getLastModifiedTimestamp()).isEqualTo(prd_1.getLastModifiedTimestamp());
+        /* Обновление кладет в "кэш" новую версию товара, прочитанный ранее объект не меняется */
+        Product updated = productDB.findProductById(generatedId_1).get();
+        assertThat(updateProduct.getId()).isEqualTo(updated.getId());
+        assertThat(updateProduct.getPrice()).isEqualTo(updated.getPrice());
+        assertThat(updateProduct.getDescription()).isEqualTo(updated.getDescription());
+        assertThat(updateProduct.getStockQuantity()).isEqualTo(updated.getStockQuantity());
+        assertThat(updateProduct.getLastModifiedTimestamp()).isEqualTo(updated.getLastModifiedTimestamp());
+        assertThat(prd_1.getName()).isEqualTo(newName);
+        assertThat(prd_1.getPrice()).isZero();
+    }
+
+    @Test
+    void restore_shouldKeepIdAndMoveSequence_Test() {
+        prd_1.setId(40L);
+        assertThat(productDB.restore(prd_1)).isEqualTo(40L);
+        assertThat(productDB.findProductById(40L).get()).isEqualTo(prd_1);
+
+        /* Следующий новый товар получает ID после максимального загруженного */
+        assertThat(productDB.add(prd_2)).isEqualTo(41L);
+    }
+
+    @Test
+    void add_shouldGenerateUniqueIds_concurrentWriters_Test() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(productDB.add(Product.builder().name("P").brand(b1).category(cat1).build()));
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> allIds = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                allIds.addAll(future.get());
+            }
+
+            assertThat(allIds).hasSize(threads * perThread);
+            assertThat(productDB.size()).isEqualTo(threads * perThread);
+            assertThat(productDB.findProductByCategory(cat1)).hasSize(threads * perThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void findProductByBrandAndName_shouldUseIndexAndFollowUpdates_Test() {
+        productDB.add(prd_1);
+        productDB.add(prd_2);
+        Product sameName = Product.builder().name(prodName_1).brand(b3).category(cat3).build();
+        productDB.add(sameName);
+
+        /* Из одноименных товаров брэнда возвращается товар с меньшим ID */
+        assertThat(productDB.findProductByBrandAndName(b3, prodName_1)).contains(prd_1);
+        assertThat(productDB.findProductByBrandAndName(b2, prodName_1)).isEmpty();
+
+        productDB.update(Product.builder().id(prd_1.getId()).name("Renamed").brand(b3).category(cat3).build());
+
+        assertThat(productDB.findProductByBrandAndName(b3, prodName_1)).contains(sameName);
+        assertThat(productDB.findProductByBrandAndName(b3, "Renamed")).map(Product::getId).contains(prd_1.getId());
+    }
+
+    @Test
+    void findProductsByName_shouldReturnAllProductsWithName_andForgetDeleted_Test() {
+        productDB.add(prd_1);
+        Product sameName = Product.builder().name(prodName_1).brand(b1).category(cat1).build();
+        productDB.add(sameName);
+        productDB.add(prd_2);
+
+        assertThat(productDB.findProductsByName(prodName_1)).containsExactly(prd_1, sameName);
+
+        productDB.delete(prd_1);
+
+        assertThat(productDB.findProductsByName(prodName_1)).containsExactly(sameName);
+        assertThat(productDB.findProductsByName("Unknown")).isEmpty();
+    }
+
+    @Test
+    void query_shouldIntersectCategoryAndBrandPostings_Test() {
+        productDB.add(prd_1);
+        productDB.add(prd_2);
+        Product b3InCat2 = Product.builder().name("Product_4").brand(b3).category(cat2).build();
+        productDB.add(b3InCat2);
+
+        QueryResult result = productDB.query(ProductQuery.builder().category(cat2).brand(b3).build());
+
+        assertThat(result.getProducts()).containsExactly(b3InCat2);
+        assertThat(result.getPlan().getAccess()).isEqualTo(QueryPlan.Access.POSTINGS_BITMAP);
+        assertThat(result.getPlan().getFilters()).isEmpty();
+    }
+
+    @Test
+    void query_shouldReadPriceIndexInOrder_andStopAtLimit_Test() {
+        prd_1.setPrice(30.0);
+        prd_2.setPrice(10.0);
+        Product cheapInCat3 = Product.builder().name("Product_4").brand(b1).category(cat3).price(20.0).build();
+        productDB.add(prd_1);
+        productDB.add(prd_2);
+        productDB.add(cheapInCat3);
+
+        QueryResult result = productDB.query(ProductQuery.builder()
+                .category(cat3).sort(ProductSort.PRICE_ASC).limit(1).build());
 
+        assertThat(result.getProducts()).containsExactly(cheapInCat3);
+        assertThat(result.getPlan().getAccess()).isEqualTo(QueryPlan.Access.CATEGORY_PRICE_INDEX);
+        assertThat(result.getPlan().isIndexOrder()).isTrue();
+        assertThat(result.getPlan().getExaminedRows()).isEqualTo(1);
+    }
+
+    @Test
+    void query_shouldFallBackToParallelScan_forUnindexedCondition_Test() {
+        productDB.add(prd_1);
+        productDB.add(prd_2);
+        productDB.add(prd_3);
+
+        QueryResult result = productDB.query(ProductQuery.builder()
+                .namePrefix("product_").sort(ProductSort.NAME).limit(2).build());
+
+        assertThat(result.getProducts()).containsExactly(prd_1, prd_2);
+        assertThat(result.getPlan().getAccess()).isEqualTo(QueryPlan.Access.PARALLEL_SCAN);
+        assertThat(result.getPlan().explain())
+                .contains("PARALLEL_SCAN")
+                .contains("filter: name starts with 'product_'")
+                .contains("examined rows: 3, returned: 2");
+    }
+
+    @Test
+    void query_shouldUseIdLookup_andCheckOtherConditions_Test() {
+        productDB.add(prd_1);
+        productDB.add(prd_2);
+
+        QueryResult wrongCategory = productDB.query(ProductQuery.builder().id(prd_1.getId()).category(cat2).build());
+
+        assertThat(wrongCategory.getProducts()).isEmpty();
+        assertThat(wrongCategory.getPlan().getAccess()).isEqualTo(QueryPlan.Access.ID_LOOKUP);
+        assertThat(wrongCategory.getPlan().getFilters()).containsExactly("category = Category_2");
+        assertThat(productDB.findProductByCategoryAndId(cat3, prd_1.getId())).contains(prd_1);
+    }
+
+    @Test
+    void snapshot_shouldKeepPointInTimeView_afterLaterChanges_Test() {
+        productDB.add(prd_1);
+        productDB.add(prd_2);
+        ProductDB.Version before = productDB.snapshot();
+
+        productDB.update(Product.builder().id(prd_1.getId()).name("Renamed").brand(b3).category(cat3).build());
+        productDB.delete(prd_2);
+        productDB.add(prd_3);
+
+        /* Старая версия видит таблицу на момент своей публикации */
+        assertThat(before.size()).isEqualTo(2);
+        assertThat(before.findProductById(prd_1.getId()).get().getName()).isEqualTo(prodName_1);
+        assertThat(before.findProductByCategory(cat2)).containsExactly(prd_2);
+        assertThat(before.findProductById(prd_3.getId())).isEmpty();
+
+        ProductDB.Version after = productDB.snapshot();
+        assertThat(after.getNumber()).isGreaterThan(before.getNumber());
+        assertThat(after.findProductById(prd_1.getId()).get().getName()).isEqualTo("Renamed");
+        assertThat(after.findProductByCategory(cat2)).isEmpty();
+        assertThat(after.getProductsList()).extracting(Product::getId).containsExactly(prd_1.getId(), prd_3.getId());
+    }
+
+    @Test
+    void snapshot_shouldStayConsistent_underConcurrentWriters_stressTest() throws Exception {
+        int seedSize = 2_000;
+        List<Long> seeded = new ArrayList<>();
+        for (int i = 0; i < seedSize; i++) {
+            seeded.add(productDB.add(consistentProduct(null, cat1, i)));
+        }
+        int writers = 2;
+        int readers = 6;
+        int writesPerWriter = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writerTasks = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                writerTasks.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < writesPerWriter; i++) {
+                        /* Обновление меняет все поля товара согласованно; добавление с удалением - во второй категории */
+                        Long id = seeded.get(random.nextInt(seedSize));
+                        productDB.update(consistentProduct(id, cat1, random.nextInt(1_000)));
+                        Product temporary = consistentProduct(null, cat2, i);
+                        productDB.add(temporary);
+                        productDB.delete(temporary);
+                    }
+                    return null;
+                }));
+            }
+            List<Future<Long>> readerTasks = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                readerTasks.add(executor.submit(() -> {
+                    long reads = 0;
+                    long lastVersion = -1;
+                    do {
+                        ProductDB.Version version = productDB.snapshot();
+                        assertThat(version.getNumber()).isGreaterThanOrEqualTo(lastVersion);
+                        lastVersion = version.getNumber();
+
+                        List<Product> all = version.getProductsList();
+                        List<Product> category = version.findProductByCategory(cat1);
+                        assertThat(category).hasSize(seedSize);
+                        assertThat(all).hasSize(version.size());
+                        for (Product product : category) {
+                            assertConsistent(product);
+                            assertThat(version.findProductById(product.getId())).containsSame(product);
+                        }
+                        reads++;
+                    } while (writing.get());
+                    return reads;
+                }));
+            }
+            for (Future<?> writer : writerTasks) {
+                writer.get();
+            }
+            writing.set(false);
+            for (Future<Long> reader : readerTasks) {
+                assertThat(reader.get()).isPositive();
+            }
+
+            assertThat(productDB.size()).isEqualTo(seedSize);
+            assertThat(productDB.findProductByCategory(cat2)).isEmpty();
+            productDB.getProductsList().forEach(ProductDBTest::assertConsistent);
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void update_shouldKeepProductVisibleInIndexes_forLockFreeReaders_stressTest() throws Exception {
+        Long id = productDB.add(Product.builder().name(prodName_1).brand(b1).category(cat1).price(10.0).stockQuantity(1).build());
+        productDB.add(Product.builder().name(prodName_2).brand(b1).category(cat1).price(500.0).stockQuantity(50).build());
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            /* Меняется только описание - ключи индексов те же, товар все время должен находиться по каждому из них */
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    productDB.update(Product.builder().id(id).name(prodName_1).brand(b1).category(cat1)
+                            .price(10.0).stockQuantity(1).description("Description_" + i).build());
+                }
+                return null;
+            });
+            List<Future<Long>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(executor.submit(() -> {
+                    long reads = 0;
+                    do {
+                        assertThat(productDB.findProductByBrandAndName(b1, prodName_1)).isPresent();
+                        assertThat(productDB.findProductsByName(prodName_1)).hasSize(1);
+                        assertThat(productDB.findProductsByPriceRange(0.0, 100.0, null, 10).getProducts()).hasSize(1);
+                        assertThat(productDB.findLowStockProducts(5, null, 10).getProducts()).hasSize(1);
+                        reads++;
+                    } while (writing.get());
+                    return reads;
+                }));
+            }
+            writer.get();
+            writing.set(false);
+            for (Future<Long> reader : readers) {
+                assertThat(reader.get()).isPositive();
+            }
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Товар, все изменяемые поля которого выведены из одного числа - по ним видно "половинчатое" обновление
+     */
+    private Product consistentProduct(Long id, Category category, int seed) {
+        return Product.builder()
+                .id(id)
+                .name("Product_" + seed)
+                .description("Description_" + seed)
+                .price(seed)
+                .stockQuantity(seed)
+                .brand(b1)
+                .category(category)
+                .build();
+    }
+
+    private static void assertConsistent(Product product) {
+        int seed = product.getStockQuantity();
+        assertThat(product.getPrice()).isEqualTo(seed);
+        assertThat(product.getName()).isEqualTo("Product_" + seed);
+        assertThat(product.getDescription()).isEqualTo("Description_" + seed);
+    }
+
+    @Test
+    void addAll_shouldReserveIdRange_andIndexWholeBatch_Test() {
+        productDB.add(prd_1);
+        List<Product> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(Product.builder().name("Batch_" + i).price(i).brand(b2).category(cat2).stockQuantity(i).build());
+        }
+
+        List<Long> ids = productDB.addAll(batch);
+
+        assertThat(ids).hasSize(100);
+        assertThat(ids.get(0)).isEqualTo(2L);
+        assertThat(ids.get(99)).isEqualTo(101L);
+        assertThat(productDB.query(ProductQuery.builder().category(cat2).maxPrice(2.0).sort(ProductSort.PRICE_ASC).build())
+                .getProducts()).extracting(Product::getName).containsExactly("Batch_0", "Batch_1", "Batch_2");
+        assertThat(productDB.add(prd_2)).isEqualTo(102L);
+        assertThat(productDB.findProductById(51L).get().getName()).isEqualTo("Batch_49");
+        assertThat(productDB.findProductByCategory(cat2)).hasSize(101);
+        assertThat(productDB.findProductByBrandAndName(b2, "Batch_7")).contains(batch.get(7));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package me.oldboy.market.cache_bd;
+
+import me.oldboy.market.cache_bd.query.ProductQuery;
+import me.oldboy.market.cache_bd.tiered.AdmissionPolicy;
+import me.oldboy.market.cache_bd.tiered.TierCounters;
+import me.oldboy.market.cache_bd.tiered.TieredProductStore;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductDBTieredTest {
+    @TempDir
+    Path dir;
+
+    private ProductDB productDB;
+    private Brand apple, samsung;
+    private Category laptops, phones;
+
+    @BeforeEach
+    void setUp() {
+        productDB = new ProductDB(TieredProductStore.factory(dir.resolve("cold.dat"), 16, AdmissionPolicy.TINY_LFU));
+        apple = Brand.builder().id(1).name("Apple").build();
+        samsung = Brand.builder().id(2).name("Samsung").build();
+        laptops = Category.builder().id(1).name("Ноутбуки").build();
+        phones = Category.builder().id(2).name("Смартфоны").build();
+    }
+
+    @Test
+    void lookups_shouldReloadColdProductsTransparently_Test() {
+        List<Product> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            batch.add(product("Товар " + i, i % 2 == 0 ? laptops : phones, i % 5 == 0 ? apple : samsung, 10.0 + i));
+        }
+        productDB.addAll(batch);
+
+        for (Product product : batch) {
+            assertThat(productDB.findProductById(product.getId())).contains(product);
+        }
+        assertThat(productDB.findProductByCategory(phones)).hasSize(250);
+        assertThat(productDB.findProductByBrand(apple)).hasSize(100)
+                .allSatisfy(product -> assertThat(product.getBrand()).isSameAs(apple));
+        assertThat(productDB.query(ProductQuery.builder().category(laptops).brand(apple).maxPrice(100.0).build())
+                .getProducts()).extracting(Product::getName)
+                .containsExactly("Товар 0", "Товар 10", "Товар 20", "Товар 30", "Товар 40", "Товар 50",
+                        "Товар 60", "Товар 70", "Товар 80", "Товар 90");
+
+        TierCounters counters = productDB.tierCounters().orElseThrow();
+        assertThat(productDB.isOffHeap()).isTrue();
+        assertThat(counters.getSize()).isLessThanOrEqualTo(16);
+        assertThat(counters.getMisses()).isGreaterThanOrEqualTo(500);
+        assertThat(counters.getEvictions()).isGreaterThan(0);
+        assertThat(counters.getDiskWrites()).isEqualTo(500);
+        assertThat(counters.getFileBytes()).isEqualTo(productDB.offHeapBytes()).isGreaterThan(0L);
+    }
+
+    @Test
+    void frequentlyReadProduct_shouldBeServedFromMemory_Test() {
+        Product hot = product("Хит продаж", phones, samsung, 999.0);
+        productDB.add(hot);
+        for (int i = 0; i < 200; i++) {
+            productDB.add(product("Товар " + i, laptops, apple, 10.0 + i));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            productDB.findProductById(hot.getId());
+        }
+        long readsBefore = productDB.tierCounters().orElseThrow().getDiskReads();
+        productDB.findProductById(hot.getId());
+
+        assertThat(productDB.tierCounters().orElseThrow().getDiskReads()).isEqualTo(readsBefore);
+        assertThat(productDB.tierCounters().orElseThrow().getHits()).isGreaterThanOrEqualTo(100);
+    }
+
+    @Test
+    void updateAndDelete_shouldReuseFileBlocks_andKeepSnapshotsReadable_Test() {
+        Product laptop = product("Ноутбук", laptops, apple, 900.0);
+        Product phone = product("Смартфон", phones, samsung, 300.0);
+        productDB.addAll(List.of(laptop, phone));
+        ProductDB.Version before = productDB.snapshot();
+
+        for (int i = 0; i < 1_000; i++) {
+            productDB.update(Product.builder().id(laptop.getId()).name("Ноутбук " + i).price(900.0 + i)
+                    .category(laptops).brand(apple).stockQuantity(i).build());
+        }
+        productDB.delete(phone);
+
+        assertThat(before.findProductById(laptop.getId()).get().getName()).isEqualTo("Ноутбук");
+        assertThat(before.findProductById(phone.getId())).isPresent();
+        assertThat(productDB.findProductById(laptop.getId()).get().getName()).isEqualTo("Ноутбук 999");
+        assertThat(productDB.findProductById(phone.getId())).isEmpty();
+        assertThat(productDB.tierCounters().orElseThrow().getDiskWrites()).isEqualTo(1_002);
+    }
+
+    @Test
+    void heapTable_shouldHaveNoTierCounters_Test() {
+        assertThat(new ProductDB().tierCounters()).isEmpty();
+        assertThat(new ProductDB(true).tierCounters()).isEmpty();
+    }
+
+    private Product product(String name, Category category, Brand brand, double price) {
+        return Product.builder()
+                .name(name)
+                .price(price)
+                .category(category)
+                .brand(brand)
+                .description("Описание: " + name)
+                .stockQuantity(3)
+                .build();
+    }
+}
@@ -1,11 +1,13 @@
 package me.oldboy.market.cache_bd;
 
 import me.oldboy.market.entity.User;
+import me.oldboy.market.exceptions.IndexConstraintException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class UserDBTest {
 
@@ -36,7 +38,7 @@ class UserDBTest {
 
     @AfterEach
     void cleanBase(){
-        userDB.getUserDb().clear();
+        userDB.clear();
     }
 
     @Test
@@ -67,4 +69,32 @@ class UserDBTest {
     void findUserByEmail_shouldReturnOptionalEmpty_Test() {
         assertThat(userDB.findUserByEmail("notExist@market.ru")).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void add_shouldRejectDuplicateEmail_Test() {
+        User duplicate = User.builder().email(u2.getEmail()).password("0000").build();
+
+        assertThatThrownBy(() -> userDB.add(duplicate))
+                .isInstanceOf(IndexConstraintException.class)
+                .hasMessageContaining("email");
+        assertThat(userDB.size()).isEqualTo(3);
+    }
+
+    @Test
+    void update_shouldReindexChangedEmail_Test() {
+        userDB.update(User.builder().userId(gen_1).email("new@market.ru").password("1234").build());
+
+        assertThat(userDB.findUserByEmail("u1@market.ru")).isEmpty();
+        assertThat(userDB.findUserByEmail("new@market.ru").get().getUserId()).isEqualTo(gen_1);
+        assertThatThrownBy(() -> userDB.update(User.builder().userId(gen_2).email("new@market.ru").build()))
+                .isInstanceOf(IndexConstraintException.class);
+    }
+
+    @Test
+    void delete_shouldFreeEmail_Test() {
+        assertThat(userDB.delete(gen_3)).isTrue();
+
+        assertThat(userDB.findUserByEmail(u3.getEmail())).isEmpty();
+        assertThat(userDB.add(User.builder().email(u3.getEmail()).build())).isNotNull();
+    }
+}
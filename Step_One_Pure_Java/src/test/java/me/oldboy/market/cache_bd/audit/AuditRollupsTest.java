@@ -0,0 +1,123 @@
+package me.oldboy.market.cache_bd.audit;
+
+import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditRollupsTest {
+    private static final long MINUTE = RollupUnit.MINUTE.millis();
+    private static final long HOUR = RollupUnit.HOUR.millis();
+    /* Полночь, кратная часу */
+    private static final long DAY = 1_700_006_400_000L;
+
+    private AuditRollups rollups;
+    private long nextId;
+
+    @BeforeEach
+    void setUp() {
+        rollups = new AuditRollups();
+        nextId = 0;
+    }
+
+    @Test
+    void series_shouldCountFilteredRecordsPerBucket_Test() {
+        record(DAY + 10 * MINUTE, "u1@market.ru", Action.UPDATE_PRODUCT, Status.FAIL);
+        record(DAY + 50 * MINUTE, "u2@market.ru", Action.UPDATE_PRODUCT, Status.FAIL);
+        record(DAY + 55 * MINUTE, "u2@market.ru", Action.UPDATE_PRODUCT, Status.SUCCESS);
+        record(DAY + 3 * HOUR, "u1@market.ru", Action.UPDATE_PRODUCT, Status.FAIL);
+        record(DAY + 3 * HOUR + 1, "u1@market.ru", Action.DELETE_PRODUCT, Status.FAIL);
+
+        assertThat(rollups.series(RollupUnit.HOUR, DAY, DAY + 24 * HOUR, Action.UPDATE_PRODUCT, Status.FAIL, null))
+                .containsExactly(new RollupPoint(DAY, 2), new RollupPoint(DAY + 3 * HOUR, 1));
+        assertThat(rollups.series(RollupUnit.MINUTE, DAY + 3 * HOUR, DAY + 4 * HOUR, null, null, "u1@market.ru"))
+                .containsExactly(new RollupPoint(DAY + 3 * HOUR, 2));
+        assertThat(rollups.series(RollupUnit.HOUR, DAY, DAY + 24 * HOUR, null, null, "nobody@market.ru")).isEmpty();
+        assertThat(rollups.lastId()).isEqualTo(5L);
+    }
+
+    @Test
+    void countByAction_shouldUseMinutesAtRangeEdges_Test() {
+        record(DAY + 59 * MINUTE, "u1@market.ru", Action.LOGIN, Status.SUCCESS);
+        record(DAY + HOUR + 5 * MINUTE, "u1@market.ru", Action.ADD_PRODUCT, Status.SUCCESS);
+        record(DAY + 2 * HOUR + 30 * MINUTE, "u1@market.ru", Action.ADD_PRODUCT, Status.FAIL);
+        record(DAY + 2 * HOUR + 45 * MINUTE, "u1@market.ru", Action.LOGOUT, Status.SUCCESS);
+
+        /* [00:30, 02:40): минуты 00:30-01:00, час 01:00-02:00, минуты 02:00-02:40 */
+        Map<Action, Long> counts = rollups.countByAction(DAY + 30 * MINUTE, DAY + 2 * HOUR + 40 * MINUTE, null);
+
+        assertThat(counts).containsExactly(Map.entry(Action.LOGIN, 1L), Map.entry(Action.ADD_PRODUCT, 2L));
+        assertThat(rollups.countByAction(DAY, DAY + 3 * HOUR, Status.FAIL)).containsOnly(Map.entry(Action.ADD_PRODUCT, 1L));
+    }
+
+    @Test
+    void topUsers_shouldOrderByActivity_andCountFailures_Test() {
+        record(DAY, "rare@market.ru", Action.LOGIN, Status.SUCCESS);
+        for (int i = 0; i < 3; i++) {
+            record(DAY + i * MINUTE, "often@market.ru", Action.UPDATE_PRODUCT, i == 0 ? Status.FAIL : Status.SUCCESS);
+        }
+        record(DAY, null, Action.LOGIN, Status.FAIL);
+
+        assertThat(rollups.topUsers(DAY, DAY + HOUR, 10)).containsExactly(
+                new UserActivity("often@market.ru", 3, 1),
+                new UserActivity("rare@market.ru", 1, 0));
+        assertThat(rollups.topUsers(DAY, DAY + HOUR, 1)).extracting(UserActivity::getUserEmail)
+                .containsExactly("often@market.ru");
+    }
+
+    @Test
+    void minuteBuckets_shouldExpire_whileHoursAreKept_Test() {
+        rollups = new AuditRollups(2 * HOUR);
+        record(DAY + 10 * MINUTE, "u1@market.ru", Action.LOGIN, Status.SUCCESS);
+        record(DAY + 5 * HOUR, "u1@market.ru", Action.LOGIN, Status.SUCCESS);
+
+        assertThat(rollups.series(RollupUnit.MINUTE, DAY, DAY + 24 * HOUR, null, null, null))
+                .containsExactly(new RollupPoint(DAY + 5 * HOUR, 1));
+        assertThat(rollups.series(RollupUnit.HOUR, DAY, DAY + 24 * HOUR, null, null, null)).hasSize(2);
+        /* Край периода раньше хранимых минут округляется вниз до часа */
+        assertThat(rollups.countByAction(DAY + 30 * MINUTE, DAY + 24 * HOUR, null))
+                .containsOnly(Map.entry(Action.LOGIN, 2L));
+    }
+
+    @Test
+    void writeTo_andReadFrom_shouldRestoreRollups_Test(@TempDir Path dir) throws Exception {
+        for (int i = 0; i < 1_000; i++) {
+            record(DAY + i * 7 * MINUTE, "u" + i % 5 + "@market.ru", Action.values()[i % 6], Status.values()[i % 2]);
+        }
+        Path file = dir.resolve("rollups.dat");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            rollups.writeTo(channel);
+        }
+
+        AuditRollups restored;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            restored = AuditRollups.readFrom(channel, AuditRollups.MINUTE_RETENTION);
+        }
+
+        long to = DAY + 1_000 * 7 * MINUTE;
+        assertThat(restored.lastId()).isEqualTo(1_000L);
+        assertThat(restored.topUsers(DAY, to, 5)).isEqualTo(rollups.topUsers(DAY, to, 5));
+        assertThat(restored.series(RollupUnit.MINUTE, DAY, to, null, Status.FAIL, null))
+                .isEqualTo(rollups.series(RollupUnit.MINUTE, DAY, to, null, Status.FAIL, null));
+        assertThat(restored.countByAction(DAY, to, null)).isEqualTo(rollups.countByAction(DAY, to, null));
+    }
+
+    private void record(long timestamp, String email, Action action, Status status) {
+        rollups.record(Audit.builder()
+                .id(++nextId)
+                .timestamp(timestamp)
+                .userEmail(email)
+                .action(action)
+                .isSuccess(status)
+                .build());
+    }
+}
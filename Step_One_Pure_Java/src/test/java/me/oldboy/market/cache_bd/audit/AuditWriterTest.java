@@ -0,0 +1,293 @@
+package me.oldboy.market.cache_bd.audit;
+
+import me.oldboy.market.cache_bd.AuditDB;
+import me.oldboy.market.entity.Audit;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+import me.oldboy.market.exceptions.AuditDBException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditWriterTest {
+    private static final long BASE_TIMESTAMP = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private AuditDB auditDB;
+    private AuditWriter auditWriter;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() {
+        auditDB = new AuditDB(16);
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (auditWriter != null) {
+            auditWriter.close();
+        }
+    }
+
+    @Test
+    void submit_fromManyThreads_shouldBatchAllRecords_andFlushShouldWaitForThem_Test() throws Exception {
+        auditWriter = new AuditWriter(auditDB, 8, AuditBackpressure.BLOCK, null);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            String email = "u" + p + "@market.ru";
+            producers.add(new Thread(() -> IntStream.range(0, 250)
+                    .forEach(i -> auditWriter.submit(audit(email, i)))));
+        }
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        auditWriter.flush();
+
+        assertThat(auditDB.size()).isEqualTo(1_000);
+        Set<Long> ids = new HashSet<>();
+        auditDB.forEach(audit -> ids.add(audit.getId()));
+        assertThat(ids).hasSize(1_000);
+        /* Записи одного пользователя сохраняют порядок передачи */
+        assertThat(auditDB.findByUserEmail("u2@market.ru")).extracting(AuditWriterTest::number)
+                .isEqualTo(IntStream.range(0, 250).boxed().toList());
+    }
+
+    @Test
+    void dropOldest_shouldEvictOldestQueued_whenWriterIsBehind_Test() {
+        stallWriter();
+        auditWriter = new AuditWriter(auditDB, 4, AuditBackpressure.DROP_OLDEST, null);
+        auditWriter.submit(audit("first@market.ru", 0));
+        awaitTaken();
+
+        for (int i = 1; i <= 6; i++) {
+            auditWriter.submit(audit("u@market.ru", i));
+        }
+        release.countDown();
+        auditWriter.flush();
+
+        assertThat(auditWriter.dropped()).isEqualTo(2L);
+        assertThat(auditDB.findAll()).extracting(AuditWriterTest::number)
+                .containsExactly(0, 3, 4, 5, 6);
+    }
+
+    @Test
+    void spillToDisk_shouldKeepEveryRecordInOrder_andTruncateSpillFile_Test() throws Exception {
+        Path spill = dir.resolve("spill.dat");
+        stallWriter();
+        auditWriter = new AuditWriter(auditDB, 2, AuditBackpressure.SPILL_TO_DISK, spill);
+        auditWriter.submit(audit("first@market.ru", 0));
+        awaitTaken();
+
+        for (int i = 1; i <= 40; i++) {
+            auditWriter.submit(audit(i % 2 == 0 ? null : "u@market.ru", i));
+        }
+        assertThat(auditWriter.queued()).isEqualTo(2);
+        assertThat(Files.size(spill)).isGreaterThan(6L);
+
+        release.countDown();
+        auditWriter.flush();
+
+        assertThat(auditDB.findAll()).extracting(AuditWriterTest::number)
+                .isEqualTo(IntStream.rangeClosed(0, 40).boxed().toList());
+        Audit restored = auditDB.findById(41L).get();
+        assertThat(restored.getUserEmail()).isNull();
+        assertThat(restored.getSummary()).isEqualTo("Товар 40");
+        assertThat(Files.size(spill)).isEqualTo(6L);
+    }
+
+    @Test
+    void spilledRecords_shouldBeWrittenAfterRestart_beforeNewOnes_Test() throws Exception {
+        Path spill = dir.resolve("spill.dat");
+        AuditSpillFile leftover = new AuditSpillFile(spill);
+        leftover.append(audit("old@market.ru", 1));
+        leftover.append(audit("old@market.ru", 2));
+        leftover.close();
+        /* Оборванная при сбое запись */
+        Files.write(spill, new byte[]{0, 0, 0, 42, 1}, StandardOpenOption.APPEND);
+
+        auditWriter = new AuditWriter(auditDB, 4, AuditBackpressure.SPILL_TO_DISK, spill);
+        auditWriter.submit(audit("new@market.ru", 3));
+        auditWriter.flush();
+
+        assertThat(auditDB.findAll()).extracting(Audit::getUserEmail)
+                .containsExactly("old@market.ru", "old@market.ru", "new@market.ru");
+    }
+
+    @Test
+    void close_shouldWriteQueuedRecords_andLaterRecordsDirectly_Test() {
+        auditWriter = new AuditWriter(auditDB, 16, AuditBackpressure.BLOCK, null);
+        for (int i = 0; i < 10; i++) {
+            auditWriter.submit(audit("u@market.ru", i));
+        }
+
+        auditWriter.close();
+        assertThat(auditDB.size()).isEqualTo(10);
+
+        assertThat(auditWriter.submit(audit("u@market.ru", 10))).isTrue();
+        assertThat(auditDB.size()).isEqualTo(11);
+    }
+
+    @Test
+    void close_concurrentWithSubmits_shouldNotLoseAcceptedRecords_Test() throws Exception {
+        auditWriter = new AuditWriter(auditDB, 4, AuditBackpressure.BLOCK, null);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            producers.add(new Thread(() -> IntStream.range(0, 500)
+                    .forEach(i -> auditWriter.submit(audit("u@market.ru", i)))));
+        }
+        producers.forEach(Thread::start);
+        Thread.sleep(2);
+
+        auditWriter.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertThat(auditDB.size()).isEqualTo(2_000);
+    }
+
+    @Test
+    void close_shouldNotInterruptWriter_busyWithBatch_Test() throws Exception {
+        List<Boolean> interrupted = new ArrayList<>();
+        auditDB.loadOnFirstAccess(db -> {
+            try {
+                release.await();
+                interrupted.add(false);
+            } catch (InterruptedException e) {
+                interrupted.add(true);
+            }
+        });
+        auditWriter = new AuditWriter(auditDB, 4, AuditBackpressure.BLOCK, null);
+        auditWriter.submit(audit("u@market.ru", 0));
+        awaitTaken();
+
+        Thread closer = new Thread(auditWriter::close);
+        closer.start();
+        Thread.sleep(50);
+        assertThat(closer.isAlive()).isTrue();
+        release.countDown();
+        closer.join();
+
+        assertThat(interrupted).containsExactly(false);
+        assertThat(auditDB.size()).isEqualTo(1);
+    }
+
+    @Test
+    void flushAndClose_shouldReportBatch_thatCouldNotBeWritten_Test() {
+        auditDB.loadOnFirstAccess(db -> {
+            throw new AuditDBException("Audit files are not readable");
+        });
+        AuditWriter failing = new AuditWriter(auditDB, 4, AuditBackpressure.BLOCK, null);
+        failing.submit(audit("u@market.ru", 0));
+
+        assertThatThrownBy(failing::flush).isInstanceOf(AuditDBException.class)
+                .hasMessage("Audit records are not written");
+        assertThatThrownBy(failing::close).isInstanceOf(AuditDBException.class)
+                .hasMessage("1 audit records are not written");
+    }
+
+    @Test
+    void close_shouldSpillUnwrittenRecords_forNextStart_Test() {
+        Path spill = dir.resolve("spill.dat");
+        auditDB.loadOnFirstAccess(db -> {
+            throw new AuditDBException("Audit files are not readable");
+        });
+        AuditWriter failing = new AuditWriter(auditDB, 4, AuditBackpressure.SPILL_TO_DISK, spill);
+        for (int i = 0; i < 3; i++) {
+            failing.submit(audit("u@market.ru", i));
+        }
+        failing.close();
+
+        AuditDB restarted = new AuditDB(16);
+        auditWriter = new AuditWriter(restarted, 4, AuditBackpressure.SPILL_TO_DISK, spill);
+        auditWriter.flush();
+
+        assertThat(restarted.findAll()).extracting(AuditWriterTest::number).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void writer_shouldRetryBatch_whoseSaveFailed_withoutAddingItTwice_Test() {
+        AtomicInteger failures = new AtomicInteger(2);
+        auditDB = new AuditDB(16) {
+            @Override
+            public void flush() {
+                if (failures.getAndDecrement() > 0) {
+                    throw new AuditDBException("Disk is full");
+                }
+                super.flush();
+            }
+        };
+        auditWriter = new AuditWriter(auditDB, 4, AuditBackpressure.BLOCK, null);
+        auditWriter.submit(audit("u@market.ru", 0));
+        auditWriter.submit(audit("u@market.ru", 1));
+
+        while (true) {
+            try {
+                auditWriter.flush();
+                break;
+            } catch (AuditDBException e) {
+                Thread.onSpinWait();
+            }
+        }
+
+        assertThat(failures.get() < 0).isTrue();
+        assertThat(auditDB.findAll()).extracting(AuditWriterTest::number).containsExactly(0, 1);
+    }
+
+    /**
+     * Пишущий поток "застревает" на первой записи - в отложенной загрузке аудита, пока не отпустим
+     */
+    private void stallWriter() {
+        auditDB.loadOnFirstAccess(db -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private void awaitTaken() {
+        while (auditWriter.queued() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return порядковый номер переданной записи (хранится в ее временной метке)
+     */
+    private static int number(Audit audit) {
+        return (int) (audit.getTimestamp() - BASE_TIMESTAMP);
+    }
+
+    private static Audit audit(String email, int n) {
+        return Audit.builder()
+                .timestamp(BASE_TIMESTAMP + n)
+                .userEmail(email)
+                .action(Action.ADD_PRODUCT)
+                .isSuccess(Status.SUCCESS)
+                .summary("Товар " + n)
+                .build();
+    }
+}
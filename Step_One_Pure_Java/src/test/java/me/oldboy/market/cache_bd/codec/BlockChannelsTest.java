@@ -0,0 +1,109 @@
+package me.oldboy.market.cache_bd.codec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlockChannelsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writer_andReader_shouldRoundTripValues_Test() throws Exception {
+        BinaryWriter writer = new BinaryWriter(4);
+        writer.writeVarLong(0)
+                .writeVarLong(300)
+                .writeVarLong(Long.MAX_VALUE)
+                .writeSignedVarLong(-1)
+                .writeSignedVarLong(Long.MIN_VALUE)
+                .writeNullableInt(null)
+                .writeNullableInt(-7)
+                .writeNullableInt(Integer.MIN_VALUE)
+                .writeString(null)
+                .writeString("")
+                .writeString("Валенки")
+                .writeDouble(99.5);
+
+        BinaryReader reader = new BinaryReader(writer.buffer());
+
+        assertThat(reader.readVarLong()).isZero();
+        assertThat(reader.readVarInt()).isEqualTo(300);
+        assertThat(reader.readVarLong()).isEqualTo(Long.MAX_VALUE);
+        assertThat(reader.readSignedVarLong()).isEqualTo(-1);
+        assertThat(reader.readSignedVarLong()).isEqualTo(Long.MIN_VALUE);
+        assertThat(reader.readNullableInt()).isNull();
+        assertThat(reader.readNullableInt()).isEqualTo(-7);
+        assertThat(reader.readNullableInt()).isEqualTo(Integer.MIN_VALUE);
+        assertThat(reader.readString()).isNull();
+        assertThat(reader.readString()).isEmpty();
+        assertThat(reader.readString()).isEqualTo("Валенки");
+        assertThat(reader.readDouble()).isEqualTo(99.5);
+        assertThat(reader.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void writer_shouldSpendOneByteOnSmallNumbers_Test() {
+        BinaryWriter writer = new BinaryWriter(16);
+        writer.writeVarLong(127).writeSignedVarLong(-64).writeNullableInt(null);
+
+        assertThat(writer.size()).isEqualTo(3);
+    }
+
+    @Test
+    void readBlock_shouldReturnBlocksInOrder_andNullAtEnd_Test() throws Exception {
+        Path file = dir.resolve("blocks.bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            BlockChannels.writeFileHeader(channel, 0x54455354, (short) 3);
+            BlockChannels.writeBlock(channel, new BinaryWriter(8).writeVarLong(1));
+            BlockChannels.writeBlock(channel, new BinaryWriter(8).writeString("два"));
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThat(BlockChannels.readFileHeader(channel, 0x54455354)).isEqualTo((short) 3);
+            assertThat(BlockChannels.readBlock(channel).readVarLong()).isEqualTo(1);
+            assertThat(BlockChannels.readBlock(channel).readString()).isEqualTo("два");
+            assertThat(BlockChannels.readBlock(channel)).isNull();
+        }
+    }
+
+    @Test
+    void readBlock_shouldDetectCorruptedAndTornBlocks_Test() throws Exception {
+        Path file = dir.resolve("blocks.bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            BlockChannels.writeBlock(channel, new BinaryWriter(8).writeString("целый блок"));
+        }
+        byte[] bytes = Files.readAllBytes(file);
+
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThatThrownBy(() -> BlockChannels.readBlock(channel))
+                    .isInstanceOf(CorruptBlockException.class)
+                    .hasMessageContaining("checksum");
+        }
+
+        Files.write(file, new byte[]{0, 0, 0, 40, 1, 2, 3});
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThatThrownBy(() -> BlockChannels.readBlock(channel)).isInstanceOf(CorruptBlockException.class);
+        }
+    }
+
+    @Test
+    void readFileHeader_shouldRejectOtherSignature_Test() throws Exception {
+        Path file = dir.resolve("other.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 0, 1});
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThatThrownBy(() -> BlockChannels.readFileHeader(channel, 0x54455354))
+                    .isInstanceOf(CorruptBlockException.class);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package me.oldboy.market.cache_bd.index;
+
+import me.oldboy.market.entity.User;
+import me.oldboy.market.exceptions.IndexConstraintException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndexSetTest {
+
+    private IndexSet<User, Long> indexes;
+    private UniqueIndex<User, String, Long> byEmail;
+    private NonUniqueIndex<User, String, Long> byPassword;
+    private NonUniqueIndex<User, List<Object>, Long> byPasswordAndEmail;
+    private User u1, u2, u3;
+
+    @BeforeEach
+    void setUp() {
+        indexes = new IndexSet<>(User::getUserId);
+        byEmail = indexes.unique("email", User::getEmail);
+        byPassword = indexes.nonUnique("password", User::getPassword);
+        byPasswordAndEmail = indexes.nonUnique("passwordAndEmail", user -> IndexSet.key(user.getPassword(), user.getEmail()));
+
+        u1 = User.builder().userId(1L).email("u1@market.ru").password("1234").build();
+        u2 = User.builder().userId(2L).email("u2@market.ru").password("1234").build();
+        u3 = User.builder().userId(3L).email("u3@market.ru").password("4321").build();
+        indexes.add(u1);
+        indexes.add(u2);
+        indexes.add(u3);
+    }
+
+    @Test
+    void add_shouldMaintainAllDeclaredIndexes_Test() {
+        assertThat(byEmail.find("u2@market.ru")).contains(2L);
+        assertThat(byEmail.find("notExist@market.ru")).isEmpty();
+        assertThat(byPassword.find("1234")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(byPasswordAndEmail.find(IndexSet.key("4321", "u3@market.ru"))).containsExactly(3L);
+    }
+
+    @Test
+    void check_shouldRejectTakenUniqueKey_andAcceptOwnKey_Test() {
+        User duplicate = User.builder().userId(4L).email("u1@market.ru").build();
+
+        assertThatThrownBy(() -> indexes.check(duplicate))
+                .isInstanceOf(IndexConstraintException.class)
+                .hasMessageContaining("email");
+        indexes.check(User.builder().userId(1L).email("u1@market.ru").build());
+        indexes.check(User.builder().userId(4L).build());
+    }
+
+    @Test
+    void update_shouldMoveEntityToNewKeys_Test() {
+        User before = User.builder().userId(2L).email(u2.getEmail()).password(u2.getPassword()).build();
+        u2.setEmail("new@market.ru");
+        u2.setPassword("4321");
+        indexes.update(before, u2);
+
+        assertThat(byEmail.find("u2@market.ru")).isEmpty();
+        assertThat(byEmail.find("new@market.ru")).contains(2L);
+        assertThat(byPassword.find("1234")).containsExactly(1L);
+        assertThat(byPassword.find("4321")).containsExactlyInAnyOrder(2L, 3L);
+    }
+
+    @Test
+    void remove_shouldDropEmptyKeys_Test() {
+        indexes.remove(u3);
+
+        assertThat(byEmail.find("u3@market.ru")).isEmpty();
+        assertThat(byPassword.find("4321")).isEmpty();
+        assertThat(byEmail.size()).isEqualTo(2);
+    }
+
+    @Test
+    void removeValue_shouldDropValueUnderAllKeys_Test() {
+        byPassword.removeValue(1L);
+
+        assertThat(byPassword.find("1234")).containsExactly(2L);
+    }
+
+    @Test
+    void clear_shouldEmptyAllIndexes_Test() {
+        indexes.clear();
+
+        assertThat(byEmail.size()).isZero();
+        assertThat(byPassword.find("1234")).isEmpty();
+    }
+}
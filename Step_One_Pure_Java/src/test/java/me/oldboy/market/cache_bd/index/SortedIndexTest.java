@@ -0,0 +1,105 @@
+package me.oldboy.market.cache_bd.index;
+
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SortedIndexTest {
+
+    private IndexSet<Product, Long> indexes;
+    private SortedIndex<Product, Double, Long> byPrice;
+    private SortedIndex<Product, Double, Long> byCategoryAndPrice;
+    private final Category tools = Category.builder().id(1).name("Инструменты").build();
+    private final Category shoes = Category.builder().id(2).name("Обувь").build();
+    private Product drill, hammer, boots, saw;
+
+    @BeforeEach
+    void setUp() {
+        indexes = new IndexSet<>(Product::getId);
+        byPrice = indexes.sorted("price", Product::getPrice);
+        byCategoryAndPrice = indexes.sorted("categoryAndPrice", Product::getCategory, Product::getPrice);
+
+        drill = product(1L, tools, 35.0);
+        hammer = product(2L, tools, 12.0);
+        boots = product(3L, shoes, 35.0);
+        saw = product(4L, tools, 20.0);
+        indexes.add(drill);
+        indexes.add(hammer);
+        indexes.add(boots);
+        indexes.add(saw);
+    }
+
+    @Test
+    void range_shouldReturnKeysInOrder_andEqualKeysById_Test() {
+        assertThat(ids(byPrice.range(12.0, 35.0, null, 10))).containsExactly(2L, 4L, 1L, 3L);
+        assertThat(ids(byPrice.range(13.0, null, null, 10))).containsExactly(4L, 1L, 3L);
+        assertThat(ids(byPrice.range(null, 20.0, null, 10))).containsExactly(2L, 4L);
+        assertThat(byPrice.range(36.0, 100.0, null, 10)).isEmpty();
+    }
+
+    @Test
+    void range_shouldContinueAfterCursor_Test() {
+        List<SortedIndex.Entry<Double, Long>> first = byPrice.range(12.0, 35.0, null, 3);
+        SortedIndex.Entry<Double, Long> cursor = first.get(first.size() - 1);
+
+        assertThat(ids(first)).containsExactly(2L, 4L, 1L);
+        assertThat(ids(byPrice.range(12.0, 35.0, cursor, 3))).containsExactly(3L);
+        /* Курсор до начала диапазона не расширяет его */
+        assertThat(ids(byPrice.range(20.0, 35.0, new SortedIndex.Entry<>(1.0, 1L), 10))).containsExactly(4L, 1L, 3L);
+    }
+
+    @Test
+    void range_shouldSearchInsideGroup_Test() {
+        assertThat(ids(byCategoryAndPrice.range(tools, null, null, null, 2))).containsExactly(2L, 4L);
+        assertThat(ids(byCategoryAndPrice.range(shoes, null, null, null, 10))).containsExactly(3L);
+        assertThat(byCategoryAndPrice.range(Category.builder().id(3).name("Нет").build(), null, null, null, 10)).isEmpty();
+        /* Индекс с группами без указания группы ничего не возвращает */
+        assertThat(byCategoryAndPrice.range(null, null, null, 10)).isEmpty();
+    }
+
+    @Test
+    void update_shouldMoveEntryToNewKey_Test() {
+        Product before = product(2L, tools, 12.0);
+        hammer.setPrice(50.0);
+        indexes.update(before, hammer);
+
+        assertThat(ids(byPrice.range(null, null, null, 10))).containsExactly(4L, 1L, 3L, 2L);
+        assertThat(ids(byCategoryAndPrice.range(tools, null, null, null, 1))).containsExactly(4L);
+    }
+
+    @Test
+    void remove_shouldDropEntries_Test() {
+        indexes.remove(boots);
+
+        assertThat(byCategoryAndPrice.range(shoes, null, null, null, 10)).isEmpty();
+        assertThat(byPrice.size()).isEqualTo(3);
+        assertThat(byCategoryAndPrice.size()).isEqualTo(3);
+    }
+
+    @Test
+    void firstAndLast_shouldReturnKeyBounds_Test() {
+        assertThat(byPrice.first()).isEqualTo(12.0);
+        assertThat(byPrice.last()).isEqualTo(35.0);
+        assertThat(byCategoryAndPrice.first(tools)).isEqualTo(12.0);
+        assertThat(byCategoryAndPrice.last(shoes)).isEqualTo(35.0);
+
+        indexes.remove(boots);
+
+        assertThat(byCategoryAndPrice.first(shoes)).isNull();
+        assertThat(byCategoryAndPrice.last(null)).isNull();
+    }
+
+    private static List<Long> ids(List<SortedIndex.Entry<Double, Long>> entries) {
+        return entries.stream().map(SortedIndex.Entry::getValue).collect(Collectors.toList());
+    }
+
+    private static Product product(Long id, Category category, double price) {
+        return Product.builder().id(id).category(category).price(price).build();
+    }
+}
@@ -0,0 +1,219 @@
+package me.oldboy.market.cache_bd.journal;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductJournalTest {
+
+    @TempDir
+    Path dbDir;
+
+    private ProductDB productDB;
+    private List<List<Product>> snapshots;
+    private Category category;
+    private Brand brand;
+
+    @BeforeEach
+    void setUp() {
+        productDB = new ProductDB();
+        snapshots = new ArrayList<>();
+        category = Category.builder().id(1).name("Обувь").build();
+        brand = Brand.builder().id(1).name("Puma").build();
+    }
+
+    @Test
+    void open_shouldReplayAddUpdateDelete_afterRestart_Test() {
+        ProductJournal journal = open(productDB);
+        Long id_1 = productDB.add(product("Валенки", 135.0));
+        Long id_2 = productDB.add(product("Галоши", 20.0));
+        productDB.update(Product.builder().id(id_1).name("Валенки").price(150.0).category(category).brand(brand).build());
+        productDB.delete(productDB.findProductById(id_2).get());
+        journal.flush();
+
+        /* "Падение" без закрытия журнала - новый кэш восстанавливается только из журнала */
+        ProductDB restored = new ProductDB();
+        ProductJournal reopened = open(restored);
+
+        assertThat(restored.size()).isEqualTo(1);
+        assertThat(restored.findProductById(id_1).get().getPrice()).isEqualTo(150.0);
+        assertThat(restored.findProductById(id_2)).isEmpty();
+        assertThat(restored.findProductByCategory(category)).hasSize(1);
+        /* Счетчик ID продолжает загруженные данные */
+        assertThat(restored.add(product("Кеды", 50.0))).isEqualTo(id_2 + 1);
+
+        reopened.close();
+        journal.close();
+    }
+
+    @Test
+    void checkpoint_shouldWriteSnapshotAndDropOldJournal_Test() throws Exception {
+        ProductJournal journal = open(productDB);
+        productDB.add(product("Валенки", 135.0));
+        journal.flush();
+        assertThat(Files.size(dbDir.resolve("product-1.journal"))).isPositive();
+
+        journal.checkpoint();
+
+        assertThat(snapshots).hasSize(1);
+        assertThat(snapshots.get(0)).hasSize(1);
+        assertThat(dbDir.resolve("product-1.journal")).doesNotExist();
+        assertThat(dbDir.resolve("product-2.journal")).exists();
+        journal.close();
+    }
+
+    @Test
+    void checkpoint_shouldKeepOldJournal_whenSnapshotFails_Test() throws Exception {
+        ProductJournal journal = ProductJournal.open(dbDir, productDB, snapshotDb -> {
+            throw new UncheckedIOException(new IOException("product.col is in use"));
+        });
+        Long id = productDB.add(product("Валенки", 135.0));
+        journal.flush();
+
+        assertThatThrownBy(journal::checkpoint).isInstanceOf(UncheckedIOException.class);
+        assertThat(dbDir.resolve("product-1.journal")).exists();
+        assertThatThrownBy(journal::close).isInstanceOf(UncheckedIOException.class);
+        assertThat(dbDir.resolve("product-1.journal")).exists();
+
+        ProductDB restored = new ProductDB();
+        ProductJournal reopened = open(restored);
+        assertThat(restored.findProductById(id)).isPresent();
+        reopened.close();
+    }
+
+    @Test
+    void flush_shouldReportFailedWrite_andRetryIntoNewGeneration_Test() throws Exception {
+        ProductJournal journal = open(productDB);
+        Long id_1 = productDB.add(product("Валенки", 135.0));
+        journal.flush();
+        /* Имитируем сбой записи: канал текущего поколения больше не принимает данные */
+        Field channel = ProductJournal.class.getDeclaredField("channel");
+        channel.setAccessible(true);
+        ((FileChannel) channel.get(journal)).close();
+
+        Long id_2 = productDB.add(product("Галоши", 20.0));
+        boolean failureReported = false;
+        for (int attempt = 0; attempt < 50; attempt++) {
+            try {
+                journal.flush();
+                break;
+            } catch (UncheckedIOException e) {
+                failureReported = true;
+                Thread.sleep(50);
+            }
+        }
+        journal.flush();
+
+        assertThat(failureReported).isTrue();
+        assertThat(dbDir.resolve("product-2.journal")).exists();
+        ProductDB restored = new ProductDB();
+        ProductJournal reopened = open(restored);
+        assertThat(restored.findProductById(id_1)).isPresent();
+        assertThat(restored.findProductById(id_2)).isPresent();
+        assertThat(restored.findProductByCategory(category)).hasSize(2);
+        reopened.close();
+        journal.close();
+    }
+
+    @Test
+    void close_shouldNotCheckpoint_withoutChanges_Test() {
+        ProductJournal journal = open(productDB);
+        journal.close();
+
+        assertThat(snapshots).isEmpty();
+        assertThat(dbDir.resolve("product-1.journal")).doesNotExist();
+    }
+
+    @Test
+    void replay_shouldIgnoreTornTail_Test() throws Exception {
+        ProductJournal journal = open(productDB);
+        productDB.add(product("Валенки", 135.0));
+        journal.flush();
+        /* Имитируем оборванную при сбое запись */
+        Files.write(dbDir.resolve("product-1.journal"), new byte[]{0, 0, 0, 40, 1, 2, 3},
+                StandardOpenOption.APPEND);
+
+        ProductDB restored = new ProductDB();
+        ProductJournal reopened = open(restored);
+
+        assertThat(restored.size()).isEqualTo(1);
+        reopened.close();
+        journal.close();
+    }
+
+    @Test
+    void replay_shouldReadVersion1Journal_Test() throws Exception {
+        /* Журнал прежнего формата: без заголовка, [int длина][int CRC32][тело с полями фиксированной ширины] */
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeByte(1);
+        out.writeLong(7L);
+        out.writeLong(1000L);
+        out.writeLong(2000L);
+        out.writeDouble(135.0);
+        out.writeInt(3);
+        out.writeBoolean(true);
+        out.writeInt(1);
+        out.writeBoolean(true);
+        out.writeUTF("Обувь");
+        out.writeBoolean(true);
+        out.writeInt(1);
+        out.writeBoolean(true);
+        out.writeUTF("Puma");
+        out.writeBoolean(true);
+        out.writeUTF("Валенки");
+        out.writeBoolean(false);
+        CRC32 crc = new CRC32();
+        crc.update(body.toByteArray());
+        ByteBuffer record = ByteBuffer.allocate(8 + body.size())
+                .putInt(body.size())
+                .putInt((int) crc.getValue())
+                .put(body.toByteArray());
+        Files.write(dbDir.resolve("product-1.journal"), record.array());
+
+        ProductJournal journal = open(productDB);
+
+        Product restored = productDB.findProductById(7L).get();
+        assertThat(restored.getName()).isEqualTo("Валенки");
+        assertThat(restored.getPrice()).isEqualTo(135.0);
+        assertThat(restored.getLastModifiedTimestamp()).isEqualTo(2000L);
+        assertThat(productDB.findProductByCategory(category)).hasSize(1);
+        journal.close();
+    }
+
+    private ProductJournal open(ProductDB db) {
+        return ProductJournal.open(dbDir, db, snapshotDb -> snapshots.add(snapshotDb.getProductsList()));
+    }
+
+    private Product product(String name, double price) {
+        return Product.builder()
+                .name(name)
+                .price(price)
+                .category(category)
+                .brand(brand)
+                .description("Описание")
+                .stockQuantity(10)
+                .build();
+    }
+}
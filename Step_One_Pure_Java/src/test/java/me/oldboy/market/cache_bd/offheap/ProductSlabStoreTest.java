@@ -0,0 +1,98 @@
+package me.oldboy.market.cache_bd.offheap;
+
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSlabStoreTest {
+    private final List<Category> categories = List.of(new Category(1, "Ноутбуки"), new Category(2, "Смартфоны"));
+    private final List<Brand> brands = List.of(new Brand(1, "Apple"), new Brand(2, "Samsung"));
+
+    private ProductSlabStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ProductSlabStore(categories::get, brands::get);
+    }
+
+    @Test
+    void write_andRead_shouldRestoreEveryField_Test() {
+        Product product = Product.builder()
+                .id(7L)
+                .name("Ноутбук ✓")
+                .price(1999.99)
+                .category(categories.get(0))
+                .brand(brands.get(1))
+                .description(null)
+                .stockQuantity(12)
+                .creationTimestamp(1_700_000_000_000L)
+                .lastModifiedTimestamp(1_700_000_000_500L)
+                .build();
+
+        long handle = store.write(product, 0, 1);
+
+        Product read = store.read(handle);
+        assertThat(read).isEqualTo(product);
+        assertThat(read).isNotSameAs(product);
+        assertThat(read.getCreationTimestamp()).isEqualTo(1_700_000_000_000L);
+        assertThat(store.price(handle)).isEqualTo(1999.99);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void retiredRecord_shouldStayReadable_untilOlderVersionsAreGone_Test() {
+        long handle = store.write(product(1L, "Товар"), 0, 0);
+        store.retire(handle, 5);
+
+        store.reclaim(4);
+        assertThat(store.read(handle).getName()).isEqualTo("Товар");
+        assertThat(store.retiredCount()).isEqualTo(1);
+
+        store.reclaim(5);
+        assertThat(store.read(handle)).isNull();
+        assertThat(store.retiredCount()).isZero();
+        assertThat(store.size()).isZero();
+
+        /* Освобожденная запись отдается следующему товару с новым поколением */
+        long reused = store.write(product(2L, "Другой"), 1, 1);
+        assertThat((int) reused).isEqualTo((int) handle);
+        assertThat(reused).isNotEqualTo(handle);
+        assertThat(store.read(handle)).isNull();
+        assertThat(store.read(reused).getId()).isEqualTo(2L);
+    }
+
+    @Test
+    void releasedRecordsAndStrings_shouldBeReused_insteadOfGrowingStore_Test() {
+        long version = 0;
+        for (int i = 0; i < 1_000; i++) {
+            store.retire(store.write(product(i, "Товар " + i), 0, 0), ++version);
+            store.reclaim(version);
+        }
+        long reserved = store.reservedBytes();
+
+        for (int i = 0; i < 100_000; i++) {
+            store.retire(store.write(product(i, "Товар " + i), 0, 0), ++version);
+            store.reclaim(version);
+        }
+
+        assertThat(store.reservedBytes()).isEqualTo(reserved);
+        assertThat(store.size()).isZero();
+    }
+
+    private Product product(long id, String name) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .price(id)
+                .category(categories.get(0))
+                .brand(brands.get(0))
+                .description("Описание " + name)
+                .build();
+    }
+}
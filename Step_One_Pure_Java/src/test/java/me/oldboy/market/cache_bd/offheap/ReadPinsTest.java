@@ -0,0 +1,91 @@
+package me.oldboy.market.cache_bd.offheap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadPinsTest {
+
+    @Test
+    void oldest_shouldReturnOldestPinnedVersion_andForgetFinishedReads_Test() throws Exception {
+        ReadPins pins = new ReadPins(4);
+        CountDownLatch pinned = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            pins.pin(5);
+            pinned.countDown();
+            await(finish);
+            pins.unpin();
+        });
+        reader.start();
+        pinned.await();
+
+        /* Вложенное чтение не освобождает ячейку раньше внешнего */
+        pins.pin(7);
+        pins.pin(9);
+        pins.unpin();
+        assertThat(pins.oldest(10)).isEqualTo(5);
+
+        finish.countDown();
+        reader.join();
+        assertThat(pins.oldest(10)).isEqualTo(7);
+        pins.unpin();
+        assertThat(pins.oldest(10)).isEqualTo(10);
+    }
+
+    @Test
+    void pin_fromManyShortLivedThreads_shouldReuseFixedSlots_Test() throws Exception {
+        ReadPins pins = new ReadPins(2);
+        for (int i = 0; i < 500; i++) {
+            long version = i;
+            Thread reader = new Thread(() -> {
+                pins.pin(version);
+                pins.unpin();
+            });
+            reader.start();
+            reader.join();
+        }
+
+        assertThat(pins.oldest(1_000)).isEqualTo(1_000);
+    }
+
+    @Test
+    void pin_shouldWaitForFreeSlot_whenAllSlotsAreTaken_Test() throws Exception {
+        ReadPins pins = new ReadPins(2);
+        CountDownLatch pinned = new CountDownLatch(2);
+        CountDownLatch finish = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            long version = 3 + i;
+            new Thread(() -> {
+                pins.pin(version);
+                pinned.countDown();
+                await(finish);
+                pins.unpin();
+            }).start();
+        }
+        pinned.await();
+
+        Thread third = new Thread(() -> {
+            pins.pin(1);
+            pins.unpin();
+        });
+        third.start();
+        third.join(100);
+        assertThat(third.isAlive()).isTrue();
+        assertThat(pins.oldest(10)).isEqualTo(3);
+
+        finish.countDown();
+        third.join();
+        assertThat(pins.oldest(10)).isEqualTo(10);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package me.oldboy.market.cache_bd.primitive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntHashMapTest {
+
+    private LongIntHashMap map;
+
+    @BeforeEach
+    void setUp() {
+        map = new LongIntHashMap();
+    }
+
+    @Test
+    void put_shouldReturnPreviousValue_Test() {
+        assertThat(map.put(10L, 1)).isEqualTo(LongIntHashMap.NO_VALUE);
+        assertThat(map.put(10L, 2)).isEqualTo(1);
+        assertThat(map.get(10L)).isEqualTo(2);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldReturnNoValue_notExistKey_Test() {
+        map.put(1L, 1);
+        assertThat(map.get(2L)).isEqualTo(LongIntHashMap.NO_VALUE);
+    }
+
+    @Test
+    void remove_shouldKeepOtherKeysReachable_Test() {
+        /* Много ключей при маленькой таблице - длинные цепочки пробирования и сдвиги при удалении */
+        for (long key = 0; key < 1_000; key++) {
+            map.put(key, (int) key);
+        }
+        for (long key = 0; key < 1_000; key += 2) {
+            assertThat(map.remove(key)).isEqualTo((int) key);
+        }
+
+        assertThat(map.size()).isEqualTo(500);
+        for (long key = 1; key < 1_000; key += 2) {
+            assertThat(map.get(key)).isEqualTo((int) key);
+        }
+        assertThat(map.get(0L)).isEqualTo(LongIntHashMap.NO_VALUE);
+    }
+
+    @Test
+    void randomOperations_shouldMatchHashMap_Test() {
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(2_000);
+            int value = random.nextInt(1_000);
+            if (random.nextBoolean()) {
+                Integer previous = expected.put(key, value);
+                assertThat(map.put(key, value)).isEqualTo(previous == null ? LongIntHashMap.NO_VALUE : previous);
+            } else {
+                Integer removed = expected.remove(key);
+                assertThat(map.remove(key)).isEqualTo(removed == null ? LongIntHashMap.NO_VALUE : removed);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+    }
+
+    @Test
+    void forEach_shouldVisitEveryEntry_includingZeroKey_Test() {
+        map.put(0L, 7);
+        map.put(5L, 50);
+        map.put(-3L, 30);
+        map.remove(5L);
+        Map<Long, Integer> visited = new HashMap<>();
+
+        map.forEach(visited::put);
+
+        assertThat(visited).containsOnly(Map.entry(0L, 7), Map.entry(-3L, 30));
+    }
+}
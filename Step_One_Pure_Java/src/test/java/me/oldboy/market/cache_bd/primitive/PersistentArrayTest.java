@@ -0,0 +1,73 @@
+package me.oldboy.market.cache_bd.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistentArrayTest {
+
+    @Test
+    void with_shouldReturnNewVersion_andKeepOldOne_Test() {
+        PersistentArray<String> first = PersistentArray.<String>empty().with(1, "a").with(70, "b");
+        PersistentArray<String> second = first.with(70, "c").with(5_000_000_000L, "d");
+
+        assertThat(first.get(70)).isEqualTo("b");
+        assertThat(first.get(5_000_000_000L)).isNull();
+        assertThat(first.size()).isEqualTo(2);
+        assertThat(second.get(70)).isEqualTo("c");
+        assertThat(second.get(5_000_000_000L)).isEqualTo("d");
+        assertThat(second.size()).isEqualTo(3);
+    }
+
+    @Test
+    void with_shouldRemoveElement_forNullValue_Test() {
+        PersistentArray<String> array = PersistentArray.<String>empty().with(3, "a").with(4_100, "b");
+
+        PersistentArray<String> removed = array.with(4_100, null);
+
+        assertThat(removed.get(4_100)).isNull();
+        assertThat(removed.size()).isEqualTo(1);
+        assertThat(removed.with(3, null).size()).isZero();
+        assertThat(array.get(4_100)).isEqualTo("b");
+    }
+
+    @Test
+    void nextIndex_andForEach_shouldGoInIndexOrder_Test() {
+        PersistentArray<Long> array = PersistentArray.empty();
+        for (long index : new long[]{262_144, 7, 64, 4_095}) {
+            array = array.with(index, index);
+        }
+        List<Long> values = new ArrayList<>();
+        array.forEach(values::add);
+
+        assertThat(values).containsExactly(7L, 64L, 4_095L, 262_144L);
+        assertThat(array.nextIndex(0)).isEqualTo(7);
+        assertThat(array.nextIndex(65)).isEqualTo(4_095);
+        assertThat(array.nextIndex(4_096)).isEqualTo(262_144);
+        assertThat(array.nextIndex(262_145)).isEqualTo(-1);
+    }
+
+    @Test
+    void batch_shouldApplyAllChanges_andKeepSourceVersion_Test() {
+        PersistentArray<String> source = PersistentArray.<String>empty().with(1, "a");
+
+        PersistentArray.Batch<String> batch = source.batch();
+        for (long index = 0; index < 300; index++) {
+            batch.set(index, "v" + index);
+        }
+        PersistentArray<String> built = batch.build();
+        /* Пакет после build не меняет уже выданную версию */
+        PersistentArray<String> next = batch.set(0, "later").build();
+
+        assertThat(source.get(1)).isEqualTo("a");
+        assertThat(source.size()).isEqualTo(1);
+        assertThat(built.size()).isEqualTo(300);
+        assertThat(built.get(1)).isEqualTo("v1");
+        assertThat(built.get(299)).isEqualTo("v299");
+        assertThat(built.get(0)).isEqualTo("v0");
+        assertThat(next.get(0)).isEqualTo("later");
+    }
+}
@@ -0,0 +1,76 @@
+package me.oldboy.market.cache_bd.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistentBitmapTest {
+
+    @Test
+    void with_andWithout_shouldKeepPreviousVersions_Test() {
+        PersistentBitmap first = PersistentBitmap.empty().with(3).with(10_000);
+        PersistentBitmap second = first.with(5).without(3);
+
+        assertThat(first.contains(3)).isTrue();
+        assertThat(first.contains(5)).isFalse();
+        assertThat(first.cardinality()).isEqualTo(2);
+        assertThat(second.contains(3)).isFalse();
+        assertThat(second.contains(5)).isTrue();
+        assertThat(second.cardinality()).isEqualTo(2);
+    }
+
+    @Test
+    void next_shouldWalkValuesInOrder_inSparseAndDenseBlocks_Test() {
+        PersistentBitmap bitmap = PersistentBitmap.empty();
+        /* Первый блок становится плотным (битовой картой), второй остается массивом */
+        for (long value = 0; value < 4_096; value += 8) {
+            bitmap = bitmap.with(value);
+        }
+        bitmap = bitmap.with(9_000).with(8_200);
+
+        assertThat(bitmap.cardinality()).isEqualTo(514);
+        assertThat(bitmap.next(1)).isEqualTo(8);
+        assertThat(bitmap.next(4_089)).isEqualTo(8_200);
+        assertThat(bitmap.next(8_201)).isEqualTo(9_000);
+        assertThat(bitmap.next(9_001)).isEqualTo(-1);
+    }
+
+    @Test
+    void nextCommon_shouldIntersectBitmaps_Test() {
+        PersistentBitmap even = PersistentBitmap.empty();
+        PersistentBitmap byThree = PersistentBitmap.empty();
+        for (long value = 0; value < 30; value++) {
+            even = value % 2 == 0 ? even.with(value) : even;
+            byThree = value % 3 == 0 ? byThree.with(value) : byThree;
+        }
+        List<Long> common = new ArrayList<>();
+        for (long value = even.nextCommon(byThree, 0); value >= 0; value = even.nextCommon(byThree, value + 1)) {
+            common.add(value);
+        }
+
+        assertThat(common).containsExactly(0L, 6L, 12L, 18L, 24L);
+    }
+
+    @Test
+    void batch_shouldAddValues_andKeepSourceBitmap_Test() {
+        PersistentBitmap source = PersistentBitmap.empty().with(1).with(5_000);
+
+        PersistentBitmap.Batch batch = source.batch();
+        /* Первый блок в пакете переходит из массива в битовую карту */
+        for (long value = 0; value < 4_096; value += 4) {
+            batch.add(value);
+        }
+        PersistentBitmap built = batch.add(5_000).add(5_001).build();
+
+        assertThat(source.cardinality()).isEqualTo(2);
+        assertThat(source.contains(4)).isFalse();
+        assertThat(built.cardinality()).isEqualTo(1_024 + 3);
+        assertThat(built.contains(1)).isTrue();
+        assertThat(built.contains(4_092)).isTrue();
+        assertThat(built.next(4_093)).isEqualTo(5_000);
+        assertThat(built.next(5_001)).isEqualTo(5_001);
+    }
+}
@@ -0,0 +1,104 @@
+package me.oldboy.market.cache_bd.snapshot;
+
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductColumnarSnapshotTest {
+
+    @TempDir
+    Path dbDir;
+
+    private final Category shoes = Category.builder().id(1).name("Обувь").build();
+    private final Brand puma = Brand.builder().id(1).name("Puma").build();
+
+    @Test
+    void write_shouldRoundTripAllFields_Test() throws IOException {
+        Product boots = Product.builder().id(7L).name("Валенки").price(135.0).category(shoes).brand(puma)
+                .description("Танцы на льду").stockQuantity(145)
+                .creationTimestamp(100L).lastModifiedTimestamp(200L).build();
+        Product noDescription = Product.builder().id(9L).name("Галоши").price(20.0).category(shoes).brand(null)
+                .description(null).stockQuantity(3).build();
+        Path file = dbDir.resolve("product.col");
+
+        ProductColumnarSnapshot.write(file, List.of(boots, noDescription));
+
+        try (ProductColumnarSnapshot snapshot = ProductColumnarSnapshot.open(file)) {
+            assertThat(snapshot.rowCount()).isEqualTo(2);
+            Product restored = snapshot.product(0);
+            assertThat(restored.getId()).isEqualTo(7L);
+            assertThat(restored.getName()).isEqualTo("Валенки");
+            assertThat(restored.getPrice()).isEqualTo(135.0);
+            assertThat(restored.getCategory()).isEqualTo(shoes);
+            assertThat(restored.getBrand()).isEqualTo(puma);
+            assertThat(restored.getDescription()).isEqualTo("Танцы на льду");
+            assertThat(restored.getStockQuantity()).isEqualTo(145);
+            assertThat(restored.getCreationTimestamp()).isEqualTo(100L);
+            assertThat(restored.getLastModifiedTimestamp()).isEqualTo(200L);
+
+            assertThat(snapshot.brand(1)).isNull();
+            assertThat(snapshot.description(1)).isNull();
+            /* Категория одна на обе строки - словарь отдает один и тот же объект */
+            assertThat(snapshot.category(1)).isSameAs(snapshot.category(0));
+        }
+    }
+
+    @Test
+    void scans_shouldReadColumnsWithoutMaterialization_Test() throws IOException {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            products.add(Product.builder().id(i + 1L).name("Товар " + i).price(i).category(shoes).brand(puma)
+                    .stockQuantity(i % 10).build());
+        }
+        Path file = dbDir.resolve("product.col");
+        ProductColumnarSnapshot.write(file, products);
+
+        try (ProductColumnarSnapshot snapshot = ProductColumnarSnapshot.open(file)) {
+            assertThat(snapshot.rowsWithPriceBetween(10, 19).toArray()).containsExactly(10, 11, 12, 13, 14, 15, 16, 17, 18, 19);
+            assertThat(snapshot.rowsWithStockBelow(1).count()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void open_shouldRejectForeignFile_Test() throws IOException {
+        Path file = dbDir.resolve("product.col");
+        Files.write(file, new byte[128]);
+
+        assertThatThrownBy(() -> ProductColumnarSnapshot.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Not a columnar product snapshot");
+    }
+
+    @Test
+    void convert_shouldMoveLegacySnapshotToColumnar_Test() throws IOException {
+        Path legacy = dbDir.resolve("product.sr");
+        Path columnar = dbDir.resolve("product.col");
+        List<Product> products = new ArrayList<>(List.of(
+                Product.builder().id(1L).name("Веник").price(12.0).category(shoes).brand(puma).build(),
+                Product.builder().id(4L).name("Дрель").price(35.0).category(shoes).brand(puma).build()));
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(legacy.toFile()))) {
+            out.writeObject(products);
+        }
+
+        int rows = ProductSnapshotConverter.convert(legacy, columnar);
+
+        assertThat(rows).isEqualTo(2);
+        try (ProductColumnarSnapshot snapshot = ProductColumnarSnapshot.open(columnar)) {
+            assertThat(snapshot.id(1)).isEqualTo(4L);
+            assertThat(snapshot.name(1)).isEqualTo("Дрель");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package me.oldboy.market.cache_bd.stats;
+
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogStatisticsTest {
+
+    private ProductDB productDB;
+    private CatalogStatistics statistics;
+    private final Category tools = Category.builder().id(1).name("Инструменты").build();
+    private final Category shoes = Category.builder().id(2).name("Обувь").build();
+    private final Brand bosh = Brand.builder().id(1).name("Bosh").build();
+    private final Brand polar = Brand.builder().id(2).name("PolarBear").build();
+
+    @BeforeEach
+    void setUp() {
+        productDB = new ProductDB();
+        statistics = productDB.statistics();
+    }
+
+    @Test
+    void add_shouldAccumulateGroupStats_Test() {
+        productDB.add(product("Дрель", tools, bosh, 35.5, 2));
+        productDB.add(product("Пила", tools, polar, 12.0, 10));
+        productDB.add(product("Валенки", shoes, polar, 20.0, 1));
+
+        assertThat(statistics.total()).isEqualTo(new ProductStats(3, 13, 211.0, 12.0, 35.5));
+        assertThat(statistics.byCategory(tools)).isEqualTo(new ProductStats(2, 12, 191.0, 12.0, 35.5));
+        assertThat(statistics.byBrand(polar)).isEqualTo(new ProductStats(2, 11, 140.0, 12.0, 20.0));
+        assertThat(statistics.byCategory().keySet()).containsExactly(tools, shoes);
+        assertThat(statistics.byBrand().keySet()).containsExactly(bosh, polar);
+    }
+
+    @Test
+    void updateAndDelete_shouldRecalculateBounds_whenExtremePriceLeavesGroup_Test() {
+        Product drill = product("Дрель", tools, bosh, 35.5, 2);
+        Product saw = product("Пила", tools, bosh, 12.0, 10);
+        Product hammer = product("Молоток", tools, bosh, 15.0, 3);
+        productDB.addAll(List.of(drill, saw, hammer));
+
+        Product cheaperDrill = product("Дрель", tools, bosh, 18.0, 4);
+        cheaperDrill.setId(drill.getId());
+        productDB.update(cheaperDrill);
+
+        assertThat(statistics.byCategory(tools)).isEqualTo(new ProductStats(3, 17, 237.0, 12.0, 18.0));
+        assertThat(statistics.byBrand(bosh).getMaxPrice()).isEqualTo(18.0);
+
+        productDB.delete(saw);
+
+        assertThat(statistics.byBrand(bosh)).isEqualTo(new ProductStats(2, 7, 117.0, 15.0, 18.0));
+        assertThat(statistics.total().getMinPrice()).isEqualTo(15.0);
+    }
+
+    @Test
+    void delete_shouldDropEmptyGroup_andClearShouldResetStats_Test() {
+        Product boots = product("Валенки", shoes, polar, 20.0, 1);
+        productDB.add(product("Дрель", tools, bosh, 35.5, 2));
+        productDB.add(boots);
+
+        productDB.delete(boots);
+
+        assertThat(statistics.byCategory(shoes)).isEqualTo(ProductStats.EMPTY);
+        assertThat(statistics.byCategory().keySet()).containsExactly(tools);
+
+        productDB.clear();
+
+        assertThat(statistics.total()).isEqualTo(ProductStats.EMPTY);
+        assertThat(statistics.byBrand()).isEmpty();
+    }
+
+    @Test
+    void stats_shouldMatchFullScan_afterRandomChanges_Test() {
+        Random random = new Random(7);
+        List<Category> categories = List.of(tools, shoes);
+        List<Brand> brands = List.of(bosh, polar);
+        for (int i = 0; i < 2_000; i++) {
+            List<Product> products = productDB.getProductsList();
+            int action = random.nextInt(3);
+            if (action == 0 || products.isEmpty()) {
+                productDB.add(product("Товар " + i, categories.get(random.nextInt(2)), brands.get(random.nextInt(2)),
+                        random.nextInt(10_000) / 100.0, random.nextInt(20)));
+            } else if (action == 1) {
+                Product source = products.get(random.nextInt(products.size()));
+                Product changed = product(source.getName(), source.getCategory(), source.getBrand(),
+                        random.nextInt(10_000) / 100.0, random.nextInt(20));
+                changed.setId(source.getId());
+                productDB.update(changed);
+            } else {
+                productDB.delete(products.get(random.nextInt(products.size())));
+            }
+        }
+
+        for (Category category : categories) {
+            assertThat(statistics.byCategory(category)).isEqualTo(scan(productDB.getProductsList().stream()
+                    .filter(product -> product.getCategory().equals(category)).collect(Collectors.toList())));
+        }
+        for (Brand brand : brands) {
+            assertThat(statistics.byBrand(brand)).isEqualTo(scan(productDB.getProductsList().stream()
+                    .filter(product -> product.getBrand().equals(brand)).collect(Collectors.toList())));
+        }
+        assertThat(statistics.total()).isEqualTo(scan(productDB.getProductsList()));
+    }
+
+    private static ProductStats scan(List<Product> products) {
+        if (products.isEmpty()) {
+            return ProductStats.EMPTY;
+        }
+        long kopecks = products.stream().mapToLong(p -> Math.round(p.getPrice() * 100) * p.getStockQuantity()).sum();
+        return new ProductStats(products.size(),
+                products.stream().mapToLong(Product::getStockQuantity).sum(),
+                kopecks / 100.0,
+                products.stream().mapToDouble(Product::getPrice).min().getAsDouble(),
+                products.stream().mapToDouble(Product::getPrice).max().getAsDouble());
+    }
+
+    private static Product product(String name, Category category, Brand brand, double price, int stock) {
+        return Product.builder().name(name).category(category).brand(brand).price(price).stockQuantity(stock)
+                .description("описание").build();
+    }
+}
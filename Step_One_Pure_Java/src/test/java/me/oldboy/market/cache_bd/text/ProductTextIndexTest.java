@@ -0,0 +1,85 @@
+package me.oldboy.market.cache_bd.text;
+
+import me.oldboy.market.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductTextIndexTest {
+
+    private ProductTextIndex index;
+    private Product boots, sneakers, socks;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductTextIndex();
+        boots = product(1L, "Ботинки зимние", "Теплые ботинки на меху");
+        sneakers = product(2L, "Кроссовки беговые", "Легкие кроссовки для бега зимой и летом");
+        socks = product(3L, "Носки", "Теплые носки под зимние ботинки");
+        index.add(boots);
+        index.add(sneakers);
+        index.add(socks);
+    }
+
+    @Test
+    void search_shouldReturnDocsWithMostMatchedTerms_rankedByScore_Test() {
+        /* Оба термина есть только у носков - ботинки с одним термином в ответ не попадают */
+        assertThat(index.search("носки ботинки", 10)).containsExactly(3L);
+        /* Ни у кого нет обоих терминов - подходят товары с любым из них */
+        assertThat(index.search("носки кроссовки", 10)).containsExactly(3L, 2L);
+        /* Отсутствующий в индексе термин не мешает найти остальные */
+        assertThat(index.search("шапка ботинки", 10)).containsExactly(1L, 3L);
+        /* При равном весе выше более короткое описание; "зимой" и "зимние" - разные термины */
+        assertThat(index.search("теплый", 10)).containsExactly(3L, 1L);
+        assertThat(index.search("зимние ботинки", 10)).containsExactly(1L, 3L);
+        assertThat(index.search("шапка", 10)).isEmpty();
+    }
+
+    @Test
+    void search_shouldRespectLimit_Test() {
+        assertThat(index.search("зимние ботинки", 1)).containsExactly(1L);
+        assertThat(index.search("зимние", 0)).isEmpty();
+    }
+
+    @Test
+    void update_shouldReindexChangedText_Test() {
+        Product before = product(2L, sneakers.getName(), sneakers.getDescription());
+        sneakers.setName("Кеды");
+        index.update(before, sneakers);
+
+        assertThat(index.search("беговые", 10)).isEmpty();
+        assertThat(index.search("кеды", 10)).containsExactly(2L);
+        assertThat(index.search("кроссовки", 10)).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void remove_shouldHideProduct_andDropUnusedTerms_Test() {
+        int terms = index.termCount();
+        index.remove(sneakers);
+
+        assertThat(index.search("беговые кроссовки", 10)).isEmpty();
+        assertThat(index.search("зимние ботинки", 10)).containsExactly(1L, 3L);
+        assertThat(index.termCount()).isLessThan(terms);
+    }
+
+    @Test
+    void remove_shouldCompactPostings_andKeepSearchResults_Test() {
+        for (long id = 10; id < 3010; id++) {
+            index.add(product(id, "Товар " + id, "Зимние ботинки"));
+        }
+        for (long id = 10; id < 3010; id++) {
+            index.remove(product(id, "Товар " + id, "Зимние ботинки"));
+        }
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.search("зимние ботинки", 10)).containsExactly(1L, 3L);
+        index.add(product(5000L, "Ботинки зимние", null));
+        assertThat(index.search("ботинки зимние", 2)).containsExactly(5000L, 1L);
+    }
+
+    private static Product product(Long id, String name, String description) {
+        return Product.builder().id(id).name(name).description(description).build();
+    }
+}
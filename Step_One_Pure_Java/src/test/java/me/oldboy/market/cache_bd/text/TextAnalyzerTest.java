@@ -0,0 +1,28 @@
+package me.oldboy.market.cache_bd.text;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextAnalyzerTest {
+
+    @Test
+    void terms_shouldSplitOnNonWordCharacters_andFoldCase_Test() {
+        assertThat(TextAnalyzer.terms("Дрель-шуруповерт BOSCH, 18V!")).containsExactly("дрел", "шуруповерт", "bosch", "18v");
+        assertThat(TextAnalyzer.terms(null)).isEmpty();
+        assertThat(TextAnalyzer.terms(" ,. ")).isEmpty();
+    }
+
+    @Test
+    void terms_shouldReduceWordFormsToOneStem_Test() {
+        assertThat(TextAnalyzer.terms("товар товара товаров товарами Товары"))
+                .containsOnly("товар");
+        assertThat(TextAnalyzer.terms("Ёлка елки")).containsOnly("елк");
+        assertThat(TextAnalyzer.terms("shoes shoe glass")).containsExactly("shoe", "shoe", "glass");
+    }
+
+    @Test
+    void terms_shouldKeepShortWordsAndNumbers_Test() {
+        assertThat(TextAnalyzer.terms("чай 100 ам")).containsExactly("чай", "100", "ам");
+    }
+}
@@ -0,0 +1,101 @@
+package me.oldboy.market.cache_bd.tiered;
+
+import me.oldboy.market.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotTierTest {
+
+    @Test
+    void lru_shouldEvictLeastRecentlyRead_andCountHitsAndMisses_Test() {
+        HotTier tier = new HotTier(2, AdmissionPolicy.LRU);
+
+        assertThat(tier.get(1)).isNull();
+        tier.put(1, product(1));
+        tier.put(2, product(2));
+        assertThat(tier.get(1)).isNotNull();
+        tier.put(3, product(3));
+
+        assertThat(tier.peek(1)).isNotNull();
+        assertThat(tier.peek(2)).isNull();
+        assertThat(tier.peek(3)).isNotNull();
+        assertThat(tier.size()).isEqualTo(2);
+        assertThat(tier.hits()).isEqualTo(1);
+        assertThat(tier.misses()).isEqualTo(1);
+        assertThat(tier.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void tinyLfu_shouldKeepFrequentlyReadProducts_whenCatalogIsScanned_Test() {
+        int capacity = 100;
+        HotTier tinyLfu = new HotTier(capacity, AdmissionPolicy.TINY_LFU);
+        HotTier lru = new HotTier(capacity, AdmissionPolicy.LRU);
+        for (HotTier tier : new HotTier[]{tinyLfu, lru}) {
+            for (int round = 0; round < 5; round++) {
+                LongStream.range(0, 50).forEach(handle -> read(tier, handle));
+            }
+            /* Однократный просмотр большого каталога */
+            LongStream.range(1_000, 11_000).forEach(handle -> read(tier, handle));
+        }
+
+        long tinyLfuKept = LongStream.range(0, 50).filter(handle -> tinyLfu.peek(handle) != null).count();
+        long lruKept = LongStream.range(0, 50).filter(handle -> lru.peek(handle) != null).count();
+        assertThat(tinyLfuKept).isGreaterThanOrEqualTo(48);
+        assertThat(lruKept).isEqualTo(0);
+        assertThat(tinyLfu.size()).isLessThanOrEqualTo(capacity);
+        assertThat(tinyLfu.rejections()).isGreaterThan(9_000);
+    }
+
+    @Test
+    void tinyLfu_shouldAdmitNewHotProducts_overColdOnes_Test() {
+        HotTier tier = new HotTier(100, AdmissionPolicy.TINY_LFU);
+        LongStream.range(0, 100).forEach(handle -> read(tier, handle));
+        for (int round = 0; round < 10; round++) {
+            LongStream.range(500, 550).forEach(handle -> read(tier, handle));
+        }
+
+        assertThat(LongStream.range(500, 550).filter(handle -> tier.peek(handle) != null).count())
+                .isGreaterThanOrEqualTo(48);
+        assertThat(tier.size()).isEqualTo(100);
+    }
+
+    @Test
+    void remove_shouldDropProductOfReleasedRecord_Test() {
+        HotTier tier = new HotTier(10, AdmissionPolicy.TINY_LFU);
+        LongStream.range(0, 10).forEach(handle -> read(tier, handle));
+
+        tier.remove(3);
+        tier.remove(42);
+
+        assertThat(tier.peek(3)).isNull();
+        assertThat(tier.size()).isEqualTo(9);
+        read(tier, 11);
+        assertThat(tier.size()).isEqualTo(10);
+    }
+
+    @Test
+    void zeroCapacity_shouldKeepNothing_Test() {
+        HotTier tier = new HotTier(0, AdmissionPolicy.TINY_LFU);
+
+        read(tier, 1);
+
+        assertThat(tier.size()).isEqualTo(0);
+        assertThat(tier.misses()).isEqualTo(1);
+    }
+
+    /**
+     * Чтение через ярус, промах - "чтение с диска" и допуск в ярус
+     */
+    private static void read(HotTier tier, long handle) {
+        if (tier.get(handle) == null) {
+            tier.put(handle, product(handle));
+        }
+    }
+
+    private static Product product(long id) {
+        return Product.builder().id(id).name("Товар " + id).price(10.0).build();
+    }
+}
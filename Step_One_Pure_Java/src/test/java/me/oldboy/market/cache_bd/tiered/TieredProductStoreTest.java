@@ -0,0 +1,136 @@
+package me.oldboy.market.cache_bd.tiered;
+
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredProductStoreTest {
+    private final List<Category> categories = List.of(new Category(1, "Ноутбуки"), new Category(2, "Смартфоны"));
+    private final List<Brand> brands = List.of(new Brand(1, "Apple"), new Brand(2, "Samsung"));
+
+    @TempDir
+    Path dir;
+
+    private TieredProductStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new TieredProductStore(dir.resolve("cold.dat"), 4, AdmissionPolicy.TINY_LFU,
+                categories::get, brands::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void write_andRead_shouldRestoreEveryField_fromFileAndHotTier_Test() {
+        Product product = Product.builder()
+                .id(7L)
+                .name("Ноутбук ✓")
+                .price(1999.99)
+                .category(categories.get(0))
+                .brand(brands.get(1))
+                .description(null)
+                .stockQuantity(-2)
+                .creationTimestamp(1_700_000_000_000L)
+                .lastModifiedTimestamp(1_700_000_000_500L)
+                .build();
+
+        long handle = store.write(product, 0, 1);
+        Product fromFile = store.read(handle);
+        Product fromMemory = store.read(handle);
+
+        for (Product read : List.of(fromFile, fromMemory)) {
+            assertThat(read).isEqualTo(product);
+            assertThat(read.getName()).isEqualTo("Ноутбук ✓");
+            assertThat(read.getDescription()).isNull();
+            assertThat(read.getStockQuantity()).isEqualTo(-2);
+            assertThat(read.getCategory()).isSameAs(categories.get(0));
+            assertThat(read.getBrand()).isSameAs(brands.get(1));
+            assertThat(read.getCreationTimestamp()).isEqualTo(1_700_000_000_000L);
+            assertThat(read.getLastModifiedTimestamp()).isEqualTo(1_700_000_000_500L);
+        }
+        assertThat(fromMemory).isSameAs(fromFile);
+        assertThat(store.price(handle)).isEqualTo(1999.99);
+
+        TierCounters counters = store.counters();
+        assertThat(counters.getHits()).isEqualTo(1);
+        assertThat(counters.getMisses()).isEqualTo(1);
+        assertThat(counters.getDiskWrites()).isEqualTo(1);
+        assertThat(counters.getDiskReads()).isEqualTo(1);
+        assertThat(counters.hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void read_shouldReloadEvictedProducts_andKeepLongDescriptions_Test() {
+        String longDescription = "Описание ".repeat(500);
+        List<Long> handles = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            handles.add(store.write(product(i, i % 10 == 0 ? longDescription : "Описание " + i), 0, 0));
+        }
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                Product read = store.read(handles.get(i));
+                assertThat(read.getId()).isEqualTo(i);
+                assertThat(read.getDescription()).isEqualTo(i % 10 == 0 ? longDescription : "Описание " + i);
+            }
+        }
+
+        TierCounters counters = store.counters();
+        assertThat(counters.getSize()).isLessThanOrEqualTo(4);
+        assertThat(counters.getEvictions()).isGreaterThan(0);
+        assertThat(counters.getMisses()).isGreaterThan(200);
+        assertThat(store.size()).isEqualTo(100);
+    }
+
+    @Test
+    void reclaim_shouldReleaseRetiredRecords_andReuseTheirBlocks_Test() {
+        long first = store.write(product(1, "Описание"), 0, 0);
+        long second = store.write(product(2, "Описание"), 0, 0);
+        store.read(first);
+        long fileBytes = store.reservedBytes();
+
+        store.retire(first, 5);
+        store.reclaim(4);
+        assertThat(store.read(first)).isNotNull();
+        assertThat(store.retiredCount()).isEqualTo(1);
+
+        store.reclaim(5);
+        assertThat(store.read(first)).isNull();
+        assertThat(store.retiredCount()).isEqualTo(0);
+        assertThat(store.size()).isEqualTo(1);
+
+        long reused = store.write(product(3, "Описание"), 0, 0);
+        assertThat(reused).isNotEqualTo(first);
+        assertThat((int) reused).isEqualTo((int) first);
+        assertThat(store.read(first)).isNull();
+        assertThat(store.read(reused).getId()).isEqualTo(3L);
+        assertThat(store.read(second).getId()).isEqualTo(2L);
+        assertThat(store.reservedBytes()).isEqualTo(fileBytes);
+    }
+
+    private Product product(long id, String description) {
+        return Product.builder()
+                .id(id)
+                .name("Товар " + id)
+                .price(100.0 + id)
+                .category(categories.get(0))
+                .brand(brands.get(0))
+                .description(description)
+                .stockQuantity(5)
+                .build();
+    }
+}
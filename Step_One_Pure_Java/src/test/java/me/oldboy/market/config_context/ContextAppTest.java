@@ -17,20 +17,19 @@ class ContextAppTest {
 
     @AfterEach
     void eraseBase(){
-        contextApp.getAuditDB().getAuditLogList().clear();
+        contextApp.getAuditWriter().close();
 
-        contextApp.getCategoryDB().getIndexCategory().clear();
-        contextApp.getCategoryDB().getCategoryList().clear();
+        contextApp.getProductJournal().close();
 
-        contextApp.getBrandDB().getIndexBrand().clear();
-        contextApp.getBrandDB().getBrandList().clear();
+        contextApp.getAuditDB().clear();
 
-        contextApp.getProductDB().getCategoryIndex().clear();
-        contextApp.getProductDB().getProductsList().clear();
-        contextApp.getProductDB().getProductByIdIndex().clear();
-        contextApp.getProductDB().getBrandIndex().clear();
+        contextApp.getCategoryDB().clear();
 
-        contextApp.getUserDB().getUserDb().clear();
+        contextApp.getBrandDB().clear();
+
+        contextApp.getProductDB().clear();
+
+        contextApp.getUserDB().clear();
     }
 
     @Test
@@ -38,6 +37,11 @@ class ContextAppTest {
         assertThat(contextApp.getAuditDB()).isNotNull();
     }
 
+    @Test
+    void getAuditWriter() {
+        assertThat(contextApp.getAuditWriter()).isNotNull();
+    }
+
     @Test
     void getUserDB() {
         assertThat(contextApp.getUserDB()).isNotNull();
@@ -127,4 +131,12 @@ class ContextAppTest {
     void getViewAuditRecordController() {
         assertThat(contextApp.getViewAuditRecordController()).isNotNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    void getStartupReport_shouldListStages_andDeferAudit() {
+        assertThat(contextApp.getStartupReport().getStages())
+                .extracting(StartupReport.StageTiming::getName)
+                .containsExactly("users", "categories", "brands", "products", "audit");
+        assertThat(contextApp.getAuditDB().isLoadPending()).isTrue();
+    }
+}
@@ -0,0 +1,85 @@
+package me.oldboy.market.config_context;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StartupOrchestratorTest {
+
+    @Test
+    void run_shouldStartIndependentStagesInParallel_andDependentStageAfterThem_Test() {
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch categoriesStarted = new CountDownLatch(1);
+        CountDownLatch brandsStarted = new CountDownLatch(1);
+
+        /* Каждый из независимых этапов ждет начала другого - завершатся, только если идут одновременно */
+        StartupReport report = new StartupOrchestrator()
+                .stage("categories", () -> {
+                    categoriesStarted.countDown();
+                    await(brandsStarted);
+                    finished.add("categories");
+                })
+                .stage("brands", () -> {
+                    brandsStarted.countDown();
+                    await(categoriesStarted);
+                    finished.add("brands");
+                })
+                .stage("products", () -> finished.add("products"), "categories", "brands")
+                .deferred("audit")
+                .run();
+
+        assertThat(finished).hasSize(3).endsWith("products");
+        assertThat(report.getStages()).extracting(StartupReport.StageTiming::getName)
+                .containsExactly("categories", "brands", "products", "audit");
+        assertThat(report.getStages().get(3).isDeferred()).isTrue();
+        assertThat(report.format())
+                .contains("Загрузка данных: " + report.getTotalMillis() + " мс")
+                .contains("products")
+                .contains("audit        | при первом обращении");
+    }
+
+    @Test
+    void run_shouldSkipDependents_andRethrowStageException_Test() {
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        StartupOrchestrator orchestrator = new StartupOrchestrator()
+                .stage("categories", () -> {
+                    throw new IllegalStateException("Категории не загружены");
+                })
+                .stage("products", () -> finished.add("products"), "categories")
+                .stage("users", () -> finished.add("users"));
+
+        assertThatThrownBy(orchestrator::run)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Категории не загружены");
+        assertThat(finished).containsExactly("users");
+    }
+
+    @Test
+    void stage_shouldRejectUndeclaredDependency_Test() {
+        StartupOrchestrator orchestrator = new StartupOrchestrator().stage("users", () -> {
+        });
+
+        assertThatThrownBy(() -> orchestrator.stage("products", () -> {
+        }, "categories"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("categories");
+        assertThatThrownBy(() -> orchestrator.stage("users", () -> {
+        }))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,6 +2,8 @@ package me.oldboy.market.controlers;
 
 import me.oldboy.market.cache_bd.AuditDB;
 import me.oldboy.market.cache_bd.UserDB;
+import me.oldboy.market.cache_bd.audit.AuditBackpressure;
+import me.oldboy.market.cache_bd.audit.AuditWriter;
 import me.oldboy.market.entity.Audit;
 import me.oldboy.market.entity.User;
 import me.oldboy.market.entity.log_enum.Action;
@@ -80,48 +82,64 @@ class LoginLogoutControllerTest {
 
     @AfterEach
     void cleanBase(){
-        userDB.getUserDb().clear();
-        auditDB.getAuditLogList().clear();
+        userDB.clear();
+        auditDB.clear();
     }
 
     @Test
     void logIn_shouldReturnAuthUser_Test() {
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(2);
+        assertThat(auditDB.size()).isEqualTo(2);
 
         User user = loginLogoutController.logIn(email_1, pass_1);
         assertThat(user).isEqualTo(u1);
 
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(3);
+        assertThat(auditDB.size()).isEqualTo(3);
     }
 
     @Test
     void logIn_shouldReturnExceptionMessage_emailNotFound_andCreateFailAudRecord_Test() {
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(2);
+        assertThat(auditDB.size()).isEqualTo(2);
 
         loginLogoutController.logIn("strange@mail.ru", pass_1);
 
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(3);
-        /* Не забываем у нас List */
-        assertThat(auditDB.getAuditLogList().get(2).getIsSuccess()).isEqualTo(Status.FAIL);
+        assertThat(auditDB.size()).isEqualTo(3);
+        /* Третья запись получает ID 3 */
+        assertThat(auditDB.findById(3L).get().getIsSuccess()).isEqualTo(Status.FAIL);
     }
 
     @Test
     void logIn_shouldReturnExceptionMessage_wrongPassword_Test() {
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(2);
+        assertThat(auditDB.size()).isEqualTo(2);
 
         loginLogoutController.logIn(email_1, "0000");
 
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(3);
-        /* Не забываем у нас List */
-        assertThat(auditDB.getAuditLogList().get(2).getIsSuccess()).isEqualTo(Status.FAIL);
+        assertThat(auditDB.size()).isEqualTo(3);
+        /* Третья запись получает ID 3 */
+        assertThat(auditDB.findById(3L).get().getIsSuccess()).isEqualTo(Status.FAIL);
     }
 
     @Test
     void logOut_shouldLogOutRecording_Test() {
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(2);
+        assertThat(auditDB.size()).isEqualTo(2);
 
         loginLogoutController.logOut(email_1);
 
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(3);
+        assertThat(auditDB.size()).isEqualTo(3);
     }
-}
\ No newline at end of file
+
+    @Test
+    void logOut_shouldWaitUntilSessionAuditIsWritten_Test() {
+        AuditWriter auditWriter = new AuditWriter(auditDB, 16, AuditBackpressure.BLOCK, null);
+        LoginLogoutController asyncController =
+                new LoginLogoutController(userService, new AuditService(auditRepository, auditWriter));
+        try {
+            asyncController.logIn(email_1, pass_1);
+            asyncController.logOut(email_1);
+
+            assertThat(auditDB.size()).isEqualTo(4);
+            assertThat(auditDB.findById(4L).get().getAction()).isEqualTo(Action.LOGOUT);
+        } finally {
+            auditWriter.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package me.oldboy.market.controlers.view;
+
+import me.oldboy.market.cache_bd.query.ProductSort;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.prod_species.Brand;
+import me.oldboy.market.entity.prod_species.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductTableTest {
+    private ByteArrayOutputStream output;
+    private PrintStream out;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        output = new ByteArrayOutputStream();
+        out = new PrintStream(output, true, StandardCharsets.UTF_8);
+        products = new ArrayList<>();
+        Category category = new Category(1, "Смартфоны");
+        Brand brand = new Brand(2, "Samsung");
+        for (long id = 1; id <= 25; id++) {
+            products.add(Product.builder()
+                    .id(id)
+                    .name("Товар " + id)
+                    .price(1000 - id * 10)
+                    .category(category)
+                    .brand(brand)
+                    .stockQuantity((int) (id % 7))
+                    .build());
+        }
+    }
+
+    @Test
+    void pages_shouldBeSlicesOfList_andNavigationShouldStayInBounds_Test() {
+        ProductTable table = new ProductTable("Список товаров:", products, 10, out);
+
+        assertThat(table.size()).isEqualTo(25);
+        assertThat(table.pageCount()).isEqualTo(3);
+        assertThat(table.page()).isEqualTo(1);
+        assertThat(table.previous()).isFalse();
+        assertThat(table.pageRows()).extracting(Product::getId).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+
+        assertThat(table.next()).isTrue();
+        assertThat(table.jump(3)).isTrue();
+        assertThat(table.pageRows()).extracting(Product::getId).containsExactly(21L, 22L, 23L, 24L, 25L);
+        assertThat(table.next()).isFalse();
+        assertThat(table.jump(0)).isFalse();
+        assertThat(table.jump(4)).isFalse();
+        assertThat(table.page()).isEqualTo(3);
+
+        assertThat(table.previous()).isTrue();
+        assertThat(table.page()).isEqualTo(2);
+    }
+
+    @Test
+    void sortBy_shouldOrderWholeTable_andReturnToFirstPage_Test() {
+        ProductTable table = new ProductTable("Список товаров:", products, 10, out);
+        table.jump(2);
+
+        table.sortBy(ProductSort.PRICE_ASC);
+
+        assertThat(table.page()).isEqualTo(1);
+        assertThat(table.sort()).isEqualTo(ProductSort.PRICE_ASC);
+        assertThat(table.pageRows().get(0).getId()).isEqualTo(25L);
+
+        table.sortBy(ProductSort.STOCK_ASC);
+        assertThat(table.pageRows()).extracting(Product::getId).containsExactly(7L, 14L, 21L, 1L, 8L, 15L, 22L, 2L, 9L, 16L);
+        /* Исходный список не меняется */
+        assertThat(products.get(0).getId()).isEqualTo(1L);
+    }
+
+    @Test
+    void print_shouldWriteCurrentPageAsOneTable_Test() {
+        ProductTable table = new ProductTable("Список товаров:", products, 10, out);
+        table.jump(3);
+
+        table.print();
+
+        String text = output.toString(StandardCharsets.UTF_8);
+        assertThat(text).contains("Список товаров:");
+        assertThat(text).contains("Название");
+        assertThat(text).contains("Товар 21");
+        assertThat(text).contains("750.00");
+        assertThat(text).doesNotContain("Товар 20 ");
+        assertThat(text).contains("Страница 3 из 3 (товаров: 25)");
+    }
+
+    @Test
+    void emptyTable_shouldHaveOnePage_andPrintNotFound_Test() {
+        ProductTable table = new ProductTable("Список товаров:", List.of(), 10, out);
+
+        table.print();
+
+        assertThat(table.pageCount()).isEqualTo(1);
+        assertThat(table.pageRows()).isEmpty();
+        assertThat(output.toString(StandardCharsets.UTF_8)).contains("Товары не найдены");
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositivePageSize_Test() {
+        assertThatThrownBy(() -> new ProductTable("Список товаров:", products, 0, out))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,51 @@
+package me.oldboy.market.menu.items;
+
+import me.oldboy.market.cache_bd.audit.RollupUnit;
+import me.oldboy.market.controlers.view.ViewAuditAnalyticsController;
+import me.oldboy.market.entity.log_enum.Action;
+import me.oldboy.market.entity.log_enum.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.util.Scanner;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditAnalyticsItemTest {
+    @Mock
+    private ViewAuditAnalyticsController viewAuditAnalyticsController;
+    private AuditAnalyticsItem auditAnalyticsItem;
+
+    @BeforeEach
+    void setUp() {
+        auditAnalyticsItem = new AuditAnalyticsItem(viewAuditAnalyticsController);
+    }
+
+    @Test
+    void subMenu_shouldCallReportsForChosenItems_untilExit_Test() {
+        Scanner scanner = new Scanner(new ByteArrayInputStream("1\n2\n3\n5\n".getBytes()));
+
+        auditAnalyticsItem.subMenu(scanner);
+
+        verify(viewAuditAnalyticsController, times(1)).printActionSummary(anyLong(), anyLong(), eq("за сегодня"));
+        verify(viewAuditAnalyticsController, times(1)).printActivityByTime(eq(RollupUnit.HOUR), anyLong(), anyLong(),
+                eq(Action.UPDATE_PRODUCT), eq(Status.FAIL), anyString());
+        verify(viewAuditAnalyticsController, times(1)).printMostActiveUsers(anyLong(), anyLong(), eq(10), eq("за сутки"));
+        verifyNoMoreInteractions(viewAuditAnalyticsController);
+    }
+
+    @Test
+    void subMenu_shouldIgnoreUnknownItem_Test() {
+        Scanner scanner = new Scanner(new ByteArrayInputStream("42\n5\n".getBytes()));
+
+        auditAnalyticsItem.subMenu(scanner);
+
+        verifyNoInteractions(viewAuditAnalyticsController);
+    }
+}
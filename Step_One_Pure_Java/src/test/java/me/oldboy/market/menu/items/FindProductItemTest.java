@@ -3,6 +3,7 @@ package me.oldboy.market.menu.items;
 import me.oldboy.market.controlers.view.ViewBrandController;
 import me.oldboy.market.controlers.view.ViewCategoryController;
 import me.oldboy.market.controlers.view.ViewProductController;
+import me.oldboy.market.entity.ProductCursor;
 import me.oldboy.market.entity.prod_species.Brand;
 import me.oldboy.market.entity.prod_species.Category;
 import me.oldboy.market.repository.BrandRepository;
@@ -48,8 +49,8 @@ class FindProductItemTest {
 
     @Test
     void subMenu_FindById_Test() {
-        /* Найти по ID -> ID 1 -> Выйти (7) */
-        String input = "1\n1\n7\n";
+        /* Найти по ID -> ID 1 -> Выйти (11) */
+        String input = "1\n1\n11\n";
         scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
 
         findProductItem.subMenu(scanner);
@@ -60,7 +61,7 @@ class FindProductItemTest {
     @Test
     void subMenu_FindByCategoryAndId_Test() {
         /* Найти по категории и ID -> (категория) 1 -> (продукт) 2 -> Выйти */
-        String input = "2\n1\n2\n7\n";
+        String input = "2\n1\n2\n11\n";
         scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
 
         when(categoryRepository.findById(1)).thenReturn(Optional.of(testCategory));
@@ -76,7 +77,7 @@ class FindProductItemTest {
     @Test
     void subMenu_FindByBrandAndId_Test() {
         /* Найти по бренду и ID -> (бренд) 2 -> (продукт) 100 -> Выйти */
-        String input = "3\n2\n100\n7\n";
+        String input = "3\n2\n100\n11\n";
         scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
 
         when(brandRepository.findById(2)).thenReturn(Optional.of(testBrand));
@@ -92,7 +93,7 @@ class FindProductItemTest {
     @Test
     void subMenu_FindByBrandAndName_Test() {
         /* Найти по бренду и названию -> (бренд) 3 -> название -> Выйти */
-        String input = "4\n3\nTest Product\n7\n";
+        String input = "4\n3\nTest Product\n11\n";
         scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
 
         when(brandRepository.findById(3)).thenReturn(Optional.of(testBrand));
@@ -108,7 +109,7 @@ class FindProductItemTest {
     @Test
     void subMenu_FindAllByCategory_Test() {
         /* Все товары по категории -> (категория) 4 -> Выйти */
-        String input = "5\n4\n7\n";
+        String input = "5\n4\n11\n";
         scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
 
         when(categoryRepository.findById(4)).thenReturn(Optional.of(testCategory));
@@ -123,7 +124,7 @@ class FindProductItemTest {
     @Test
     void subMenu_FindAllByBrand_Test() {
         /* Все товары по бренду -> (бренд) 5 -> Выйти */
-        String input = "6\n5\n7\n";
+        String input = "6\n5\n11\n";
         scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
 
         when(brandRepository.findById(5)).thenReturn(Optional.of(testBrand));
@@ -135,10 +136,64 @@ class FindProductItemTest {
         verify(viewProductController, times(1)).findProductByBrand(testBrand);
     }
 
+    @Test
+    void subMenu_FindByText_Test() {
+        /* Поиск по тексту -> запрос -> Выйти */
+        String input = "7\n  Кроссовки беговые \n11\n";
+        scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+
+        findProductItem.subMenu(scanner);
+
+        verify(viewProductController, times(1)).findProductsByText("Кроссовки беговые");
+        verifyNoInteractions(brandRepository, categoryRepository);
+    }
+
+    @Test
+    void subMenu_FindByPriceRange_withNextPage_Test() {
+        /* Диапазон цен -> 10 -> 50 -> следующая страница (д) -> больше страниц нет -> Выйти */
+        String input = "8\n10\n50\nд\n11\n";
+        scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+        ProductCursor cursor = new ProductCursor(20.0, 7L);
+
+        when(viewProductController.findProductsByPriceRange(10.0, 50.0, null)).thenReturn(cursor);
+        when(viewProductController.findProductsByPriceRange(10.0, 50.0, cursor)).thenReturn(null);
+
+        findProductItem.subMenu(scanner);
+
+        verify(viewProductController, times(2)).findProductsByPriceRange(eq(10.0), eq(50.0), any());
+    }
+
+    @Test
+    void subMenu_FindCheapestByCategory_Test() {
+        /* Самые дешевые в категории -> (категория) 2 -> Выйти */
+        String input = "9\n2\n11\n";
+        scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+
+        when(categoryRepository.findById(2)).thenReturn(Optional.of(testCategory));
+
+        findProductItem.subMenu(scanner);
+
+        verify(viewCategoryController, times(1)).printAllCategory();
+        verify(viewProductController, times(1)).findCheapestProductsByCategory(testCategory);
+    }
+
+    @Test
+    void subMenu_LowStockReport_stopsOnUserRefusal_Test() {
+        /* Отчет об остатках -> порог 5 -> следующую страницу не показывать (н) -> Выйти */
+        String input = "10\n5\nн\n11\n";
+        scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+
+        when(viewProductController.findLowStockProducts(5, null)).thenReturn(new ProductCursor(1.0, 3L));
+
+        findProductItem.subMenu(scanner);
+
+        verify(viewProductController, times(1)).findLowStockProducts(eq(5), any());
+    }
+
     @Test
     void subMenu_ImmediateExit_Test() {
         /* Сразу выход */
-        String input = "7\n";
+        String input = "11\n";
         scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
 
         findProductItem.subMenu(scanner);
@@ -150,7 +205,7 @@ class FindProductItemTest {
     @Test
     void subMenu_InvalidChoiceThenValid_Test() {
         /* Неверный ввод -> Несуществующий пункт -> Найти по ID -> Выйти */
-        String input = "invalid\n8\n1\n999\n7\n";
+        String input = "invalid\n12\n1\n999\n11\n";
         scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
 
         findProductItem.subMenu(scanner);
@@ -0,0 +1,53 @@
+package me.oldboy.market.menu.items;
+
+import me.oldboy.market.controlers.ProductImportController;
+import me.oldboy.market.entity.ImportReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportProductsItemTest {
+    @Mock
+    private ProductImportController productImportController;
+    private ImportProductsItem importProductsItem;
+
+    private final String testEmail = "test@market.ru";
+
+    @BeforeEach
+    void setUp() {
+        importProductsItem = new ImportProductsItem(productImportController);
+    }
+
+    @Test
+    void subMenu_shouldPassEnteredPathToController_Test() {
+        Scanner scanner = new Scanner(new ByteArrayInputStream("  /tmp/products.csv \n".getBytes()));
+        ImportReport report = new ImportReport("products.csv", 3, 2, 1,
+                List.of("строка 4: неизвестный брэнд 'X'"), 10);
+        when(productImportController.importProducts(Path.of("/tmp/products.csv"), testEmail)).thenReturn(report);
+
+        ImportReport result = importProductsItem.subMenu(testEmail, scanner);
+
+        assertThat(result).isSameAs(report);
+        verify(productImportController, times(1)).importProducts(eq(Path.of("/tmp/products.csv")), eq(testEmail));
+    }
+
+    @Test
+    void subMenu_shouldReturnNull_whenFileNotImported_Test() {
+        Scanner scanner = new Scanner(new ByteArrayInputStream("missing.csv\n".getBytes()));
+        when(productImportController.importProducts(Path.of("missing.csv"), testEmail)).thenReturn(null);
+
+        assertThat(importProductsItem.subMenu(testEmail, scanner)).isNull();
+    }
+}
@@ -0,0 +1,77 @@
+package me.oldboy.market.menu.items;
+
+import me.oldboy.market.cache_bd.query.ProductSort;
+import me.oldboy.market.controlers.view.ProductTable;
+import me.oldboy.market.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Scanner;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductTableBrowserTest {
+    private ByteArrayOutputStream output;
+    private ProductTable table;
+
+    @BeforeEach
+    void setUp() {
+        output = new ByteArrayOutputStream();
+        List<Product> products = LongStream.rangeClosed(1, 45)
+                .mapToObj(id -> Product.builder().id(id).name("Товар " + id).price(id).build())
+                .toList();
+        table = new ProductTable("Список товаров:", products, 10,
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void browse_shouldMoveBetweenPages_andPrintEachVisitedPage_Test() {
+        /* Следующая -> следующая -> предыдущая -> на 5-ю -> выйти */
+        browse("н\nн\nп\n5\nв\n");
+
+        assertThat(table.page()).isEqualTo(5);
+        assertThat(output.toString(StandardCharsets.UTF_8))
+                .contains("Страница 2 из 5", "Страница 3 из 5", "Страница 5 из 5");
+    }
+
+    @Test
+    void browse_shouldKeepPage_whenMovingOutOfBounds_Test() {
+        /* Предыдущая на первой -> на 9-ю -> выйти */
+        browse("п\n9\n\n");
+
+        assertThat(table.page()).isEqualTo(1);
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEmpty();
+    }
+
+    @Test
+    void browse_shouldSortByChosenColumn_Test() {
+        /* Сортировать -> по цене по убыванию -> выйти */
+        browse("с\n3\nв\n");
+
+        assertThat(table.sort()).isEqualTo(ProductSort.PRICE_DESC);
+        assertThat(table.pageRows().get(0).getId()).isEqualTo(45L);
+        assertThat(output.toString(StandardCharsets.UTF_8)).contains("Товар 45");
+    }
+
+    @Test
+    void browse_shouldNotAsk_whenTableHasOnePage_Test() {
+        ProductTable single = new ProductTable("Список товаров:", List.of(Product.builder().id(1L).build()), 10,
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+        Scanner scanner = new Scanner(new ByteArrayInputStream("н\n".getBytes(StandardCharsets.UTF_8)));
+
+        ProductTableBrowser.browse(single, scanner);
+        ProductTableBrowser.browse(null, scanner);
+
+        assertThat(scanner.nextLine()).isEqualTo("н");
+    }
+
+    private void browse(String input) {
+        ProductTableBrowser.browse(table, new Scanner(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))));
+    }
+}
@@ -1,6 +1,8 @@
 package me.oldboy.market.menu.items;
 
+import me.oldboy.market.controlers.view.ProductTable;
 import me.oldboy.market.controlers.view.ViewProductController;
+import me.oldboy.market.entity.Product;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -8,7 +10,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.Scanner;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 import static org.mockito.Mockito.*;
 
@@ -47,6 +55,22 @@ class ViewProductItemTest {
         verify(viewProductController, never()).viewProductById(anyLong());
     }
 
+    @Test
+    void subMenu_ViewAllProducts_shouldBrowseTablePages_Test() {
+        ProductTable table = new ProductTable("Список товаров:",
+                LongStream.rangeClosed(1, 30).mapToObj(id -> Product.builder().id(id).build()).collect(Collectors.toList()),
+                10, new PrintStream(OutputStream.nullOutputStream()));
+        when(viewProductController.viewAllProduct()).thenReturn(table);
+        /* Посмотреть все товары -> следующая страница -> на 3-ю -> закончить листание -> Выйти */
+        String input = "2\nн\n3\nв\n3\n";
+        scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+
+        viewProductItem.subMenu(scanner);
+
+        verify(viewProductController, times(1)).viewAllProduct();
+        assertThat(table.page()).isEqualTo(3);
+    }
+
     @Test
     void subMenu_ImmediateExit_Test() {
         /* Сразу выйти */
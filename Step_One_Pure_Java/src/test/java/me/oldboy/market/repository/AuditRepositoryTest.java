@@ -43,12 +43,12 @@ class AuditRepositoryTest {
 
     @AfterEach
     void cleanBase(){
-        auditDB.getAuditLogList().clear();
+        auditDB.clear();
     }
 
     @Test
     void save_shouldReturnSavedAuditRecord_Test() {
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(2);
+        assertThat(auditDB.size()).isEqualTo(2);
         Audit rec_3 = Audit.builder()
                 .timestamp(new Date().getTime())
                 .userEmail("malcolm@market.ru")
@@ -59,7 +59,7 @@ class AuditRepositoryTest {
         Audit newRec = auditRepository.save(rec_3);
 
         assertThat(newRec.getId()).isEqualTo(3L);
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(3);
+        assertThat(auditDB.size()).isEqualTo(3);
     }
 
     @Test
@@ -85,4 +85,18 @@ class AuditRepositoryTest {
         Optional<Audit> notFoundAudit= auditRepository.findById(100L);
         assertThat(notFoundAudit).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void findByTimestampBetween_shouldReturnRecordsOfPeriod_Test() {
+        Audit oldRec = Audit.builder()
+                .timestamp(1_000L)
+                .userEmail("malcolm@market.ru")
+                .action(Action.LOGIN)
+                .isSuccess(Status.SUCCESS)
+                .build();
+        auditRepository.save(oldRec);
+
+        assertThat(auditRepository.findByTimestampBetween(0L, 2_000L)).containsExactly(oldRec);
+        assertThat(auditRepository.findByTimestampBetween(2_000L, Long.MAX_VALUE)).containsExactly(rec_1, rec_2);
+    }
+}
@@ -38,8 +38,7 @@ class BrandRepositoryTest {
 
     @AfterEach
     void cleanBase(){
-        brandDB.getBrandList().clear();
-        brandDB.getIndexBrand().clear();
+        brandDB.clear();
     }
 
     @Test
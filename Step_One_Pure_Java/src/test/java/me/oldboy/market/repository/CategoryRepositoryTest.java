@@ -41,8 +41,7 @@ class CategoryRepositoryTest {
 
     @AfterEach
     void cleanBase(){
-        categoryDB.getCategoryList().clear();
-        categoryDB.getIndexCategory().clear();
+        categoryDB.clear();
     }
 
     @Test
@@ -51,10 +51,7 @@ class ProductRepositoryTest {
 
     @AfterEach
     void cleanBase(){
-        productDB.getProductsList().clear();
-        productDB.getProductByIdIndex().clear();
-        productDB.getCategoryIndex().clear();
-        productDB.getBrandIndex().clear();
+        productDB.clear();
     }
 
     @Test
@@ -130,12 +127,14 @@ class ProductRepositoryTest {
                 .build();
         /* Тут мы это и делаем */
         productRepository.update(updateProd);
-        /* И тут это видно */
-        assertThat(updateProd.getId()).isEqualTo(oldProd.getId());
-        assertThat(updateProd.getPrice()).isEqualTo(oldProd.getPrice());
-        assertThat(updateProd.getDescription()).isEqualTo(oldProd.getDescription());
-        assertThat(updateProd.getStockQuantity()).isEqualTo(oldProd.getStockQuantity());
-        assertThat(updateProd.getLastModifiedTimestamp()).isEqualTo(oldProd.getLastModifiedTimestamp());
+        /* И тут это видно - в новой версии товара, прочитанный ранее товар остался прежним */
+        Product newProd = productRepository.findById(gen_3).get();
+        assertThat(updateProd.getId()).isEqualTo(newProd.getId());
+        assertThat(updateProd.getPrice()).isEqualTo(newProd.getPrice());
+        assertThat(updateProd.getDescription()).isEqualTo(newProd.getDescription());
+        assertThat(updateProd.getStockQuantity()).isEqualTo(newProd.getStockQuantity());
+        assertThat(updateProd.getLastModifiedTimestamp()).isEqualTo(newProd.getLastModifiedTimestamp());
+        assertThat(oldProd.getPrice()).isNotEqualTo(updateProd.getPrice());
     }
 
     @Test
@@ -231,4 +230,16 @@ class ProductRepositoryTest {
         assertThat(productRepository.findByBrand(prd_2.getBrand())).isNotEmpty();
         assertThat(productRepository.findByBrand(prd_2.getBrand()).size()).isEqualTo(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    void snapshot_shouldNotSeeLaterChanges_Test(){
+        Product saved = productRepository.save(prd_2);
+        ProductDB.Version snapshot = productRepository.snapshot();
+
+        productRepository.save(prd_3);
+        productRepository.delete(saved.getId());
+
+        assertThat(snapshot.getProductsList()).containsExactly(saved);
+        assertThat(productRepository.findAll()).containsExactly(prd_3);
+    }
+}
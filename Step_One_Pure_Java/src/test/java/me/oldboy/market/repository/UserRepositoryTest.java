@@ -40,20 +40,20 @@ class UserRepositoryTest {
 
     @AfterEach
     void cleanBase(){
-        userDB.getUserDb().clear();
+        userDB.clear();
     }
 
 
     @Test
     void save_shouldReturnSavedUser_Test() {
-        assertThat(userDB.getUserDb().size()).isEqualTo(2);
+        assertThat(userDB.size()).isEqualTo(2);
         User u3 = User.builder()
                 .email("u3@market.ru")
                 .password("0000")
                 .build();
 
         userRepository.save(u3);
-        assertThat(userDB.getUserDb().size()).isEqualTo(3);
+        assertThat(userDB.size()).isEqualTo(3);
     }
 
     @Test
@@ -0,0 +1,140 @@
+package me.oldboy.market.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsoleServerTest {
+    private ConsoleServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+        SessionConsole.uninstall();
+    }
+
+    @Test
+    void concurrentSessions_shouldEachGetOwnSystemOutOutput_Test() throws Exception {
+        server = new ConsoleServer(0, StandardCharsets.UTF_8, true, scanner -> {
+            System.out.print("Имя: ");
+            String name = scanner.nextLine().trim();
+            System.out.println("Привет, " + name);
+            System.out.print("> ");
+            scanner.nextLine();
+            System.out.println("Пока, " + name);
+            scanner.close();
+        });
+        server.start();
+
+        int clients = 64;
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<String>> dialogs = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            String name = "клиент-" + i;
+            dialogs.add(pool.submit(() -> {
+                try (Socket socket = new Socket("localhost", server.getPort())) {
+                    InputStream in = socket.getInputStream();
+                    OutputStream out = socket.getOutputStream();
+                    String text = readUntil(in, "Имя: ");
+                    send(out, name);
+                    text += readUntil(in, "> ");
+                    send(out, "выход");
+                    return text + readUntil(in, null);
+                }
+            }));
+        }
+        for (int i = 0; i < clients; i++) {
+            String name = "клиент-" + i;
+            assertThat(dialogs.get(i).get(20, TimeUnit.SECONDS))
+                    .isEqualTo("Имя: Привет, " + name + System.lineSeparator() + "> Пока, " + name + System.lineSeparator());
+        }
+        pool.shutdown();
+
+        assertThat(server.acceptedSessions()).isEqualTo(clients);
+    }
+
+    @Test
+    void close_shouldEndOpenSessionsAsEndOfInput_Test() throws Exception {
+        AtomicInteger finished = new AtomicInteger();
+        server = new ConsoleServer(0, StandardCharsets.UTF_8, false, scanner -> {
+            try {
+                while (true) {
+                    System.out.print("> ");
+                    scanner.nextLine();
+                }
+            } catch (NoSuchElementException e) {
+                finished.incrementAndGet();
+                System.out.println("Всего хорошего");
+            }
+        });
+        server.start();
+
+        List<Socket> sockets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Socket socket = new Socket("localhost", server.getPort());
+            readUntil(socket.getInputStream(), "> ");
+            sockets.add(socket);
+        }
+        assertThat(server.activeSessions()).isEqualTo(3);
+
+        server.close();
+
+        assertThat(finished.get()).isEqualTo(3);
+        assertThat(server.activeSessions()).isEqualTo(0);
+        for (Socket socket : sockets) {
+            assertThat(readUntil(socket.getInputStream(), null)).isEqualTo("Всего хорошего" + System.lineSeparator());
+            socket.close();
+        }
+    }
+
+    @Test
+    void sessionOutput_shouldNotLeakIntoServerConsole_Test() throws Exception {
+        server = new ConsoleServer(0, StandardCharsets.UTF_8, true, scanner -> System.out.println("только клиенту"));
+        server.start();
+
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            assertThat(readUntil(socket.getInputStream(), null)).isEqualTo("только клиенту" + System.lineSeparator());
+        }
+    }
+
+    /**
+     * Читает ответ сервера до заданного окончания (null - до закрытия соединения)
+     */
+    private static String readUntil(InputStream in, String suffix) throws IOException {
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                return received.toString(StandardCharsets.UTF_8);
+            }
+            received.write(b);
+            if (suffix != null && received.toString(StandardCharsets.UTF_8).endsWith(suffix)) {
+                return received.toString(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private static void send(OutputStream out, String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
@@ -0,0 +1,67 @@
+package me.oldboy.market.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionConsoleTest {
+    private final ByteArrayOutputStream console = new ByteArrayOutputStream();
+    private PrintStream systemOut;
+
+    @BeforeEach
+    void setUp() {
+        systemOut = System.out;
+        System.setOut(new PrintStream(console, true, StandardCharsets.UTF_8));
+        SessionConsole.install(StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SessionConsole.unbind();
+        SessionConsole.uninstall();
+        System.setOut(systemOut);
+    }
+
+    @Test
+    void boundThread_shouldWriteToSession_otherThreadsToConsole_Test() throws InterruptedException {
+        ByteArrayOutputStream sessionBytes = new ByteArrayOutputStream();
+        PrintStream session = new PrintStream(sessionBytes, false, StandardCharsets.UTF_8);
+
+        Thread sessionThread = new Thread(() -> {
+            SessionConsole.bind(session);
+            System.out.println("Меню сеанса");
+            System.out.printf("%d товаров%n", 3);
+            SessionConsole.unbind();
+            System.out.println("после сеанса");
+        });
+        sessionThread.start();
+        sessionThread.join();
+        System.out.println("сервер");
+        session.flush();
+
+        assertThat(sessionBytes.toString(StandardCharsets.UTF_8))
+                .isEqualTo("Меню сеанса" + System.lineSeparator() + "3 товаров" + System.lineSeparator());
+        assertThat(console.toString(StandardCharsets.UTF_8))
+                .isEqualTo("после сеанса" + System.lineSeparator() + "сервер" + System.lineSeparator());
+    }
+
+    @Test
+    void uninstall_shouldRestoreOriginalSystemOut_Test() {
+        PrintStream installed = System.out;
+
+        SessionConsole.install(StandardCharsets.UTF_8);
+        assertThat(System.out).isSameAs(installed);
+
+        SessionConsole.uninstall();
+        System.out.println("напрямую");
+
+        assertThat(System.out).isNotSameAs(installed);
+        assertThat(console.toString(StandardCharsets.UTF_8)).isEqualTo("напрямую" + System.lineSeparator());
+    }
+}
@@ -1,8 +1,11 @@
 package me.oldboy.market.services;
 
 import me.oldboy.market.cache_bd.AuditDB;
+import me.oldboy.market.cache_bd.audit.AuditBackpressure;
+import me.oldboy.market.cache_bd.audit.AuditWriter;
 import me.oldboy.market.entity.Audit;
 import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.ProductDelta;
 import me.oldboy.market.entity.log_enum.Action;
 import me.oldboy.market.entity.log_enum.Status;
 import me.oldboy.market.repository.AuditRepository;
@@ -47,12 +50,12 @@ class AuditServiceTest {
 
     @AfterEach
     void cleanBase(){
-        auditDB.getAuditLogList().clear();
+        auditDB.clear();
     }
 
     @Test
     void saveAuditRecord_shouldReturnTrueAfterSave_Test() {
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(2);
+        assertThat(auditDB.size()).isEqualTo(2);
 
         String email = "admin@market.ru";
         Action newAction = Action.ADD_PRODUCT;
@@ -62,6 +65,45 @@ class AuditServiceTest {
                 .build();
 
         assertThat(auditService.saveAuditRecord(newAction, status, email, updatedProduct)).isTrue();
-        assertThat(auditDB.getAuditLogList().size()).isEqualTo(3);
+        assertThat(auditDB.size()).isEqualTo(3);
     }
-}
\ No newline at end of file
+
+    @Test
+    void saveAuditRecord_shouldStoreOnlyChangedFields_onUpdate_Test() {
+        Product before = Product.builder().id(7L).name("Валенки").price(135.0).stockQuantity(145).build();
+        Product after = Product.builder().id(7L).name("Валенки").price(150.0).stockQuantity(145).build();
+
+        assertThat(auditService.saveAuditRecord(Action.UPDATE_PRODUCT, Status.SUCCESS, "admin@market.ru", before, after)).isTrue();
+
+        Audit saved = auditDB.findById(3L).get();
+        assertThat(saved.getProductId()).isEqualTo(7L);
+        assertThat(saved.getProductDelta().getFields()).isEqualTo(ProductDelta.PRICE);
+        assertThat(saved.getProductDelta().getPrice()).isEqualTo(150.0);
+        assertThat(saved.getProductDelta().getName()).isNull();
+    }
+
+    @Test
+    void saveSummaryRecord_shouldStoreSummary_withoutProductFields_Test() {
+        assertThat(auditService.saveSummaryRecord(Action.IMPORT_PRODUCTS, Status.SUCCESS, "admin@market.ru",
+                "Импорт test.csv: добавлено 2")).isTrue();
+
+        Audit saved = auditDB.findById(3L).get();
+        assertThat(saved.getSummary()).isEqualTo("Импорт test.csv: добавлено 2");
+        assertThat(saved.getProductId()).isNull();
+        assertThat(saved.getProductDelta()).isNull();
+    }
+
+    @Test
+    void saveAuditRecord_withWriter_shouldHandRecordToBackground_andReadsShouldSeeIt_Test() {
+        AuditWriter auditWriter = new AuditWriter(auditDB, 16, AuditBackpressure.BLOCK, null);
+        AuditService asyncService = new AuditService(auditRepository, auditWriter);
+        try {
+            assertThat(asyncService.saveAuditRecord(Action.LOGIN, Status.SUCCESS, "admin@market.ru", null)).isTrue();
+
+            assertThat(asyncService.findAllAuditRecord()).hasSize(3);
+            assertThat(auditDB.findById(3L).get().getUserEmail()).isEqualTo("admin@market.ru");
+        } finally {
+            auditWriter.close();
+        }
+    }
+}
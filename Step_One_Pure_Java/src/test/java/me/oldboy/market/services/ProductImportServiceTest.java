@@ -0,0 +1,111 @@
+package me.oldboy.market.services;
+
+import me.oldboy.market.cache_bd.BrandDB;
+import me.oldboy.market.cache_bd.CategoryDB;
+import me.oldboy.market.cache_bd.ProductDB;
+import me.oldboy.market.cache_bd.loaders.BrandDBLoader;
+import me.oldboy.market.cache_bd.loaders.CategoryDBLoader;
+import me.oldboy.market.entity.ImportReport;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.exceptions.WrongEnteredDataFormatException;
+import me.oldboy.market.repository.BrandRepository;
+import me.oldboy.market.repository.CategoryRepository;
+import me.oldboy.market.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductImportServiceTest {
+    private ProductDB productDB;
+    private BrandDB brandDB;
+    private CategoryDB categoryDB;
+    private ProductImportService productImportService;
+
+    @BeforeEach
+    void setUp() {
+        productDB = ProductDB.getINSTANCE();
+        brandDB = BrandDB.getINSTANCE();
+        BrandDBLoader.initInMemoryBase(brandDB);
+        categoryDB = CategoryDB.getINSTANCE();
+        CategoryDBLoader.initInMemoryBase(categoryDB);
+
+        productImportService = new ProductImportService(new ProductRepository(productDB),
+                new CategoryRepository(categoryDB), new BrandRepository(brandDB));
+    }
+
+    @AfterEach
+    void cleanBase() {
+        productDB.clear();
+        brandDB.clear();
+        categoryDB.clear();
+    }
+
+    @Test
+    void importCsv_shouldAddValidRows_andReportRejected_Test() throws Exception {
+        String csv = "name;price;category;brand;description;stock\n" +
+                "Валенки;12,5;обувь;1;\"Теплые; на зиму\";4\n" +
+                "\n" +
+                "Веник;3;2;PolarBear;;0\n" +
+                "Веник;3;2;PolarBear;повтор;0\n" +
+                "Дрель;-1;3;1;x;1\n" +
+                "Утюг;5;Кухня;1;x;1\n" +
+                "Коротко;5\n";
+
+        ImportReport report = productImportService.importCsv(new StringReader(csv), "test.csv");
+
+        assertThat(report.getRows()).isEqualTo(6);
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getRejected()).isEqualTo(4);
+        assertThat(report.getErrors()).hasSize(4)
+                .anyMatch(error -> error.startsWith("строка 7: неизвестная категория"))
+                .anyMatch(error -> error.startsWith("строка 5:") && error.contains("уже есть"));
+        assertThat(report.summary()).contains("test.csv", "добавлено 2", "отклонено 4");
+
+        Product felt = productDB.findProductsByName("Валенки").get(0);
+        assertThat(felt.getId()).isEqualTo(1L);
+        assertThat(felt.getPrice()).isEqualTo(12.5);
+        assertThat(felt.getCategory().getName()).isEqualTo("Обувь");
+        assertThat(felt.getDescription()).isEqualTo("Теплые; на зиму");
+    }
+
+    @Test
+    void importCsv_shouldInsertLargeFileInChunks_andRejectRepeatedImport_Test() throws Exception {
+        StringBuilder csv = new StringBuilder("stock,name,price,category,brand,description\n");
+        for (int i = 0; i < 10_000; i++) {
+            csv.append(i % 7).append(",Товар ").append(i).append(',').append(i % 100).append(',')
+                    .append(i % 3 + 1).append(',').append(i % 3 + 1).append(",описание\n");
+        }
+
+        ImportReport first = productImportService.importCsv(new StringReader(csv.toString()), "big.csv");
+        ImportReport second = productImportService.importCsv(new StringReader(csv.toString()), "big.csv");
+
+        assertThat(first.getImported()).isEqualTo(10_000);
+        assertThat(first.getRejected()).isZero();
+        assertThat(productDB.size()).isEqualTo(10_000);
+        assertThat(productDB.findProductById(10_000L).get().getName()).isEqualTo("Товар 9999");
+        assertThat(second.getImported()).isZero();
+        assertThat(second.getRejected()).isEqualTo(10_000);
+        assertThat(second.getErrors()).hasSize(20);
+    }
+
+    @Test
+    void importCsv_shouldFail_whenHeaderHasNoRequiredColumns_Test() {
+        assertThatThrownBy(() -> productImportService.importCsv(new StringReader("name,price\n"), "bad.csv"))
+                .isInstanceOf(WrongEnteredDataFormatException.class)
+                .hasMessageContaining("category");
+        assertThatThrownBy(() -> productImportService.importCsv(new StringReader(""), "empty.csv"))
+                .isInstanceOf(WrongEnteredDataFormatException.class);
+    }
+
+    @Test
+    void split_shouldHandleQuotedFields_Test() {
+        assertThat(ProductImportService.split("a, \"b,c\" ,\"d\"\"e\"", ','))
+                .containsExactly("a", "b,c", "d\"e");
+        assertThat(ProductImportService.split("\"open,", ',')).isNull();
+    }
+}
@@ -6,7 +6,11 @@ import me.oldboy.market.cache_bd.CategoryDB;
 import me.oldboy.market.cache_bd.ProductDB;
 import me.oldboy.market.cache_bd.loaders.BrandDBLoader;
 import me.oldboy.market.cache_bd.loaders.CategoryDBLoader;
+import me.oldboy.market.cache_bd.query.ProductQuery;
+import me.oldboy.market.cache_bd.query.ProductSort;
+import me.oldboy.market.cache_bd.query.QueryResult;
 import me.oldboy.market.entity.Product;
+import me.oldboy.market.entity.ProductPage;
 import me.oldboy.market.entity.prod_species.Brand;
 import me.oldboy.market.entity.prod_species.Category;
 import me.oldboy.market.exceptions.ProductDBException;
@@ -75,16 +79,11 @@ class ProductServiceTest {
 
     @AfterEach
     void cleanBase(){
-        productDB.getProductsList().clear();
-        productDB.getProductByIdIndex().clear();
-        productDB.getBrandIndex().clear();
-        productDB.getCategoryIndex().clear();
+        productDB.clear();
 
-        brandDB.getBrandList().clear();
-        brandDB.getIndexBrand().clear();
+        brandDB.clear();
 
-        categoryDB.getCategoryList().clear();
-        categoryDB.getIndexCategory().clear();
+        categoryDB.clear();
     }
 
 
@@ -238,4 +237,105 @@ class ProductServiceTest {
                 .isInstanceOf(ProductDBException.class)
                 .hasMessageContaining(notExistBrand.getName() + " brand not found");
     }
-}
\ No newline at end of file
+
+    /* ------------------------------------------------------------------------ */
+    @Test
+    void searchProductsByText_shouldFindByWordForms_andRankNameFirst_Test() {
+        Product felt = productService.createProduct(Product.builder()
+                .name("Коврик")
+                .category(prd_3.getCategory())
+                .brand(prd_3.getBrand())
+                .description("Из того же материала, что валенки")
+                .build());
+
+        assertThat(productService.searchProductsByText("ВАЛЕНКАМИ", 10)).containsExactly(prd_3, felt);
+        assertThat(productService.searchProductsByText("крутой веник", 10)).containsExactly(prd_1);
+    }
+
+    @Test
+    void searchProductsByText_shouldReturnEmptyList_forBlankOrUnknownQuery_Test() {
+        assertThat(productService.searchProductsByText("  ", 10)).isEmpty();
+        assertThat(productService.searchProductsByText("самокат", 10)).isEmpty();
+    }
+
+    /* ------------------------------------------------------------------------ */
+    @SneakyThrows
+    @Test
+    void findProductsByPriceRange_shouldReturnPagesInPriceOrder_Test() {
+        ProductPage first = productService.findProductsByPriceRange(10.0, 140.0, null, 2);
+        assertThat(first.getProducts()).containsExactly(prd_1, prd_2);
+        assertThat(first.hasNext()).isTrue();
+
+        ProductPage second = productService.findProductsByPriceRange(10.0, 140.0, first.getNext(), 2);
+        assertThat(second.getProducts()).containsExactly(prd_3);
+        assertThat(second.hasNext()).isFalse();
+
+        assertThat(productService.findProductsByPriceRange(12.5, 35.0, null, 10).getProducts()).containsExactly(prd_2);
+    }
+
+    @Test
+    void findProductsByPriceRange_shouldThrowException_forIncorrectRange_Test() {
+        assertThatThrownBy(() -> productService.findProductsByPriceRange(100.0, 10.0, null, 10))
+                .isInstanceOf(ProductServiceException.class);
+        assertThatThrownBy(() -> productService.findProductsByPriceRange(10.0, 100.0, null, 0))
+                .isInstanceOf(ProductServiceException.class);
+    }
+
+    @Test
+    void findCheapestProductsByCategory_shouldFollowPriceChanges_Test() {
+        assertThat(productService.findCheapestProductsByCategory(prd_1.getCategory(), 1)).containsExactly(prd_1);
+
+        productService.updateProduct(Product.builder()
+                .id(prd_1.getId())
+                .name(prd_1.getName())
+                .price(200.00)
+                .category(prd_1.getCategory())
+                .brand(prd_1.getBrand())
+                .description(prd_1.getDescription())
+                .stockQuantity(prd_1.getStockQuantity())
+                .build());
+
+        assertThat(productService.findCheapestProductsByCategory(prd_1.getCategory(), 10))
+                .extracting(Product::getId).containsExactly(prd_3.getId(), prd_1.getId());
+        assertThat(productService.findCheapestProductsByCategory(categoryDB.findById(2).get(), 10)).isEmpty();
+    }
+
+    @SneakyThrows
+    @Test
+    void findLowStockProducts_shouldReturnProductsBelowThreshold_Test() {
+        ProductPage report = productService.findLowStockProducts(13, null, 1);
+        assertThat(report.getProducts()).containsExactly(prd_2);
+
+        report = productService.findLowStockProducts(13, report.getNext(), 1);
+        assertThat(report.getProducts()).containsExactly(prd_1);
+        assertThat(report.hasNext()).isFalse();
+
+        productService.deleteProduct(prd_2.getId());
+        assertThat(productService.findLowStockProducts(13, null, 10).getProducts()).containsExactly(prd_1);
+    }
+
+    /* ------------------------------------------------------------------------ */
+    @SneakyThrows
+    @Test
+    void findProducts_shouldCombineConditions_andSort_Test() {
+        QueryResult result = productService.findProducts(ProductQuery.builder()
+                .category(prd_1.getCategory())
+                .maxPrice(200.0)
+                .inStock(true)
+                .sort(ProductSort.PRICE_DESC)
+                .build());
+
+        assertThat(result.getProducts()).containsExactly(prd_3, prd_1);
+        assertThat(result.getPlan().explain()).contains("PRICE_DESC (in memory)");
+        assertThat(productService.findProducts(ProductQuery.builder().namePrefix("ДРЕ").build()).getProducts())
+                .containsExactly(prd_2);
+    }
+
+    @Test
+    void findProducts_shouldThrowException_forIncorrectQuery_Test() {
+        assertThatThrownBy(() -> productService.findProducts(ProductQuery.builder().minPrice(10.0).maxPrice(5.0).build()))
+                .isInstanceOf(ProductServiceException.class);
+        assertThatThrownBy(() -> productService.findProducts(ProductQuery.builder().limit(-1).build()))
+                .isInstanceOf(ProductServiceException.class);
+    }
+}
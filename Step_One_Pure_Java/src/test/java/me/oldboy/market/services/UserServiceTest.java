@@ -43,7 +43,7 @@ class UserServiceTest {
 
     @AfterEach
     void cleanBase(){
-        userDB.getUserDb().clear();
+        userDB.clear();
     }
 
 
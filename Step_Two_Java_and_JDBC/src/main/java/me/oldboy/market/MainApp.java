@@ -1,6 +1,7 @@
 package me.oldboy.market;
 
 import me.oldboy.market.config.connection.ConnectionManager;
+import me.oldboy.market.config.connection.DbConnectionPool;
 import me.oldboy.market.config.context.ContextApp;
 import me.oldboy.market.config.liquibase.LiquibaseManager;
 import me.oldboy.market.config.utils.ConfigProvider;
@@ -25,10 +26,15 @@ public class MainApp {
         System.out.println("*** Старт программы ***");
 
         ConfigProvider configProvider = new PropertiesReader();
+        /* Миграции выполняются через отдельное соединение, до старта пула */
         try (Connection connection = ConnectionManager.getBaseConnection(configProvider)) {
             LiquibaseManager.getInstance(configProvider).migrationsStart(connection);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
 
-            ContextApp mainContext = new ContextApp(connection);
+        try (DbConnectionPool connectionPool = ConnectionManager.getConnectionPool(configProvider)) {
+            ContextApp mainContext = new ContextApp(connectionPool);
 
             String consoleEncoding = System.getProperty("sun.jnu.encoding", "windows-1251");
             String inputEncoding = "Cp1251".equalsIgnoreCase(consoleEncoding) ? "windows-1251" : "UTF-8";
@@ -36,8 +42,6 @@ public class MainApp {
 
             MainMenu mainMenu = new MainMenu(mainContext);
             mainMenu.startMainMenu(scanner);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
 
         System.out.println("\n*** Программа завершена ***");
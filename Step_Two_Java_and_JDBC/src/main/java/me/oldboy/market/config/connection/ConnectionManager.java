@@ -13,6 +13,7 @@ public class ConnectionManager {
     private final static String LOGIN_KEY = "db.username";
     private final static String PASS_KEY = "db.password";
     private final static String BASEURL_KEY = "db.url";
+    private final static String POOL_KEY_PREFIX = "db.pool.";
 
     static {
         loadDriver();
@@ -59,6 +60,55 @@ public class ConnectionManager {
         }
     }
 
+    /**
+     * Создает пул соединений с базой данных используя параметры из конфигурации: адрес и учетные данные -
+     * как у {@link #getBaseConnection(ConfigProvider)}, размеры и тайм-ауты пула - ключи db.pool.* (minSize,
+     * maxSize, maxWaitMillis, idleTimeoutMillis, validationIntervalMillis, validationTimeoutSeconds,
+     * leakDetectionMillis, housekeepingMillis, statementCacheSize, serverPrepareThreshold), отсутствующие ключи -
+     * значения {@link PoolSettings} по умолчанию.
+     *
+     * @param configProvider поставщик конфигурационных параметров для подключения к БД
+     * @return пул соединений с открытыми начальными соединениями
+     * @throws RuntimeException если происходит ошибка SQL при открытии начальных соединений
+     */
+    public static DbConnectionPool getConnectionPool(ConfigProvider configProvider) {
+        validateConfiguration(configProvider);
+        PoolSettings defaults = PoolSettings.builder().build();
+        PoolSettings settings = PoolSettings.builder()
+                .minSize(intSetting(configProvider, "minSize", defaults.getMinSize()))
+                .maxSize(intSetting(configProvider, "maxSize", defaults.getMaxSize()))
+                .maxWaitMillis(longSetting(configProvider, "maxWaitMillis", defaults.getMaxWaitMillis()))
+                .idleTimeoutMillis(longSetting(configProvider, "idleTimeoutMillis", defaults.getIdleTimeoutMillis()))
+                .validationIntervalMillis(longSetting(configProvider, "validationIntervalMillis",
+                        defaults.getValidationIntervalMillis()))
+                .validationTimeoutSeconds(intSetting(configProvider, "validationTimeoutSeconds",
+                        defaults.getValidationTimeoutSeconds()))
+                .leakDetectionMillis(longSetting(configProvider, "leakDetectionMillis", defaults.getLeakDetectionMillis()))
+                .housekeepingMillis(longSetting(configProvider, "housekeepingMillis", defaults.getHousekeepingMillis()))
+                .statementCacheSize(intSetting(configProvider, "statementCacheSize", defaults.getStatementCacheSize()))
+                .serverPrepareThreshold(intSetting(configProvider, "serverPrepareThreshold",
+                        defaults.getServerPrepareThreshold()))
+                .build();
+        return new DbConnectionPool(() -> DriverManager.getConnection(configProvider.get(BASEURL_KEY),
+                configProvider.get(LOGIN_KEY),
+                configProvider.get(PASS_KEY)), settings);
+    }
+
+    /**
+     * Создает пул соединений с тестовой базой данных (предназначен для работы в тестах)
+     *
+     * @param baseUrl      адрес тестовой БД
+     * @param userLogin    логин к тестовой БД
+     * @param userPassword пароль к тестовой БД
+     * @param settings     параметры пула
+     * @return пул соединений с тестовой БД
+     * @throws RuntimeException если происходит ошибка SQL при открытии начальных соединений
+     */
+    public static DbConnectionPool getTestConnectionPool(String baseUrl, String userLogin, String userPassword,
+                                                         PoolSettings settings) {
+        return new DbConnectionPool(() -> DriverManager.getConnection(baseUrl, userLogin, userPassword), settings);
+    }
+
     /**
      * Загрузчик драйвера для связи с БД
      */
@@ -86,4 +136,30 @@ public class ConnectionManager {
             throw new IllegalStateException("Database password is not configured (key: " + PASS_KEY + ")");
         }
     }
+
+    /**
+     * Читает целочисленный параметр пула (ключ db.pool.*)
+     *
+     * @param configProvider поставщик конфигурационных параметров
+     * @param name           имя параметра без префикса db.pool.
+     * @param defaultValue   значение, если параметр не задан
+     * @return значение параметра
+     */
+    private static int intSetting(ConfigProvider configProvider, String name, int defaultValue) {
+        String value = configProvider.get(POOL_KEY_PREFIX + name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Читает параметр пула типа long (ключ db.pool.*)
+     *
+     * @param configProvider поставщик конфигурационных параметров
+     * @param name           имя параметра без префикса db.pool.
+     * @param defaultValue   значение, если параметр не задан
+     * @return значение параметра
+     */
+    private static long longSetting(ConfigProvider configProvider, String name, long defaultValue) {
+        String value = configProvider.get(POOL_KEY_PREFIX + name);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
 }
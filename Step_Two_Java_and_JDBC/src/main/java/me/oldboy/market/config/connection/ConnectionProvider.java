@@ -0,0 +1,50 @@
+package me.oldboy.market.config.connection;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Источник соединений с БД для репозиториев.
+ * <p>
+ * Репозиторий берет соединение на одну операцию и закрывает его по завершении (try-with-resources):
+ * для пула ({@link DbConnectionPool}) закрытие возвращает соединение в пул, для общего соединения
+ * ({@link #of(Connection)}) - ничего не закрывает. Незафиксированная транзакция в обоих случаях откатывается.
+ */
+@FunctionalInterface
+public interface ConnectionProvider {
+    /**
+     * Возвращает соединение для одной операции.
+     *
+     * @return соединение с БД, вызывающий обязан его закрыть
+     * @throws SQLException если соединение получить не удалось
+     */
+    Connection getConnection() throws SQLException;
+
+    /**
+     * Источник, отдающий всем операциям одно и то же соединение (тесты и однопользовательский режим):
+     * закрытие выданного соединения откатывает незафиксированную транзакцию, но соединение не закрывает.
+     *
+     * @param connection общее соединение с БД
+     * @return источник соединений поверх единственного соединения
+     */
+    static ConnectionProvider of(Connection connection) {
+        Connection shared = (Connection) Proxy.newProxyInstance(ConnectionProvider.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        if (!connection.getAutoCommit()) {
+                            connection.rollback();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException exception) {
+                        throw exception.getCause();
+                    }
+                });
+        return () -> shared;
+    }
+}
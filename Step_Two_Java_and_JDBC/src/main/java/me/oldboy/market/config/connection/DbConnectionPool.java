@@ -0,0 +1,416 @@
+package me.oldboy.market.config.connection;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Пул соединений с БД.
+ * <p>
+ * Соединения открываются с autoCommit = false (репозитории фиксируют транзакции сами) и при возврате в пул
+ * откатывают незафиксированную работу. Свободные соединения выдаются последними вернувшимися первыми (LIFO),
+ * так что при малой нагрузке работают несколько "теплых" соединений, а остальные простаивают и закрываются.
+ * <ul>
+ *     <li>размер - от {@link PoolSettings#getMinSize()} до {@link PoolSettings#getMaxSize()} соединений, если все
+ *     заняты - запрос ждет свободное не дольше {@link PoolSettings#getMaxWaitMillis()};</li>
+ *     <li>проверка при выдаче - Connection.isValid для соединений, простоявших дольше
+ *     {@link PoolSettings#getValidationIntervalMillis()}, разорванные закрываются и заменяются;</li>
+ *     <li>фоновая проверка - закрывает простаивающие дольше {@link PoolSettings#getIdleTimeoutMillis()},
+ *     добирает пул до минимума и сообщает о соединениях, не возвращенных дольше
+ *     {@link PoolSettings#getLeakDetectionMillis()}, с местом, где их взяли;</li>
+ *     <li>кэш подготовленных запросов на каждом соединении ({@link StatementCache}, емкость -
+ *     {@link PoolSettings#getStatementCacheSize()});</li>
+ *     <li>счетчики выдач, ожидания, тайм-аутов, утечек и попаданий в кэш запросов - {@link #getStats()}.</li>
+ * </ul>
+ */
+public class DbConnectionPool implements ConnectionProvider, Closeable {
+    /**
+     * Откуда пул берет новые физические соединения
+     */
+    private final ConnectionProvider driver;
+    private final PoolSettings settings;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    /**
+     * Свободные соединения, в голове - последнее вернувшееся
+     */
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = new HashSet<>();
+    /**
+     * Открытые и открываемые сейчас соединения
+     */
+    private int total;
+    private int waiting;
+    private boolean closed;
+
+    private long borrows;
+    private long created;
+    private long destroyed;
+    private long timeouts;
+    private long leaks;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+
+    private final ScheduledExecutorService housekeeper;
+
+    /**
+     * Создает пул и сразу открывает минимум соединений.
+     *
+     * @param driver   источник новых физических соединений (например, DriverManager)
+     * @param settings параметры пула
+     * @throws RuntimeException если не удалось открыть начальные соединения
+     */
+    public DbConnectionPool(ConnectionProvider driver, PoolSettings settings) {
+        if (settings.getMaxSize() < 1 || settings.getMinSize() < 0 || settings.getMinSize() > settings.getMaxSize()) {
+            throw new IllegalArgumentException("Invalid pool size: " + settings);
+        }
+        this.driver = driver;
+        this.settings = settings;
+
+        lock.lock();
+        try {
+            total = settings.getMinSize();
+        } finally {
+            lock.unlock();
+        }
+        SQLException failure = fill(settings.getMinSize());
+        if (failure != null) {
+            close();
+            throw new RuntimeException(failure);
+        }
+
+        if (settings.getHousekeepingMillis() > 0) {
+            housekeeper = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "db-pool-housekeeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            housekeeper.scheduleWithFixedDelay(this::housekeep, settings.getHousekeepingMillis(),
+                    settings.getHousekeepingMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            housekeeper = null;
+        }
+    }
+
+    /**
+     * Выдает свободное соединение, при необходимости открывает новое или ждет возврата занятого.
+     *
+     * @return соединение, его close() возвращает соединение в пул
+     * @throws SQLTimeoutException если свободное соединение не появилось за {@link PoolSettings#getMaxWaitMillis()}
+     * @throws SQLException        если пул закрыт или не удалось открыть новое соединение
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(settings.getMaxWaitMillis());
+        while (true) {
+            PooledConnection candidate;
+            boolean open = false;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+                    if (total < settings.getMaxSize()) {
+                        total++;
+                        open = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts++;
+                        throw new SQLTimeoutException("Connection is not available, request timed out after "
+                                + settings.getMaxWaitMillis() + " ms (" + settings.getMaxSize() + " connections in use)");
+                    }
+                    waiting++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a connection", exception);
+                    } finally {
+                        waiting--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (open) {
+                try {
+                    candidate = open();
+                } catch (SQLException | RuntimeException exception) {
+                    discard(false);
+                    throw exception;
+                }
+            } else if (!isAlive(candidate)) {
+                candidate.closeQuietly();
+                discard(true);
+                continue;
+            }
+            return lend(candidate, start);
+        }
+    }
+
+    /**
+     * @return снимок состояния и счетчиков пула
+     */
+    public PoolStats getStats() {
+        lock.lock();
+        try {
+            return new PoolStats(total, idle.size(), borrowed.size(), waiting, borrows, created, destroyed,
+                    timeouts, leaks, totalWaitNanos, maxWaitNanos,
+                    statementHits.sum(), statementMisses.sum(), statementEvictions.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return параметры пула
+     */
+    public PoolSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Закрывает свободные соединения и останавливает фоновую проверку, выданные соединения закрываются
+     * при возврате. Повторный вызов ничего не делает.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        toClose.forEach(PooledConnection::closeQuietly);
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Возвращает соединение в пул (вызывается при закрытии аренды): откатывает незафиксированную транзакцию,
+     * разорванное или оставшееся после закрытия пула соединение закрывает.
+     */
+    void release(PooledConnection connection) {
+        boolean reusable;
+        if (connection.statements != null) {
+            connection.statements.reclaim();
+        }
+        try {
+            Connection physical = connection.physical;
+            if (physical.getAutoCommit()) {
+                physical.setAutoCommit(false);
+            } else {
+                physical.rollback();
+            }
+            reusable = !physical.isClosed();
+        } catch (SQLException exception) {
+            reusable = false;
+        }
+
+        lock.lock();
+        try {
+            borrowed.remove(connection);
+            connection.borrowTrace = null;
+            if (reusable && !closed) {
+                connection.lastReturned = System.nanoTime();
+                idle.addFirst(connection);
+                available.signal();
+                return;
+            }
+            total--;
+            destroyed++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        connection.closeQuietly();
+    }
+
+    /**
+     * Фоновая проверка: закрывает простаивающие сверх минимума, сообщает об утечках, добирает пул до минимума
+     */
+    void housekeep() {
+        List<PooledConnection> expired = new ArrayList<>();
+        List<PooledConnection> leaked = new ArrayList<>();
+        int missing;
+        long now = System.nanoTime();
+        long idleTimeout = TimeUnit.MILLISECONDS.toNanos(settings.getIdleTimeoutMillis());
+        long leakThreshold = TimeUnit.MILLISECONDS.toNanos(settings.getLeakDetectionMillis());
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            /* В хвосте очереди - дольше всех простаивающие */
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && total > settings.getMinSize()) {
+                PooledConnection connection = oldestFirst.next();
+                if (now - connection.lastReturned < idleTimeout) {
+                    break;
+                }
+                oldestFirst.remove();
+                expired.add(connection);
+                total--;
+                destroyed++;
+            }
+            if (leakThreshold > 0) {
+                for (PooledConnection connection : borrowed) {
+                    if (!connection.leakReported && now - connection.borrowedAt >= leakThreshold) {
+                        connection.leakReported = true;
+                        leaks++;
+                        leaked.add(connection);
+                    }
+                }
+            }
+            missing = Math.max(0, settings.getMinSize() - total);
+            total += missing;
+        } finally {
+            lock.unlock();
+        }
+
+        expired.forEach(PooledConnection::closeQuietly);
+        for (PooledConnection connection : leaked) {
+            System.out.println("Соединение с БД не возвращено в пул дольше "
+                    + settings.getLeakDetectionMillis() + " мс (возможная утечка)");
+            Throwable trace = connection.borrowTrace;
+            if (trace != null) {
+                trace.printStackTrace();
+            }
+        }
+        fill(missing);
+    }
+
+    /**
+     * Открывает соединения и кладет их в пул, места под них (total) уже заняты вызывающим.
+     *
+     * @return ошибка открытия или null; при ошибке неоткрытые места освобождаются
+     */
+    private SQLException fill(int count) {
+        for (int i = 0; i < count; i++) {
+            PooledConnection connection;
+            try {
+                connection = open();
+            } catch (SQLException exception) {
+                for (int j = i; j < count; j++) {
+                    discard(false);
+                }
+                return exception;
+            }
+            lock.lock();
+            try {
+                if (!closed) {
+                    idle.addLast(connection);
+                    available.signal();
+                    continue;
+                }
+                total--;
+            } finally {
+                lock.unlock();
+            }
+            connection.closeQuietly();
+        }
+        return null;
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = driver.getConnection();
+        try {
+            physical.setAutoCommit(false);
+        } catch (SQLException exception) {
+            physical.close();
+            throw exception;
+        }
+        lock.lock();
+        try {
+            created++;
+        } finally {
+            lock.unlock();
+        }
+        StatementCache statements = settings.getStatementCacheSize() > 0
+                ? new StatementCache(settings.getStatementCacheSize(), settings.getServerPrepareThreshold(),
+                statementHits, statementMisses, statementEvictions)
+                : null;
+        return new PooledConnection(physical, statements);
+    }
+
+    private boolean isAlive(PooledConnection connection) {
+        long idleNanos = System.nanoTime() - connection.lastReturned;
+        if (idleNanos < TimeUnit.MILLISECONDS.toNanos(settings.getValidationIntervalMillis())) {
+            return true;
+        }
+        try {
+            return connection.physical.isValid(settings.getValidationTimeoutSeconds());
+        } catch (SQLException exception) {
+            return false;
+        }
+    }
+
+    private Connection lend(PooledConnection connection, long waitStart) {
+        long now = System.nanoTime();
+        long waited = now - waitStart;
+        connection.borrowedAt = now;
+        connection.leakReported = false;
+        connection.borrowTrace = settings.getLeakDetectionMillis() > 0
+                ? new Exception("Connection borrowed here") : null;
+        lock.lock();
+        try {
+            borrowed.add(connection);
+            borrows++;
+            totalWaitNanos += waited;
+            maxWaitNanos = Math.max(maxWaitNanos, waited);
+        } finally {
+            lock.unlock();
+        }
+        return connection.lease(this);
+    }
+
+    /**
+     * Освобождает место соединения, которое не удалось открыть или которое закрыто при проверке
+     *
+     * @param wasOpen true - физическое соединение было открыто и закрыто
+     */
+    private void discard(boolean wasOpen) {
+        lock.lock();
+        try {
+            total--;
+            if (wasOpen) {
+                destroyed++;
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package me.oldboy.market.config.connection;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Параметры пула соединений {@link DbConnectionPool}, значения по умолчанию подходят консольному приложению.
+ */
+@Getter
+@Builder
+@ToString
+public class PoolSettings {
+    /**
+     * Минимум открытых соединений: открываются при старте пула, простаивающие сверх него закрываются
+     */
+    @Builder.Default
+    private final int minSize = 2;
+    /**
+     * Максимум одновременно открытых соединений
+     */
+    @Builder.Default
+    private final int maxSize = 10;
+    /**
+     * Сколько ждать свободное соединение, если пул исчерпан (мс), затем - SQLTimeoutException
+     */
+    @Builder.Default
+    private final long maxWaitMillis = 10_000;
+    /**
+     * Сколько соединение может простаивать в пуле, прежде чем будет закрыто (мс)
+     */
+    @Builder.Default
+    private final long idleTimeoutMillis = 60_000;
+    /**
+     * Соединение, простоявшее в пуле дольше этого (мс), проверяется при выдаче (Connection.isValid)
+     */
+    @Builder.Default
+    private final long validationIntervalMillis = 5_000;
+    /**
+     * Сколько ждать ответа БД при проверке соединения (с)
+     */
+    @Builder.Default
+    private final int validationTimeoutSeconds = 5;
+    /**
+     * Соединение, не возвращенное в пул дольше этого (мс), считается утечкой: в консоль выводится место,
+     * где его взяли (0 - не отслеживать)
+     */
+    @Builder.Default
+    private final long leakDetectionMillis = 60_000;
+    /**
+     * Период фоновой проверки пула: закрытие простаивающих, добор до минимума, поиск утечек (мс)
+     */
+    @Builder.Default
+    private final long housekeepingMillis = 30_000;
+    /**
+     * Сколько подготовленных запросов кэшировать на каждом соединении (0 - не кэшировать)
+     */
+    @Builder.Default
+    private final int statementCacheSize = 32;
+    /**
+     * С какого выполнения кэшированный запрос готовится на сервере (prepareThreshold драйвера PostgreSQL,
+     * 0 - оставить значение драйвера)
+     */
+    @Builder.Default
+    private final int serverPrepareThreshold = 2;
+}
@@ -0,0 +1,85 @@
+package me.oldboy.market.config.connection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Снимок состояния и счетчиков пула соединений {@link DbConnectionPool}
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class PoolStats {
+    /**
+     * Открытые соединения (выданные и свободные)
+     */
+    private final int total;
+    /**
+     * Свободные соединения в пуле
+     */
+    private final int idle;
+    /**
+     * Соединения, выданные операциям
+     */
+    private final int active;
+    /**
+     * Потоки, ждущие свободное соединение
+     */
+    private final int waiting;
+    /**
+     * Выдано соединений за все время
+     */
+    private final long borrows;
+    /**
+     * Открыто физических соединений
+     */
+    private final long created;
+    /**
+     * Закрыто физических соединений: простаивали слишком долго или не прошли проверку
+     */
+    private final long destroyed;
+    /**
+     * Запросы, не дождавшиеся свободного соединения
+     */
+    private final long timeouts;
+    /**
+     * Соединения, не возвращенные в пул дольше порога утечки
+     */
+    private final long leaks;
+    /**
+     * Суммарное ожидание соединения (нс)
+     */
+    private final long totalWaitNanos;
+    /**
+     * Самое долгое ожидание соединения (нс)
+     */
+    private final long maxWaitNanos;
+    /**
+     * prepareStatement, обслуженные кэшем подготовленных запросов
+     */
+    private final long statementCacheHits;
+    /**
+     * prepareStatement, для которых запрос готовился заново
+     */
+    private final long statementCacheMisses;
+    /**
+     * Запросы, вытесненные из кэша (закрыты)
+     */
+    private final long statementCacheEvictions;
+
+    /**
+     * @return среднее ожидание соединения (мс), 0 - соединений еще не выдавали
+     */
+    public double averageWaitMillis() {
+        return borrows == 0 ? 0 : totalWaitNanos / 1_000_000.0 / borrows;
+    }
+
+    /**
+     * @return доля prepareStatement, обслуженных кэшем (0 - запросов не было)
+     */
+    public double statementCacheHitRate() {
+        long prepares = statementCacheHits + statementCacheMisses;
+        return prepares == 0 ? 0 : (double) statementCacheHits / prepares;
+    }
+}
@@ -0,0 +1,110 @@
+package me.oldboy.market.config.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Физическое соединение пула {@link DbConnectionPool} и его служебное состояние.
+ * <p>
+ * Операции получают не само соединение, а одноразовую "аренду" - прокси, у которого close() возвращает
+ * соединение в пул; после close() аренда больше не работает, даже если на нее осталась ссылка.
+ * prepareStatement(sql) и prepareStatement(sql, autoGeneratedKeys) аренды обслуживает {@link StatementCache}.
+ */
+final class PooledConnection {
+    final Connection physical;
+    /**
+     * Кэш подготовленных запросов соединения (null - кэш выключен)
+     */
+    final StatementCache statements;
+    /**
+     * Когда соединение вернули в пул (System.nanoTime) - для проверки при выдаче и закрытия простаивающих
+     */
+    long lastReturned;
+    /**
+     * Когда соединение выдали (System.nanoTime) - для поиска утечек
+     */
+    long borrowedAt;
+    /**
+     * Место, где соединение выдали (только если отслеживаются утечки)
+     */
+    Throwable borrowTrace;
+    boolean leakReported;
+
+    PooledConnection(Connection physical, StatementCache statements) {
+        this.physical = physical;
+        this.statements = statements;
+        this.lastReturned = System.nanoTime();
+    }
+
+    /**
+     * @param pool пул, куда вернется соединение при закрытии аренды
+     * @return новая аренда соединения
+     */
+    Connection lease(DbConnectionPool pool) {
+        return (Connection) Proxy.newProxyInstance(PooledConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Lease(pool));
+    }
+
+    /**
+     * Закрывает физическое соединение, ошибки закрытия не важны - соединение уже не используется
+     */
+    void closeQuietly() {
+        try {
+            physical.close();
+        } catch (SQLException ignored) {
+            /* Соединение уже разорвано */
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private final DbConnectionPool pool;
+        private boolean closed;
+
+        private Lease(DbConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + physical;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed: it was already returned to the pool");
+            }
+            if (statements != null && "prepareStatement".equals(method.getName())) {
+                Class<?>[] parameters = method.getParameterTypes();
+                if (parameters.length == 1) {
+                    return statements.prepare(physical, (Connection) proxy, (String) args[0], null);
+                }
+                if (parameters.length == 2 && parameters[1] == int.class) {
+                    return statements.prepare(physical, (Connection) proxy, (String) args[0], (Integer) args[1]);
+                }
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package me.oldboy.market.config.connection;
+
+import org.postgresql.PGStatement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU-кэш подготовленных запросов одного соединения пула {@link DbConnectionPool}, ключ - текст SQL
+ * (и признак возврата сгенерированных ключей).
+ * <p>
+ * Репозиторий по-прежнему вызывает prepareStatement и закрывает запрос, но получает прокси: close() закрывает
+ * выданные запросом ResultSet (как и обычный Statement.close), очищает параметры и возвращает запрос в кэш,
+ * следующий prepareStatement того же SQL на этом соединении получает его без повторного разбора. Запросам в кэше назначается порог серверной подготовки
+ * ({@link PoolSettings#getServerPrepareThreshold()}): повторно используемый запрос PostgreSQL-драйвер
+ * переводит в именованный серверный prepared statement, и БД больше не разбирает и не планирует его заново.
+ * <p>
+ * Кэшем пользуется только поток, арендовавший соединение, поэтому синхронизации нет; счетчики общие для пула.
+ */
+final class StatementCache {
+    private final int capacity;
+    private final int serverPrepareThreshold;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    /**
+     * Порядок обхода - от давно не использованных к недавним
+     */
+    private final LinkedHashMap<Key, Entry> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int capacity, int serverPrepareThreshold, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.capacity = capacity;
+        this.serverPrepareThreshold = serverPrepareThreshold;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Возвращает подготовленный запрос из кэша или готовит новый и кладет его в кэш.
+     *
+     * @param physical          соединение, на котором готовится запрос
+     * @param lease             аренда соединения - ее возвращает getConnection() запроса
+     * @param sql               текст запроса
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS / NO_GENERATED_KEYS или null - без этого аргумента
+     * @return запрос, его close() возвращает запрос в кэш
+     */
+    PreparedStatement prepare(Connection physical, Connection lease, String sql, Integer autoGeneratedKeys)
+            throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys == null ? Statement.NO_GENERATED_KEYS : autoGeneratedKeys);
+        Entry entry = statements.get(key);
+        if (entry != null && entry.handle == null) {
+            hits.increment();
+            return entry.lend(lease);
+        }
+        misses.increment();
+        PreparedStatement statement = autoGeneratedKeys == null
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+        if (entry != null) {
+            /* Тот же SQL уже открыт на этом соединении - второй экземпляр не кэшируется */
+            return statement;
+        }
+        if (serverPrepareThreshold > 0 && statement.isWrapperFor(PGStatement.class)) {
+            statement.unwrap(PGStatement.class).setPrepareThreshold(serverPrepareThreshold);
+        }
+        entry = new Entry(statement);
+        statements.put(key, entry);
+        evictOverflow();
+        return entry.lend(lease);
+    }
+
+    /**
+     * Возвращает в кэш запросы, которые не закрыла предыдущая аренда соединения: прокси этих запросов
+     * перестают работать.
+     */
+    void reclaim() {
+        for (Entry entry : List.copyOf(statements.values())) {
+            if (entry.handle != null) {
+                entry.handle.closed = true;
+                entry.giveBack();
+            }
+        }
+    }
+
+    /**
+     * Закрывает давно не использованные запросы сверх емкости кэша (занятые сейчас пропускаются)
+     */
+    private void evictOverflow() {
+        Iterator<Entry> eldestFirst = statements.values().iterator();
+        while (statements.size() > capacity && eldestFirst.hasNext()) {
+            Entry eldest = eldestFirst.next();
+            if (eldest.handle == null) {
+                eldestFirst.remove();
+                eldest.closeQuietly();
+                evictions.increment();
+            }
+        }
+    }
+
+    private record Key(String sql, int autoGeneratedKeys) {
+    }
+
+    /**
+     * Запрос в кэше и его текущая выдача (null - запрос свободен)
+     */
+    private final class Entry {
+        private final PreparedStatement statement;
+        private Handle handle;
+
+        private Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private PreparedStatement lend(Connection lease) {
+            handle = new Handle(this, lease);
+            return (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, handle);
+        }
+
+        /**
+         * Освобождает запрос для следующей выдачи: закрывает оставленные открытыми ResultSet (и курсоры на сервере)
+         * и очищает параметры; запрос, который не удалось очистить, закрывается
+         */
+        private void giveBack() {
+            List<ResultSet> results = handle.results;
+            handle = null;
+            try {
+                for (ResultSet result : results) {
+                    result.close();
+                }
+                statement.clearParameters();
+            } catch (SQLException exception) {
+                statements.values().remove(this);
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                /* Запрос уже закрыт вместе с соединением */
+            }
+        }
+    }
+
+    /**
+     * Одна выдача запроса из кэша: close() возвращает запрос в кэш, после него прокси не работает
+     */
+    private static final class Handle implements InvocationHandler {
+        private final Entry entry;
+        private final Connection lease;
+        /**
+         * ResultSet, выданные за эту выдачу запроса - закрываются при его возврате в кэш
+         */
+        private final List<ResultSet> results = new ArrayList<>();
+        private boolean closed;
+
+        private Handle(Entry entry, Connection lease) {
+            this.entry = entry;
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        entry.giveBack();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return lease;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached " + entry.statement;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            Object result;
+            try {
+                result = method.invoke(entry.statement, args);
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+            if (result instanceof ResultSet resultSet) {
+                results.add(resultSet);
+            }
+            return result;
+        }
+    }
+}
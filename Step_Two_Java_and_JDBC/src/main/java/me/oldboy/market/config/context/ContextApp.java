@@ -1,6 +1,7 @@
 package me.oldboy.market.config.context;
 
 import lombok.Getter;
+import me.oldboy.market.config.connection.ConnectionProvider;
 import me.oldboy.market.controlers.LoginLogoutController;
 import me.oldboy.market.controlers.ProductCrudController;
 import me.oldboy.market.controlers.view.ViewAuditRecordController;
@@ -40,13 +41,27 @@ public class ContextApp {
     /* Псевдо валидаторы */
     private InputExistChecker inputExistChecker;
 
+    /**
+     * Контекст, все репозитории которого работают через одно общее соединение.
+     *
+     * @param connection JDBC соединение с базой данных
+     */
     public ContextApp(Connection connection) {
+        this(ConnectionProvider.of(connection));
+    }
+
+    /**
+     * Контекст, репозитории которого берут соединение на каждую операцию (например, из пула).
+     *
+     * @param connectionProvider источник JDBC соединений
+     */
+    public ContextApp(ConnectionProvider connectionProvider) {
         /* Инициализируем слой репозиториев и прокидываем зависимости */
-        this.userRepository = new UserRepository(connection);
-        this.productRepository = new ProductRepository(connection);
-        this.categoryRepository = new CategoryRepository(connection);
-        this.brandRepository = new BrandRepository(connection);
-        this.auditRepository = new AuditRepository(connection);
+        this.userRepository = new UserRepository(connectionProvider);
+        this.productRepository = new ProductRepository(connectionProvider);
+        this.categoryRepository = new CategoryRepository(connectionProvider);
+        this.brandRepository = new BrandRepository(connectionProvider);
+        this.auditRepository = new AuditRepository(connectionProvider);
         /* Инициализируем слой сервисов и прокидываем зависимости */
         this.userService = new UserServiceImpl(userRepository);
         this.productService = new ProductServiceImpl(productRepository, categoryRepository, brandRepository);
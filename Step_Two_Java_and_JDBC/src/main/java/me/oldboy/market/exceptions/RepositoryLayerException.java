@@ -0,0 +1,17 @@
+package me.oldboy.market.exceptions;
+
+/**
+ * Исключение, выбрасывается в случае ошибки обращения к БД на слое репозиториев,
+ * когда по результату запроса принимается решение и "пустой" ответ выдать нельзя.
+ */
+public class RepositoryLayerException extends RuntimeException {
+    /**
+     * Создает новое исключение с указанным сообщением и причиной
+     *
+     * @param msg   детальное сообщение об ошибке
+     * @param cause исходное исключение
+     */
+    public RepositoryLayerException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
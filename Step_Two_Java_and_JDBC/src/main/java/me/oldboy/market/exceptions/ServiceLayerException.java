@@ -12,4 +12,14 @@ public class ServiceLayerException extends RuntimeException {
     public ServiceLayerException(String msg) {
         super(msg);
     }
+
+    /**
+     * Создает новое исключение с указанным сообщением и причиной
+     *
+     * @param msg   детальное сообщение об ошибке
+     * @param cause исходное исключение
+     */
+    public ServiceLayerException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
 }
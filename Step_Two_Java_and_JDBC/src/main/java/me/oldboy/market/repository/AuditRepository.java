@@ -2,6 +2,7 @@ package me.oldboy.market.repository;
 
 import lombok.AllArgsConstructor;
 import lombok.Setter;
+import me.oldboy.market.config.connection.ConnectionProvider;
 import me.oldboy.market.entity.Audit;
 import me.oldboy.market.entity.enums.Action;
 import me.oldboy.market.entity.enums.Status;
@@ -30,10 +31,11 @@ import java.util.Optional;
 @AllArgsConstructor
 public class AuditRepository implements AuditDao {
     /**
-     * JDBC соединение с базой данных
+     * Источник JDBC соединений: каждая операция берет свое соединение и закрывает (возвращает) его по завершении,
+     * незафиксированная транзакция при этом откатывается
      */
     @Setter
-    private Connection connection;
+    private ConnectionProvider connectionProvider;
 
     /**
      * (SQL command) запрос на вставку (сохранение) Audit entity в таблицу audits БД
@@ -92,6 +94,15 @@ public class AuditRepository implements AuditDao {
                     WHERE created_by = ?
                     """;
 
+    /**
+     * Создает репозиторий, все операции которого работают через одно общее соединение.
+     *
+     * @param connection JDBC соединение с базой данных
+     */
+    public AuditRepository(Connection connection) {
+        this(ConnectionProvider.of(connection));
+    }
+
     /**
      * Создает новую запись аудита в базе данных.
      *
@@ -101,7 +112,8 @@ public class AuditRepository implements AuditDao {
     @Override
     public Optional<Audit> create(Audit entityWithNoId) {
         Audit createdEntityWithId = null;
-        try (PreparedStatement prepareStatement =
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement =
                      connection.prepareStatement(CREATE_AUDITS_SQL, Statement.RETURN_GENERATED_KEYS)) {
             prepareStatement.setObject(1, entityWithNoId.getCreateAt());
             prepareStatement.setString(2, entityWithNoId.getCreateBy());
@@ -118,12 +130,7 @@ public class AuditRepository implements AuditDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(createdEntityWithId);
@@ -138,7 +145,8 @@ public class AuditRepository implements AuditDao {
     @Override
     public Optional<Audit> findById(Long entityId) {
         Audit foundEntity = null;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_AUDIT_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_AUDIT_BY_ID_SQL)) {
             prepareStatement.setLong(1, entityId);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 if (queryResult.next()) {
@@ -147,12 +155,7 @@ public class AuditRepository implements AuditDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundEntity);
@@ -167,7 +170,8 @@ public class AuditRepository implements AuditDao {
     @Override
     public boolean update(Audit updateData) {
         Boolean isUpdated = false;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(UPDATE_AUDIT_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(UPDATE_AUDIT_SQL)) {
             prepareStatement.setObject(1, updateData.getCreateAt());
             prepareStatement.setString(2, updateData.getCreateBy());
             prepareStatement.setString(3, updateData.getAction().name());
@@ -178,12 +182,7 @@ public class AuditRepository implements AuditDao {
             isUpdated = prepareStatement.executeUpdate() > 0;
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return isUpdated;
@@ -198,17 +197,13 @@ public class AuditRepository implements AuditDao {
     @Override
     public boolean delete(Long entityId) {
         boolean isDeleted = false;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(DELETE_AUDIT_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(DELETE_AUDIT_BY_ID_SQL)) {
             prepareStatement.setLong(1, entityId);
             isDeleted = prepareStatement.executeUpdate() > 0;
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return isDeleted;
@@ -222,7 +217,8 @@ public class AuditRepository implements AuditDao {
     @Override
     public List<Audit> findAll() {
         List<Audit> findAll = new ArrayList<>();
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_ALL_AUDITS_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_ALL_AUDITS_SQL)) {
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 while (queryResult.next()) {
                     findAll.add(auditBuild(queryResult));
@@ -230,12 +226,7 @@ public class AuditRepository implements AuditDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return findAll;
@@ -249,7 +240,8 @@ public class AuditRepository implements AuditDao {
      */
     public Optional<List<Audit>> findByCreationUserEmail(String email) {
         List<Audit> foundRecords = new ArrayList<>();
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_AUDITS_BY_USER_EMAIL_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_AUDITS_BY_USER_EMAIL_SQL)) {
             prepareStatement.setString(1, email);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 while (queryResult.next()) {
@@ -258,12 +250,7 @@ public class AuditRepository implements AuditDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundRecords);
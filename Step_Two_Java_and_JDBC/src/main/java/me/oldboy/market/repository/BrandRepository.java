@@ -2,6 +2,7 @@ package me.oldboy.market.repository;
 
 import lombok.AllArgsConstructor;
 import lombok.Setter;
+import me.oldboy.market.config.connection.ConnectionProvider;
 import me.oldboy.market.entity.Audit;
 import me.oldboy.market.entity.enums.Action;
 import me.oldboy.market.entity.enums.Status;
@@ -24,10 +25,11 @@ import java.util.Optional;
 @AllArgsConstructor
 public class BrandRepository implements BrandDao {
     /**
-     * JDBC соединение с базой данных
+     * Источник JDBC соединений: каждая операция берет свое соединение и закрывает (возвращает) его по завершении,
+     * незафиксированная транзакция при этом откатывается
      */
     @Setter
-    private Connection connection;
+    private ConnectionProvider connectionProvider;
 
     /**
      * (SQL command) запрос на вставку (сохранение) Brand entity в таблицу brands БД
@@ -78,6 +80,15 @@ public class BrandRepository implements BrandDao {
                     WHERE brand_name = ?
                     """;
 
+    /**
+     * Создает репозиторий, все операции которого работают через одно общее соединение.
+     *
+     * @param connection JDBC соединение с базой данных
+     */
+    public BrandRepository(Connection connection) {
+        this(ConnectionProvider.of(connection));
+    }
+
     /**
      * Создает новую запись о брэнде товара в базе данных.
      *
@@ -87,7 +98,8 @@ public class BrandRepository implements BrandDao {
     @Override
     public Optional<Brand> create(Brand entityWithNoId) {
         Brand createdBrand = null;
-        try (PreparedStatement prepareStatement =
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement =
                      connection.prepareStatement(CREATE_BRANDS_SQL, Statement.RETURN_GENERATED_KEYS)) {
             prepareStatement.setString(1, entityWithNoId.getName());
 
@@ -100,12 +112,7 @@ public class BrandRepository implements BrandDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(createdBrand);
@@ -120,7 +127,8 @@ public class BrandRepository implements BrandDao {
     @Override
     public Optional<Brand> findById(Integer entityId) {
         Brand foundBrand = null;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_BRAND_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_BRAND_BY_ID_SQL)) {
             prepareStatement.setLong(1, entityId);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 if (queryResult.next()) {
@@ -129,12 +137,7 @@ public class BrandRepository implements BrandDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundBrand);
@@ -149,19 +152,15 @@ public class BrandRepository implements BrandDao {
     @Override
     public boolean update(Brand updateData) {
         Boolean isUpdated = false;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(UPDATE_BRANDS_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(UPDATE_BRANDS_SQL)) {
             prepareStatement.setString(1, updateData.getName());
             prepareStatement.setLong(2, updateData.getId());
 
             isUpdated = prepareStatement.executeUpdate() > 0;
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return isUpdated;
@@ -176,17 +175,13 @@ public class BrandRepository implements BrandDao {
     @Override
     public boolean delete(Integer entityId) {
         boolean isDeleted = false;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(DELETE_BRAND_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(DELETE_BRAND_BY_ID_SQL)) {
             prepareStatement.setLong(1, entityId);
             isDeleted = prepareStatement.executeUpdate() > 0;
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return isDeleted;
@@ -200,7 +195,8 @@ public class BrandRepository implements BrandDao {
     @Override
     public List<Brand> findAll() {
         List<Brand> findAll = new ArrayList<>();
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_ALL_BRANDS_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_ALL_BRANDS_SQL)) {
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 while (queryResult.next()) {
                     findAll.add(brandBuild(queryResult));
@@ -208,12 +204,7 @@ public class BrandRepository implements BrandDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return findAll;
@@ -227,7 +218,8 @@ public class BrandRepository implements BrandDao {
      */
     public Optional<Brand> findByName(String brandName) {
         Brand foundBrand = null;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_BRAND_BY_NAME_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_BRAND_BY_NAME_SQL)) {
             prepareStatement.setString(1, brandName);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 if (queryResult.next()) {
@@ -236,12 +228,7 @@ public class BrandRepository implements BrandDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundBrand);
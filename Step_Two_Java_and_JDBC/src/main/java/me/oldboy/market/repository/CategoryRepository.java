@@ -2,6 +2,7 @@ package me.oldboy.market.repository;
 
 import lombok.AllArgsConstructor;
 import lombok.Setter;
+import me.oldboy.market.config.connection.ConnectionProvider;
 import me.oldboy.market.entity.prod_species.Category;
 import me.oldboy.market.repository.interfaces.CategoryDao;
 
@@ -20,10 +21,11 @@ import java.util.Optional;
 @AllArgsConstructor
 public class CategoryRepository implements CategoryDao {
     /**
-     * JDBC соединение с базой данных
+     * Источник JDBC соединений: каждая операция берет свое соединение и закрывает (возвращает) его по завершении,
+     * незафиксированная транзакция при этом откатывается
      */
     @Setter
-    private Connection connection;
+    private ConnectionProvider connectionProvider;
 
     /**
      * (SQL command) запрос на вставку (сохранение) Category entity в таблицу categories БД
@@ -75,6 +77,15 @@ public class CategoryRepository implements CategoryDao {
                     WHERE category_name = ?
                     """;
 
+    /**
+     * Создает репозиторий, все операции которого работают через одно общее соединение.
+     *
+     * @param connection JDBC соединение с базой данных
+     */
+    public CategoryRepository(Connection connection) {
+        this(ConnectionProvider.of(connection));
+    }
+
     /**
      * Создает новую запись о категории товара в базе данных.
      *
@@ -84,7 +95,8 @@ public class CategoryRepository implements CategoryDao {
     @Override
     public Optional<Category> create(Category entityWithNoId) {
         Category createdCategory = null;
-        try (PreparedStatement prepareStatement =
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement =
                      connection.prepareStatement(CREATE_CATEGORY_SQL, Statement.RETURN_GENERATED_KEYS)) {
             prepareStatement.setString(1, entityWithNoId.getName());
 
@@ -97,12 +109,7 @@ public class CategoryRepository implements CategoryDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(createdCategory);
@@ -117,7 +124,8 @@ public class CategoryRepository implements CategoryDao {
     @Override
     public Optional<Category> findById(Integer entityId) {
         Category foundCategory = null;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_CATEGORY_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_CATEGORY_BY_ID_SQL)) {
             prepareStatement.setLong(1, entityId);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 if (queryResult.next()) {
@@ -126,12 +134,7 @@ public class CategoryRepository implements CategoryDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundCategory);
@@ -146,19 +149,15 @@ public class CategoryRepository implements CategoryDao {
     @Override
     public boolean update(Category updateData) {
         Boolean isUpdated = false;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(UPDATE_CATEGORY_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(UPDATE_CATEGORY_SQL)) {
             prepareStatement.setString(1, updateData.getName());
             prepareStatement.setLong(2, updateData.getId());
 
             isUpdated = prepareStatement.executeUpdate() > 0;
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return isUpdated;
@@ -173,17 +172,13 @@ public class CategoryRepository implements CategoryDao {
     @Override
     public boolean delete(Integer entityId) {
         boolean isDeleted = false;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(DELETE_CATEGORY_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(DELETE_CATEGORY_BY_ID_SQL)) {
             prepareStatement.setLong(1, entityId);
             isDeleted = prepareStatement.executeUpdate() > 0;
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return isDeleted;
@@ -197,7 +192,8 @@ public class CategoryRepository implements CategoryDao {
     @Override
     public List<Category> findAll() {
         List<Category> findAll = new ArrayList<>();
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_ALL_CATEGORIES_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_ALL_CATEGORIES_SQL)) {
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 while (queryResult.next()) {
                     findAll.add(categoryBuild(queryResult));
@@ -205,12 +201,7 @@ public class CategoryRepository implements CategoryDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return findAll;
@@ -224,7 +215,8 @@ public class CategoryRepository implements CategoryDao {
      */
     public Optional<Category> findByName(String categoryName) {
         Category foundCategory = null;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_CATEGORY_BY_NAME_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_CATEGORY_BY_NAME_SQL)) {
             prepareStatement.setString(1, categoryName);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 if (queryResult.next()) {
@@ -233,12 +225,7 @@ public class CategoryRepository implements CategoryDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundCategory);
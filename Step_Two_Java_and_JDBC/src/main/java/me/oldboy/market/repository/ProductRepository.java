@@ -2,9 +2,11 @@ package me.oldboy.market.repository;
 
 import lombok.AllArgsConstructor;
 import lombok.Setter;
+import me.oldboy.market.config.connection.ConnectionProvider;
 import me.oldboy.market.entity.Product;
 import me.oldboy.market.entity.prod_species.Brand;
 import me.oldboy.market.entity.prod_species.Category;
+import me.oldboy.market.exceptions.RepositoryLayerException;
 import me.oldboy.market.repository.interfaces.ProductDao;
 
 import java.sql.*;
@@ -24,10 +26,11 @@ import java.util.Optional;
 @AllArgsConstructor
 public class ProductRepository implements ProductDao {
     /**
-     * JDBC соединение с базой данных
+     * Источник JDBC соединений: каждая операция берет свое соединение и закрывает (возвращает) его по завершении,
+     * незафиксированная транзакция при этом откатывается
      */
     @Setter
-    private Connection connection;
+    private ConnectionProvider connectionProvider;
 
     /**
      * (SQL command) запрос на вставку (сохранение) Product entity в таблицу products БД
@@ -100,6 +103,44 @@ public class ProductRepository implements ProductDao {
                     WHERE brand_id = ?
                     """;
 
+    /**
+     * (SQL command) запрос на проверку наличия в таблице products БД записи с заданным названием
+     * (использует индекс уникальности product_name, всегда возвращает одну строку)
+     */
+    private static final String EXISTS_PRODUCT_BY_NAME_SQL = """
+            SELECT EXISTS (SELECT 1 FROM my_market.products WHERE product_name = ?)
+            """;
+
+    /**
+     * (SQL command) запрос на получение одной записи из таблицы products БД по ее ID в заданной категории
+     */
+    private static final String FIND_PRODUCT_BY_CATEGORY_ID_AND_ID_SQL = FIND_ALL_PRODUCTS_SQL + """
+            WHERE id = ? AND category_id = ?
+            """;
+
+    /**
+     * (SQL command) запрос на получение одной записи из таблицы products БД по ее ID у заданного брэнда
+     */
+    private static final String FIND_PRODUCT_BY_BRAND_ID_AND_ID_SQL = FIND_ALL_PRODUCTS_SQL + """
+            WHERE id = ? AND brand_id = ?
+            """;
+
+    /**
+     * (SQL command) запрос на получение одной записи из таблицы products БД по названию товара у заданного брэнда
+     */
+    private static final String FIND_PRODUCT_BY_BRAND_ID_AND_NAME_SQL = FIND_ALL_PRODUCTS_SQL + """
+            WHERE product_name = ? AND brand_id = ?
+            """;
+
+    /**
+     * Создает репозиторий, все операции которого работают через одно общее соединение.
+     *
+     * @param connection JDBC соединение с базой данных
+     */
+    public ProductRepository(Connection connection) {
+        this(ConnectionProvider.of(connection));
+    }
+
     /**
      * Создает новую запись о товаре в базе данных.
      *
@@ -109,7 +150,8 @@ public class ProductRepository implements ProductDao {
     @Override
     public Optional<Product> create(Product entityWithNoId) {
         Product createdEntityWithId = null;
-        try (PreparedStatement prepareStatement =
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement =
                      connection.prepareStatement(CREATE_PRODUCTS_SQL, Statement.RETURN_GENERATED_KEYS)) {
             prepareStatement.setString(1, entityWithNoId.getName());
             prepareStatement.setDouble(2, entityWithNoId.getPrice());
@@ -129,12 +171,7 @@ public class ProductRepository implements ProductDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(createdEntityWithId);
@@ -149,7 +186,8 @@ public class ProductRepository implements ProductDao {
     @Override
     public Optional<Product> findById(Long entityId) {
         Product foundEntity = null;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_PRODUCT_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_PRODUCT_BY_ID_SQL)) {
             prepareStatement.setLong(1, entityId);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 if (queryResult.next()) {
@@ -158,12 +196,7 @@ public class ProductRepository implements ProductDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundEntity);
@@ -178,7 +211,8 @@ public class ProductRepository implements ProductDao {
     @Override
     public boolean update(Product updateData) {
         Boolean isUpdated = false;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(UPDATE_PRODUCT_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(UPDATE_PRODUCT_SQL)) {
             prepareStatement.setString(1, updateData.getName());
             prepareStatement.setDouble(2, updateData.getPrice());
             prepareStatement.setInt(3, updateData.getCategoryId());
@@ -192,12 +226,7 @@ public class ProductRepository implements ProductDao {
             isUpdated = prepareStatement.executeUpdate() > 0;
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return isUpdated;
@@ -212,17 +241,13 @@ public class ProductRepository implements ProductDao {
     @Override
     public boolean delete(Long entityId) {
         boolean isDeleted = false;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(DELETE_PRODUCT_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(DELETE_PRODUCT_BY_ID_SQL)) {
             prepareStatement.setLong(1, entityId);
             isDeleted = prepareStatement.executeUpdate() > 0;
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return isDeleted;
@@ -236,7 +261,8 @@ public class ProductRepository implements ProductDao {
     @Override
     public List<Product> findAll() {
         List<Product> findAll = new ArrayList<>();
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_ALL_PRODUCTS_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_ALL_PRODUCTS_SQL)) {
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 while (queryResult.next()) {
                     findAll.add(productBuild(queryResult));
@@ -244,12 +270,7 @@ public class ProductRepository implements ProductDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return findAll;
@@ -264,7 +285,8 @@ public class ProductRepository implements ProductDao {
      */
     public Optional<List<Product>> findByCategoryId(Integer categoryId) {
         List<Product> foundRecords = new ArrayList<>();
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_PRODUCTS_BY_CATEGORY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_PRODUCTS_BY_CATEGORY_ID_SQL)) {
             prepareStatement.setInt(1, categoryId);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 while (queryResult.next()) {
@@ -273,12 +295,7 @@ public class ProductRepository implements ProductDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundRecords);
@@ -293,7 +310,8 @@ public class ProductRepository implements ProductDao {
      */
     public Optional<List<Product>> findByBrandId(Integer brandId) {
         List<Product> foundRecords = new ArrayList<>();
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_PRODUCTS_BY_BRAND_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_PRODUCTS_BY_BRAND_ID_SQL)) {
             prepareStatement.setLong(1, brandId);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 while (queryResult.next()) {
@@ -302,17 +320,100 @@ public class ProductRepository implements ProductDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundRecords);
     }
 
+    /**
+     * Проверяет, есть ли в базе данных товар с заданным названием.
+     *
+     * В отличие от выборок, ошибку БД не скрывает: по ответу решается, можно ли сохранить товар.
+     *
+     * @param productName название товара
+     * @return true - товар с таким названием есть в БД, false - в противном случае
+     * @throws RepositoryLayerException если проверить наличие товара не удалось
+     */
+    public boolean existsByName(String productName) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(EXISTS_PRODUCT_BY_NAME_SQL)) {
+            prepareStatement.setString(1, productName);
+            boolean exists;
+            try (ResultSet queryResult = prepareStatement.executeQuery()) {
+                exists = queryResult.next() && queryResult.getBoolean(1);
+            }
+            connection.commit();
+            return exists;
+        } catch (SQLException sqlException) {
+            throw new RepositoryLayerException("Не удалось проверить наличие товара с названием " + productName,
+                    sqlException);
+        }
+    }
+
+    /**
+     * Находит товар по идентификатору, если он относится к заданной категории.
+     *
+     * @param categoryId идентификатор категории товара
+     * @param productId  идентификатор товара
+     * @return Optional с найденным товаром, empty - если товара нет или он из другой категории
+     */
+    public Optional<Product> findByCategoryIdAndId(Integer categoryId, Long productId) {
+        return findOne(FIND_PRODUCT_BY_CATEGORY_ID_AND_ID_SQL, productId, categoryId);
+    }
+
+    /**
+     * Находит товар по идентификатору, если он относится к заданному брэнду.
+     *
+     * @param brandId   идентификатор брэнда товара
+     * @param productId идентификатор товара
+     * @return Optional с найденным товаром, empty - если товара нет или он другого брэнда
+     */
+    public Optional<Product> findByBrandIdAndId(Integer brandId, Long productId) {
+        return findOne(FIND_PRODUCT_BY_BRAND_ID_AND_ID_SQL, productId, brandId);
+    }
+
+    /**
+     * Находит товар по названию, если он относится к заданному брэнду.
+     *
+     * @param brandId     идентификатор брэнда товара
+     * @param productName название товара
+     * @return Optional с найденным товаром, empty - если товара нет или он другого брэнда
+     */
+    public Optional<Product> findByBrandIdAndName(Integer brandId, String productName) {
+        return findOne(FIND_PRODUCT_BY_BRAND_ID_AND_NAME_SQL, productName, brandId);
+    }
+
+    /**
+     * Выполняет запрос, возвращающий не более одной записи о товаре.
+     *
+     * @param selectSql  SQL запрос с двумя параметрами
+     * @param firstParam значение первого параметра запроса - ID или название товара
+     * @param groupId    значение второго параметра - идентификатор категории или брэнда
+     * @return Optional с найденным товаром, empty - если запрос ничего не вернул или параметр не задан (null)
+     */
+    private Optional<Product> findOne(String selectSql, Object firstParam, Integer groupId) {
+        if (firstParam == null || groupId == null) {
+            return Optional.empty();
+        }
+        Product foundEntity = null;
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(selectSql)) {
+            prepareStatement.setObject(1, firstParam);
+            prepareStatement.setInt(2, groupId);
+            try (ResultSet queryResult = prepareStatement.executeQuery()) {
+                if (queryResult.next()) {
+                    foundEntity = productBuild(queryResult);
+                }
+            }
+            connection.commit();
+        } catch (SQLException sqlException) {
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
+            sqlException.printStackTrace();
+        }
+        return Optional.ofNullable(foundEntity);
+    }
+
     /**
      * Создает объект Product из ResultSet.
      *
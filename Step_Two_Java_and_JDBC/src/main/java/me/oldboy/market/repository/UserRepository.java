@@ -2,6 +2,7 @@ package me.oldboy.market.repository;
 
 import lombok.AllArgsConstructor;
 import lombok.Setter;
+import me.oldboy.market.config.connection.ConnectionProvider;
 import me.oldboy.market.entity.User;
 import me.oldboy.market.entity.enums.Role;
 import me.oldboy.market.repository.interfaces.UserDao;
@@ -22,10 +23,11 @@ import java.util.Optional;
 @AllArgsConstructor
 public class UserRepository implements UserDao {
     /**
-     * JDBC соединение с базой данных
+     * Источник JDBC соединений: каждая операция берет свое соединение и закрывает (возвращает) его по завершении,
+     * незафиксированная транзакция при этом откатывается
      */
     @Setter
-    private Connection connection;
+    private ConnectionProvider connectionProvider;
 
     /**
      * SQL запрос для создания нового пользователя
@@ -84,6 +86,15 @@ public class UserRepository implements UserDao {
                     WHERE email = ?
                     """;
 
+    /**
+     * Создает репозиторий, все операции которого работают через одно общее соединение.
+     *
+     * @param connection JDBC соединение с базой данных
+     */
+    public UserRepository(Connection connection) {
+        this(ConnectionProvider.of(connection));
+    }
+
     /**
      * Создает нового пользователя в базе данных.
      *
@@ -93,7 +104,8 @@ public class UserRepository implements UserDao {
     @Override
     public Optional<User> create(User user) {
         User createdUser = null;
-        try (PreparedStatement prepareStatement =
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement =
                      connection.prepareStatement(CREATE_USER_SQL, Statement.RETURN_GENERATED_KEYS)) {
             prepareStatement.setString(1, user.getEmail());
             prepareStatement.setString(2, user.getPassword());
@@ -108,12 +120,7 @@ public class UserRepository implements UserDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(createdUser);
@@ -128,7 +135,8 @@ public class UserRepository implements UserDao {
     @Override
     public Optional<User> findById(Long entityId) {
         User foundUser = null;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_USER_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_USER_BY_ID_SQL)) {
             prepareStatement.setLong(1, entityId);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 if (queryResult.next()) {
@@ -137,12 +145,7 @@ public class UserRepository implements UserDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundUser);
@@ -157,7 +160,8 @@ public class UserRepository implements UserDao {
     @Override
     public boolean update(User updateData) {
         Boolean isUserUpdated = false;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(UPDATE_USER_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(UPDATE_USER_SQL)) {
             prepareStatement.setString(1, updateData.getEmail());
             prepareStatement.setString(2, updateData.getPassword());
             prepareStatement.setString(3, updateData.getRole().name());
@@ -166,12 +170,7 @@ public class UserRepository implements UserDao {
             isUserUpdated = prepareStatement.executeUpdate() > 0;
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return isUserUpdated;
@@ -186,17 +185,13 @@ public class UserRepository implements UserDao {
     @Override
     public boolean delete(Long entityId) {
         boolean isUserDeleted = false;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(DELETE_USER_BY_ID_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(DELETE_USER_BY_ID_SQL)) {
             prepareStatement.setLong(1, entityId);
             isUserDeleted = prepareStatement.executeUpdate() > 0;
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return isUserDeleted;
@@ -210,7 +205,8 @@ public class UserRepository implements UserDao {
     @Override
     public List<User> findAll() {
         List<User> findAll = new ArrayList<>();
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_ALL_USERS_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_ALL_USERS_SQL)) {
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 while (queryResult.next()) {
                     findAll.add(userBuild(queryResult));
@@ -218,12 +214,7 @@ public class UserRepository implements UserDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return findAll;
@@ -237,7 +228,8 @@ public class UserRepository implements UserDao {
      */
     public Optional<User> findByEmail(String email) {
         User foundUser = null;
-        try (PreparedStatement prepareStatement = connection.prepareStatement(FIND_USER_BY_EMAIL_SQL)) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement prepareStatement = connection.prepareStatement(FIND_USER_BY_EMAIL_SQL)) {
             prepareStatement.setString(1, email);
             try (ResultSet queryResult = prepareStatement.executeQuery()) {
                 if (queryResult.next()) {
@@ -246,12 +238,7 @@ public class UserRepository implements UserDao {
             }
             connection.commit();
         } catch (SQLException sqlException) {
-            try {
-                connection.rollback();
-                System.out.println("Произошел rollback транзакции");
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            System.out.println("Ошибка запроса к БД, незафиксированные изменения отменены при закрытии соединения");
             sqlException.printStackTrace();
         }
         return Optional.ofNullable(foundUser);
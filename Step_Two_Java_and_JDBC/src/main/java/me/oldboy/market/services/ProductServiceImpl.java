@@ -2,6 +2,7 @@ package me.oldboy.market.services;
 
 import lombok.AllArgsConstructor;
 import me.oldboy.market.entity.Product;
+import me.oldboy.market.exceptions.RepositoryLayerException;
 import me.oldboy.market.exceptions.ServiceLayerException;
 import me.oldboy.market.repository.BrandRepository;
 import me.oldboy.market.repository.CategoryRepository;
@@ -65,12 +66,15 @@ public class ProductServiceImpl implements ProductService {
      *
      * @param productName название товара для проверки
      * @return true - название уникально, false - товар с таким названием уже существует в БД
+     * @throws ServiceLayerException если проверить уникальность не удалось (ошибка БД)
      */
     @Override
     public boolean isProductNameUnique(String productName) {
-        return findAll()
-                .stream()
-                .noneMatch(product -> product.getName().equals(productName));
+        try {
+            return !productRepository.existsByName(productName);
+        } catch (RepositoryLayerException e) {
+            throw new ServiceLayerException("Не удалось проверить уникальность имени продукта " + productName, e);
+        }
     }
 
     /**
@@ -152,11 +156,7 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public Product findProductByCategoryAndId(Integer categoryId, Long productId) {
         return productRepository
-                .findByCategoryId(categoryId)
-                .get()
-                .stream()
-                .filter(product -> product.getId().equals(productId))
-                .findAny()
+                .findByCategoryIdAndId(categoryId, productId)
                 .orElse(null);
     }
 
@@ -170,11 +170,7 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public Product findProductByBrandAndId(Integer brandId, Long productId) {
         return productRepository
-                .findByBrandId(brandId)
-                .get()
-                .stream()
-                .filter(product -> product.getId().equals(productId))
-                .findAny()
+                .findByBrandIdAndId(brandId, productId)
                 .orElse(null);
     }
 
@@ -188,11 +184,7 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public Product findProductByBrandAndName(Integer brandId, String name) {
         return productRepository
-                .findByBrandId(brandId)
-                .get()
-                .stream()
-                .filter(product -> product.getName().equals(name))
-                .findAny()
+                .findByBrandIdAndName(brandId, name)
                 .orElse(null);
     }
 
@@ -0,0 +1,118 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.config.connection.ConnectionManager;
+import me.oldboy.market.config.connection.ConnectionProvider;
+import me.oldboy.market.config.connection.DbConnectionPool;
+import me.oldboy.market.config.connection.PoolSettings;
+import me.oldboy.market.config.connection.PoolStats;
+import me.oldboy.market.config.liquibase.LiquibaseManager;
+import me.oldboy.market.config.utils.PropertiesReader;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.repository.ProductRepository;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пропускная способность ProductRepository при конкурентных вызовах: одно общее соединение (как раньше
+ * в ContextApp) против пула {@link DbConnectionPool}. Нагрузка - 90% findById, 10% update найденного товара,
+ * на 1, 2, 4 ... N потоках; БД - PostgreSQL в Testcontainers.
+ * <p>
+ * Запуск: gradlew poolBenchmark (или -Pthreads=32 -PpoolSize=10 -PsecondsPerRun=5), нужен запущенный Docker.
+ */
+public class ConnectionPoolBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = Integer.getInteger("threads", 32);
+        int poolSize = Integer.getInteger("poolSize", 10);
+        int secondsPerRun = Integer.getInteger("secondsPerRun", 5);
+
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:14")
+                .withDatabaseName("test_db").withUsername("test").withPassword("test")) {
+            postgres.start();
+            try (Connection migration = ConnectionManager.getTestBaseConnection(postgres.getJdbcUrl(),
+                    postgres.getUsername(), postgres.getPassword())) {
+                LiquibaseManager.getInstance(new PropertiesReader()).migrationsStart(migration);
+            }
+
+            System.out.println("Ядер: " + Runtime.getRuntime().availableProcessors() + ", размер пула: " + poolSize
+                    + ", длительность прогона: " + secondsPerRun + " c");
+            System.out.printf("%8s | %22s | %22s | %8s | %18s%n",
+                    "потоков", "одно соединение, оп/с", "пул, оп/с", "рост", "ожидание пула, мс");
+
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double single;
+                try (Connection shared = ConnectionManager.getTestBaseConnection(postgres.getJdbcUrl(),
+                        postgres.getUsername(), postgres.getPassword())) {
+                    shared.setAutoCommit(false);
+                    single = run(ConnectionProvider.of(shared), threads, secondsPerRun);
+                }
+
+                double pooled;
+                PoolStats stats;
+                try (DbConnectionPool pool = ConnectionManager.getTestConnectionPool(postgres.getJdbcUrl(),
+                        postgres.getUsername(), postgres.getPassword(),
+                        PoolSettings.builder().minSize(poolSize).maxSize(poolSize).build())) {
+                    pooled = run(pool, threads, secondsPerRun);
+                    stats = pool.getStats();
+                }
+                System.out.printf("%8d | %22.0f | %22.0f | %7.2fx | %8.3f (max %4d)%n", threads, single, pooled,
+                        pooled / single, stats.averageWaitMillis(), stats.getMaxWaitNanos() / 1_000_000);
+            }
+        }
+    }
+
+    private static double run(ConnectionProvider connections, int threads, int seconds) throws InterruptedException {
+        ProductRepository productRepository = new ProductRepository(connections);
+        List<Product> products = productRepository.findAll();
+        if (products.isEmpty()) {
+            throw new IllegalStateException("No products in the test database");
+        }
+
+        LongAdder operations = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (running.get()) {
+                    Long id = products.get(random.nextInt(products.size())).getId();
+                    if (random.nextInt(10) == 0) {
+                        productRepository.findById(id).ifPresent(productRepository::update);
+                    } else {
+                        productRepository.findById(id);
+                    }
+                    operations.increment();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        /* Прогрев - первая секунда не считается */
+        start.countDown();
+        Thread.sleep(1_000);
+        long before = operations.sum();
+        long started = System.nanoTime();
+        Thread.sleep(seconds * 1_000L);
+        long done = operations.sum() - before;
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return done / elapsed;
+    }
+}
@@ -0,0 +1,99 @@
+package me.oldboy.market.benchmark;
+
+import me.oldboy.market.config.connection.ConnectionManager;
+import me.oldboy.market.config.connection.DbConnectionPool;
+import me.oldboy.market.config.connection.PoolSettings;
+import me.oldboy.market.config.connection.PoolStats;
+import me.oldboy.market.config.liquibase.LiquibaseManager;
+import me.oldboy.market.config.utils.PropertiesReader;
+import me.oldboy.market.entity.Product;
+import me.oldboy.market.repository.ProductRepository;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongConsumer;
+
+/**
+ * Задержка ProductRepository.findById и create с кэшем подготовленных запросов пула и без него
+ * (statementCacheSize = 0 - каждый вызов заново готовит запрос, как было до кэша). БД - PostgreSQL в Testcontainers.
+ * <p>
+ * Запуск: gradlew statementCacheBenchmark (или -Piterations=20000 -PcacheSize=32), нужен запущенный Docker.
+ */
+public class StatementCacheBenchmark {
+    private static final int WARMUP = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = Integer.getInteger("iterations", 20_000);
+        int cacheSize = Integer.getInteger("cacheSize", 32);
+
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:14")
+                .withDatabaseName("test_db").withUsername("test").withPassword("test")) {
+            postgres.start();
+            try (Connection migration = ConnectionManager.getTestBaseConnection(postgres.getJdbcUrl(),
+                    postgres.getUsername(), postgres.getPassword())) {
+                LiquibaseManager.getInstance(new PropertiesReader()).migrationsStart(migration);
+            }
+
+            System.out.println("Вызовов на замер: " + iterations + ", размер кэша: " + cacheSize);
+            System.out.printf("%-10s | %-10s | %10s | %10s | %10s | %10s%n",
+                    "операция", "кэш", "средн., мкс", "p50, мкс", "p99, мкс", "попадания");
+
+            for (int size : new int[]{0, cacheSize}) {
+                try (DbConnectionPool pool = ConnectionManager.getTestConnectionPool(postgres.getJdbcUrl(),
+                        postgres.getUsername(), postgres.getPassword(),
+                        PoolSettings.builder().minSize(1).maxSize(1).statementCacheSize(size).build())) {
+                    ProductRepository productRepository = new ProductRepository(pool);
+                    List<Product> products = productRepository.findAll();
+                    if (products.isEmpty()) {
+                        throw new IllegalStateException("No products in the test database");
+                    }
+                    Product sample = products.get(0);
+                    String label = size == 0 ? "выключен" : String.valueOf(size);
+
+                    measure("findById", label, pool, iterations, i ->
+                            productRepository.findById(products.get(ThreadLocalRandom.current()
+                                    .nextInt(products.size())).getId()));
+                    measure("create", label, pool, iterations, i ->
+                            productRepository.create(Product.builder()
+                                    .name("Benchmark " + label + " " + i)
+                                    .price(sample.getPrice())
+                                    .categoryId(sample.getCategoryId())
+                                    .brandId(sample.getBrandId())
+                                    .description(sample.getDescription())
+                                    .stockQuantity(1)
+                                    .creationAt(LocalDateTime.now())
+                                    .modifiedAt(LocalDateTime.now())
+                                    .build()));
+                }
+            }
+        }
+    }
+
+    private static void measure(String operation, String label, DbConnectionPool pool, int iterations,
+                                LongConsumer call) {
+        for (int i = 0; i < WARMUP; i++) {
+            call.accept(-1 - i);
+        }
+        PoolStats before = pool.getStats();
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long started = System.nanoTime();
+            call.accept(i);
+            nanos[i] = System.nanoTime() - started;
+        }
+        PoolStats after = pool.getStats();
+        long hits = after.getStatementCacheHits() - before.getStatementCacheHits();
+        long misses = after.getStatementCacheMisses() - before.getStatementCacheMisses();
+
+        Arrays.sort(nanos);
+        System.out.printf("%-10s | %-10s | %10.1f | %10.1f | %10.1f | %9.1f%%%n", operation, label,
+                Arrays.stream(nanos).average().orElse(0) / 1_000.0,
+                nanos[iterations / 2] / 1_000.0,
+                nanos[(int) (iterations * 0.99)] / 1_000.0,
+                hits + misses == 0 ? 0 : 100.0 * hits / (hits + misses));
+    }
+}
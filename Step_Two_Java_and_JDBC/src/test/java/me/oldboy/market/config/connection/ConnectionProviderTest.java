@@ -0,0 +1,40 @@
+package me.oldboy.market.config.connection;
+
+import me.oldboy.market.config.connection.DbConnectionPoolTest.FakeConnection;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionProviderTest {
+
+    @Test
+    void of_shouldShareOneConnection_andKeepItOpenAfterClose_Test() throws SQLException {
+        FakeConnection fake = new FakeConnection();
+        ConnectionProvider provider = ConnectionProvider.of(fake.proxy());
+
+        try (Connection connection = provider.getConnection()) {
+            connection.commit();
+        }
+        try (Connection connection = provider.getConnection()) {
+            assertThat(connection.isClosed()).isFalse();
+        }
+
+        assertThat(fake.closed).isFalse();
+        assertThat(fake.rollbacks).isEqualTo(0);
+    }
+
+    @Test
+    void of_shouldRollBackUncommittedWork_whenConnectionIsClosed_Test() throws SQLException {
+        FakeConnection fake = new FakeConnection();
+        fake.autoCommit = false;
+        ConnectionProvider provider = ConnectionProvider.of(fake.proxy());
+
+        provider.getConnection().close();
+
+        assertThat(fake.rollbacks).isEqualTo(1);
+        assertThat(fake.closed).isFalse();
+    }
+}
@@ -0,0 +1,308 @@
+package me.oldboy.market.config.connection;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGStatement;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DbConnectionPoolTest {
+    private final List<FakeConnection> opened = new ArrayList<>();
+    private DbConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void getConnection_shouldReuseReturnedConnection_andOpenItWithoutAutoCommit_Test() throws SQLException {
+        pool = pool(PoolSettings.builder().minSize(0).maxSize(2).build());
+
+        Connection first = pool.getConnection();
+        first.close();
+        Connection second = pool.getConnection();
+
+        assertThat(opened).hasSize(1);
+        assertThat(second.getAutoCommit()).isFalse();
+        assertThat(second).isNotSameAs(first);
+        assertThat(first.isClosed()).isTrue();
+        assertThatThrownBy(first::commit).isInstanceOf(SQLException.class);
+
+        PoolStats stats = pool.getStats();
+        assertThat(stats.getBorrows()).isEqualTo(2);
+        assertThat(stats.getCreated()).isEqualTo(1);
+        assertThat(stats.getActive()).isEqualTo(1);
+        assertThat(stats.getTotal()).isEqualTo(1);
+    }
+
+    @Test
+    void constructor_shouldOpenMinimumConnections_Test() {
+        pool = pool(PoolSettings.builder().minSize(3).maxSize(5).build());
+
+        assertThat(opened).hasSize(3);
+        assertThat(pool.getStats().getIdle()).isEqualTo(3);
+    }
+
+    @Test
+    void close_ofBorrowedConnection_shouldRollBackUncommittedWork_Test() throws SQLException {
+        pool = pool(PoolSettings.builder().minSize(1).maxSize(1).build());
+
+        try (Connection connection = pool.getConnection()) {
+            connection.prepareStatement("UPDATE my_market.products SET price = 0");
+        }
+
+        assertThat(opened.get(0).rollbacks).isEqualTo(1);
+        assertThat(opened.get(0).closed).isFalse();
+        assertThat(pool.getStats().getIdle()).isEqualTo(1);
+    }
+
+    @Test
+    void getConnection_shouldTimeOut_whenPoolIsExhausted_Test() throws SQLException {
+        pool = pool(PoolSettings.builder().minSize(0).maxSize(1).maxWaitMillis(50).build());
+        Connection held = pool.getConnection();
+
+        assertThatThrownBy(pool::getConnection).isInstanceOf(SQLTimeoutException.class)
+                .hasMessageContaining("timed out after 50 ms");
+
+        held.close();
+        assertThat(pool.getStats().getTimeouts()).isEqualTo(1);
+        assertThat(opened).hasSize(1);
+    }
+
+    @Test
+    void getConnection_shouldWaitForReturnedConnection_andCountWaitTime_Test() throws Exception {
+        pool = pool(PoolSettings.builder().minSize(0).maxSize(1).maxWaitMillis(5_000).build());
+        Connection held = pool.getConnection();
+
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.getConnection();
+            } catch (SQLException exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+        while (pool.getStats().getWaiting() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20);
+        held.close();
+
+        Connection received = waiter.get(5, TimeUnit.SECONDS);
+        assertThat(received.isClosed()).isFalse();
+        assertThat(opened).hasSize(1);
+        assertThat(pool.getStats().getMaxWaitNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        received.close();
+    }
+
+    @Test
+    void getConnection_shouldReplaceBrokenConnection_onBorrow_Test() throws SQLException {
+        pool = pool(PoolSettings.builder().minSize(1).maxSize(1).validationIntervalMillis(0).build());
+        opened.get(0).valid = false;
+
+        try (Connection connection = pool.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+        }
+
+        assertThat(opened).hasSize(2);
+        assertThat(opened.get(0).closed).isTrue();
+        assertThat(pool.getStats().getDestroyed()).isEqualTo(1);
+        assertThat(pool.getStats().getTotal()).isEqualTo(1);
+    }
+
+    @Test
+    void housekeep_shouldCloseIdleConnections_downToMinimum_Test() throws SQLException {
+        pool = pool(PoolSettings.builder().minSize(1).maxSize(3).idleTimeoutMillis(0).build());
+        List<Connection> borrowed = List.of(pool.getConnection(), pool.getConnection(), pool.getConnection());
+        for (Connection connection : borrowed) {
+            connection.close();
+        }
+
+        pool.housekeep();
+
+        assertThat(pool.getStats().getTotal()).isEqualTo(1);
+        assertThat(pool.getStats().getIdle()).isEqualTo(1);
+        assertThat(opened.stream().filter(connection -> connection.closed).count()).isEqualTo(2);
+    }
+
+    @Test
+    void housekeep_shouldRefillPool_upToMinimum_Test() throws SQLException {
+        pool = pool(PoolSettings.builder().minSize(2).maxSize(2).validationIntervalMillis(0).build());
+        opened.get(0).valid = false;
+        opened.get(1).valid = false;
+        pool.getConnection().close();
+
+        pool.housekeep();
+
+        assertThat(pool.getStats().getTotal()).isEqualTo(2);
+        assertThat(pool.getStats().getIdle()).isEqualTo(2);
+    }
+
+    @Test
+    void housekeep_shouldReportLeakedConnectionOnce_Test() throws Exception {
+        pool = pool(PoolSettings.builder().minSize(0).maxSize(1).leakDetectionMillis(1).build());
+        Connection leaked = pool.getConnection();
+        Thread.sleep(5);
+
+        pool.housekeep();
+        pool.housekeep();
+
+        assertThat(pool.getStats().getLeaks()).isEqualTo(1);
+        leaked.close();
+        assertThat(pool.getStats().getIdle()).isEqualTo(1);
+    }
+
+    @Test
+    void close_shouldCloseIdleConnections_andConnectionsReturnedLater_Test() throws SQLException {
+        pool = pool(PoolSettings.builder().minSize(2).maxSize(2).build());
+        Connection borrowed = pool.getConnection();
+
+        pool.close();
+        borrowed.close();
+
+        assertThat(opened).allMatch(connection -> connection.closed);
+        assertThat(pool.getStats().getTotal()).isEqualTo(0);
+        assertThatThrownBy(pool::getConnection).isInstanceOf(SQLException.class).hasMessage("Connection pool is closed");
+    }
+
+    @Test
+    void constructor_shouldFail_whenDatabaseIsUnavailable_Test() {
+        assertThatThrownBy(() -> new DbConnectionPool(() -> {
+            throw new SQLException("Connection refused");
+        }, PoolSettings.builder().build()))
+                .isInstanceOf(RuntimeException.class)
+                .hasCauseInstanceOf(SQLException.class);
+    }
+
+    private DbConnectionPool pool(PoolSettings settings) {
+        return new DbConnectionPool(() -> {
+            FakeConnection fake = new FakeConnection();
+            opened.add(fake);
+            return fake.proxy();
+        }, settings);
+    }
+
+    /**
+     * Физическое соединение без БД: хранит состояние, которое проверяют тесты
+     */
+    static class FakeConnection {
+        boolean autoCommit = true;
+        boolean closed;
+        boolean valid = true;
+        int rollbacks;
+        final List<FakeStatement> prepared = new ArrayList<>();
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> {
+                            autoCommit = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            rollbacks++;
+                            yield null;
+                        }
+                        case "close" -> {
+                            closed = true;
+                            prepared.forEach(statement -> statement.closed = true);
+                            yield null;
+                        }
+                        case "prepareStatement" -> {
+                            FakeStatement statement = new FakeStatement((String) args[0]);
+                            prepared.add(statement);
+                            yield statement.proxy();
+                        }
+                        case "isClosed" -> closed;
+                        case "isValid" -> valid && !closed;
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+        }
+    }
+
+    /**
+     * Подготовленный запрос без БД (как у драйвера PostgreSQL - с порогом серверной подготовки)
+     */
+    static class FakeStatement {
+        final String sql;
+        boolean closed;
+        int executions;
+        int clears;
+        int prepareThreshold = 5;
+        int openResults;
+
+        FakeStatement(String sql) {
+            this.sql = sql;
+        }
+
+        PreparedStatement proxy() {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class, PGStatement.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "executeUpdate" -> {
+                            executions++;
+                            yield 1;
+                        }
+                        case "executeQuery" -> {
+                            executions++;
+                            openResults++;
+                            yield resultSet();
+                        }
+                        case "clearParameters" -> {
+                            clears++;
+                            yield null;
+                        }
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> closed;
+                        case "isWrapperFor" -> ((Class<?>) args[0]).isInstance(proxy);
+                        case "unwrap" -> proxy;
+                        case "setPrepareThreshold" -> {
+                            prepareThreshold = (Integer) args[0];
+                            yield null;
+                        }
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+        }
+
+        private ResultSet resultSet() {
+            boolean[] closed = {false};
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                openResults--;
+                            }
+                            yield null;
+                        }
+                        case "isClosed" -> closed[0];
+                        case "next" -> false;
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+        }
+    }
+}
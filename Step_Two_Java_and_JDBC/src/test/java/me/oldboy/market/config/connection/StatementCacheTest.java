@@ -0,0 +1,158 @@
+package me.oldboy.market.config.connection;
+
+import me.oldboy.market.config.connection.DbConnectionPoolTest.FakeConnection;
+import me.oldboy.market.config.connection.DbConnectionPoolTest.FakeStatement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatementCacheTest {
+    private static final String FIND_SQL = "SELECT * FROM my_market.products WHERE id = ?";
+    private static final String CREATE_SQL = "INSERT INTO my_market.products (product_name) VALUES (?)";
+    private static final String DELETE_SQL = "DELETE FROM my_market.products WHERE id = ?";
+
+    private final FakeConnection fake = new FakeConnection();
+    private DbConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void prepareStatement_shouldReuseStatement_acrossConnectionLeases_Test() throws SQLException {
+        pool = pool(32);
+
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(FIND_SQL)) {
+            statement.setLong(1, 1L);
+            statement.executeUpdate();
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(FIND_SQL)) {
+            assertThat(statement.getConnection()).isSameAs(connection);
+            statement.executeUpdate();
+        }
+
+        assertThat(fake.prepared).hasSize(1);
+        FakeStatement prepared = fake.prepared.get(0);
+        assertThat(prepared.executions).isEqualTo(2);
+        assertThat(prepared.clears).isEqualTo(2);
+        assertThat(prepared.closed).isFalse();
+        assertThat(prepared.prepareThreshold).isEqualTo(2);
+
+        PoolStats stats = pool.getStats();
+        assertThat(stats.getStatementCacheHits()).isEqualTo(1);
+        assertThat(stats.getStatementCacheMisses()).isEqualTo(1);
+        assertThat(stats.statementCacheHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void statementClose_shouldCloseResultSetsLeftOpen_beforeReturningToCache_Test() throws SQLException {
+        pool = pool(32);
+
+        try (Connection connection = pool.getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(FIND_SQL);
+            ResultSet forgotten = statement.executeQuery();
+            statement.executeQuery().close();
+            assertThat(fake.prepared.get(0).openResults).isEqualTo(1);
+
+            statement.close();
+
+            assertThat(forgotten.isClosed()).isTrue();
+            assertThat(fake.prepared.get(0).openResults).isZero();
+            assertThat(fake.prepared.get(0).closed).isFalse();
+        }
+    }
+
+    @Test
+    void prepareStatement_shouldKeepSeparateEntries_forGeneratedKeys_Test() throws SQLException {
+        pool = pool(32);
+
+        try (Connection connection = pool.getConnection()) {
+            connection.prepareStatement(CREATE_SQL, Statement.RETURN_GENERATED_KEYS).close();
+            connection.prepareStatement(CREATE_SQL).close();
+            connection.prepareStatement(CREATE_SQL, Statement.RETURN_GENERATED_KEYS).close();
+        }
+
+        assertThat(fake.prepared).hasSize(2);
+        assertThat(pool.getStats().getStatementCacheHits()).isEqualTo(1);
+    }
+
+    @Test
+    void prepareStatement_shouldEvictLeastRecentlyUsedStatement_Test() throws SQLException {
+        pool = pool(2);
+
+        try (Connection connection = pool.getConnection()) {
+            connection.prepareStatement(FIND_SQL).close();
+            connection.prepareStatement(CREATE_SQL).close();
+            connection.prepareStatement(FIND_SQL).close();
+            connection.prepareStatement(DELETE_SQL).close();
+            connection.prepareStatement(FIND_SQL).close();
+        }
+
+        assertThat(fake.prepared).extracting(statement -> statement.sql)
+                .containsExactly(FIND_SQL, CREATE_SQL, DELETE_SQL);
+        assertThat(fake.prepared.get(1).closed).isTrue();
+        assertThat(fake.prepared.get(0).closed).isFalse();
+        assertThat(pool.getStats().getStatementCacheEvictions()).isEqualTo(1);
+        assertThat(pool.getStats().getStatementCacheHits()).isEqualTo(2);
+    }
+
+    @Test
+    void prepareStatement_shouldNotShareStatement_alreadyOpenOnConnection_Test() throws SQLException {
+        pool = pool(32);
+
+        try (Connection connection = pool.getConnection();
+             PreparedStatement outer = connection.prepareStatement(FIND_SQL);
+             PreparedStatement inner = connection.prepareStatement(FIND_SQL)) {
+            assertThat(inner).isNotSameAs(outer);
+        }
+
+        assertThat(fake.prepared).hasSize(2);
+        assertThat(fake.prepared.get(0).closed).isFalse();
+        assertThat(fake.prepared.get(1).closed).isTrue();
+    }
+
+    @Test
+    void connectionReturn_shouldReclaimStatementsLeftOpen_Test() throws SQLException {
+        pool = pool(32);
+        Connection first = pool.getConnection();
+        PreparedStatement forgotten = first.prepareStatement(FIND_SQL);
+        first.close();
+
+        assertThatThrownBy(forgotten::executeUpdate).isInstanceOf(SQLException.class).hasMessage("Statement is closed");
+        try (Connection second = pool.getConnection()) {
+            second.prepareStatement(FIND_SQL).close();
+        }
+        assertThat(fake.prepared).hasSize(1);
+        assertThat(pool.getStats().getStatementCacheHits()).isEqualTo(1);
+    }
+
+    @Test
+    void zeroCacheSize_shouldPrepareEveryTime_Test() throws SQLException {
+        pool = pool(0);
+
+        try (Connection connection = pool.getConnection()) {
+            connection.prepareStatement(FIND_SQL).close();
+            connection.prepareStatement(FIND_SQL).close();
+        }
+
+        assertThat(fake.prepared).hasSize(2);
+        assertThat(fake.prepared).allMatch(statement -> statement.closed && statement.prepareThreshold == 5);
+        assertThat(pool.getStats().statementCacheHitRate()).isEqualTo(0.0);
+    }
+
+    private DbConnectionPool pool(int statementCacheSize) {
+        return new DbConnectionPool(fake::proxy, PoolSettings.builder().minSize(1).maxSize(1)
+                .statementCacheSize(statementCacheSize).build());
+    }
+}
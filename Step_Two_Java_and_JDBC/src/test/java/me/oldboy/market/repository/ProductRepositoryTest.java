@@ -5,21 +5,26 @@ import me.oldboy.market.config.liquibase.LiquibaseManager;
 import me.oldboy.market.config.utils.ConfigProvider;
 import me.oldboy.market.config.utils.PropertiesReader;
 import me.oldboy.market.entity.Product;
+import me.oldboy.market.exceptions.RepositoryLayerException;
+import me.oldboy.market.test_container.FetchedRowsCounter;
 import me.oldboy.market.test_container.PostgresTestContainer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertAll;
 
 class ProductRepositoryTest extends PostgresTestContainer {
     private ProductRepository productRepository;
+    private FetchedRowsCounter fetchedRows;
     private Connection connection;
     private LiquibaseManager liquibaseManager;
     private Product createNewProduct, updateProduct;
@@ -36,7 +41,8 @@ class ProductRepositoryTest extends PostgresTestContainer {
         liquibaseManager = LiquibaseManager.getInstance(configProvider);
         liquibaseManager.migrationsStart(connection);
 
-        productRepository = new ProductRepository(connection);
+        fetchedRows = new FetchedRowsCounter();
+        productRepository = new ProductRepository(fetchedRows.provider(connection));
 
         /* Предварительные тестовые данные */
         existId = 1L;
@@ -218,4 +224,71 @@ class ProductRepositoryTest extends PostgresTestContainer {
         Optional<List<Product>> byBrandList = productRepository.findByBrandId(brandId);
         assertThat(byBrandList.get().size()).isEqualTo(0);
     }
-}
\ No newline at end of file
+
+    /* Выборки одной записи: фильтрует БД, репозиторий читает не больше одной строки */
+
+    @Test
+    void existsByName_shouldCheckName_readingOneRow_Test() {
+        assertThat(productRepository.existsByName("Парка")).isTrue();
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(1);
+
+        fetchedRows.reset();
+        assertThat(productRepository.existsByName("Ледоруб")).isFalse();
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(1);
+    }
+
+    @Test
+    void findByCategoryIdAndId_shouldReturnProduct_onlyFromGivenCategory_Test() {
+        Optional<Product> found = productRepository.findByCategoryIdAndId(2, existId);
+        assertThat(found.isPresent()).isTrue();
+        assertThat(found.get().getId()).isEqualTo(existId);
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(1);
+
+        fetchedRows.reset();
+        assertThat(productRepository.findByCategoryIdAndId(1, existId).isEmpty()).isTrue();
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(0);
+    }
+
+    @Test
+    void findByBrandIdAndId_shouldReturnProduct_onlyOfGivenBrand_Test() {
+        Optional<Product> found = productRepository.findByBrandIdAndId(4, existId);
+        assertThat(found.isPresent()).isTrue();
+        assertThat(found.get().getId()).isEqualTo(existId);
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(1);
+
+        fetchedRows.reset();
+        assertThat(productRepository.findByBrandIdAndId(1, existId).isEmpty()).isTrue();
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(0);
+    }
+
+    @Test
+    void findByBrandIdAndName_shouldReturnProduct_onlyOfGivenBrand_Test() {
+        Optional<Product> found = productRepository.findByBrandIdAndName(4, "Парка");
+        assertThat(found.isPresent()).isTrue();
+        assertThat(found.get().getId()).isEqualTo(existId);
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(1);
+
+        fetchedRows.reset();
+        assertThat(productRepository.findByBrandIdAndName(1, "Парка").isEmpty()).isTrue();
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(0);
+    }
+
+    @Test
+    void existsByName_shouldThrow_whenDatabaseFails_Test() {
+        ProductRepository brokenRepository = new ProductRepository(() -> {
+            throw new SQLException("Connection refused");
+        });
+
+        assertThatThrownBy(() -> brokenRepository.existsByName("Ледоруб"))
+                .isInstanceOf(RepositoryLayerException.class)
+                .hasCauseInstanceOf(SQLException.class);
+    }
+
+    @Test
+    void singleProductLookups_shouldReturnEmpty_forNullIds_withoutQuery_Test() {
+        assertThat(productRepository.findByCategoryIdAndId(null, existId).isEmpty()).isTrue();
+        assertThat(productRepository.findByBrandIdAndId(4, null).isEmpty()).isTrue();
+        assertThat(productRepository.findByBrandIdAndName(null, "Парка").isEmpty()).isTrue();
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(0);
+    }
+}
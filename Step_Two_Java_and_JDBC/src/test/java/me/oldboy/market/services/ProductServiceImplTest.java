@@ -9,12 +9,14 @@ import me.oldboy.market.exceptions.ServiceLayerException;
 import me.oldboy.market.repository.BrandRepository;
 import me.oldboy.market.repository.CategoryRepository;
 import me.oldboy.market.repository.ProductRepository;
+import me.oldboy.market.test_container.FetchedRowsCounter;
 import me.oldboy.market.test_container.PostgresTestContainer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -27,6 +29,7 @@ class ProductServiceImplTest extends PostgresTestContainer {
     private CategoryRepository categoryRepository;
     private BrandRepository brandRepository;
     private ProductServiceImpl productService;
+    private FetchedRowsCounter fetchedRows;
 
     private Connection connection;
 
@@ -45,7 +48,8 @@ class ProductServiceImplTest extends PostgresTestContainer {
         liquibaseManager = LiquibaseManager.getInstance(configProvider);
         liquibaseManager.migrationsStart(connection);
 
-        productRepository = new ProductRepository(connection);
+        fetchedRows = new FetchedRowsCounter();
+        productRepository = new ProductRepository(fetchedRows.provider(connection));
         categoryRepository = new CategoryRepository(connection);
         brandRepository = new BrandRepository(connection);
 
@@ -317,4 +321,59 @@ class ProductServiceImplTest extends PostgresTestContainer {
         List<Product> foundList = productService.findProductByBrand(Math.toIntExact(nonExistId));
         assertThat(foundList.size()).isEqualTo(0);
     }
-}
\ No newline at end of file
+
+    /* Блок тестов на объем чтения: проверки и выборки одного товара не читают всю таблицу, категорию или брэнд */
+
+    @Test
+    void isProductNameUnique_shouldReadOneRow_Test() {
+        productService.isProductNameUnique(nonExistProductName);
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(1);
+    }
+
+    @Test
+    void create_shouldNotReadAllProducts_forNameCheck_Test() {
+        Product productDataForSave = Product.builder()
+                .name(nonExistProductName)
+                .price(23.5)
+                .categoryId(1)
+                .brandId(2)
+                .description("Описание")
+                .stockQuantity(4)
+                .creationAt(LocalDateTime.now())
+                .modifiedAt(LocalDateTime.now().plusSeconds(1))
+                .build();
+
+        productService.create(productDataForSave);
+        /* Проверка имени и сгенерированный ключ новой записи */
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(2);
+    }
+
+    @Test
+    void findProductByCategoryAndId_shouldReadAtMostOneRow_Test() {
+        productService.findProductByCategoryAndId(2, existId);
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(1);
+    }
+
+    @Test
+    void findProductByBrandAndId_shouldReadAtMostOneRow_Test() {
+        productService.findProductByBrandAndId(1, 2L);
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(1);
+    }
+
+    @Test
+    void findProductByBrandAndName_shouldReadAtMostOneRow_Test() {
+        productService.findProductByBrandAndName(4, existProductName);
+        assertThat(fetchedRows.getFetchedRows()).isEqualTo(1);
+    }
+
+    @Test
+    void isProductNameUnique_shouldThrow_whenDatabaseFails_Test() {
+        ProductServiceImpl brokenService = new ProductServiceImpl(new ProductRepository(() -> {
+            throw new SQLException("Connection refused");
+        }), categoryRepository, brandRepository);
+
+        assertThatThrownBy(() -> brokenService.isProductNameUnique(nonExistProductName))
+                .isInstanceOf(ServiceLayerException.class)
+                .hasMessageContaining("Не удалось проверить уникальность имени продукта " + nonExistProductName);
+    }
+}
@@ -0,0 +1,58 @@
+package me.oldboy.market.test_container;
+
+import me.oldboy.market.config.connection.ConnectionProvider;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.Function;
+
+/* Считает строки, прочитанные репозиторием из БД (успешные ResultSet.next() всех запросов) */
+public class FetchedRowsCounter {
+    private int fetchedRows;
+
+    /* Источник соединений для репозитория: общее тестовое соединение, у запросов которого считаются строки */
+    public ConnectionProvider provider(Connection connection) {
+        ConnectionProvider shared = ConnectionProvider.of(connection);
+        return () -> wrap(shared.getConnection(), Connection.class, result -> result instanceof PreparedStatement statement
+                ? wrap(statement, PreparedStatement.class, this::countRows)
+                : result);
+    }
+
+    public int getFetchedRows() {
+        return fetchedRows;
+    }
+
+    public void reset() {
+        fetchedRows = 0;
+    }
+
+    private Object countRows(Object result) {
+        return result instanceof ResultSet resultSet
+                ? wrap(resultSet, ResultSet.class, next -> {
+                    if (Boolean.TRUE.equals(next)) {
+                        fetchedRows++;
+                    }
+                    return next;
+                })
+                : result;
+    }
+
+    /* Прокси, пропускающий результат каждого вызова через decorator (для ResultSet - только результат next()) */
+    private static <T> T wrap(T target, Class<T> type, Function<Object, Object> decorator) {
+        return type.cast(Proxy.newProxyInstance(FetchedRowsCounter.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException exception) {
+                        throw exception.getCause();
+                    }
+                    return type != ResultSet.class || "next".equals(method.getName())
+                            ? decorator.apply(result)
+                            : result;
+                }));
+    }
+}